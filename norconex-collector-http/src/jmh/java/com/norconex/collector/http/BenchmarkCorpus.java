@@ -0,0 +1,249 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Generates realistic, repeatable content used by benchmarks: large HTML
+ * pages, big robots.txt files and lists of URLs as found in the wild.
+ * A fixed seed is used so every run works on the same content.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public final class BenchmarkCorpus {
+
+    public static final String BASE_URL = "https://www.example.com";
+
+    private static final long SEED = 20190101L;
+
+    private static final String[] WORDS = {
+        "crawler", "document", "content", "search", "index", "product",
+        "service", "support", "news", "release", "customer", "account",
+        "the", "and", "of", "to", "a", "in", "is", "for", "with", "on",
+        "performance", "configuration", "download", "category", "page",
+    };
+    private static final String[] PATHS = {
+        "products", "services", "blog", "news", "support", "about",
+        "docs", "downloads", "category", "en", "fr", "archive", "tags",
+    };
+    private static final String[] HOSTS = {
+        "www.example.com", "example.com", "blog.example.com",
+        "shop.example.com", "WWW.Example.COM", "cdn.example.net",
+        "www.example.org", "partner.example.co.uk",
+    };
+
+    private BenchmarkCorpus() {
+    }
+
+    /**
+     * Generates an HTML page with typical head elements, navigation,
+     * scripts, styles, images, forms and text mixed with links
+     * of various kinds (relative, absolute, with query strings, fragments,
+     * "mailto:", "javascript:", etc.).
+     * @param linkCount approximate number of links
+     * @return HTML page
+     */
+    public static String html(int linkCount) {
+        Random r = new Random(SEED);
+        StringBuilder b = new StringBuilder(linkCount * 200);
+        b.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n")
+         .append("<meta charset=\"utf-8\">\n")
+         .append("<meta name=\"viewport\" content=\"width=device-width\">\n")
+         .append("<title>Benchmark page</title>\n")
+         .append("<meta name=\"description\" content=\"")
+         .append(sentence(r, 20)).append("\">\n")
+         .append("<meta name=\"robots\" content=\"index, follow\">\n")
+         .append("<link rel=\"stylesheet\" href=\"/css/main.css\">\n")
+         .append("<link rel=\"canonical\" href=\"").append(BASE_URL)
+         .append("/products/page.html\">\n")
+         .append("<script>var config = {\"tracking\": true, ")
+         .append("\"url\": \"/track?a=1&b=2\"};</script>\n")
+         .append("<style>body { font-family: sans-serif; }</style>\n")
+         .append("</head>\n<body>\n<!-- header -->\n<nav><ul>\n");
+        for (int i = 0; i < linkCount; i++) {
+            switch (r.nextInt(10)) {
+            case 0:
+                b.append("<li><a href=\"").append(BASE_URL).append(path(r))
+                 .append("\" title=\"").append(word(r)).append("\">")
+                 .append(sentence(r, 3)).append("</a></li>\n");
+                break;
+            case 1:
+                b.append("<p>").append(sentence(r, 40)).append("</p>\n");
+                break;
+            case 2:
+                b.append("<img src=\"/images/").append(word(r))
+                 .append(r.nextInt(1000)).append(".jpg\" alt=\"")
+                 .append(sentence(r, 4)).append("\">\n");
+                break;
+            case 3:
+                b.append("<a href=\"mailto:info@example.com\">Email</a> ")
+                 .append("<a href=\"javascript:void(0)\">Menu</a>\n");
+                break;
+            case 4:
+                b.append("<a href=\"../").append(word(r)).append("/?id=")
+                 .append(r.nextInt(100000)).append("&amp;sort=asc#top\">")
+                 .append(word(r)).append("</a>\n");
+                break;
+            case 5:
+                b.append("<form action=\"/search\"><input name=\"q\">")
+                 .append("</form>\n<!-- ").append(sentence(r, 8))
+                 .append(" -->\n");
+                break;
+            case 6:
+                b.append("<div class=\"card\"><h3>").append(sentence(r, 5))
+                 .append("</h3><a href=\"https://").append(host(r))
+                 .append(path(r)).append("\" rel=\"nofollow\">")
+                 .append(word(r)).append("</a></div>\n");
+                break;
+            default:
+                b.append("<li><a href=\"").append(path(r)).append("\">")
+                 .append(sentence(r, 2)).append("</a></li>\n");
+                break;
+            }
+        }
+        b.append("</ul></nav>\n<script src=\"/js/app.js\"></script>\n")
+         .append("</body>\n</html>\n");
+        return b.toString();
+    }
+
+    /**
+     * Generates a robots.txt with several user-agent groups, each having
+     * "Allow" and "Disallow" rules with wildcards, as well as
+     * crawl delays, sitemaps and comments.
+     * @param groups number of user-agent groups
+     * @param rulesPerGroup number of rules per group
+     * @return robots.txt content
+     */
+    public static String robotsTxt(int groups, int rulesPerGroup) {
+        Random r = new Random(SEED);
+        StringBuilder b = new StringBuilder();
+        b.append("# robots.txt for ").append(BASE_URL).append('\n');
+        for (int g = 0; g < groups; g++) {
+            b.append('\n');
+            if (g == groups - 1) {
+                b.append("User-agent: *\n");
+            } else {
+                b.append("User-agent: bot").append(g).append('\n');
+                if (r.nextBoolean()) {
+                    b.append("User-agent: Bot").append(g).append("-News\n");
+                }
+            }
+            if (r.nextInt(3) == 0) {
+                b.append("Crawl-delay: ").append(1 + r.nextInt(10))
+                 .append('\n');
+            }
+            for (int i = 0; i < rulesPerGroup; i++) {
+                b.append(r.nextInt(4) == 0 ? "Allow: " : "Disallow: ")
+                 .append(path(r));
+                int variant = r.nextInt(4);
+                if (variant == 0) {
+                    b.append("*");
+                } else if (variant == 1) {
+                    b.append("*.pdf$");
+                } else if (variant == 2) {
+                    b.append("?*sessionid=");
+                }
+                if (r.nextInt(10) == 0) {
+                    b.append("  # ").append(sentence(r, 4));
+                }
+                b.append('\n');
+            }
+        }
+        b.append('\n');
+        for (int i = 0; i < 5; i++) {
+            b.append("Sitemap: ").append(BASE_URL).append("/sitemap-")
+             .append(i).append(".xml\n");
+        }
+        return b.toString();
+    }
+
+    /**
+     * Generates URLs in need of various normalizations: mixed-case hosts,
+     * default ports, dot segments, fragments, session IDs,
+     * unsorted query strings, encoded characters, etc.
+     * @param count number of URLs
+     * @return URLs
+     */
+    public static String[] urls(int count) {
+        Random r = new Random(SEED);
+        String[] urls = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder b = new StringBuilder();
+            b.append(r.nextInt(3) == 0 ? "HTTP://" : "https://")
+             .append(host(r));
+            if (r.nextInt(5) == 0) {
+                b.append(r.nextBoolean() ? ":80" : ":8080");
+            }
+            b.append(path(r));
+            if (r.nextInt(4) == 0) {
+                b.append("/./").append(word(r)).append("/../")
+                 .append(word(r)).append("/");
+            }
+            if (r.nextInt(3) == 0) {
+                b.append("index.html");
+            }
+            if (r.nextBoolean()) {
+                b.append("?z=").append(r.nextInt(100))
+                 .append("&a=").append(word(r))
+                 .append("&jsessionid=").append(Long.toHexString(r.nextLong()));
+            }
+            if (r.nextInt(5) == 0) {
+                b.append("%7e").append(word(r));
+            }
+            if (r.nextInt(3) == 0) {
+                b.append("#section-").append(r.nextInt(10));
+            }
+            urls[i] = b.toString();
+        }
+        return urls;
+    }
+
+    public static InputStream toInputStream(String content) {
+        return new ByteArrayInputStream(
+                content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String path(Random r) {
+        StringBuilder b = new StringBuilder();
+        int depth = 1 + r.nextInt(4);
+        for (int i = 0; i < depth; i++) {
+            b.append('/').append(PATHS[r.nextInt(PATHS.length)]);
+        }
+        if (r.nextBoolean()) {
+            b.append('/').append(word(r)).append('-').append(r.nextInt(500));
+        }
+        return b.toString();
+    }
+    private static String host(Random r) {
+        return HOSTS[r.nextInt(HOSTS.length)];
+    }
+    private static String word(Random r) {
+        return WORDS[r.nextInt(WORDS.length)];
+    }
+    private static String sentence(Random r, int words) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                b.append(' ');
+            }
+            b.append(word(r));
+        }
+        return b.toString();
+    }
+}
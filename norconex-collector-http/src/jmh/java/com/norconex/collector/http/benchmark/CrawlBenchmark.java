@@ -0,0 +1,299 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.crawler.CrawlerConfig;
+import com.norconex.collector.http.HttpCollector;
+import com.norconex.collector.http.HttpCollectorConfig;
+import com.norconex.collector.http.crawler.HttpCrawlerConfig;
+import com.norconex.collector.http.delay.impl.GenericDelayResolver;
+import com.norconex.collector.http.pipeline.LatencyHistogram;
+import com.norconex.collector.http.pipeline.StageTimings;
+import com.norconex.collector.http.server.TestServer;
+import com.norconex.collector.http.server.TestServerBuilder;
+import com.norconex.committer.core.impl.NilCommitter;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * End-to-end crawl benchmark. Starts a local {@link SyntheticSite},
+ * crawls it with a full {@link HttpCollector} and reports throughput
+ * (pages per second), per-stage latency percentiles, peak heap usage
+ * and garbage collection activity. Results are logged and written
+ * as JSON. Stage latencies come from crawler {@link StageTimings},
+ * which are enabled for the benchmark.
+ * </p>
+ * <p>
+ * Options are passed as <code>name=value</code> arguments:
+ * </p>
+ * <ul>
+ *   <li><b>pages</b>: number of pages on the site (default 10000).</li>
+ *   <li><b>fanOut</b>: number of child pages linked from each page
+ *       (default 10).</li>
+ *   <li><b>minSize</b>/<b>maxSize</b>: page size range in bytes
+ *       (default 2048/20480).</li>
+ *   <li><b>minLatency</b>/<b>maxLatency</b>: server response time range
+ *       in milliseconds (default 0/0).</li>
+ *   <li><b>errorRate</b>: ratio of pages returning a server error
+ *       (default 0).</li>
+ *   <li><b>robotsTxt</b>: whether to serve and honor robots.txt
+ *       (default true).</li>
+ *   <li><b>sitemap</b>: whether to serve sitemaps and start from them
+ *       (default false).</li>
+ *   <li><b>threads</b>: number of crawler threads (default 4).</li>
+ *   <li><b>maxDocuments</b>: maximum number of documents to crawl
+ *       (default -1 for all).</li>
+ *   <li><b>delay</b>: politeness delay in milliseconds (default 0).</li>
+ *   <li><b>delayScope</b>: "crawler", "site" or "thread"
+ *       (default "crawler").</li>
+ *   <li><b>config</b>: path to a collector XML configuration to use
+ *       instead of the above crawler options, to compare fetchers,
+ *       crawl data stores, etc. Its start URLs are replaced with
+ *       the synthetic site ones.</li>
+ *   <li><b>output</b>: JSON result file
+ *       (default "target/crawl-benchmark.json"; the Maven
+ *       profile names it after the project version).</li>
+ * </ul>
+ * <p>
+ * Run with:
+ * </p>
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec@crawl-benchmark \
+ *     -Dcrawl.benchmark.args="pages=100000 threads=8 maxLatency=20"
+ * </pre>
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public final class CrawlBenchmark {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(CrawlBenchmark.class);
+
+    private final Map<String, String> options;
+
+    public CrawlBenchmark(Map<String, String> options) {
+        super();
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (StringUtils.contains(arg, '=')) {
+                options.put(StringUtils.substringBefore(arg, "=").trim(),
+                        StringUtils.substringAfter(arg, "=").trim());
+            }
+        }
+        new CrawlBenchmark(options).run();
+    }
+
+    public CrawlBenchmarkStats run() throws IOException {
+        SyntheticSite site = new SyntheticSite();
+        site.setPageCount(getLong("pages", site.getPageCount()));
+        site.setFanOut((int) getLong("fanOut", site.getFanOut()));
+        site.setMinPageSize((int) getLong("minSize", site.getMinPageSize()));
+        site.setMaxPageSize((int) getLong("maxSize", site.getMaxPageSize()));
+        site.setMinLatency(getLong("minLatency", site.getMinLatency()));
+        site.setMaxLatency(getLong("maxLatency", site.getMaxLatency()));
+        site.setErrorRate(NumberUtils.toDouble(
+                options.get("errorRate"), site.getErrorRate()));
+        site.setRobotsTxt(getBoolean("robotsTxt", site.isRobotsTxt()));
+        site.setSitemap(getBoolean("sitemap", site.isSitemap()));
+
+        TestServer server = new TestServerBuilder()
+                .addServlet(site, "/*").build();
+        server.start();
+        Path workDir = Files.createTempDirectory("crawl-benchmark");
+        CrawlBenchmarkStats stats = new CrawlBenchmarkStats();
+        try {
+            String baseURL = "http://localhost:" + server.getPort();
+            LOG.info("Crawling {} with {}", baseURL, site);
+            HttpCollectorConfig config = createConfig(baseURL, site, workDir);
+            List<HttpCrawlerConfig> crawlerConfigs = new ArrayList<>();
+            for (CrawlerConfig cfg : config.getCrawlerConfigs()) {
+                cfg.addEventListeners(stats);
+                crawlerConfigs.add((HttpCrawlerConfig) cfg);
+            }
+            new HttpCollector(config).start();
+            stats.stop();
+            // stage names are prefixed only to tell crawlers apart
+            for (HttpCrawlerConfig cfg : crawlerConfigs) {
+                stats.addStageTimings(crawlerConfigs.size() > 1
+                        ? cfg.getId() + "/" : "", cfg.getStageTimings());
+            }
+        } finally {
+            server.stop();
+            FileUtils.deleteQuietly(workDir.toFile());
+        }
+        report(stats);
+        return stats;
+    }
+
+    private HttpCollectorConfig createConfig(
+            String baseURL, SyntheticSite site, Path workDir)
+                    throws IOException {
+        HttpCollectorConfig config = new HttpCollectorConfig();
+        String configFile = options.get("config");
+        if (StringUtils.isNotBlank(configFile)) {
+            try (Reader r = Files.newBufferedReader(Paths.get(configFile))) {
+                new XML(r).populate(config);
+            }
+        } else {
+            config.setId("crawl-benchmark");
+            HttpCrawlerConfig crawlerConfig = new HttpCrawlerConfig();
+            crawlerConfig.setId("crawl-benchmark-crawler");
+            crawlerConfig.setNumThreads((int) getLong("threads", 4));
+            crawlerConfig.setMaxDocuments((int) getLong("maxDocuments", -1));
+            crawlerConfig.setCommitter(new NilCommitter());
+            crawlerConfig.setIgnoreCanonicalLinks(true);
+            crawlerConfig.setIgnoreRobotsTxt(!site.isRobotsTxt());
+            crawlerConfig.setIgnoreSitemap(!site.isSitemap());
+            GenericDelayResolver delay = new GenericDelayResolver();
+            delay.setDefaultDelay(getLong("delay", 0));
+            delay.setScope(StringUtils.defaultIfBlank(
+                    options.get("delayScope"),
+                    GenericDelayResolver.SCOPE_CRAWLER));
+            crawlerConfig.setDelayResolver(delay);
+            config.setCrawlerConfigs(new CrawlerConfig[] { crawlerConfig });
+        }
+        config.setWorkDir(workDir);
+        for (CrawlerConfig cfg : config.getCrawlerConfigs()) {
+            HttpCrawlerConfig crawlerConfig = (HttpCrawlerConfig) cfg;
+            if (crawlerConfig.getStageTimings() == null) {
+                crawlerConfig.setStageTimings(new StageTimings());
+            }
+            crawlerConfig.getStageTimings().setEnabled(true);
+            if (site.isSitemap()) {
+                crawlerConfig.setStartURLs();
+                crawlerConfig.setStartSitemapURLs(
+                        baseURL + SyntheticSite.SITEMAP_PATH);
+            } else {
+                crawlerConfig.setStartURLs(
+                        baseURL + SyntheticSite.START_PATH);
+            }
+        }
+        return config;
+    }
+
+    private void report(CrawlBenchmarkStats stats) throws IOException {
+        LOG.info("Crawl benchmark results:");
+        LOG.info("  Elapsed time:   {} ms", stats.getElapsedMillis());
+        LOG.info("  Fetched:        {}", stats.getFetched());
+        LOG.info("  Committed:      {}", stats.getCommitted());
+        LOG.info("  Rejected:       {}", stats.getRejected());
+        LOG.info("  Pages/second:   {}", format(stats.getPagesPerSecond()));
+        LOG.info("  Peak heap:      {} MB",
+                stats.getPeakHeapBytes() / (1024 * 1024));
+        LOG.info("  GC:             {} collections, {} ms",
+                stats.getGcCount(), stats.getGcMillis());
+        for (Entry<String, LatencyHistogram> en
+                : stats.getLatencies().entrySet()) {
+            LatencyHistogram l = en.getValue();
+            LOG.info("  {}: count={} p50={} ms p99={} ms max={} ms",
+                    en.getKey(), l.getCount(),
+                    format(l.getPercentileMillis(50)),
+                    format(l.getPercentileMillis(99)),
+                    format(l.getMaxMillis()));
+        }
+
+        Path output = Paths.get(StringUtils.defaultIfBlank(
+                options.get("output"), "target/crawl-benchmark.json"));
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (Writer w = Files.newBufferedWriter(
+                output, StandardCharsets.UTF_8)) {
+            w.write(toJSON(stats));
+        }
+        LOG.info("Results written to: {}", output.toAbsolutePath());
+    }
+
+    private String toJSON(CrawlBenchmarkStats stats) {
+        StringBuilder b = new StringBuilder("{\n");
+        b.append("  \"options\": {");
+        boolean first = true;
+        for (Entry<String, String> en : options.entrySet()) {
+            b.append(first ? "\n" : ",\n").append("    \"")
+             .append(escape(en.getKey())).append("\": \"")
+             .append(escape(en.getValue())).append('"');
+            first = false;
+        }
+        b.append("\n  },\n")
+         .append("  \"elapsedMillis\": ").append(stats.getElapsedMillis())
+         .append(",\n  \"fetched\": ").append(stats.getFetched())
+         .append(",\n  \"committed\": ").append(stats.getCommitted())
+         .append(",\n  \"rejected\": ").append(stats.getRejected())
+         .append(",\n  \"pagesPerSecond\": ")
+         .append(format(stats.getPagesPerSecond()))
+         .append(",\n  \"peakHeapBytes\": ").append(stats.getPeakHeapBytes())
+         .append(",\n  \"gcCount\": ").append(stats.getGcCount())
+         .append(",\n  \"gcMillis\": ").append(stats.getGcMillis())
+         .append(",\n  \"latencies\": {");
+        first = true;
+        for (Entry<String, LatencyHistogram> en
+                : stats.getLatencies().entrySet()) {
+            LatencyHistogram l = en.getValue();
+            b.append(first ? "\n" : ",\n").append("    \"")
+             .append(escape(en.getKey())).append("\": {")
+             .append("\"count\": ").append(l.getCount())
+             .append(", \"meanMillis\": ").append(format(l.getMeanMillis()))
+             .append(", \"p50Millis\": ")
+             .append(format(l.getPercentileMillis(50)))
+             .append(", \"p99Millis\": ")
+             .append(format(l.getPercentileMillis(99)))
+             .append(", \"maxMillis\": ").append(format(l.getMaxMillis()))
+             .append('}');
+            first = false;
+        }
+        b.append("\n  }\n}\n");
+        return b.toString();
+    }
+
+    private long getLong(String name, long defaultValue) {
+        return NumberUtils.toLong(options.get(name), defaultValue);
+    }
+    private boolean getBoolean(String name, boolean defaultValue) {
+        String value = options.get(name);
+        return StringUtils.isBlank(value)
+                ? defaultValue : Boolean.parseBoolean(value);
+    }
+    private static String format(double value) {
+        return String.format(Locale.ENGLISH, "%.3f", value);
+    }
+    private static String escape(String value) {
+        return StringUtils.replaceEach(value,
+                new String[] { "\\", "\"" }, new String[] { "\\\\", "\\\"" });
+    }
+}
@@ -0,0 +1,182 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.norconex.collector.core.crawler.CrawlerEvent;
+import com.norconex.collector.http.pipeline.LatencyHistogram;
+import com.norconex.collector.http.pipeline.StageTimings;
+import com.norconex.commons.lang.event.Event;
+import com.norconex.commons.lang.event.IEventListener;
+
+/**
+ * <p>
+ * Collects crawl benchmark statistics from crawler events: processed
+ * documents, throughput, heap usage and garbage collection.
+ * </p>
+ * <p>
+ * Latencies are the pipeline stage histograms recorded by each
+ * crawler {@link StageTimings}, added once the crawl is over.
+ * </p>
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class CrawlBenchmarkStats implements IEventListener<Event<?>> {
+
+    private static final long HEAP_SAMPLING_MILLIS = 250;
+
+    private final Map<String, LatencyHistogram> latencies = new TreeMap<>();
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong peakHeap = new AtomicLong();
+
+    private long startNanos;
+    private long endNanos;
+    private long gcCount;
+    private long gcMillis;
+    private ScheduledExecutorService heapSampler;
+
+    @Override
+    public void accept(Event<?> event) {
+        if (!(event instanceof CrawlerEvent)) {
+            return;
+        }
+        CrawlerEvent<?> e = (CrawlerEvent<?>) event;
+        if (e.is(CrawlerEvent.CRAWLER_RUN_BEGIN)) {
+            start();
+            return;
+        }
+        if (e.is(CrawlerEvent.CRAWLER_RUN_END)
+                || e.is(CrawlerEvent.CRAWLER_STOP_END)) {
+            stop();
+            return;
+        }
+        if (e.getCrawlReference() == null) {
+            return;
+        }
+        if (e.is(CrawlerEvent.DOCUMENT_FETCHED)) {
+            fetched.incrementAndGet();
+        } else if (e.is(CrawlerEvent.DOCUMENT_COMMITTED_ADD)) {
+            committed.incrementAndGet();
+        } else if (e.getName().startsWith("REJECTED_")) {
+            rejected.incrementAndGet();
+        }
+    }
+
+    /**
+     * Adds the stage histograms of a crawler.
+     * @param prefix prefix added to stage names (e.g., a crawler id)
+     * @param stageTimings crawler stage timings
+     */
+    public synchronized void addStageTimings(
+            String prefix, StageTimings stageTimings) {
+        stageTimings.getHistograms().forEach(
+                (stage, h) -> latencies.put(prefix + stage, h));
+    }
+
+    public synchronized void start() {
+        if (heapSampler != null) {
+            return;
+        }
+        startNanos = System.nanoTime();
+        gcCount = -totalGcCount();
+        gcMillis = -totalGcMillis();
+        heapSampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "crawl-benchmark-heap-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        heapSampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(
+                usedHeap(), Math::max), 0,
+                HEAP_SAMPLING_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (heapSampler == null) {
+            return;
+        }
+        heapSampler.shutdownNow();
+        heapSampler = null;
+        peakHeap.accumulateAndGet(usedHeap(), Math::max);
+        endNanos = System.nanoTime();
+        gcCount += totalGcCount();
+        gcMillis += totalGcMillis();
+    }
+
+    public long getFetched() {
+        return fetched.get();
+    }
+    public long getCommitted() {
+        return committed.get();
+    }
+    public long getRejected() {
+        return rejected.get();
+    }
+    public long getElapsedMillis() {
+        long end = endNanos > 0 ? endNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+    public double getPagesPerSecond() {
+        long millis = getElapsedMillis();
+        return millis == 0 ? 0 : fetched.get() * 1000d / millis;
+    }
+    public long getPeakHeapBytes() {
+        return peakHeap.get();
+    }
+    public long getGcCount() {
+        return gcCount;
+    }
+    public long getGcMillis() {
+        return gcMillis;
+    }
+    /**
+     * Gets latencies per pipeline stage, sorted by stage name.
+     * @return latencies
+     */
+    public synchronized Map<String, LatencyHistogram> getLatencies() {
+        return Collections.unmodifiableMap(new TreeMap<>(latencies));
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean()
+                .getHeapMemoryUsage().getUsed();
+    }
+    private static long totalGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc
+                : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+    private static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc
+                : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
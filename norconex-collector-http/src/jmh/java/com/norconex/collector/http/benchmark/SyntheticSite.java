@@ -0,0 +1,303 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import com.norconex.commons.lang.Sleeper;
+
+/**
+ * <p>
+ * Servlet serving a synthetic web site of any size. Pages are generated
+ * on the fly from their number, using a fixed seed, so the same site
+ * is served on every run without anything stored in memory or on disk.
+ * </p>
+ * <p>
+ * Pages form a tree where page <code>n</code> links to pages
+ * <code>n * fanOut + 1</code> to <code>n * fanOut + fanOut</code>,
+ * which guarantees every page is reachable from <code>/page/0</code>.
+ * A few extra links point to random pages (already seen or not)
+ * and to a "/private/" section disallowed by robots.txt.
+ * Page size, latency and whether a page returns an error
+ * are also derived from the page number.
+ * </p>
+ * <p>
+ * Served paths:
+ * </p>
+ * <ul>
+ *   <li><code>/page/{n}</code>: HTML pages.</li>
+ *   <li><code>/private/{n}</code>: pages disallowed by robots.txt.</li>
+ *   <li><code>/robots.txt</code>: when robots.txt is enabled.</li>
+ *   <li><code>/sitemap.xml</code>: sitemap index, when sitemap is
+ *       enabled.</li>
+ *   <li><code>/sitemap/{n}.xml</code>: sitemaps listing all pages.</li>
+ * </ul>
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class SyntheticSite extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String START_PATH = "/page/0";
+    public static final String SITEMAP_PATH = "/sitemap.xml";
+
+    private static final int SITEMAP_MAX_URLS = 50000;
+    private static final int RANDOM_LINKS = 2;
+    private static final String LAST_MODIFIED =
+            "Tue, 01 Jan 2019 00:00:00 GMT";
+    private static final String[] WORDS = {
+        "crawler", "document", "content", "search", "index", "product",
+        "service", "support", "news", "release", "customer", "account",
+        "the", "and", "of", "to", "a", "in", "is", "for", "with", "on",
+    };
+
+    private long pageCount = 10000;
+    private int fanOut = 10;
+    private int minPageSize = 2 * 1024;
+    private int maxPageSize = 20 * 1024;
+    private long minLatency;
+    private long maxLatency;
+    private double errorRate;
+    private boolean robotsTxt = true;
+    private boolean sitemap;
+    private long seed = 20190101L;
+
+    public long getPageCount() {
+        return pageCount;
+    }
+    public void setPageCount(long pageCount) {
+        this.pageCount = pageCount;
+    }
+    public int getFanOut() {
+        return fanOut;
+    }
+    public void setFanOut(int fanOut) {
+        this.fanOut = fanOut;
+    }
+    public int getMinPageSize() {
+        return minPageSize;
+    }
+    public void setMinPageSize(int minPageSize) {
+        this.minPageSize = minPageSize;
+    }
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+    /**
+     * Gets the minimum time in milliseconds taken to respond to a request.
+     * @return minimum latency
+     */
+    public long getMinLatency() {
+        return minLatency;
+    }
+    public void setMinLatency(long minLatency) {
+        this.minLatency = minLatency;
+    }
+    /**
+     * Gets the maximum time in milliseconds taken to respond to a request.
+     * @return maximum latency
+     */
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+    public void setMaxLatency(long maxLatency) {
+        this.maxLatency = maxLatency;
+    }
+    /**
+     * Gets the ratio of pages (0 to 1) returning a server error.
+     * @return error rate
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+    public boolean isRobotsTxt() {
+        return robotsTxt;
+    }
+    public void setRobotsTxt(boolean robotsTxt) {
+        this.robotsTxt = robotsTxt;
+    }
+    public boolean isSitemap() {
+        return sitemap;
+    }
+    public void setSitemap(boolean sitemap) {
+        this.sitemap = sitemap;
+    }
+    public long getSeed() {
+        return seed;
+    }
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws IOException {
+        String path = StringUtils.defaultString(req.getPathInfo());
+        if (path.startsWith("/page/")) {
+            servePage(resp, toNumber(path, "/page/", ""));
+        } else if (path.startsWith("/private/")) {
+            write(resp, "text/html", "<html><body>Private</body></html>");
+        } else if ("/robots.txt".equals(path) && robotsTxt) {
+            serveRobotsTxt(req, resp);
+        } else if (SITEMAP_PATH.equals(path) && sitemap) {
+            serveSitemapIndex(req, resp);
+        } else if (path.startsWith("/sitemap/") && sitemap) {
+            serveSitemap(req, resp, toNumber(path, "/sitemap/", ".xml"));
+        } else {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    private void servePage(HttpServletResponse resp, long page)
+            throws IOException {
+        if (page < 0 || page >= pageCount) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Random r = new Random(seed ^ page);
+        if (maxLatency > 0) {
+            Sleeper.sleepMillis(minLatency + (long) (r.nextDouble()
+                    * (Math.max(maxLatency, minLatency) - minLatency)));
+        }
+        if (r.nextDouble() < errorRate) {
+            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            return;
+        }
+        int size = minPageSize + r.nextInt(
+                Math.max(maxPageSize, minPageSize) - minPageSize + 1);
+
+        StringBuilder b = new StringBuilder(size + 1024);
+        b.append("<html><head><title>Page ").append(page)
+         .append("</title></head><body>\n<h1>Page ").append(page)
+         .append("</h1>\n<ul>\n");
+        for (long i = 1; i <= fanOut; i++) {
+            long child = page * fanOut + i;
+            if (child >= pageCount) {
+                break;
+            }
+            appendLink(b, "/page/" + child);
+        }
+        for (int i = 0; i < RANDOM_LINKS; i++) {
+            appendLink(b, "/page/" + Math.floorMod(r.nextLong(), pageCount));
+        }
+        appendLink(b, "/private/" + page);
+        b.append("</ul>\n<p>");
+        while (b.length() < size) {
+            b.append(WORDS[r.nextInt(WORDS.length)]).append(' ');
+        }
+        b.append("</p>\n</body></html>");
+        write(resp, "text/html", b.toString());
+    }
+
+    private void serveRobotsTxt(
+            HttpServletRequest req, HttpServletResponse resp)
+                    throws IOException {
+        StringBuilder b = new StringBuilder();
+        b.append("User-agent: *\nDisallow: /private/\n");
+        if (sitemap) {
+            b.append("Sitemap: ").append(baseURL(req))
+             .append(SITEMAP_PATH).append('\n');
+        }
+        write(resp, "text/plain", b.toString());
+    }
+
+    private void serveSitemapIndex(
+            HttpServletRequest req, HttpServletResponse resp)
+                    throws IOException {
+        String base = baseURL(req);
+        StringBuilder b = new StringBuilder();
+        b.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+         .append("<sitemapindex xmlns=")
+         .append("\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+        long count = (pageCount + SITEMAP_MAX_URLS - 1) / SITEMAP_MAX_URLS;
+        for (long i = 0; i < count; i++) {
+            b.append("<sitemap><loc>").append(base).append("/sitemap/")
+             .append(i).append(".xml</loc></sitemap>\n");
+        }
+        b.append("</sitemapindex>");
+        write(resp, "application/xml", b.toString());
+    }
+
+    private void serveSitemap(
+            HttpServletRequest req, HttpServletResponse resp, long index)
+                    throws IOException {
+        long start = index * SITEMAP_MAX_URLS;
+        if (index < 0 || start >= pageCount) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long end = Math.min(start + SITEMAP_MAX_URLS, pageCount);
+        String base = baseURL(req);
+        StringBuilder b = new StringBuilder();
+        b.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+         .append("<urlset xmlns=")
+         .append("\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+        for (long i = start; i < end; i++) {
+            b.append("<url><loc>").append(base).append("/page/").append(i)
+             .append("</loc><lastmod>2019-01-01</lastmod></url>\n");
+        }
+        b.append("</urlset>");
+        write(resp, "application/xml", b.toString());
+    }
+
+    private void appendLink(StringBuilder b, String href) {
+        b.append("<li><a href=\"").append(href).append("\">")
+         .append(href).append("</a></li>\n");
+    }
+
+    private void write(HttpServletResponse resp,
+            String contentType, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        resp.setContentType(contentType);
+        resp.setCharacterEncoding(StandardCharsets.UTF_8.toString());
+        resp.setContentLength(bytes.length);
+        resp.setHeader("Last-Modified", LAST_MODIFIED);
+        resp.getOutputStream().write(bytes);
+    }
+
+    private String baseURL(HttpServletRequest req) {
+        return req.getScheme() + "://" + req.getServerName()
+                + ":" + req.getServerPort();
+    }
+
+    private long toNumber(String path, String prefix, String suffix) {
+        return NumberUtils.toLong(StringUtils.removeEnd(
+                StringUtils.removeStart(path, prefix), suffix), -1);
+    }
+
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
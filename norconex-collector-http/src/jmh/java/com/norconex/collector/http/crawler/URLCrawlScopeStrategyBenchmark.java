@@ -0,0 +1,72 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.crawler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.norconex.collector.http.BenchmarkCorpus;
+
+/**
+ * Measures crawl scope verification of extracted URLs with all
+ * "stayOn" options enabled.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class URLCrawlScopeStrategyBenchmark {
+
+    private static final int URL_COUNT = 1000;
+    private static final String IN_SCOPE_URL =
+            BenchmarkCorpus.BASE_URL + "/products/index.html";
+
+    private URLCrawlScopeStrategy strategy;
+    private String[] urls;
+
+    @Setup
+    public void setup() {
+        strategy = new URLCrawlScopeStrategy();
+        strategy.setStayOnDomain(true);
+        strategy.setIncludeSubdomains(true);
+        strategy.setStayOnPort(true);
+        strategy.setStayOnProtocol(true);
+        urls = BenchmarkCorpus.urls(URL_COUNT);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(URL_COUNT)
+    public void isInScope(Blackhole bh) {
+        for (String url : urls) {
+            bh.consume(strategy.isInScope(IN_SCOPE_URL, url));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.robot.impl;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.norconex.collector.http.BenchmarkCorpus;
+import com.norconex.collector.http.robot.RobotsTxt;
+import com.norconex.collector.http.robot.IRobotsTxtFilter;
+
+/**
+ * Measures parsing of a large robots.txt file and matching URLs
+ * against the resulting filters.
+ * Located in the provider package to access the parsing method.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StandardRobotsTxtProviderBenchmark {
+
+    private static final int URL_COUNT = 1000;
+    private static final String USER_AGENT = "bot3";
+
+    private StandardRobotsTxtProvider provider;
+    private String robotsTxt;
+    private RobotsTxt parsed;
+    private String[] urls;
+
+    @Setup
+    public void setup() throws IOException {
+        provider = new StandardRobotsTxtProvider();
+        robotsTxt = BenchmarkCorpus.robotsTxt(20, 100);
+        parsed = parse();
+        urls = BenchmarkCorpus.urls(URL_COUNT);
+    }
+
+    @Benchmark
+    public RobotsTxt parseRobotsTxt() throws IOException {
+        return parse();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(URL_COUNT)
+    public void matchFilters(Blackhole bh) {
+        for (String url : urls) {
+            boolean accepted = true;
+            for (IRobotsTxtFilter filter : parsed.getFilters()) {
+                accepted &= filter.acceptReference(url);
+            }
+            bh.consume(accepted);
+        }
+    }
+
+    private RobotsTxt parse() throws IOException {
+        return provider.parseRobotsTxt(
+                BenchmarkCorpus.toInputStream(robotsTxt),
+                BenchmarkCorpus.BASE_URL + "/robots.txt", USER_AGENT);
+    }
+}
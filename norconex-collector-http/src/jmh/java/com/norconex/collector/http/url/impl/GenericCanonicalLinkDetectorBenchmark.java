@@ -0,0 +1,88 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.url.impl;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.norconex.collector.http.BenchmarkCorpus;
+import com.norconex.collector.http.doc.HttpMetadata;
+import com.norconex.commons.lang.file.ContentType;
+
+/**
+ * Measures canonical link detection from HTTP headers and from page
+ * content, the latter both with and without a canonical link present
+ * (the worst case reading the whole page head).
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GenericCanonicalLinkDetectorBenchmark {
+
+    private static final String URL =
+            BenchmarkCorpus.BASE_URL + "/products/page.html?id=123";
+
+    private GenericCanonicalLinkDetector detector;
+    private HttpMetadata metadata;
+    private String htmlWithCanonical;
+    private String htmlWithoutCanonical;
+
+    @Setup
+    public void setup() {
+        detector = new GenericCanonicalLinkDetector();
+        metadata = new HttpMetadata(URL);
+        metadata.add("Content-Type", "text/html; charset=UTF-8");
+        metadata.add("Link", "<" + BenchmarkCorpus.BASE_URL
+                + "/products/page.html>; rel=\"canonical\"");
+        htmlWithCanonical = BenchmarkCorpus.html(500);
+        htmlWithoutCanonical = htmlWithCanonical.replaceFirst(
+                "(?i)<link rel=\"canonical\"[^>]*>", "");
+    }
+
+    @Benchmark
+    public String detectFromMetadata() {
+        return detector.detectFromMetadata(URL, metadata);
+    }
+
+    @Benchmark
+    public String detectFromContent() throws IOException {
+        return detector.detectFromContent(URL,
+                BenchmarkCorpus.toInputStream(htmlWithCanonical),
+                ContentType.HTML);
+    }
+
+    @Benchmark
+    public String detectFromContentMissing() throws IOException {
+        return detector.detectFromContent(URL,
+                BenchmarkCorpus.toInputStream(htmlWithoutCanonical),
+                ContentType.HTML);
+    }
+}
@@ -0,0 +1,68 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.url.impl;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.norconex.collector.http.BenchmarkCorpus;
+import com.norconex.collector.http.url.Link;
+import com.norconex.commons.lang.file.ContentType;
+
+/**
+ * Measures link extraction from HTML pages of various sizes.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GenericLinkExtractorBenchmark {
+
+    @Param({ "100", "2000" })
+    private int linkCount;
+
+    private GenericLinkExtractor extractor;
+    private String html;
+
+    @Setup
+    public void setup() {
+        extractor = new GenericLinkExtractor();
+        html = BenchmarkCorpus.html(linkCount);
+    }
+
+    @Benchmark
+    public Set<Link> extractLinks() throws IOException {
+        return extractor.extractLinks(BenchmarkCorpus.toInputStream(html),
+                BenchmarkCorpus.BASE_URL + "/products/page.html",
+                ContentType.HTML);
+    }
+}
@@ -0,0 +1,93 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.url.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.norconex.collector.http.BenchmarkCorpus;
+import com.norconex.collector.http.url.impl.GenericURLNormalizer.Normalization;
+
+/**
+ * Measures URL normalization, with default normalizations and with
+ * many extra normalizations typically used for deduplication (excluding
+ * those performing DNS lookups).
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GenericURLNormalizerBenchmark {
+
+    private static final int URL_COUNT = 1000;
+
+    private GenericURLNormalizer defaultNormalizer;
+    private GenericURLNormalizer extendedNormalizer;
+    private String[] urls;
+
+    @Setup
+    public void setup() {
+        defaultNormalizer = new GenericURLNormalizer();
+        extendedNormalizer = new GenericURLNormalizer();
+        extendedNormalizer.setNormalizations(
+                Normalization.removeFragment,
+                Normalization.lowerCaseSchemeHost,
+                Normalization.upperCaseEscapeSequence,
+                Normalization.decodeUnreservedCharacters,
+                Normalization.removeDefaultPort,
+                Normalization.encodeNonURICharacters,
+                Normalization.removeDotSegments,
+                Normalization.removeDuplicateSlashes,
+                Normalization.removeDirectoryIndex,
+                Normalization.removeSessionIds,
+                Normalization.removeEmptyParameters,
+                Normalization.sortQueryParameters,
+                Normalization.removeTrailingQuestionMark,
+                Normalization.addDirectoryTrailingSlash);
+        urls = BenchmarkCorpus.urls(URL_COUNT);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(URL_COUNT)
+    public void normalizeDefault(Blackhole bh) {
+        for (String url : urls) {
+            bh.consume(defaultNormalizer.normalizeURL(url));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(URL_COUNT)
+    public void normalizeExtended(Blackhole bh) {
+        for (String url : urls) {
+            bh.consume(extendedNormalizer.normalizeURL(url));
+        }
+    }
+}
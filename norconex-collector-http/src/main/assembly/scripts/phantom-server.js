@@ -0,0 +1,149 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* This file is used and is required by the PhantomJSDocumentFetcher when
+ * render workers are enabled.  It keeps PhantomJS running and renders
+ * pages on request, received as JSON over a local HTTP socket.
+ * Modifying this file could break PhantomJSDocumentFetcher behavior.
+ */
+var webserver = require('webserver');
+var webpage = require('webpage');
+var fs = require('fs');
+var system = require('system');
+
+if (system.args.length !== 2) {
+    system.stderr.writeLine('Invalid number of arguments.');
+    phantom.exit(1);
+}
+
+var port = system.args[1];          // Local port to listen to
+
+// Each request is rendered in a new page of the same running browser
+// and produces the same lines phantom.js writes to STDOUT/STDERR,
+// followed by the exit code a phantom.js process would have returned.
+function render(req, done) {
+    var page = webpage.create();
+    var lines = [];
+    var finished = false;
+    var finish = function(exitCode) {
+        if (!finished) {
+            finished = true;
+            page.close();
+            lines.push('EXIT:' + exitCode);
+            done(lines);
+        }
+    };
+    var fail = function(e) {
+        lines.push('ERROR:' + e);
+        finish(1);
+    };
+
+    if (req.thumbnailFile && req.dimension) {
+        var size = req.dimension.split('x');
+        var pageWidth = parseInt(size[0], 10) * req.zoomFactor;
+        var pageHeight = parseInt(size[1], 10) * req.zoomFactor;
+        page.viewportSize = { width: pageWidth, height: pageHeight };
+        page.clipRect = {
+            top: 0, left: 0, width: pageWidth, height: pageHeight };
+    }
+    if (req.thumbnailFile && req.zoomFactor) {
+        page.zoomFactor = req.zoomFactor;
+    }
+    if (req.resourceTimeout !== -1) {
+        page.settings.resourceTimeout = req.resourceTimeout;
+    }
+    // Same as the --load-images option of phantom.js processes.
+    page.settings.loadImages = !!req.loadImages;
+
+    page.onResourceError = function(resourceError) {
+        lines.push('ERROR:' + resourceError.url + ': '
+                + resourceError.errorString);
+    };
+    page.onResourceReceived = function(response) {
+        if (response.url === req.url && response.stage === 'end') {
+            response.headers.forEach(function(header) {
+                lines.push('HEADER:' + header.name + '=' + header.value);
+            });
+            lines.push('STATUS:' + response.status);
+            lines.push('STATUSTEXT:' + response.statusText);
+            lines.push('CONTENTTYPE:' + response.contentType);
+        }
+    };
+    page.onError = function(msg) {
+        // phantom.js processes are aborted on these
+        if (msg && msg.indexOf('ReferenceError:') === 0) {
+            fail(msg);
+        }
+    };
+
+    page.open(req.url, function(status) {
+        try {
+            if (status !== 'success') {
+                lines.push('ERROR:Unsuccessful loading of: '
+                        + req.url + ' (status=' + status + ').');
+                if (page.content) {
+                    fs.write(req.outFile, page.content, 'w');
+                }
+                finish(0);
+            } else {
+                window.setTimeout(function() {
+                    if (finished) {
+                        return;
+                    }
+                    try {
+                        if (req.thumbnailFile) {
+                            page.render(req.thumbnailFile);
+                        }
+                        fs.write(req.outFile, page.content, 'w');
+                        finish(0);
+                    } catch (e) {
+                        fail(e);
+                    }
+                }, req.timeout);
+            }
+        } catch (e) {
+            fail(e);
+        }
+    });
+}
+
+var server = webserver.create();
+var listening = server.listen('127.0.0.1:' + port, function(request, response) {
+    var req;
+    try {
+        req = JSON.parse(request.postRaw || request.post);
+    } catch (e) {
+        response.statusCode = 400;
+        response.write('ERROR:Invalid request: ' + e);
+        response.close();
+        return;
+    }
+    var respond = function(lines) {
+        response.statusCode = 200;
+        response.setHeader('Content-Type', 'text/plain; charset=UTF-8');
+        response.write(lines.join('\n'));
+        response.close();
+    };
+    try {
+        render(req, respond);
+    } catch (e) {
+        respond(['ERROR:' + e, 'EXIT:1']);
+    }
+});
+if (!listening) {
+    system.stderr.writeLine('Could not listen on port ' + port + '.');
+    phantom.exit(1);
+}
+system.stdout.writeLine('READY:' + port);
@@ -16,6 +16,7 @@ package com.norconex.collector.http;
 
 import com.norconex.collector.core.CollectorConfig;
 import com.norconex.collector.http.crawler.HttpCrawlerConfig;
+import com.norconex.collector.http.dashboard.CrawlDashboard;
 import com.norconex.commons.lang.xml.XML;
 
 /**
@@ -24,16 +25,35 @@ import com.norconex.commons.lang.xml.XML;
  */
 public class HttpCollectorConfig extends CollectorConfig {
 
+    private CrawlDashboard dashboard = new CrawlDashboard();
+
 	public HttpCollectorConfig() {
         super(HttpCrawlerConfig.class);
     }
 
+    /**
+     * Gets the live crawl dashboard settings.
+     * @return crawl dashboard (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public CrawlDashboard getDashboard() {
+        return dashboard;
+    }
+    /**
+     * Sets the live crawl dashboard settings.
+     * @param dashboard crawl dashboard
+     * @since 3.0.0
+     */
+    public void setDashboard(CrawlDashboard dashboard) {
+        this.dashboard = dashboard;
+    }
+
 	@Override
 	protected void loadCollectorConfigFromXML(XML xml) {
-        // Nothing more than what the super class already loads.
+        xml.ifXML("dashboard", dashboard::loadFromXML);
 	}
 	@Override
 	protected void saveCollectorConfigToXML(XML xml) {
-        // Nothing more than what the super class already saves.
+        dashboard.saveToXML(xml.addElement("dashboard"));
 	}
 }
@@ -0,0 +1,228 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.checkpoint;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.http.robot.IRobotsTxtFilter;
+import com.norconex.collector.http.robot.RobotsTxt;
+import com.norconex.collector.http.robot.impl.StandardRobotsTxtProvider;
+import com.norconex.collector.http.util.TsvUtil;
+import com.norconex.importer.handler.filter.OnMatch;
+
+/**
+ * In-memory crawl state saved to and read from a checkpoint file.
+ * One record per line, with tab-separated fields (first one being
+ * the record type).
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+class CheckpointState {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(CheckpointState.class);
+
+    private static final String TEMP_EXT = ".tmp";
+
+    private static final String REC_ROBOTS = "robots";
+    private static final String REC_ALLOW = "allow";
+    private static final String REC_DISALLOW = "disallow";
+    private static final String REC_ROBOTS_SITEMAP = "robotsSitemap";
+    private static final String REC_SITEMAP_ROOT = "sitemapRoot";
+    private static final String REC_DELAY_SCOPE = "delayScope";
+    private static final String REC_LAST_HIT = "lastHit";
+    private static final String REC_REDIRECT = "redirect";
+
+    // robots.txt keyed by URL root
+    private final Map<String, RobotsTxt> robotsTxts = new LinkedHashMap<>();
+    private final Set<String> sitemapRoots = new LinkedHashSet<>();
+    private String delayScope;
+    // epoch milliseconds
+    private final Map<String, Long> lastHits = new LinkedHashMap<>();
+    private final List<String> redirects = new ArrayList<>();
+
+    Map<String, RobotsTxt> getRobotsTxts() {
+        return robotsTxts;
+    }
+    Set<String> getSitemapRoots() {
+        return sitemapRoots;
+    }
+    String getDelayScope() {
+        return delayScope;
+    }
+    void setDelayScope(String delayScope) {
+        this.delayScope = delayScope;
+    }
+    Map<String, Long> getLastHits() {
+        return lastHits;
+    }
+    List<String> getRedirects() {
+        return redirects;
+    }
+
+    boolean isEmpty() {
+        return robotsTxts.isEmpty() && sitemapRoots.isEmpty()
+                && lastHits.isEmpty() && redirects.isEmpty();
+    }
+
+    /**
+     * Writes this state to a file. The file is replaced only once fully
+     * written so a crash never leaves a partial checkpoint behind.
+     * @param file checkpoint file
+     * @throws IOException could not write checkpoint
+     */
+    void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + TEMP_EXT);
+        try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write("# Crawl checkpoint - " + System.currentTimeMillis()
+                    + '\n');
+            for (Entry<String, RobotsTxt> en : robotsTxts.entrySet()) {
+                String root = en.getKey();
+                RobotsTxt robotsTxt = en.getValue();
+                writeLine(w, REC_ROBOTS, root,
+                        Float.toString(robotsTxt.getCrawlDelay()),
+                        Long.toString(robotsTxt.getFetchTime()));
+                for (IRobotsTxtFilter filter : robotsTxt.getFilters()) {
+                    writeLine(w, filter.getOnMatch() == OnMatch.INCLUDE
+                            ? REC_ALLOW : REC_DISALLOW,
+                            root, filter.getPath());
+                }
+                for (String sitemap : robotsTxt.getSitemapLocations()) {
+                    writeLine(w, REC_ROBOTS_SITEMAP, root, sitemap);
+                }
+            }
+            for (String root : sitemapRoots) {
+                writeLine(w, REC_SITEMAP_ROOT, root);
+            }
+            if (delayScope != null) {
+                writeLine(w, REC_DELAY_SCOPE, delayScope);
+            }
+            for (Entry<String, Long> en : lastHits.entrySet()) {
+                writeLine(w, REC_LAST_HIT,
+                        en.getKey(), Long.toString(en.getValue()));
+            }
+            for (String redirect : redirects) {
+                writeLine(w, REC_REDIRECT, redirect);
+            }
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a state from a checkpoint file. Unrecognized lines are ignored.
+     * @param file checkpoint file
+     * @return checkpoint state
+     * @throws IOException could not read checkpoint
+     */
+    static CheckpointState read(Path file) throws IOException {
+        CheckpointState state = new CheckpointState();
+        Map<String, List<IRobotsTxtFilter>> filters = new LinkedHashMap<>();
+        Map<String, List<String>> sitemaps = new LinkedHashMap<>();
+        Map<String, Float> crawlDelays = new LinkedHashMap<>();
+        Map<String, Long> fetchTimes = new LinkedHashMap<>();
+        try (BufferedReader r = Files.newBufferedReader(
+                file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                List<String> f = TsvUtil.split(line);
+                String type = f.get(0);
+                if (REC_ROBOTS.equals(type) && f.size() > 2) {
+                    crawlDelays.put(f.get(1), NumberUtils.toFloat(
+                            f.get(2), RobotsTxt.UNSPECIFIED_CRAWL_DELAY));
+                    // unknown fetch time is treated as expired
+                    fetchTimes.put(f.get(1), f.size() > 3
+                            ? NumberUtils.toLong(f.get(3)) : 0L);
+                } else if ((REC_ALLOW.equals(type)
+                        || REC_DISALLOW.equals(type)) && f.size() > 2) {
+                    filters.computeIfAbsent(f.get(1), k -> new ArrayList<>())
+                            .add(StandardRobotsTxtProvider.createFilter(
+                                    f.get(1), f.get(2),
+                                    REC_ALLOW.equals(type)
+                                            ? OnMatch.INCLUDE
+                                            : OnMatch.EXCLUDE));
+                } else if (REC_ROBOTS_SITEMAP.equals(type) && f.size() > 2) {
+                    sitemaps.computeIfAbsent(f.get(1), k -> new ArrayList<>())
+                            .add(f.get(2));
+                } else if (REC_SITEMAP_ROOT.equals(type) && f.size() > 1) {
+                    state.sitemapRoots.add(f.get(1));
+                } else if (REC_DELAY_SCOPE.equals(type) && f.size() > 1) {
+                    state.delayScope = f.get(1);
+                } else if (REC_LAST_HIT.equals(type) && f.size() > 2) {
+                    state.lastHits.put(f.get(1), NumberUtils.toLong(f.get(2)));
+                } else if (REC_REDIRECT.equals(type) && f.size() > 1) {
+                    state.redirects.add(f.get(1));
+                } else {
+                    LOG.debug("Ignoring unrecognized checkpoint line: {}",
+                            line);
+                }
+            }
+        }
+        crawlDelays.forEach((root, delay) -> state.robotsTxts.put(root,
+                new RobotsTxt(filters.getOrDefault(root, new ArrayList<>()),
+                        sitemaps.get(root), delay, fetchTimes.get(root))));
+        return state;
+    }
+
+    private static void writeLine(Writer w, String... fields)
+            throws IOException {
+        w.write(TsvUtil.join(fields));
+        w.write('\n');
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
@@ -0,0 +1,367 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.checkpoint;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.CollectorException;
+import com.norconex.collector.http.crawler.HttpCrawler;
+import com.norconex.collector.http.crawler.HttpCrawlerConfig;
+import com.norconex.collector.http.delay.impl.AbstractDelayResolver;
+import com.norconex.collector.http.robot.impl.StandardRobotsTxtProvider;
+import com.norconex.collector.http.sitemap.impl.GenericSitemapResolver;
+import com.norconex.commons.lang.file.FileUtil;
+import com.norconex.commons.lang.time.DurationParser;
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * Periodically saves HTTP-specific crawl state that is otherwise only
+ * kept in memory, so that a crawler resumed after a crash or a restart
+ * can continue at full speed instead of starting cold.
+ * The following is saved:
+ * </p>
+ * <ul>
+ *   <li>Robots.txt rules, sitemap locations and crawl delays
+ *       cached by {@link StandardRobotsTxtProvider}. Those obtained
+ *       longer ago than the robots.txt maximum age (default is 24 hours)
+ *       are not restored, so they get fetched again.</li>
+ *   <li>URL roots for which {@link GenericSitemapResolver} already
+ *       resolved sitemaps.</li>
+ *   <li>When sites were last hit, for delay resolvers extending
+ *       {@link AbstractDelayResolver} (not supported by the "thread"
+ *       scope).</li>
+ *   <li>Recently processed redirect targets.</li>
+ * </ul>
+ * <p>
+ * The state is written to a small text file per crawler, replaced
+ * at every interval and once more when the crawler ends. It is only
+ * read back when the crawler resumes. A missing or unreadable checkpoint
+ * is not an error: the crawl simply resumes with empty caches.
+ * Disabled by default.
+ * </p>
+ * <p>
+ * When no directory is specified, checkpoints are written under
+ * the collector working directory, in a "checkpoints" sub-directory.
+ * </p>
+ * <p>
+ * XML configuration entries expecting millisecond durations
+ * can be provided in human-readable format (English only), as per
+ * {@link DurationParser} (e.g., "5 minutes and 30 seconds" or "5m30s").
+ * </p>
+ *
+ * <h3>XML configuration usage:</h3>
+ * <pre>{@code
+ * <checkpoint enabled="[false|true]">
+ *     <directory>(where checkpoint files are written)</directory>
+ *     <interval>(how often to save a checkpoint)</interval>
+ *     <robotsTxtMaxAge>
+ *         (how long restored robots.txt remain valid after they
+ *          were fetched)
+ *     </robotsTxtMaxAge>
+ * </checkpoint>
+ * }</pre>
+ *
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class CrawlCheckpoint implements IXMLConfigurable {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(CrawlCheckpoint.class);
+
+    /** Default interval is 30 seconds. */
+    public static final long DEFAULT_INTERVAL = 30 * 1000L;
+    /** Default robots.txt maximum age is 24 hours. */
+    public static final long DEFAULT_ROBOTS_TXT_MAX_AGE =
+            24 * 60 * 60 * 1000L;
+
+    private static final String FILE_EXT = ".checkpoint";
+
+    private boolean enabled;
+    private Path directory;
+    private long interval = DEFAULT_INTERVAL;
+    private long robotsTxtMaxAge = DEFAULT_ROBOTS_TXT_MAX_AGE;
+
+    private transient HttpCrawler crawler;
+    private transient Path file;
+    private transient ScheduledExecutorService scheduler;
+    // URL roots known to be resolved, kept so they are not lost when
+    // the sitemap resolver clears its store before the final checkpoint
+    private final transient Set<String> sitemapRoots =
+            Collections.synchronizedSet(new LinkedHashSet<>());
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the directory where checkpoint files are written.
+     * @return directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+    /**
+     * Sets the directory where checkpoint files are written.
+     * @param directory directory
+     */
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets how often in milliseconds a checkpoint is saved.
+     * @return interval
+     */
+    public long getInterval() {
+        return interval;
+    }
+    /**
+     * Sets how often in milliseconds a checkpoint is saved.
+     * @param interval interval
+     */
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * Gets how long in milliseconds after being fetched a saved
+     * robots.txt can be restored. Zero or less restores them
+     * regardless of age.
+     * @return robots.txt maximum age
+     */
+    public long getRobotsTxtMaxAge() {
+        return robotsTxtMaxAge;
+    }
+    /**
+     * Sets how long in milliseconds after being fetched a saved
+     * robots.txt can be restored. Zero or less restores them
+     * regardless of age.
+     * @param robotsTxtMaxAge robots.txt maximum age
+     */
+    public void setRobotsTxtMaxAge(long robotsTxtMaxAge) {
+        this.robotsTxtMaxAge = robotsTxtMaxAge;
+    }
+
+    /**
+     * Starts saving checkpoints for a crawler, if enabled. When resuming,
+     * the last checkpoint is restored first.
+     * @param crawler the crawler
+     * @param workDir collector working directory, used when no directory
+     *        is set
+     * @param resume whether the crawler is resuming
+     */
+    public synchronized void open(
+            HttpCrawler crawler, Path workDir, boolean resume) {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+        Path dir = directory;
+        if (dir == null) {
+            if (workDir == null) {
+                throw new CollectorException("Checkpoint directory must be "
+                        + "set when there is no working directory.");
+            }
+            dir = workDir.resolve("checkpoints");
+        }
+        this.crawler = crawler;
+        this.file = dir.resolve(
+                FileUtil.toSafeFileName(crawler.getId()) + FILE_EXT);
+        sitemapRoots.clear();
+        if (resume) {
+            restore();
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "crawl-checkpoint-" + crawler.getId());
+            t.setDaemon(true);
+            return t;
+        });
+        long delay = Math.max(interval, 1000);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                save();
+            } catch (RuntimeException e) {
+                LOG.error("Could not save crawl checkpoint.", e);
+            }
+        }, delay, delay, TimeUnit.MILLISECONDS);
+        LOG.info("Saving crawl checkpoints to: {}", file.toAbsolutePath());
+    }
+
+    /**
+     * Stops saving checkpoints, saving a last one.
+     */
+    public synchronized void close() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            save();
+        } catch (RuntimeException e) {
+            LOG.error("Could not save crawl checkpoint.", e);
+        }
+        scheduler = null;
+        crawler = null;
+    }
+
+    /**
+     * Saves a checkpoint of the current crawl state. Invoked at every
+     * interval once opened.
+     */
+    public void save() {
+        HttpCrawler c = crawler;
+        if (c == null) {
+            return;
+        }
+        CheckpointState state = capture(c);
+        try {
+            state.write(file);
+        } catch (IOException e) {
+            throw new CollectorException(
+                    "Could not write crawl checkpoint: " + file, e);
+        }
+        LOG.debug("Crawl checkpoint saved: {}", file);
+    }
+
+    private CheckpointState capture(HttpCrawler c) {
+        HttpCrawlerConfig cfg = c.getCrawlerConfig();
+        CheckpointState state = new CheckpointState();
+        if (cfg.getRobotsTxtProvider() instanceof StandardRobotsTxtProvider) {
+            state.getRobotsTxts().putAll(((StandardRobotsTxtProvider)
+                    cfg.getRobotsTxtProvider()).getCachedRobotsTxt());
+        }
+        if (c.getSitemapResolver() instanceof GenericSitemapResolver) {
+            GenericSitemapResolver sitemapResolver =
+                    (GenericSitemapResolver) c.getSitemapResolver();
+            for (String urlRoot : c.getQueuedURLRoots()) {
+                if (!sitemapRoots.contains(urlRoot)
+                        && sitemapResolver.isResolved(urlRoot)) {
+                    sitemapRoots.add(urlRoot);
+                }
+            }
+        }
+        synchronized (sitemapRoots) {
+            state.getSitemapRoots().addAll(sitemapRoots);
+        }
+        if (cfg.getDelayResolver() instanceof AbstractDelayResolver) {
+            AbstractDelayResolver delayResolver =
+                    (AbstractDelayResolver) cfg.getDelayResolver();
+            state.setDelayScope(delayResolver.getScope());
+            state.getLastHits().putAll(delayResolver.getLastHits());
+        }
+        state.getRedirects().addAll(c.getGoodRedirects());
+        return state;
+    }
+
+    private void restore() {
+        if (!Files.isRegularFile(file)) {
+            LOG.info("No crawl checkpoint to restore at: {}",
+                    file.toAbsolutePath());
+            return;
+        }
+        CheckpointState state;
+        try {
+            state = CheckpointState.read(file);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Could not read crawl checkpoint, resuming without "
+                    + "it: {}", file.toAbsolutePath(), e);
+            return;
+        }
+        HttpCrawlerConfig cfg = crawler.getCrawlerConfig();
+        if (cfg.getRobotsTxtProvider() instanceof StandardRobotsTxtProvider) {
+            StandardRobotsTxtProvider robotsTxtProvider =
+                    (StandardRobotsTxtProvider) cfg.getRobotsTxtProvider();
+            long now = System.currentTimeMillis();
+            state.getRobotsTxts().values().removeIf(robotsTxt ->
+                    robotsTxtMaxAge > 0
+                    && now - robotsTxt.getFetchTime() > robotsTxtMaxAge);
+            state.getRobotsTxts().forEach(robotsTxtProvider::cacheRobotsTxt);
+        }
+        sitemapRoots.addAll(state.getSitemapRoots());
+        if (crawler.getSitemapResolver() instanceof GenericSitemapResolver) {
+            ((GenericSitemapResolver) crawler.getSitemapResolver())
+                    .restoreResolvedURLRoots(
+                            crawler, state.getSitemapRoots());
+        }
+        if (cfg.getDelayResolver() instanceof AbstractDelayResolver) {
+            AbstractDelayResolver delayResolver =
+                    (AbstractDelayResolver) cfg.getDelayResolver();
+            // hits of another scope do not apply
+            if (delayResolver.getScope().equals(state.getDelayScope())) {
+                delayResolver.restoreLastHits(state.getLastHits());
+            }
+        }
+        crawler.addGoodRedirects(state.getRedirects());
+        LOG.info("Crawl checkpoint restored: {} robots.txt, {} resolved "
+                + "sitemap roots, {} last hits, {} redirects.",
+                state.getRobotsTxts().size(), state.getSitemapRoots().size(),
+                state.getLastHits().size(), state.getRedirects().size());
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setEnabled(xml.getBoolean("@enabled", enabled));
+        setDirectory(xml.getPath("directory", directory));
+        setInterval(xml.getDurationMillis("interval", interval));
+        setRobotsTxtMaxAge(xml.getDurationMillis(
+                "robotsTxtMaxAge", robotsTxtMaxAge));
+    }
+    @Override
+    public void saveToXML(XML xml) {
+        xml.setAttribute("enabled", enabled);
+        xml.addElement("directory", directory);
+        xml.addElement("interval", interval);
+        xml.addElement("robotsTxtMaxAge", robotsTxtMaxAge);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
@@ -0,0 +1,177 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.crawler;
+
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.apache.commons.lang3.mutable.MutableInt;
+
+/**
+ * Keeps track of when references put back in the queue with a
+ * "not before" time become due. When crawling threads keep dequeuing
+ * references that are not due, the queue likely holds nothing ready
+ * to be processed. Instead of requeuing them over and over, threads then
+ * wait until the earliest known reference is due, or until a new
+ * reference ready to be processed is queued.
+ * Only the earliest times are kept, up to a maximum.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class DeferredReferences {
+
+    public static final int DEFAULT_MAX_TRACKED = 10000;
+
+    // Longest a thread waits at once, so stopping is not held back
+    private static final long MAX_WAIT = 5000;
+
+    private final int maxTracked;
+    // guarded by "this"
+    private final TreeMap<Long, MutableInt> dueTimes = new TreeMap<>();
+    private int notDueStreak;
+    // changes every time waiting threads should wake up
+    private long wakeUps;
+
+    public DeferredReferences() {
+        this(DEFAULT_MAX_TRACKED);
+    }
+    public DeferredReferences(int maxTracked) {
+        super();
+        this.maxTracked = Math.max(1, maxTracked);
+    }
+
+    /**
+     * Invoked when a reference was queued with a "not before" time.
+     * @param notBefore when the reference is due (epoch milliseconds)
+     */
+    public synchronized void queued(long notBefore) {
+        if (notBefore <= 0) {
+            return;
+        }
+        boolean earliest =
+                dueTimes.isEmpty() || notBefore < dueTimes.firstKey();
+        if (dueTimes.size() >= maxTracked) {
+            if (notBefore >= dueTimes.lastKey()) {
+                return;
+            }
+            Entry<Long, MutableInt> last = dueTimes.lastEntry();
+            if (last.getValue().decrementAndGet() <= 0) {
+                dueTimes.remove(last.getKey());
+            }
+        }
+        dueTimes.computeIfAbsent(notBefore, k -> new MutableInt()).increment();
+        // waiting threads may now have something due sooner
+        if (earliest) {
+            wakeUp();
+        }
+    }
+
+    /**
+     * Invoked when a reference with a "not before" time was dequeued.
+     * @param notBefore when the reference is due (epoch milliseconds)
+     */
+    public synchronized void dequeued(long notBefore) {
+        MutableInt count = dueTimes.get(notBefore);
+        if (count != null && count.decrementAndGet() <= 0) {
+            dueTimes.remove(notBefore);
+        }
+    }
+
+    /**
+     * Invoked when a reference ready to be processed was queued. Wakes up
+     * waiting threads.
+     */
+    public synchronized void readyQueued() {
+        notDueStreak = 0;
+        wakeUp();
+    }
+
+    /**
+     * Invoked when a reference ready to be processed was dequeued.
+     */
+    public synchronized void readyDequeued() {
+        notDueStreak = 0;
+    }
+
+    /**
+     * Invoked when a reference not yet due was dequeued (and
+     * {@link #dequeued(long)} was invoked for it). When as many
+     * references not yet due as there are threads were dequeued in a row,
+     * the calling thread waits until the earliest known reference or
+     * this one is due, or until a reference ready to be processed is
+     * queued.
+     * @param notBefore when the dequeued reference is due
+     *        (epoch milliseconds)
+     * @param threadCount number of crawling threads
+     * @return milliseconds before the dequeued reference is due
+     *         (zero or less if due)
+     */
+    public synchronized long awaitDue(long notBefore, int threadCount) {
+        notDueStreak++;
+        if (notDueStreak >= Math.max(1, threadCount)) {
+            long until = notBefore;
+            if (!dueTimes.isEmpty()) {
+                until = Math.min(until, dueTimes.firstKey());
+            }
+            long deadline = Math.min(
+                    until, System.currentTimeMillis() + MAX_WAIT);
+            long wakeUpsBefore = wakeUps;
+            while (wakeUps == wakeUpsBefore) {
+                long waitMillis = deadline - System.currentTimeMillis();
+                if (waitMillis <= 0) {
+                    break;
+                }
+                try {
+                    wait(waitMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return notBefore - System.currentTimeMillis();
+    }
+
+    /**
+     * Gets the earliest "not before" time of references known to be
+     * in the queue.
+     * @return epoch milliseconds, or zero if none
+     */
+    public synchronized long getEarliest() {
+        return dueTimes.isEmpty() ? 0 : dueTimes.firstKey();
+    }
+
+    /**
+     * Forgets all references.
+     */
+    public synchronized void clear() {
+        dueTimes.clear();
+        notDueStreak = 0;
+        wakeUp();
+    }
+
+    private void wakeUp() {
+        wakeUps++;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
@@ -19,12 +19,20 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.NumberFormat;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
+import org.apache.commons.collections4.queue.CircularFifoQueue;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
 import org.apache.commons.lang3.ObjectUtils;
@@ -40,9 +48,12 @@ import com.norconex.collector.core.pipeline.importer.ImporterPipelineContext;
 import com.norconex.collector.core.reference.CrawlReference;
 import com.norconex.collector.core.reference.CrawlState;
 import com.norconex.collector.http.HttpCollector;
+import com.norconex.collector.http.dashboard.HostActivity;
 import com.norconex.collector.http.doc.HttpDocument;
 import com.norconex.collector.http.doc.HttpMetadata;
 import com.norconex.collector.http.fetch.HttpFetchClient;
+import com.norconex.collector.http.metrics.CrawlerMetrics;
+import com.norconex.collector.http.partition.CrawlPartitioning;
 import com.norconex.collector.http.pipeline.committer.HttpCommitterPipeline;
 import com.norconex.collector.http.pipeline.committer.HttpCommitterPipelineContext;
 import com.norconex.collector.http.pipeline.importer.HttpImporterPipeline;
@@ -50,7 +61,9 @@ import com.norconex.collector.http.pipeline.importer.HttpImporterPipelineContext
 import com.norconex.collector.http.pipeline.queue.HttpQueuePipeline;
 import com.norconex.collector.http.pipeline.queue.HttpQueuePipelineContext;
 import com.norconex.collector.http.reference.HttpCrawlReference;
+import com.norconex.collector.http.reference.HttpCrawlState;
 import com.norconex.collector.http.sitemap.ISitemapResolver;
+import com.norconex.commons.lang.file.FileUtil;
 import com.norconex.commons.lang.url.HttpURL;
 import com.norconex.importer.doc.ImporterDocument;
 import com.norconex.importer.response.ImporterResponse;
@@ -66,8 +79,23 @@ public class HttpCrawler extends Crawler {
     private static final Logger LOG =
             LoggerFactory.getLogger(HttpCrawler.class);
 
+    // How many of the most recent change intervals are kept per URL
+    private static final int MAX_CHANGE_INTERVALS = 10;
+    private static final String BARRIER_MARKER_EXT = ".barrier";
+    private static final int MAX_GOOD_REDIRECTS = 10000;
+
 	private ISitemapResolver sitemapResolver;
 	private HttpFetchClient fetchClient;
+    private final Set<String> queuedURLRoots = ConcurrentHashMap.newKeySet();
+    private final DeferredReferences deferredReferences =
+            new DeferredReferences();
+    private final HostActivity hostActivity = new HostActivity();
+    private final HttpCollector collector;
+    // how much "maxDocuments" was raised for deferred references
+    private int maxDocumentsRaise;
+    //TODO Hack for ticket #533. Version 3 shall have a more robust fix.
+    private final CircularFifoQueue<String> goodRedirects =
+            new CircularFifoQueue<>(MAX_GOOD_REDIRECTS);
 
     /**
      * Constructor.
@@ -77,6 +105,7 @@ public class HttpCrawler extends Crawler {
 	public HttpCrawler(
 	        HttpCrawlerConfig crawlerConfig, HttpCollector collector) {
 		super(crawlerConfig, collector);
+		this.collector = collector;
 	}
 
     @Override
@@ -88,6 +117,91 @@ public class HttpCrawler extends Crawler {
         return fetchClient;
     }
 
+    /**
+     * Gets the in-memory crawl activity per host.
+     * @return host activity (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public HostActivity getHostActivity() {
+        return hostActivity;
+    }
+
+    /**
+     * Registers a URL root (scheme, host and port) as having URLs queued.
+     * @param urlRoot URL root
+     * @return <code>true</code> if the URL root was not registered before
+     *         during this crawler execution
+     * @since 3.0.0
+     */
+    public boolean registerQueuedURLRoot(String urlRoot) {
+        return StringUtils.isNotBlank(urlRoot) && queuedURLRoots.add(urlRoot);
+    }
+    /**
+     * Gets the URL roots registered as having URLs queued during
+     * this crawler execution.
+     * @return unmodifiable view of URL roots
+     * @since 3.0.0
+     */
+    public Set<String> getQueuedURLRoots() {
+        return Collections.unmodifiableSet(queuedURLRoots);
+    }
+
+    /**
+     * Gets whether a URL was successfully processed by this crawler
+     * after being reached through redirects (most recent ones only).
+     * @param url the URL to check
+     * @return <code>true</code> if a valid redirect target
+     * @since 3.0.0
+     */
+    public boolean isGoodRedirect(String url) {
+        synchronized (goodRedirects) {
+            return goodRedirects.contains(url);
+        }
+    }
+    /**
+     * Gets a copy of the URLs successfully processed by this crawler
+     * after being reached through redirects (most recent ones only).
+     * @return redirect target URLs, oldest first
+     * @since 3.0.0
+     */
+    public List<String> getGoodRedirects() {
+        synchronized (goodRedirects) {
+            return new ArrayList<>(goodRedirects);
+        }
+    }
+    /**
+     * Adds URLs successfully processed by this crawler after being
+     * reached through redirects (e.g., restored from a checkpoint).
+     * @param urls redirect target URLs, oldest first
+     * @since 3.0.0
+     */
+    public void addGoodRedirects(Collection<String> urls) {
+        synchronized (goodRedirects) {
+            goodRedirects.addAll(urls);
+        }
+    }
+
+    /**
+     * Gets when URLs put back in the queue with a "not before" time
+     * become due.
+     * @return deferred references (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public DeferredReferences getDeferredReferences() {
+        return deferredReferences;
+    }
+
+    /**
+     * Puts a URL back in the queue, not to be processed before its
+     * "not before" time.
+     * @param crawlRef crawl reference to queue
+     * @since 3.0.0
+     */
+    public void queueDeferredReference(HttpCrawlReference crawlRef) {
+        getCrawlReferenceService().queue(crawlRef);
+        deferredReferences.queued(crawlRef.getNotBefore());
+    }
+
     /**
      * @return the sitemapResolver
      */
@@ -111,10 +225,21 @@ public class HttpCrawler extends Crawler {
         HttpCrawlerConfig cfg = getCrawlerConfig();
 
         logInitializationInformation();
-        fetchClient = new HttpFetchClient(
-                getStreamFactory(), cfg.getHttpFetchers(),
-                cfg.getHttpFetchersMaxRetries(),
-                cfg.getHttpFetchersRetryDelay());
+        queuedURLRoots.clear();
+        deferredReferences.clear();
+        hostActivity.reset();
+        collector.getCollectorConfig().getDashboard().register(this);
+        if (cfg.getHttpFetchersRetryPolicy() != null) {
+            fetchClient = new HttpFetchClient(
+                    getStreamFactory(), cfg.getHttpFetchers(),
+                    cfg.getHttpFetchersMaxRetries(),
+                    cfg.getHttpFetchersRetryPolicy());
+        } else {
+            fetchClient = new HttpFetchClient(
+                    getStreamFactory(), cfg.getHttpFetchers(),
+                    cfg.getHttpFetchersMaxRetries(),
+                    cfg.getHttpFetchersRetryDelay());
+        }
 
         // We always initialize the sitemap resolver even if ignored
         // because sitemaps can be specified as start URLs.
@@ -123,9 +248,47 @@ public class HttpCrawler extends Crawler {
 //                    .createSitemapResolver(cfg, resume);
 //        }
 
+        // restores cached robots.txt, politeness, etc. when resuming
+        cfg.getCheckpoint().open(this,
+                collector.getCollectorConfig().getWorkDir(), resume);
+
+        // before start URLs, which may belong to other nodes
+        cfg.getPartitioning().open(getId(), this::queueReceivedReference);
+
         if (!resume) {
             queueStartURLs();
         }
+        // keeps this node running until all nodes are done
+        queueBarrierReference(cfg.getPartitioning());
+    }
+
+    // The barrier reference ends up in the crawl store, where a later
+    // run would find it as an orphan (and maybe delete it). A marker
+    // file remembers it is stored, so later runs without partitioning
+    // still process it, as a no-op, instead of leaving it orphaned.
+    private void queueBarrierReference(CrawlPartitioning partitioning) {
+        Path workDir = collector.getCollectorConfig().getWorkDir();
+        Path marker = workDir == null ? null : workDir.resolve(
+                "partitions").resolve(FileUtil.toSafeFileName(getId())
+                        + BARRIER_MARKER_EXT);
+        HttpCrawlReference barrier = partitioning.createBarrierReference();
+        if (partitioning.isActive()) {
+            if (marker != null && !Files.exists(marker)) {
+                try {
+                    Files.createDirectories(marker.getParent());
+                    Files.createFile(marker);
+                } catch (IOException e) {
+                    throw new CollectorException(
+                            "Could not create partition barrier marker: "
+                                    + marker, e);
+                }
+            }
+        } else if (marker != null && Files.exists(marker)) {
+            barrier.setNotBefore(0);
+        } else {
+            return;
+        }
+        queueDeferredReference(barrier);
     }
 
     private void queueStartURLs() {
@@ -189,6 +352,7 @@ public class HttpCrawler extends Crawler {
 
         final MutableInt urlCount = new MutableInt();
         Consumer<HttpCrawlReference> urlConsumer = (ref) -> {
+                getCrawlerConfig().getMetrics().sitemapURLEmitted();
                 executeQueuePipeline(ref);
                 urlCount.increment();
         };
@@ -257,6 +421,14 @@ public class HttpCrawler extends Crawler {
         new HttpQueuePipeline().execute(context);
     }
 
+    // Invoked by the partition transport: queues without checks requiring
+    // network access, left to the crawling threads.
+    private void queueReceivedReference(HttpCrawlReference crawlRef) {
+        crawlRef.setPartitionReceived(true);
+        new HttpQueuePipeline(true).execute(
+                new HttpQueuePipelineContext(this, crawlRef));
+    }
+
     @Override
     protected ImporterDocument wrapDocument(
             CrawlReference crawlRef, ImporterDocument document) {
@@ -340,12 +512,49 @@ public class HttpCrawler extends Crawler {
             ImporterPipelineContext importerContext) {
         HttpImporterPipelineContext httpContext =
                 new HttpImporterPipelineContext(importerContext);
-        new HttpImporterPipeline(
-                getCrawlerConfig().isKeepDownloads(),
-                importerContext.isOrphan()).execute(httpContext);
+        CrawlerMetrics metrics = getCrawlerConfig().getMetrics();
+        CrawlPartitioning partitioning = getCrawlerConfig().getPartitioning();
+        String url = importerContext.getCrawlReference().getReference();
+        // the partition barrier is not a document
+        boolean barrier = CrawlPartitioning.isBarrierReference(url);
+        metrics.processingStarted();
+        if (!barrier) {
+            hostActivity.processingStarted(url);
+        }
+        partitioning.processingStarted(url);
+        try {
+            new HttpImporterPipeline(
+                    getCrawlerConfig().isKeepDownloads(),
+                    importerContext.isOrphan()).execute(httpContext);
+        } finally {
+            partitioning.processingEnded(url);
+            CrawlState state = httpContext.getCrawlReference().getState();
+            boolean deferred = state != null
+                    && state.isOneOf(HttpCrawlState.DEFERRED);
+            if (!barrier) {
+                hostActivity.processingEnded(url, !deferred);
+            }
+            if (deferred) {
+                uncountDeferred();
+            }
+            metrics.processingEnded();
+        }
         return httpContext.getImporterResponse();
     }
 
+    // A deferred reference is finalized like a processed one, which
+    // counts towards the maximum number of documents. Since it is queued
+    // again, the maximum is raised by one so each URL only counts once.
+    private void uncountDeferred() {
+        HttpCrawlerConfig cfg = getCrawlerConfig();
+        synchronized (cfg) {
+            if (cfg.getMaxDocuments() > -1) {
+                cfg.setMaxDocuments(cfg.getMaxDocuments() + 1);
+                maxDocumentsRaise++;
+            }
+        }
+    }
+
     @Override
     protected CrawlReference createEmbeddedCrawlReference(
             String embeddedReference, CrawlReference parentCrawlData) {
@@ -382,10 +591,19 @@ public class HttpCrawler extends Crawler {
         HttpCrawlReference httpData = (HttpCrawlReference) crawlRef;
         HttpCrawlReference httpCachedData = (HttpCrawlReference) cachedData;
 
+        // Deferred documents are processed again later.
+        if (httpData.getState() != null
+                && httpData.getState().isOneOf(HttpCrawlState.DEFERRED)) {
+            return;
+        }
+
+        updateChangeHistory(httpData, httpCachedData);
+
         //TODO improve this #533 hack in v3
         if (httpData.getState().isNewOrModified()
                 && !httpData.getRedirectTrail().isEmpty()) {
-            HttpImporterPipeline.GOOD_REDIRECTS.add(httpData.getReference());
+            addGoodRedirects(
+                    Collections.singletonList(httpData.getReference()));
         }
 
         // If never crawled before, URLs were extracted already, or cached
@@ -425,11 +643,57 @@ public class HttpCrawler extends Crawler {
         }
     }
 
+    // Keeps track of how often a document changes across crawler runs
+    private void updateChangeHistory(
+            HttpCrawlReference httpData, HttpCrawlReference httpCachedData) {
+        if (httpCachedData != null) {
+            httpData.setFirstCrawlDate(ObjectUtils.firstNonNull(
+                    httpCachedData.getFirstCrawlDate(),
+                    httpCachedData.getCrawlDate()));
+            httpData.setCrawlCount(httpCachedData.getCrawlCount());
+            httpData.setChangeCount(httpCachedData.getChangeCount());
+            httpData.setLastChangeDate(httpCachedData.getLastChangeDate());
+            httpData.setChangeIntervals(httpCachedData.getChangeIntervals());
+        }
+        CrawlState state = httpData.getState();
+        if (state == null || !state.isOneOf(CrawlState.NEW,
+                CrawlState.MODIFIED, CrawlState.UNMODIFIED)) {
+            return;
+        }
+        if (httpData.getFirstCrawlDate() == null) {
+            httpData.setFirstCrawlDate(httpData.getCrawlDate());
+        }
+        httpData.setCrawlCount(httpData.getCrawlCount() + 1);
+        if (httpCachedData == null || state.isOneOf(CrawlState.NEW)) {
+            httpData.setLastChangeDate(httpData.getCrawlDate());
+        } else if (state.isOneOf(CrawlState.MODIFIED)) {
+            httpData.setChangeCount(httpData.getChangeCount() + 1);
+            LocalDateTime since = ObjectUtils.firstNonNull(
+                    httpData.getLastChangeDate(),
+                    httpData.getFirstCrawlDate());
+            if (since != null && httpData.getCrawlDate() != null) {
+                List<Long> intervals =
+                        new ArrayList<>(httpData.getChangeIntervals());
+                intervals.add(Duration.between(
+                        since, httpData.getCrawlDate()).toMillis());
+                while (intervals.size() > MAX_CHANGE_INTERVALS) {
+                    intervals.remove(0);
+                }
+                httpData.setChangeIntervals(intervals);
+            }
+            httpData.setLastChangeDate(httpData.getCrawlDate());
+        }
+    }
+
     @Override
     protected void markReferenceVariationsAsProcessed(
             CrawlReference crawlRef) {
 
         HttpCrawlReference httpData = (HttpCrawlReference) crawlRef;
+        if (httpData.getState() != null
+                && httpData.getState().isOneOf(HttpCrawlState.DEFERRED)) {
+            return;
+        }
         // Mark original URL as processed
         String originalRef = httpData.getOriginalReference();
         String finalRef = httpData.getReference();
@@ -445,6 +709,16 @@ public class HttpCrawler extends Crawler {
     @Override
     protected void cleanupExecution(JobStatusUpdater statusUpdater,
             JobSuite suite) {
+        collector.getCollectorConfig().getDashboard().unregister(this);
+        HttpCrawlerConfig cfg = getCrawlerConfig();
+        synchronized (cfg) {
+            if (maxDocumentsRaise > 0) {
+                cfg.setMaxDocuments(cfg.getMaxDocuments() - maxDocumentsRaise);
+                maxDocumentsRaise = 0;
+            }
+        }
+        getCrawlerConfig().getPartitioning().close();
+        getCrawlerConfig().getCheckpoint().close();
         try {
 //            if (sitemapResolver != null) {
 //                sitemapResolver.stop();
@@ -27,12 +27,18 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 
 import com.norconex.collector.core.checksum.IMetadataChecksummer;
 import com.norconex.collector.core.crawler.CrawlerConfig;
+import com.norconex.collector.http.checkpoint.CrawlCheckpoint;
 import com.norconex.collector.http.checksum.impl.LastModifiedMetadataChecksummer;
 import com.norconex.collector.http.delay.IDelayResolver;
 import com.norconex.collector.http.delay.impl.GenericDelayResolver;
 import com.norconex.collector.http.doc.HttpMetadata;
 import com.norconex.collector.http.fetch.IHttpFetcher;
 import com.norconex.collector.http.fetch.impl.GenericHttpFetcher;
+import com.norconex.collector.http.fetch.util.IHttpRetryPolicy;
+import com.norconex.collector.http.jfr.CrawlFlightRecorder;
+import com.norconex.collector.http.metrics.CrawlerMetrics;
+import com.norconex.collector.http.partition.CrawlPartitioning;
+import com.norconex.collector.http.pipeline.StageTimings;
 import com.norconex.collector.http.processor.IHttpDocumentProcessor;
 import com.norconex.collector.http.recrawl.IRecrawlableResolver;
 import com.norconex.collector.http.recrawl.impl.GenericRecrawlableResolver;
@@ -83,6 +89,7 @@ public class HttpCrawlerConfig extends CrawlerConfig {
             new ArrayList<>(Arrays.asList(new GenericHttpFetcher()));
     private int httpFetchersMaxRetries;
     private long httpFetchersRetryDelay;
+    private IHttpRetryPolicy httpFetchersRetryPolicy;
 
     private ICanonicalLinkDetector canonicalLinkDetector =
             new GenericCanonicalLinkDetector();
@@ -107,6 +114,12 @@ public class HttpCrawlerConfig extends CrawlerConfig {
     private IRecrawlableResolver recrawlableResolver =
             new GenericRecrawlableResolver();
 
+    private StageTimings stageTimings = new StageTimings();
+    private CrawlerMetrics metrics = new CrawlerMetrics();
+    private CrawlFlightRecorder flightRecorder = new CrawlFlightRecorder();
+    private CrawlPartitioning partitioning = new CrawlPartitioning();
+    private CrawlCheckpoint checkpoint = new CrawlCheckpoint();
+
     public HttpCrawlerConfig() {
         super();
     }
@@ -326,6 +339,31 @@ public class HttpCrawlerConfig extends CrawlerConfig {
     public void setHttpFetchersRetryDelay(long httpFetchersRetryDelay) {
         this.httpFetchersRetryDelay = httpFetchersRetryDelay;
     }
+    /**
+     * Gets the policy deciding whether and when a failing HTTP fetcher
+     * re-attempts fetching a resource. Default is <code>null</code>
+     * (retries any failure not caused by an exception, waiting for
+     * the retry delay).
+     * @return retry policy
+     * @since 3.0.0
+     */
+    public IHttpRetryPolicy getHttpFetchersRetryPolicy() {
+        return httpFetchersRetryPolicy;
+    }
+    /**
+     * Sets the policy deciding whether and when a failing HTTP fetcher
+     * re-attempts fetching a resource. When set, the retry delay is
+     * ignored. Retries are limited to the maximum number of retries,
+     * unless the policy defines its own maximum (e.g.,
+     * {@link com.norconex.collector.http.fetch.util.GenericHttpRetryPolicy
+     * GenericHttpRetryPolicy} allows 3 retries by default).
+     * @param httpFetchersRetryPolicy retry policy
+     * @since 3.0.0
+     */
+    public void setHttpFetchersRetryPolicy(
+            IHttpRetryPolicy httpFetchersRetryPolicy) {
+        this.httpFetchersRetryPolicy = httpFetchersRetryPolicy;
+    }
 
     /**
      * Gets the canonical link detector.
@@ -587,6 +625,93 @@ public class HttpCrawlerConfig extends CrawlerConfig {
         this.recrawlableResolver = recrawlableResolver;
     }
 
+    /**
+     * Gets the pipeline stage timings settings and statistics.
+     * @return stage timings (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public StageTimings getStageTimings() {
+        return stageTimings;
+    }
+    /**
+     * Sets the pipeline stage timings settings.
+     * @param stageTimings stage timings
+     * @since 3.0.0
+     */
+    public void setStageTimings(StageTimings stageTimings) {
+        this.stageTimings = stageTimings;
+    }
+
+    /**
+     * Gets the crawler metrics settings and values.
+     * @return crawler metrics (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public CrawlerMetrics getMetrics() {
+        return metrics;
+    }
+    /**
+     * Sets the crawler metrics settings.
+     * @param metrics crawler metrics
+     * @since 3.0.0
+     */
+    public void setMetrics(CrawlerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the flight recorder settings.
+     * @return flight recorder (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public CrawlFlightRecorder getFlightRecorder() {
+        return flightRecorder;
+    }
+    /**
+     * Sets the flight recorder settings.
+     * @param flightRecorder flight recorder
+     * @since 3.0.0
+     */
+    public void setFlightRecorder(CrawlFlightRecorder flightRecorder) {
+        this.flightRecorder = flightRecorder;
+    }
+
+    /**
+     * Gets the settings for splitting this crawl across several nodes.
+     * @return partitioning (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public CrawlPartitioning getPartitioning() {
+        return partitioning;
+    }
+    /**
+     * Sets the settings for splitting this crawl across several nodes.
+     * @param partitioning partitioning
+     * @since 3.0.0
+     */
+    public void setPartitioning(CrawlPartitioning partitioning) {
+        this.partitioning = partitioning;
+    }
+
+    /**
+     * Gets the settings for saving in-memory crawl state so it can be
+     * restored when resuming.
+     * @return checkpoint (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public CrawlCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+    /**
+     * Sets the settings for saving in-memory crawl state so it can be
+     * restored when resuming.
+     * @param checkpoint checkpoint
+     * @since 3.0.0
+     */
+    public void setCheckpoint(CrawlCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
     @Override
     protected void saveCrawlerConfigToXML(XML xml) {
         xml.addElement("maxDepth", maxDepth);
@@ -617,10 +742,11 @@ public class HttpCrawlerConfig extends CrawlerConfig {
         xml.addElement("canonicalLinkDetector", canonicalLinkDetector);
         xml.addElement("recrawlableResolver", recrawlableResolver);
 
-        xml.addElement("httpFetchers")
+        XML fetchersXML = xml.addElement("httpFetchers")
                 .setAttribute("maxRetries", httpFetchersMaxRetries)
-                .setAttribute("retryDelay", httpFetchersRetryDelay)
-                .addElementList("fetcher", httpFetchers);
+                .setAttribute("retryDelay", httpFetchersRetryDelay);
+        fetchersXML.addElementList("fetcher", httpFetchers);
+        fetchersXML.addElement("retryPolicy", httpFetchersRetryPolicy);
 
         xml.addElement("metadataChecksummer", metadataChecksummer);
         xml.addElement("robotsMeta", robotsMetaProvider)
@@ -630,6 +756,11 @@ public class HttpCrawlerConfig extends CrawlerConfig {
                 "preImportProcessors", "processor", preImportProcessors);
         xml.addElementList(
                 "postImportProcessors", "processor", postImportProcessors);
+        stageTimings.saveToXML(xml.addElement("stageTimings"));
+        metrics.saveToXML(xml.addElement("metrics"));
+        flightRecorder.saveToXML(xml.addElement("flightRecorder"));
+        partitioning.saveToXML(xml.addElement("partitioning"));
+        checkpoint.saveToXML(xml.addElement("checkpoint"));
     }
 
     @Override
@@ -667,6 +798,8 @@ public class HttpCrawlerConfig extends CrawlerConfig {
                 "httpFetchers/@maxRetries", httpFetchersMaxRetries));
         setHttpFetchersRetryDelay(xml.getDurationMillis(
                 "httpFetchers/@retryDelay", httpFetchersRetryDelay));
+        setHttpFetchersRetryPolicy(xml.getObjectImpl(IHttpRetryPolicy.class,
+                "httpFetchers/retryPolicy", httpFetchersRetryPolicy));
 
         // Metadata Checksummer
         setMetadataChecksummer(xml.getObjectImpl(IMetadataChecksummer.class,
@@ -692,6 +825,21 @@ public class HttpCrawlerConfig extends CrawlerConfig {
                 IHttpDocumentProcessor.class,
                 "postImportProcessors/processor", postImportProcessors));
 
+        // Pipeline stage timings
+        xml.ifXML("stageTimings", stageTimings::loadFromXML);
+
+        // Metrics
+        xml.ifXML("metrics", metrics::loadFromXML);
+
+        // Flight recorder
+        xml.ifXML("flightRecorder", flightRecorder::loadFromXML);
+
+        // Partitioning
+        xml.ifXML("partitioning", partitioning::loadFromXML);
+
+        // Checkpoint
+        xml.ifXML("checkpoint", checkpoint::loadFromXML);
+
         // Removed version 2.x configuration options:
         xml.checkDeprecated("httpClientFactory", "httpFetchers/fetcher", true);
         xml.checkDeprecated("metadataFetcher", "httpFetchers/fetcher", true);
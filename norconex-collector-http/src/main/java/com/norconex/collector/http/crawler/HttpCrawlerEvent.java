@@ -36,6 +36,26 @@ public class HttpCrawlerEvent extends CrawlerEvent<HttpCrawler> {
     public static final String REJECTED_NONCANONICAL = "REJECTED_NONCANONICAL";
     /** @since 2.3.0 */
     public static final String REJECTED_REDIRECTED = "REJECTED_REDIRECTED";
+    /** @since 3.0.0 */
+    public static final String REJECTED_TOO_LARGE = "REJECTED_TOO_LARGE";
+    /**
+     * A URL from a URL root (scheme, host and port) not seen before
+     * in this crawler execution is about to be queued.
+     * @since 3.0.0
+     */
+    public static final String URL_ROOT_QUEUED = "URL_ROOT_QUEUED";
+    /** @since 3.0.0 */
+    public static final String DOCUMENT_TRUNCATED = "DOCUMENT_TRUNCATED";
+    /**
+     * A URL was put back in the queue to be processed at a later time.
+     * @since 3.0.0
+     */
+    public static final String DOCUMENT_DEFERRED = "DOCUMENT_DEFERRED";
+    /**
+     * A URL owned by another crawler node was sent to that node.
+     * @since 3.0.0
+     */
+    public static final String URL_PARTITIONED = "URL_PARTITIONED";
 
     /**
      * New crawler event.
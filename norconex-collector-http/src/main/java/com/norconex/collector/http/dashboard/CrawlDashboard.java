@@ -0,0 +1,428 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.dashboard;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.CollectorEvent;
+import com.norconex.collector.http.crawler.HttpCrawler;
+import com.norconex.collector.http.dashboard.HostActivity.HostStats;
+import com.norconex.collector.http.util.EmbeddedHttpServer;
+import com.norconex.commons.lang.event.Event;
+import com.norconex.commons.lang.event.IEventListener;
+import com.norconex.commons.lang.time.DurationParser;
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * Live crawl dashboard served by an embedded HTTP server while the
+ * collector runs. For each running crawler, it shows overall documents
+ * processed per second (with a trend of recent samples) and
+ * active threads, along with a table of the busiest hosts (URL roots):
+ * fetch rate, queue size, last politeness delay, robots.txt crawl-delay,
+ * error rate and active threads. Disabled by default.
+ * </p>
+ * <p>
+ * The dashboard reads the in-memory {@link HostActivity} of each crawler
+ * of its collector, which crawler threads update with striped counters.
+ * Rates are computed by a single background thread at every sample
+ * interval, so serving the dashboard does not slow the crawl. The same
+ * data is available as JSON from the <code>/status.json</code> path.
+ * </p>
+ * <p>
+ * The server only listens on the loopback interface by default.
+ * A port of zero picks any free port (logged on startup).
+ * </p>
+ * <p>
+ * XML configuration entries expecting millisecond durations
+ * can be provided in human-readable format (English only), as per
+ * {@link DurationParser} (e.g., "5 minutes and 30 seconds" or "5m30s").
+ * </p>
+ *
+ * <h3>XML configuration usage:</h3>
+ * <pre>{@code
+ * <dashboard enabled="[false|true]">
+ *     <host>(host name or IP address to listen on)</host>
+ *     <port>(port to listen on)</port>
+ *     <sampleInterval>(milliseconds between rate samples)</sampleInterval>
+ *     <maxHosts>(maximum number of hosts tracked per crawler)</maxHosts>
+ * </dashboard>
+ * }</pre>
+ *
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class CrawlDashboard
+        implements IXMLConfigurable, IEventListener<Event<?>> {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(CrawlDashboard.class);
+
+    public static final String DEFAULT_HOST = "127.0.0.1";
+    public static final int DEFAULT_PORT = 9099;
+    public static final long DEFAULT_SAMPLE_INTERVAL = 5 * 1000L;
+    public static final int DEFAULT_MAX_HOSTS = 1000;
+
+    public static final String STATUS_PATH = "/status.json";
+
+    private boolean enabled;
+    private String host = DEFAULT_HOST;
+    private int port = DEFAULT_PORT;
+    private long sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+    private int maxHosts = DEFAULT_MAX_HOSTS;
+
+    private final transient Set<HttpCrawler> crawlers =
+            new CopyOnWriteArraySet<>();
+    private transient EmbeddedHttpServer server;
+    private transient ScheduledExecutorService sampler;
+
+    /**
+     * Makes a running crawler activity available to this dashboard,
+     * tracking up to the maximum number of hosts.
+     * Ignored if this dashboard is not enabled.
+     * @param crawler HTTP crawler
+     */
+    public void register(HttpCrawler crawler) {
+        if (!enabled) {
+            return;
+        }
+        crawler.getHostActivity().setMaxHosts(maxHosts);
+        crawlers.add(crawler);
+    }
+    /**
+     * Removes a crawler from this dashboard, once done running.
+     * @param crawler HTTP crawler
+     */
+    public void unregister(HttpCrawler crawler) {
+        crawlers.remove(crawler);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the host name or IP address the dashboard listens on.
+     * @return host
+     */
+    public String getHost() {
+        return host;
+    }
+    /**
+     * Sets the host name or IP address the dashboard listens on.
+     * Use "0.0.0.0" to listen on all interfaces.
+     * @param host host
+     */
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Gets the interval in milliseconds between rate samples.
+     * @return sample interval
+     */
+    public long getSampleInterval() {
+        return sampleInterval;
+    }
+    /**
+     * Sets the interval in milliseconds between rate samples.
+     * Rates are averaged over that interval.
+     * @param sampleInterval sample interval
+     */
+    public void setSampleInterval(long sampleInterval) {
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Gets the maximum number of hosts tracked and listed per crawler,
+     * busiest first.
+     * @return maximum hosts
+     */
+    public int getMaxHosts() {
+        return maxHosts;
+    }
+    /**
+     * Sets the maximum number of hosts tracked and listed per crawler,
+     * busiest first. Activity of hosts beyond that number is aggregated
+     * under {@value HostActivity#OTHER_HOSTS}.
+     * @param maxHosts maximum hosts
+     */
+    public void setMaxHosts(int maxHosts) {
+        this.maxHosts = maxHosts;
+    }
+
+    /**
+     * Gets the port the dashboard is listening on.
+     * @return port or -1 if not running
+     */
+    public synchronized int getLocalPort() {
+        if (server == null) {
+            return -1;
+        }
+        return server.getPort();
+    }
+
+    @Override
+    public void accept(Event<?> event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.is(CollectorEvent.COLLECTOR_RUN_BEGIN)) {
+            start();
+        } else if (event.is(CollectorEvent.COLLECTOR_RUN_END)
+                || event.is(CollectorEvent.COLLECTOR_STOP_END)) {
+            stop();
+        }
+    }
+
+    /**
+     * Starts the dashboard server, unless already started.
+     */
+    public synchronized void start() {
+        if (server != null) {
+            return;
+        }
+        server = new EmbeddedHttpServer(
+                "crawl-dashboard", host, port, new DashboardHandler());
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "crawl-dashboard-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(sampleInterval, 100);
+        sampler.scheduleAtFixedRate(() -> {
+            for (HttpCrawler crawler : crawlers) {
+                crawler.getHostActivity().sample();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        LOG.info("Crawl dashboard available at: http://{}:{}/",
+                host, server.getPort());
+    }
+    /**
+     * Stops the dashboard server, if started.
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        sampler.shutdownNow();
+        server.stop();
+        sampler = null;
+        server = null;
+    }
+
+    /**
+     * Writes the activity of running crawlers as JSON.
+     * @param w where to write
+     * @throws IOException problem writing
+     */
+    public void writeStatus(Writer w) throws IOException {
+        w.write("{\"time\":");
+        w.write(Long.toString(System.currentTimeMillis()));
+        w.write(",\"crawlers\":[");
+        boolean first = true;
+        for (HttpCrawler crawler : crawlers) {
+            if (!first) {
+                w.write(',');
+            }
+            first = false;
+            writeCrawler(w, crawler);
+        }
+        w.write("]}");
+    }
+    private void writeCrawler(Writer w, HttpCrawler crawler)
+            throws IOException {
+        HostActivity activity = crawler.getHostActivity();
+        w.write("{\"id\":");
+        w.write(quote(crawler.getId()));
+        w.write(",\"threads\":");
+        w.write(Integer.toString(crawler.getCrawlerConfig().getNumThreads()));
+        w.write(",\"activeThreads\":");
+        w.write(Integer.toString(activity.getActiveThreads()));
+        w.write(",\"processed\":");
+        w.write(Long.toString(activity.getProcessedCount()));
+        w.write(",\"processedRate\":");
+        w.write(number(activity.getProcessedRate()));
+        w.write(",\"trend\":[");
+        double[] trend = activity.getTrend();
+        for (int i = 0; i < trend.length; i++) {
+            if (i > 0) {
+                w.write(',');
+            }
+            w.write(number(trend[i]));
+        }
+        w.write("]");
+        List<HostStats> hosts = activity.getHosts();
+        w.write(",\"hostCount\":");
+        w.write(Integer.toString(hosts.size()));
+        w.write(",\"hosts\":[");
+        hosts.sort(Comparator.comparingDouble(HostStats::getFetchRate)
+                .thenComparingLong(HostStats::getQueueSize)
+                .thenComparingLong(HostStats::getFetchCount)
+                .reversed());
+        for (int i = 0; i < hosts.size() && i < maxHosts; i++) {
+            if (i > 0) {
+                w.write(',');
+            }
+            writeHost(w, hosts.get(i));
+        }
+        w.write("]}");
+    }
+    private void writeHost(Writer w, HostStats s) throws IOException {
+        w.write("{\"host\":");
+        w.write(quote(s.getHost()));
+        w.write(",\"fetchRate\":");
+        w.write(number(s.getFetchRate()));
+        w.write(",\"fetches\":");
+        w.write(Long.toString(s.getFetchCount()));
+        w.write(",\"errors\":");
+        w.write(Long.toString(s.getErrorCount()));
+        w.write(",\"errorRate\":");
+        w.write(number(s.getErrorRate()));
+        w.write(",\"queueSize\":");
+        w.write(Long.toString(s.getQueueSize()));
+        w.write(",\"activeThreads\":");
+        w.write(Integer.toString(s.getActiveThreads()));
+        w.write(",\"delay\":");
+        w.write(Long.toString(s.getDelay()));
+        w.write(",\"robotsCrawlDelay\":");
+        w.write(number(s.getRobotsCrawlDelay()));
+        w.write('}');
+    }
+
+    private static String number(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "0";
+        }
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+    /*default*/ static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder b = new StringBuilder(value.length() + 2);
+        b.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                b.append('\\').append(ch);
+            } else if (ch < 0x20 || ch == '<' || ch == '>') {
+                // also escapes markup, as a precaution
+                b.append(String.format("\\u%04x", (int) ch));
+            } else {
+                b.append(ch);
+            }
+        }
+        return b.append('"').toString();
+    }
+
+    private class DashboardHandler extends AbstractHandler {
+        @Override
+        public void handle(String target, Request baseRequest,
+                HttpServletRequest request, HttpServletResponse response)
+                        throws IOException {
+            if (!"/".equals(target) && !STATUS_PATH.equals(target)) {
+                return;
+            }
+            baseRequest.setHandled(true);
+            if (!"GET".equals(request.getMethod())
+                    && !"HEAD".equals(request.getMethod())) {
+                response.sendError(
+                        HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setHeader("Cache-Control", "no-store");
+            if (STATUS_PATH.equals(target)) {
+                response.setContentType("application/json");
+                writeStatus(response.getWriter());
+                return;
+            }
+            response.setContentType("text/html");
+            try (InputStream is = CrawlDashboard.class.getResourceAsStream(
+                    "dashboard.html")) {
+                IOUtils.copy(is, response.getOutputStream());
+            }
+        }
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setEnabled(xml.getBoolean("@enabled", enabled));
+        setHost(xml.getString("host", host));
+        setPort(xml.getInteger("port", port));
+        setSampleInterval(
+                xml.getDurationMillis("sampleInterval", sampleInterval));
+        setMaxHosts(xml.getInteger("maxHosts", maxHosts));
+    }
+    @Override
+    public void saveToXML(XML xml) {
+        xml.setAttribute("enabled", enabled);
+        xml.addElement("host", host);
+        xml.addElement("port", port);
+        xml.addElement("sampleInterval", sampleInterval);
+        xml.addElement("maxHosts", maxHosts);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
@@ -0,0 +1,364 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.dashboard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import com.norconex.collector.core.reference.CrawlState;
+import com.norconex.collector.http.fetch.IHttpFetchResponse;
+import com.norconex.collector.http.reference.HttpCrawlState;
+import com.norconex.commons.lang.url.HttpURL;
+
+/**
+ * <p>
+ * In-memory activity of a crawler, per URL root (scheme, host and port):
+ * fetches, errors, queued references, active threads and politeness
+ * delays. Counters are striped ({@link LongAdder}) so crawler threads
+ * updating them do not contend. Rates are only computed when
+ * {@link #sample()} is invoked (e.g., by {@link CrawlDashboard}).
+ * </p>
+ * <p>
+ * To keep memory bounded on crawls spanning many sites, hosts
+ * beyond the maximum number of hosts tracked are aggregated
+ * under {@value #OTHER_HOSTS}.
+ * </p>
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class HostActivity {
+
+    public static final int DEFAULT_MAX_HOSTS = 10000;
+    public static final String OTHER_HOSTS = "(other)";
+    /** Number of throughput samples kept for the trend. */
+    public static final int TREND_SIZE = 120;
+
+    private final ConcurrentMap<String, HostStats> hosts =
+            new ConcurrentHashMap<>();
+    private final HostStats otherHosts = new HostStats(OTHER_HOSTS);
+    private final LongAdder processed = new LongAdder();
+    private final AtomicInteger activeThreads = new AtomicInteger();
+    private volatile int maxHosts = DEFAULT_MAX_HOSTS;
+
+    // guarded by this
+    private final double[] trend = new double[TREND_SIZE];
+    private int trendNext;
+    private int trendCount;
+    private long lastSampleNanos = System.nanoTime();
+    private long lastSampleProcessed;
+    private volatile double processedRate;
+
+    /**
+     * Gets the maximum number of hosts tracked individually.
+     * @return maximum hosts
+     */
+    public int getMaxHosts() {
+        return maxHosts;
+    }
+    /**
+     * Sets the maximum number of hosts tracked individually. Others are
+     * aggregated under {@value #OTHER_HOSTS}.
+     * @param maxHosts maximum hosts
+     */
+    public void setMaxHosts(int maxHosts) {
+        this.maxHosts = maxHosts;
+    }
+
+    /**
+     * Counts a reference submitted to the queue.
+     * @param url reference URL
+     */
+    public void queued(String url) {
+        stats(url).queued.increment();
+    }
+    /**
+     * Marks a reference taken from the queue as being processed
+     * by the current thread.
+     * @param url reference URL
+     */
+    public void processingStarted(String url) {
+        activeThreads.incrementAndGet();
+        HostStats s = stats(url);
+        s.dequeued.increment();
+        s.activeThreads.incrementAndGet();
+    }
+    /**
+     * Marks the current thread as done processing a reference.
+     * Only references which finished processing are counted as processed.
+     * @param url reference URL
+     * @param finished <code>false</code> if the reference was put back
+     *        in the queue to be processed later (e.g., deferred
+     *        for politeness)
+     */
+    public void processingEnded(String url, boolean finished) {
+        activeThreads.decrementAndGet();
+        stats(url).activeThreads.decrementAndGet();
+        if (finished) {
+            processed.increment();
+        }
+    }
+    /**
+     * Counts a document fetch (headers or content).
+     * @param url document URL
+     * @param response fetch response
+     */
+    public void fetched(String url, IHttpFetchResponse response) {
+        HostStats s = stats(url);
+        s.fetches.increment();
+        CrawlState state = response == null ? null : response.getCrawlState();
+        if (state == null || state.isOneOf(
+                HttpCrawlState.ERROR, HttpCrawlState.BAD_STATUS)) {
+            s.errors.increment();
+        }
+    }
+    /**
+     * Counts a document fetch which failed with an exception.
+     * @param url document URL
+     */
+    public void failed(String url) {
+        HostStats s = stats(url);
+        s.fetches.increment();
+        s.errors.increment();
+    }
+    /**
+     * Records the politeness delay applied to a site.
+     * @param url URL being delayed
+     * @param delayNanos delay waited (or deferred) in nanoseconds
+     * @param robotsCrawlDelay robots.txt crawl-delay in seconds
+     *        (zero if none)
+     */
+    public void delayed(String url, long delayNanos, float robotsCrawlDelay) {
+        HostStats s = stats(url);
+        s.delayNanos = delayNanos;
+        s.robotsCrawlDelay = robotsCrawlDelay;
+    }
+
+    /**
+     * Gets the number of threads currently processing a document.
+     * @return active threads
+     */
+    public int getActiveThreads() {
+        return activeThreads.get();
+    }
+    /**
+     * Gets the number of documents processed so far.
+     * @return processed count
+     */
+    public long getProcessedCount() {
+        return processed.sum();
+    }
+    /**
+     * Gets the documents processed per second, as of the last sample.
+     * @return processed rate
+     */
+    public double getProcessedRate() {
+        return processedRate;
+    }
+    /**
+     * Gets documents processed per second for the last samples, oldest
+     * first (at most {@value #TREND_SIZE} values).
+     * @return throughput trend
+     */
+    public synchronized double[] getTrend() {
+        double[] values = new double[trendCount];
+        int start = (trendNext - trendCount + TREND_SIZE) % TREND_SIZE;
+        for (int i = 0; i < trendCount; i++) {
+            values[i] = trend[(start + i) % TREND_SIZE];
+        }
+        return values;
+    }
+
+    /**
+     * Gets the activity of each host, including
+     * {@value #OTHER_HOSTS} if hosts were aggregated.
+     * @return host statistics
+     */
+    public List<HostStats> getHosts() {
+        List<HostStats> list = new ArrayList<>(hosts.values());
+        if (otherHosts.fetches.sum() > 0 || otherHosts.queued.sum() > 0) {
+            list.add(otherHosts);
+        }
+        return list;
+    }
+
+    /**
+     * Computes rates since the previous sample and adds global
+     * throughput to the trend.
+     */
+    public synchronized void sample() {
+        long now = System.nanoTime();
+        double seconds = (now - lastSampleNanos)
+                / (double) TimeUnit.SECONDS.toNanos(1);
+        if (seconds <= 0) {
+            return;
+        }
+        long count = processed.sum();
+        processedRate = (count - lastSampleProcessed) / seconds;
+        lastSampleProcessed = count;
+        lastSampleNanos = now;
+        trend[trendNext] = processedRate;
+        trendNext = (trendNext + 1) % TREND_SIZE;
+        trendCount = Math.min(trendCount + 1, TREND_SIZE);
+        for (HostStats s : hosts.values()) {
+            s.sample(seconds);
+        }
+        otherHosts.sample(seconds);
+    }
+
+    /**
+     * Clears all activity.
+     */
+    public synchronized void reset() {
+        hosts.clear();
+        otherHosts.clear();
+        processed.reset();
+        activeThreads.set(0);
+        trendNext = 0;
+        trendCount = 0;
+        lastSampleNanos = System.nanoTime();
+        lastSampleProcessed = 0;
+        processedRate = 0;
+    }
+
+    private HostStats stats(String url) {
+        String host = HttpURL.getRoot(url);
+        if (host == null) {
+            return otherHosts;
+        }
+        HostStats s = hosts.get(host);
+        if (s == null) {
+            if (hosts.size() >= maxHosts) {
+                return otherHosts;
+            }
+            s = hosts.computeIfAbsent(host, HostStats::new);
+        }
+        return s;
+    }
+
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+
+    /**
+     * Activity of a single host.
+     */
+    public static final class HostStats {
+        private final String host;
+        private final LongAdder fetches = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder queued = new LongAdder();
+        private final LongAdder dequeued = new LongAdder();
+        private final AtomicInteger activeThreads = new AtomicInteger();
+        private volatile long delayNanos;
+        private volatile float robotsCrawlDelay;
+        // guarded by HostActivity
+        private long lastFetches;
+        private volatile double fetchRate;
+
+        private HostStats(String host) {
+            super();
+            this.host = host;
+        }
+
+        /**
+         * Gets the URL root (scheme, host and port).
+         * @return host
+         */
+        public String getHost() {
+            return host;
+        }
+        public long getFetchCount() {
+            return fetches.sum();
+        }
+        public long getErrorCount() {
+            return errors.sum();
+        }
+        /**
+         * Gets the ratio of fetches being errors (exceptions,
+         * bad statuses), from 0 to 1.
+         * @return error rate
+         */
+        public double getErrorRate() {
+            long f = fetches.sum();
+            return f == 0 ? 0 : errors.sum() / (double) f;
+        }
+        /**
+         * Gets fetches per second, as of the last sample.
+         * @return fetch rate
+         */
+        public double getFetchRate() {
+            return fetchRate;
+        }
+        /**
+         * Gets the number of references queued and not yet processed.
+         * This is an estimate, as it includes references
+         * the queue ignored for being already queued or processed.
+         * @return queue size
+         */
+        public long getQueueSize() {
+            return Math.max(0, queued.sum() - dequeued.sum());
+        }
+        public int getActiveThreads() {
+            return activeThreads.get();
+        }
+        /**
+         * Gets the last politeness delay applied, in milliseconds.
+         * @return delay
+         */
+        public long getDelay() {
+            return TimeUnit.NANOSECONDS.toMillis(delayNanos);
+        }
+        /**
+         * Gets the robots.txt crawl-delay, in seconds.
+         * @return crawl-delay or zero if none
+         */
+        public float getRobotsCrawlDelay() {
+            return robotsCrawlDelay;
+        }
+
+        private void sample(double seconds) {
+            long count = fetches.sum();
+            fetchRate = (count - lastFetches) / seconds;
+            lastFetches = count;
+        }
+        private void clear() {
+            fetches.reset();
+            errors.reset();
+            queued.reset();
+            dequeued.reset();
+            activeThreads.set(0);
+            delayNanos = 0;
+            robotsCrawlDelay = 0;
+            lastFetches = 0;
+            fetchRate = 0;
+        }
+
+        @Override
+        public String toString() {
+            return new ReflectionToStringBuilder(
+                    this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+        }
+    }
+}
@@ -33,4 +33,34 @@ public interface IDelayResolver {
      * @param url the URL being crawled
      */
     void delay(RobotsTxt robotsTxt, String url);
+
+    /**
+     * Non-blocking version of {@link #delay(RobotsTxt, String)}.
+     * Reserves the next time slot the URL can be crawled at and
+     * accounts for it as a hit right away, without waiting. The URL
+     * is expected to be crawled at that time without trying again.
+     * Default implementation invokes {@link #delay(RobotsTxt, String)}
+     * and returns zero.
+     * @param robotsTxt robots.txt instance (if applicable)
+     * @param url the URL being crawled
+     * @return milliseconds until the reserved slot, or zero if it is now
+     * @since 3.0.0
+     */
+    default long tryDelay(RobotsTxt robotsTxt, String url) {
+        delay(robotsTxt, url);
+        return 0;
+    }
+
+    /**
+     * Whether URLs not yet allowed to be crawled should be put back in
+     * the queue until the delay expires (using
+     * {@link #tryDelay(RobotsTxt, String)}) instead of having
+     * crawling threads wait. Default implementation returns
+     * <code>false</code>.
+     * @return <code>true</code> if delays are deferred
+     * @since 3.0.0
+     */
+    default boolean isDelayDeferred() {
+        return false;
+    }
 }
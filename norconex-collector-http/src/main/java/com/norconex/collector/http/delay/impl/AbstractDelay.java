@@ -14,6 +14,8 @@
  */
 package com.norconex.collector.http.delay.impl;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -34,6 +36,21 @@ public abstract class AbstractDelay {
     
     public abstract void delay(long expectedDelayNanos, String url);
 
+    /**
+     * Reserves the next hit slot without waiting and returns how long
+     * until it comes. The hit is recorded for that slot right away, so
+     * the next caller is given the slot after it. Default implementation
+     * waits like {@link #delay(long, String)} and returns zero.
+     * @param expectedDelayNanos expected delay in nanoseconds
+     * @param url the URL being crawled
+     * @return nanoseconds until the reserved slot, or zero if it is now
+     * @since 3.0.0
+     */
+    public long tryDelay(long expectedDelayNanos, String url) {
+        delay(expectedDelayNanos, url);
+        return 0;
+    }
+
     protected void delay(long expectedDelayNanos, long lastHitNanos) {
         // Targeted delay in nanoseconds
         if (expectedDelayNanos <= 0) {
@@ -58,4 +75,42 @@ public abstract class AbstractDelay {
         // Ensure time has changed
         Sleeper.sleepNanos(1);
     }
+
+    /**
+     * Gets when hits were last recorded, in epoch milliseconds, keyed
+     * by what they apply to (e.g., a site). Used to save politeness state
+     * between crawler executions. Default implementation returns
+     * an empty map.
+     * @return last hits
+     * @since 3.0.0
+     */
+    public Map<String, Long> getLastHits() {
+        return Collections.emptyMap();
+    }
+    /**
+     * Restores hits obtained from {@link #getLastHits()}. More recent
+     * hits already recorded are kept. Default implementation does nothing.
+     * @param lastHits last hits, in epoch milliseconds
+     * @since 3.0.0
+     */
+    public void restoreLastHits(Map<String, Long> lastHits) {
+        //noop
+    }
+
+    protected static long toEpochMillis(long nanoTime) {
+        return System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(
+                System.nanoTime() - nanoTime);
+    }
+    protected static long toNanoTime(long epochMillis) {
+        return System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(
+                System.currentTimeMillis() - epochMillis);
+    }
+
+    protected long remainingNanos(long expectedDelayNanos, long lastHitNanos) {
+        if (expectedDelayNanos <= 0) {
+            return 0;
+        }
+        return Math.max(0,
+                expectedDelayNanos - (System.nanoTime() - lastHitNanos));
+    }
 }
@@ -26,6 +26,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.norconex.collector.http.delay.IDelayResolver;
+import com.norconex.collector.http.jfr.CrawlEvents;
+import com.norconex.collector.http.jfr.CrawlEvents.Span;
 import com.norconex.collector.http.robot.RobotsTxt;
 import com.norconex.commons.lang.xml.IXMLConfigurable;
 import com.norconex.commons.lang.xml.XML;
@@ -61,6 +63,13 @@ import com.norconex.commons.lang.xml.XML;
  *       any given thread.  The more threads you have the less of an
  *       impact the delay will have.</li>
  * </ul>
+ * <p>
+ * As of 3.0.0, delays can be "deferred": instead of having a thread
+ * wait for the delay to expire, a URL not yet allowed to be crawled is
+ * put back in the queue until it can be. Threads are then free to process
+ * other URLs in the meantime (e.g., from other sites when using the
+ * "site" scope). Not supported by the "thread" scope, which always waits.
+ * </p>
  * <h3>
  * XML configuration usage:
  * </h3>
@@ -72,7 +81,8 @@ import com.norconex.commons.lang.xml.XML;
  *  &lt;delay class="(implementing class)"
  *          default="(milliseconds)"
  *          ignoreRobotsCrawlDelay="[false|true]"
- *          scope="[crawler|site|thread]" &gt;
+ *          scope="[crawler|site|thread]"
+ *          deferred="[false|true]" &gt;
  *  &lt;/delay&gt;
  * </pre>
  *
@@ -96,6 +106,7 @@ public abstract class AbstractDelayResolver
     private long defaultDelay = DEFAULT_DELAY;
     private boolean ignoreRobotsCrawlDelay = false;
     private String scope = SCOPE_CRAWLER;
+    private boolean deferred;
 
     public AbstractDelayResolver() {
         super();
@@ -111,16 +122,60 @@ public abstract class AbstractDelayResolver
         if (expectedDelayNanos <= 0) {
             return;
         }
+        Span span = CrawlEvents.beginDelay(url, scope, expectedDelayNanos);
+        try {
+            getScopeDelay().delay(expectedDelayNanos, url);
+        } finally {
+            span.end();
+        }
+    }
+
+    @Override
+    public long tryDelay(RobotsTxt robotsTxt, String url) {
+        long expectedDelayNanos = getExpectedDelayNanos(robotsTxt, url);
+        if (expectedDelayNanos <= 0) {
+            return 0;
+        }
+        long remainingNanos =
+                getScopeDelay().tryDelay(expectedDelayNanos, url);
+        if (remainingNanos <= 0) {
+            return 0;
+        }
+        // round up so we do not come back too early
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(
+                remainingNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+    }
+
+    private AbstractDelay getScopeDelay() {
         AbstractDelay delay = delays.get(scope);
         if (delay == null) {
             LOG.warn("Unspecified or unsupported delay scope: "
                     + scope + ".  Using crawler scope.");
             delay = delays.get(SCOPE_CRAWLER);
         }
-        delay.delay(expectedDelayNanos, url);
+        return delay;
     }
 
 
+    /**
+     * Gets when hits were last recorded for the current scope, in epoch
+     * milliseconds. Not supported by the "thread" scope.
+     * @return last hits
+     * @since 3.0.0
+     */
+    public Map<String, Long> getLastHits() {
+        return getScopeDelay().getLastHits();
+    }
+    /**
+     * Restores hits obtained from {@link #getLastHits()} (e.g., when
+     * resuming a crawl) so sites are not hit again too early.
+     * @param lastHits last hits, in epoch milliseconds
+     * @since 3.0.0
+     */
+    public void restoreLastHits(Map<String, Long> lastHits) {
+        getScopeDelay().restoreLastHits(lastHits);
+    }
+
     /**
      * Gets the default delay in milliseconds.
      * @return default delay
@@ -169,6 +224,20 @@ public abstract class AbstractDelayResolver
         this.scope = scope;
     }
 
+    @Override
+    public boolean isDelayDeferred() {
+        return deferred;
+    }
+    /**
+     * Sets whether URLs not yet allowed to be crawled should be put back
+     * in the queue instead of having crawling threads wait.
+     * @param deferred <code>true</code> to defer delays
+     * @since 3.0.0
+     */
+    public void setDelayDeferred(boolean deferred) {
+        this.deferred = deferred;
+    }
+
     private long getExpectedDelayNanos(
             RobotsTxt robotsTxt, String url) {
         long delayNanos = millisToNanos(defaultDelay);
@@ -210,6 +279,7 @@ public abstract class AbstractDelayResolver
         ignoreRobotsCrawlDelay = xml.getBoolean(
                 "@ignoreRobotsCrawlDelay", ignoreRobotsCrawlDelay);
         scope = xml.getString("@scope", SCOPE_CRAWLER);
+        deferred = xml.getBoolean("@deferred", deferred);
         loadDelaysFromXML(xml);
     }
 
@@ -228,6 +298,7 @@ public abstract class AbstractDelayResolver
         xml.setAttribute("default", Long.toString(defaultDelay));
         xml.setAttribute("scope", scope);
         xml.setAttribute("ignoreRobotsCrawlDelay", ignoreRobotsCrawlDelay);
+        xml.setAttribute("deferred", deferred);
         saveDelaysToXML(xml);
     }
 
@@ -14,6 +14,9 @@
  */
 package com.norconex.collector.http.delay.impl;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.apache.commons.lang3.mutable.MutableLong;
 
 import com.norconex.commons.lang.Sleeper;
@@ -24,6 +27,8 @@ import com.norconex.commons.lang.Sleeper;
  */
 public class CrawlerDelay extends AbstractDelay {
 
+    private static final String LAST_HIT_KEY = "crawler";
+
     private MutableLong lastHitEpochNanos = new MutableLong(-1);
     private boolean sleeping = false;
 
@@ -46,4 +51,48 @@ public class CrawlerDelay extends AbstractDelay {
             sleeping = false;
         }
     }
+
+    @Override
+    public long tryDelay(long expectedDelayNanos, String url) {
+        if (expectedDelayNanos <= 0) {
+            return 0;
+        }
+        synchronized (lastHitEpochNanos) {
+            if (sleeping) {
+                return expectedDelayNanos;
+            }
+            // first hit is never delayed
+            long remaining = lastHitEpochNanos.longValue() == -1 ? 0
+                    : remainingNanos(expectedDelayNanos,
+                            lastHitEpochNanos.longValue());
+            // the slot is taken now, so the next URL gets the one after
+            lastHitEpochNanos.setValue(System.nanoTime() + remaining);
+            return remaining;
+        }
+    }
+
+    @Override
+    public Map<String, Long> getLastHits() {
+        synchronized (lastHitEpochNanos) {
+            if (lastHitEpochNanos.longValue() == -1) {
+                return Collections.emptyMap();
+            }
+            return Collections.singletonMap(LAST_HIT_KEY,
+                    toEpochMillis(lastHitEpochNanos.longValue()));
+        }
+    }
+    @Override
+    public void restoreLastHits(Map<String, Long> lastHits) {
+        Long millis = lastHits.get(LAST_HIT_KEY);
+        if (millis == null) {
+            return;
+        }
+        long nanos = toNanoTime(millis);
+        synchronized (lastHitEpochNanos) {
+            if (lastHitEpochNanos.longValue() == -1
+                    || nanos - lastHitEpochNanos.longValue() > 0) {
+                lastHitEpochNanos.setValue(nanos);
+            }
+        }
+    }
 }
@@ -76,7 +76,8 @@ import com.norconex.commons.lang.xml.XML;
  *  &lt;delay class="com.norconex.collector.http.delay.impl.GenericDelayResolver"
  *          default="(milliseconds)"
  *          ignoreRobotsCrawlDelay="[false|true]"
- *          scope="[crawler|site|thread]" &gt;
+ *          scope="[crawler|site|thread]"
+ *          deferred="[false|true]" &gt;
  *      &lt;schedule
  *          dayOfWeek="from (week day) to (week day)"
  *          dayOfMonth="from [1-31] to [1-31]"
@@ -69,7 +69,8 @@ import com.norconex.commons.lang.xml.XML;
  *  &lt;delay class="com.norconex.collector.http.delay.impl.ReferenceDelayResolver"
  *          default="(milliseconds)"
  *          ignoreRobotsCrawlDelay="[false|true]"
- *          scope="[crawler|site|thread]" &gt;
+ *          scope="[crawler|site|thread]"
+ *          deferred="[false|true]" &gt;
  *      &lt;pattern delay="(delay in milliseconds)"&gt;
  *        (regular expression applied against document reference)
  *      &lt;/pattern&gt;
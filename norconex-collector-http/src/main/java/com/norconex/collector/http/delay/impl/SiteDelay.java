@@ -14,6 +14,7 @@
  */
 package com.norconex.collector.http.delay.impl;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -35,8 +36,7 @@ public class SiteDelay extends AbstractDelay {
         if (expectedDelayNanos <= 0) {
             return;
         }
-        String site = StringUtils.lowerCase(
-                url.replaceFirst("(.*?//.*?)(/.*)|$]", "$1"));
+        String site = toSite(url);
         SleepState sleepState = null;
         try {
             synchronized (siteLastHitNanos) {
@@ -57,6 +57,55 @@ public class SiteDelay extends AbstractDelay {
         }
     }
 
+    @Override
+    public long tryDelay(long expectedDelayNanos, String url) {
+        if (expectedDelayNanos <= 0) {
+            return 0;
+        }
+        String site = toSite(url);
+        synchronized (siteLastHitNanos) {
+            SleepState sleepState = siteLastHitNanos.computeIfAbsent(
+                    site, k -> new SleepState());
+            if (sleepState.sleeping) {
+                return expectedDelayNanos;
+            }
+            long remaining = remainingNanos(
+                    expectedDelayNanos, sleepState.lastHitEpochNanos);
+            // the slot is taken now, so the next URL gets the one after
+            sleepState.lastHitEpochNanos = System.nanoTime() + remaining;
+            return remaining;
+        }
+    }
+
+    private static String toSite(String url) {
+        return StringUtils.lowerCase(
+                url.replaceFirst("(.*?//.*?)(/.*)|$]", "$1"));
+    }
+
+    @Override
+    public Map<String, Long> getLastHits() {
+        Map<String, Long> lastHits = new HashMap<>();
+        siteLastHitNanos.forEach((site, state) -> lastHits.put(
+                site, toEpochMillis(state.lastHitEpochNanos)));
+        return lastHits;
+    }
+    @Override
+    public void restoreLastHits(Map<String, Long> lastHits) {
+        synchronized (siteLastHitNanos) {
+            lastHits.forEach((site, millis) -> {
+                long nanos = toNanoTime(millis);
+                SleepState sleepState = siteLastHitNanos.get(site);
+                if (sleepState == null) {
+                    sleepState = new SleepState();
+                    sleepState.lastHitEpochNanos = nanos;
+                    siteLastHitNanos.put(site, sleepState);
+                } else if (nanos - sleepState.lastHitEpochNanos > 0) {
+                    sleepState.lastHitEpochNanos = nanos;
+                }
+            });
+        }
+    }
+
     private static class SleepState {
         private long lastHitEpochNanos = System.nanoTime();
         private boolean sleeping;
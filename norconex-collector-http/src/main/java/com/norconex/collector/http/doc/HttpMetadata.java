@@ -49,6 +49,51 @@ public class HttpMetadata extends CollectorMetadata {
     /** @since 2.8.0 */
     public static final String COLLECTOR_REDIRECT_TRAIL =
             COLLECTOR_PREFIX + "redirect-trail";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_CONTENT_TRUNCATED =
+            COLLECTOR_PREFIX + "content-truncated";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_TRANSFER_ENCODING =
+            COLLECTOR_PREFIX + "transfer-encoding";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_TRANSFER_LENGTH =
+            COLLECTOR_PREFIX + "transfer-length";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_BLOCKED_REQUESTS =
+            COLLECTOR_PREFIX + "blocked-requests";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_BLOCKED_BYTES =
+            COLLECTOR_PREFIX + "blocked-bytes";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_RENDERED =
+            COLLECTOR_PREFIX + "rendered";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_FETCH_DNS_TIME =
+            COLLECTOR_PREFIX + "fetch-dns-time";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_FETCH_CONNECT_TIME =
+            COLLECTOR_PREFIX + "fetch-connect-time";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_FETCH_TLS_TIME =
+            COLLECTOR_PREFIX + "fetch-tls-time";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_FETCH_FIRST_BYTE_TIME =
+            COLLECTOR_PREFIX + "fetch-first-byte-time";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_FETCH_DOWNLOAD_TIME =
+            COLLECTOR_PREFIX + "fetch-download-time";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_FETCH_WIRE_BYTES =
+            COLLECTOR_PREFIX + "fetch-wire-bytes";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_FETCH_DECODED_BYTES =
+            COLLECTOR_PREFIX + "fetch-decoded-bytes";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_FETCH_CONNECTION_REUSED =
+            COLLECTOR_PREFIX + "fetch-connection-reused";
+    /** @since 3.0.0 */
+    public static final String COLLECTOR_FETCH_PROTOCOL =
+            COLLECTOR_PREFIX + "fetch-protocol";
 
 	public HttpMetadata(String documentURL) {
 		super();
@@ -38,8 +38,8 @@ import com.norconex.commons.lang.xml.XML;
 /**
  * <p>
  * Base class implementing the {@link #accept(HttpDocument)} method
- * using restrictions and offering methods to overwrite for crawler startup
- * and shutdown.
+ * using restrictions and offering methods to overwrite for crawler startup,
+ * shutdown, and other crawler events.
  * </p>
  * <h3>XML configuration usage:</h3>
  * Subclasses inherit this {@link IXMLConfigurable} configuration:
@@ -93,6 +93,8 @@ public abstract class AbstractHttpFetcher implements
             crawlerStartup(event);
         } else if (isCrawlerShutdown(event)) {
             crawlerShutdown(event);
+        } else {
+            crawlerEvent(event);
         }
     }
 
@@ -124,6 +126,15 @@ public abstract class AbstractHttpFetcher implements
     protected void crawlerShutdown(CrawlerEvent<Crawler> event) {
         //NOOP
     }
+    /**
+     * Invoked for crawler events other than startup and shutdown.
+     * Default implementation does nothing.
+     * @param event crawler event
+     * @since 3.0.0
+     */
+    protected void crawlerEvent(CrawlerEvent<Crawler> event) {
+        //NOOP
+    }
 
     @Override
     public final void loadFromXML(XML xml) {
@@ -17,27 +17,45 @@ package com.norconex.collector.http.fetch;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.norconex.collector.core.reference.CrawlState;
 import com.norconex.collector.http.doc.HttpDocument;
 import com.norconex.collector.http.doc.HttpMetadata;
 import com.norconex.collector.http.fetch.impl.GenericHttpFetcher;
+import com.norconex.collector.http.fetch.util.IHttpRetryPolicy;
+import com.norconex.collector.http.reference.HttpCrawlState;
 import com.norconex.commons.lang.Sleeper;
 import com.norconex.commons.lang.io.CachedStreamFactory;
 
 /**
  * Fetches HTTP resources, trying all configured http fetchers, defaulting
  * to {@link GenericHttpFetcher} with default configuration if none are defined.
+ * Failed fetches are retried up to a maximum number of times, as decided
+ * by a retry policy.  A retry policy defining its own maximum number of
+ * retries overrides the one given to this client.  Without a retry policy,
+ * any failure not resulting from an exception is retried after a fixed
+ * delay.
  * @author Pascal Essiembre
  * @since 3.0.0
  */
 public class HttpFetchClient {
 
+    private static final Logger LOG =
+            LoggerFactory.getLogger(HttpFetchClient.class);
+
     //TODO by default, continue to next if unsupported status is returned.
     //  But have options to configure so that it continue if exception
     // or continue if null
@@ -50,12 +68,30 @@ public class HttpFetchClient {
     private final List<IHttpFetcher> fetchers = new ArrayList<>();
     private final CachedStreamFactory streamFactory;
     private final int maxRetries;
-    private final long retryDelay;
+    private final IHttpRetryPolicy retryPolicy;
+    private final Map<Integer, LongAdder> statusCounts =
+            new ConcurrentHashMap<>();
+    private final LongAdder retries = new LongAdder();
 
     public HttpFetchClient(
             CachedStreamFactory streamFactory,
             List<IHttpFetcher> httpFetchers,
             int maxRetries, long retryDelay) {
+        this(streamFactory, httpFetchers, maxRetries,
+                (url, meta, resp, ex, count) -> ex != null ? -1 : retryDelay);
+    }
+    /**
+     * Creates a new fetch client.
+     * @param streamFactory stream factory
+     * @param httpFetchers HTTP fetchers
+     * @param maxRetries maximum number of retries per fetcher, unless
+     *     defined by the retry policy
+     * @param retryPolicy retry policy deciding if and when to retry
+     */
+    public HttpFetchClient(
+            CachedStreamFactory streamFactory,
+            List<IHttpFetcher> httpFetchers,
+            int maxRetries, IHttpRetryPolicy retryPolicy) {
         Objects.requireNonNull(
                 streamFactory, "'streamFactory' must not be null.");
         this.streamFactory = streamFactory;
@@ -64,31 +100,95 @@ public class HttpFetchClient {
         } else {
             this.fetchers.addAll(httpFetchers);
         }
-        this.maxRetries = maxRetries;
-        this.retryDelay = retryDelay;
+        this.retryPolicy = Objects.requireNonNull(
+                retryPolicy, "'retryPolicy' must not be null.");
+        this.maxRetries = retryPolicy.getMaxRetries() >= 0
+                ? retryPolicy.getMaxRetries() : maxRetries;
     }
 
     public CachedStreamFactory getStreamFactory() {
         return streamFactory;
     }
 
+    /**
+     * Gets the maximum number of retries per fetcher, as defined by the
+     * retry policy if it has one.
+     * @return maximum number of retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Gets the HTTP fetchers used by this client.
+     * @return HTTP fetchers (never <code>null</code>)
+     */
+    public List<IHttpFetcher> getHttpFetchers() {
+        return Collections.unmodifiableList(fetchers);
+    }
+
+    /**
+     * Gets the number of HTTP requests made so far, by status code.
+     * Requests ending with an exception are counted under -1.
+     * Requests not supported by a fetcher are not counted.
+     * @return request counts by status code
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        statusCounts.forEach((status, count) -> counts.put(
+                status, count.sum()));
+        return counts;
+    }
+    /**
+     * Gets the number of fetch attempts retried so far, immediately
+     * or deferred.
+     * @return retry count
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
 
     public IHttpFetchResponse fetchHeaders(String url, HttpMetadata headers) {
-        return fetch(fetcher -> fetcher.fetchHeaders(url, headers));
+        return fetchHeaders(url, headers, 0);
+    }
+    /**
+     * Fetches HTTP headers, accounting for retries already attempted
+     * (e.g., deferred ones).
+     * @param url URL to fetch
+     * @param headers metadata receiving the headers
+     * @param retryCount number of retries already attempted
+     * @return fetch response
+     */
+    public IHttpFetchResponse fetchHeaders(
+            String url, HttpMetadata headers, int retryCount) {
+        return fetch(url, headers, retryCount,
+                fetcher -> fetcher.fetchHeaders(url, headers));
     }
     public IHttpFetchResponse fetchDocument(HttpDocument doc) {
-        return fetch(fetcher -> fetcher.fetchDocument(doc));
+        return fetchDocument(doc, 0);
+    }
+    /**
+     * Fetches a document, accounting for retries already attempted
+     * (e.g., deferred ones).
+     * @param doc document to fetch
+     * @param retryCount number of retries already attempted
+     * @return fetch response
+     */
+    public IHttpFetchResponse fetchDocument(HttpDocument doc, int retryCount) {
+        return fetch(doc.getReference(), doc.getMetadata(), retryCount,
+                fetcher -> fetcher.fetchDocument(doc));
     }
 
     public HttpDocument fetchDocument(String url) {
         HttpDocument doc = new HttpDocument(url, streamFactory);
-        fetch(fetcher -> fetcher.fetchDocument(doc));
+        fetchDocument(doc);
         return doc;
     }
     public IHttpFetchResponse fetchDocument(String url, OutputStream out)
             throws HttpFetchException {
         HttpDocument doc = new HttpDocument(url, streamFactory);
-        IHttpFetchResponse resp = fetch(fetcher -> fetcher.fetchDocument(doc));
+        IHttpFetchResponse resp = fetchDocument(doc);
         try {
             IOUtils.copy(doc.getInputStream(), out);
             doc.dispose();
@@ -102,29 +202,94 @@ public class HttpFetchClient {
 //        return fetchDocument(url).getInputStream();
 //    }
 
-    private IHttpFetchResponse fetch(
+    private IHttpFetchResponse fetch(String url, HttpMetadata metadata,
+            int previousRetries,
             Function<IHttpFetcher, IHttpFetchResponse> supplier) {
         HttpFetchClientResponse allResponses = new HttpFetchClientResponse();
         for (IHttpFetcher fetcher : fetchers) {
-            for (int retryCount = 0; retryCount <= maxRetries; retryCount++) {
-                if (retryCount > 0) {
-                    Sleeper.sleepMillis(retryDelay);
-                }
+            for (int retryCount = previousRetries; ; retryCount++) {
 
                 // fetch:
-                IHttpFetchResponse fetchResponse = supplier.apply(fetcher);
-                if (fetchResponse == null) {
-                    fetchResponse =
-                            HttpFetchResponseBuilder.unsupported().build();
+                IHttpFetchResponse fetchResponse = null;
+                RuntimeException exception = null;
+                try {
+                    fetchResponse = supplier.apply(fetcher);
+                    if (fetchResponse == null) {
+                        fetchResponse =
+                                HttpFetchResponseBuilder.unsupported().build();
+                    }
+                } catch (RuntimeException e) {
+                    exception = e;
+                }
+                countStatus(fetchResponse);
+                if (exception == null) {
+                    allResponses.addResponse(fetchResponse, fetcher);
+                } else if (retryCount >= maxRetries) {
+                    throw exception;
                 }
-                allResponses.addResponse(fetchResponse, fetcher);
 
-                if (fetchResponse.getCrawlState() != null
+                if (fetchResponse != null
+                        && fetchResponse.getCrawlState() != null
                         && fetchResponse.getCrawlState().isGoodState()) {
                     return allResponses;
                 }
+                // A rejection is a final decision (e.g., on headers or size
+                // limit): no point retrying or trying other fetchers.
+                if (fetchResponse != null
+                        && fetchResponse.getCrawlState() != null
+                        && fetchResponse.getCrawlState().isOneOf(
+                                HttpCrawlState.REJECTED,
+                                HttpCrawlState.TOO_LARGE)) {
+                    return allResponses;
+                }
+
+                // retry?
+                if (retryCount >= maxRetries) {
+                    break;
+                }
+                long delay = retryPolicy.getRetryDelay(url, metadata,
+                        fetchResponse, exception, retryCount + 1);
+                if (delay < 0) {
+                    if (exception != null) {
+                        throw exception;
+                    }
+                    break;
+                }
+                if (retryPolicy.isRetryDeferred()) {
+                    if (exception != null) {
+                        allResponses.addResponse(new HttpFetchResponseBuilder()
+                                .setCrawlState(HttpCrawlState.ERROR)
+                                .setStatusCode(-1)
+                                .setReasonPhrase(exception.getMessage())
+                                .build(), fetcher);
+                    }
+                    allResponses.setRetryNotBefore(
+                            System.currentTimeMillis() + delay);
+                    retries.increment();
+                    LOG.debug("Deferring retry #{} by {}ms: {}",
+                            retryCount + 1, delay, url);
+                    return allResponses;
+                }
+                LOG.debug("Retry #{} in {}ms: {}", retryCount + 1, delay, url);
+                retries.increment();
+                Sleeper.sleepMillis(delay);
             }
         }
         return allResponses;
     }
+
+    private void countStatus(IHttpFetchResponse response) {
+        int status = -1;
+        if (response != null) {
+            if (CrawlState.UNSUPPORTED.equals(response.getCrawlState())) {
+                return;
+            }
+            status = response.getStatusCode();
+        }
+        LongAdder count = statusCounts.get(status);
+        if (count == null) {
+            count = statusCounts.computeIfAbsent(status, s -> new LongAdder());
+        }
+        count.increment();
+    }
 }
@@ -37,11 +37,24 @@ public class HttpFetchClientResponse implements IHttpFetchResponse {
 
     private final List<Pair<IHttpFetchResponse, IHttpFetcher>> responses =
             new ArrayList<>();
+    private long retryNotBefore;
 
     public HttpFetchClientResponse() {
         super();
     }
 
+    /**
+     * Gets the time (epoch milliseconds) before which a failed fetch
+     * should not be attempted again, when its retry was deferred.
+     * @return not-before time, or zero if no retry is expected
+     */
+    public long getRetryNotBefore() {
+        return retryNotBefore;
+    }
+    public void setRetryNotBefore(long retryNotBefore) {
+        this.retryNotBefore = retryNotBefore;
+    }
+
     public void addResponse(IHttpFetchResponse resp, IHttpFetcher fetcher) {
         this.responses.add(0, new ImmutablePair<>(resp, fetcher));
     }
@@ -65,6 +78,16 @@ public class HttpFetchClientResponse implements IHttpFetchResponse {
         return lastResponse().map(
                 IHttpFetchResponse::getUserAgent).orElse(null);
     }
+    @Override
+    public HttpFetchTimings getTimings() {
+        return lastResponse().map(
+                IHttpFetchResponse::getTimings).orElse(null);
+    }
+    @Override
+    public String getRetryAfter() {
+        return lastResponse().map(
+                IHttpFetchResponse::getRetryAfter).orElse(null);
+    }
 
     private Optional<IHttpFetchResponse> lastResponse() {
         if (responses.isEmpty()) {
@@ -39,6 +39,8 @@ public class HttpFetchResponseBuilder {
         response.reasonPhrase = r.getReasonPhrase();
         response.statusCode = r.getStatusCode();
         response.userAgent = r.getUserAgent();
+        response.timings = r.getTimings();
+        response.retryAfter = r.getRetryAfter();
     }
 
     public HttpFetchResponseBuilder setUserAgent(String userAgent) {
@@ -57,6 +59,14 @@ public class HttpFetchResponseBuilder {
         response.reasonPhrase = reasonPhrase;
         return this;
     }
+    public HttpFetchResponseBuilder setTimings(HttpFetchTimings timings) {
+        response.timings = timings;
+        return this;
+    }
+    public HttpFetchResponseBuilder setRetryAfter(String retryAfter) {
+        response.retryAfter = retryAfter;
+        return this;
+    }
     public IHttpFetchResponse build() {
         if (response.crawlState == null) {
             throw new IllegalArgumentException("Crawl state cannot be null.");
@@ -91,6 +101,8 @@ public class HttpFetchResponseBuilder {
         private int statusCode;
         private String reasonPhrase;
         private String userAgent;
+        private HttpFetchTimings timings;
+        private String retryAfter;
         @Override
         public CrawlState getCrawlState() {
             return crawlState;
@@ -107,5 +119,13 @@ public class HttpFetchResponseBuilder {
         public String getUserAgent() {
             return userAgent;
         }
+        @Override
+        public HttpFetchTimings getTimings() {
+            return timings;
+        }
+        @Override
+        public String getRetryAfter() {
+            return retryAfter;
+        }
     }
 }
@@ -0,0 +1,184 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import com.norconex.collector.http.doc.HttpMetadata;
+
+/**
+ * <p>
+ * Breakdown of the time and bytes spent fetching a document.
+ * Times are in nanoseconds. Phases that did not occur (e.g., DNS
+ * resolution, connection and TLS handshake when a pooled connection
+ * is reused) are zero.
+ * </p>
+ * <ul>
+ *   <li><b>DNS</b>: resolving the host name.</li>
+ *   <li><b>Connect</b>: opening the TCP connection.</li>
+ *   <li><b>TLS</b>: secure connection handshake.</li>
+ *   <li><b>Time to first byte</b>: from the request being sent
+ *       (after the above phases) until response headers
+ *       are received.</li>
+ *   <li><b>Download</b>: reading the response body.</li>
+ *   <li><b>Wire bytes</b>: body bytes received, as transferred
+ *       (i.e., compressed when compressed).</li>
+ *   <li><b>Decoded bytes</b>: body bytes after decompression.</li>
+ * </ul>
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class HttpFetchTimings {
+
+    private long dnsNanos;
+    private long connectNanos;
+    private long tlsNanos;
+    private long timeToFirstByteNanos;
+    private long downloadNanos;
+    private long wireBytes;
+    private long decodedBytes;
+    private boolean connectionReused;
+    private String protocolVersion;
+
+    public long getDnsNanos() {
+        return dnsNanos;
+    }
+    public void setDnsNanos(long dnsNanos) {
+        this.dnsNanos = dnsNanos;
+    }
+
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+    public void setConnectNanos(long connectNanos) {
+        this.connectNanos = connectNanos;
+    }
+
+    public long getTlsNanos() {
+        return tlsNanos;
+    }
+    public void setTlsNanos(long tlsNanos) {
+        this.tlsNanos = tlsNanos;
+    }
+
+    public long getTimeToFirstByteNanos() {
+        return timeToFirstByteNanos;
+    }
+    public void setTimeToFirstByteNanos(long timeToFirstByteNanos) {
+        this.timeToFirstByteNanos = timeToFirstByteNanos;
+    }
+
+    public long getDownloadNanos() {
+        return downloadNanos;
+    }
+    public void setDownloadNanos(long downloadNanos) {
+        this.downloadNanos = downloadNanos;
+    }
+
+    public long getWireBytes() {
+        return wireBytes;
+    }
+    public void setWireBytes(long wireBytes) {
+        this.wireBytes = wireBytes;
+    }
+
+    public long getDecodedBytes() {
+        return decodedBytes;
+    }
+    public void setDecodedBytes(long decodedBytes) {
+        this.decodedBytes = decodedBytes;
+    }
+
+    /**
+     * Gets whether the request was sent over a pooled connection
+     * opened by a previous request.
+     * @return <code>true</code> if the connection was reused
+     */
+    public boolean isConnectionReused() {
+        return connectionReused;
+    }
+    public void setConnectionReused(boolean connectionReused) {
+        this.connectionReused = connectionReused;
+    }
+
+    /**
+     * Gets the protocol version of the response (e.g., "HTTP/1.1").
+     * @return protocol version
+     */
+    public String getProtocolVersion() {
+        return protocolVersion;
+    }
+    public void setProtocolVersion(String protocolVersion) {
+        this.protocolVersion = protocolVersion;
+    }
+
+    /**
+     * Gets the total fetch time, from host name resolution until
+     * the response body is read.
+     * @return total time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return dnsNanos + connectNanos + tlsNanos
+                + timeToFirstByteNanos + downloadNanos;
+    }
+
+    /**
+     * Stores these timings in the given metadata, times being converted
+     * to milliseconds.
+     * @param metadata document metadata
+     */
+    public void storeIn(HttpMetadata metadata) {
+        metadata.set(HttpMetadata.COLLECTOR_FETCH_DNS_TIME, millis(dnsNanos));
+        metadata.set(HttpMetadata.COLLECTOR_FETCH_CONNECT_TIME,
+                millis(connectNanos));
+        metadata.set(HttpMetadata.COLLECTOR_FETCH_TLS_TIME, millis(tlsNanos));
+        metadata.set(HttpMetadata.COLLECTOR_FETCH_FIRST_BYTE_TIME,
+                millis(timeToFirstByteNanos));
+        metadata.set(HttpMetadata.COLLECTOR_FETCH_DOWNLOAD_TIME,
+                millis(downloadNanos));
+        metadata.set(HttpMetadata.COLLECTOR_FETCH_WIRE_BYTES,
+                Long.toString(wireBytes));
+        metadata.set(HttpMetadata.COLLECTOR_FETCH_DECODED_BYTES,
+                Long.toString(decodedBytes));
+        metadata.set(HttpMetadata.COLLECTOR_FETCH_CONNECTION_REUSED,
+                Boolean.toString(connectionReused));
+        if (protocolVersion != null) {
+            metadata.set(HttpMetadata.COLLECTOR_FETCH_PROTOCOL,
+                    protocolVersion);
+        }
+    }
+    private static String millis(long nanos) {
+        return Long.toString(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
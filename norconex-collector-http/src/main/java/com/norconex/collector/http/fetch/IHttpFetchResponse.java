@@ -31,6 +31,24 @@ public interface IHttpFetchResponse {
 
     String getUserAgent();
 
+    /**
+     * Gets the time and bytes spent fetching the document.
+     * @return fetch timings or <code>null</code> if not measured by
+     *         the fetcher
+     */
+    default HttpFetchTimings getTimings() {
+        return null;
+    }
+
+    /**
+     * Gets the raw <code>Retry-After</code> header value of this response,
+     * if any.
+     * @return retry-after value or <code>null</code>
+     */
+    default String getRetryAfter() {
+        return null;
+    }
+
     //TODO Exception getException();  ???
 
 
@@ -18,6 +18,9 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
 import java.net.URI;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
@@ -33,7 +36,9 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLParameters;
@@ -42,6 +47,8 @@ import javax.net.ssl.TrustManager;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -55,9 +62,14 @@ import org.apache.commons.lang3.mutable.MutableObject;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.http.Consts;
 import org.apache.http.Header;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.NameValuePair;
 import org.apache.http.StatusLine;
 import org.apache.http.auth.AuthScope;
@@ -77,20 +89,35 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.Lookup;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.ManagedHttpClientConnection;
 import org.apache.http.conn.SchemePortResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.impl.client.BasicAuthCache;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.conn.DefaultHttpClientConnectionOperator;
 import org.apache.http.impl.conn.DefaultSchemePortResolver;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
 import org.apache.http.ssl.SSLContexts;
 import org.apache.http.util.Args;
 import org.slf4j.Logger;
@@ -99,15 +126,29 @@ import org.slf4j.LoggerFactory;
 import com.norconex.collector.core.CollectorException;
 import com.norconex.collector.core.crawler.Crawler;
 import com.norconex.collector.core.crawler.CrawlerEvent;
+import com.norconex.collector.core.pipeline.importer.ImporterPipelineUtil;
+import com.norconex.collector.http.crawler.HttpCrawler;
+import com.norconex.collector.http.crawler.HttpCrawlerEvent;
 import com.norconex.collector.http.doc.HttpDocument;
 import com.norconex.collector.http.doc.HttpMetadata;
 import com.norconex.collector.http.fetch.AbstractHttpFetcher;
 import com.norconex.collector.http.fetch.HttpFetchResponseBuilder;
+import com.norconex.collector.http.fetch.HttpFetchTimings;
 import com.norconex.collector.http.fetch.IHttpFetchResponse;
 import com.norconex.collector.http.fetch.IHttpFetcher;
+import com.norconex.collector.http.fetch.impl.GenericHttpFetcherConfig.ContentLengthPolicy;
+import com.norconex.collector.http.fetch.impl.GenericHttpFetcherConfig.MaxContentLength;
+import com.norconex.collector.http.fetch.impl.GenericHttpFetcherConfig.RouteSettings;
+import com.norconex.collector.http.fetch.util.ConnectionPoolStats;
+import com.norconex.collector.http.fetch.util.GenericDnsResolver;
 import com.norconex.collector.http.fetch.util.RedirectStrategyWrapper;
 import com.norconex.collector.http.fetch.util.TrustAllX509TrustManager;
+import com.norconex.collector.http.jfr.CrawlEvents;
+import com.norconex.collector.http.jfr.CrawlEvents.FetchSpan;
+import com.norconex.collector.http.pipeline.importer.HttpImporterPipelineContext;
+import com.norconex.collector.http.reference.HttpCrawlReference;
 import com.norconex.collector.http.reference.HttpCrawlState;
+import com.norconex.collector.http.util.JmxUtil;
 import com.norconex.commons.lang.encrypt.EncryptionUtil;
 import com.norconex.commons.lang.file.ContentType;
 import com.norconex.commons.lang.io.CachedInputStream;
@@ -142,6 +183,52 @@ import com.norconex.importer.util.CharsetUtil;
  * and {@link GenericHttpFetcherConfig#setDetectCharset(boolean)}.
  * </p>
  *
+ * <h3>Filtering before download</h3>
+ * <p>
+ * By default, a document body is downloaded and cached in full before
+ * the crawler metadata filters get a chance to reject it.
+ * Setting {@link GenericHttpFetcherConfig#setFilterBeforeDownload(boolean)}
+ * to <code>true</code> applies the crawler metadata filters on the HTTP
+ * response headers (e.g., Content-Type, Content-Length) as soon as
+ * they are received. Rejected documents have their connection aborted
+ * without their body being read.
+ * </p>
+ *
+ * <h3>Maximum content length</h3>
+ * <p>
+ * Maximum content lengths can be set per content type (regular
+ * expression matched against the "Content-Type" response header).
+ * Limits are enforced while downloading. Documents exceeding their limit
+ * are either rejected with {@link HttpCrawlState#TOO_LARGE}
+ * (default policy) or truncated, in which case the
+ * {@link HttpMetadata#COLLECTOR_CONTENT_TRUNCATED} field is set
+ * to <code>true</code>.
+ * </p>
+ *
+ * <h3>Compressed transfer</h3>
+ * <p>
+ * Unless disabled with
+ * {@link GenericHttpFetcherConfig#setDisableCompression(boolean)},
+ * "gzip" and "deflate" content encodings are negotiated with web servers
+ * and decompressed while being downloaded. For compressed responses,
+ * the encoding and the number of bytes actually transferred are stored in
+ * {@link HttpMetadata#COLLECTOR_TRANSFER_ENCODING} and
+ * {@link HttpMetadata#COLLECTOR_TRANSFER_LENGTH}. Total bytes saved are
+ * logged when the crawler shuts down.
+ * </p>
+ *
+ * <h3>Fetch timings</h3>
+ * <p>
+ * Fetch responses hold a {@link HttpFetchTimings} breakdown of the time
+ * spent on DNS resolution, connection, TLS handshake, waiting for the
+ * first byte and downloading, along with bytes received before and after
+ * decompression, whether a pooled connection was reused and the
+ * protocol version. Setting
+ * {@link GenericHttpFetcherConfig#setStoreFetchTimings(boolean)} to
+ * <code>true</code> also stores them in document metadata
+ * ("collector.fetch-*" fields, times in milliseconds).
+ * </p>
+ *
  * <h3>Password encryption in XML configuration:</h3>
  * <p>
  * <code>proxyPassword</code> and <code>authPassword</code>
@@ -195,12 +282,23 @@ import com.norconex.importer.util.CharsetUtil;
  *     <expectContinueEnabled>[false|true]</expectContinueEnabled>
  *     <maxRedirects>...</maxRedirects>
  *     <redirectURLProvider>(implementation handling redirects)</redirectURLProvider>
+ *     <dnsResolver>(implementation resolving host names)</dnsResolver>
  *     <localAddress>...</localAddress>
  *     <maxConnections>...</maxConnections>
  *     <maxConnectionsPerRoute>...</maxConnectionsPerRoute>
  *     <maxConnectionIdleTime>(milliseconds)</maxConnectionIdleTime>
  *     <maxConnectionInactiveTime>(milliseconds)</maxConnectionInactiveTime>
  *
+ *     <!-- Override connection settings for specific hosts (first match
+ *          wins). Omitted attributes use the above defaults. -->
+ *     <routes>
+ *         <route host="(regex matching host names)"
+ *                 maxConnections="(maximum connections to matching hosts)"
+ *                 connectionTimeout="(milliseconds)"
+ *                 socketTimeout="(milliseconds)"/>
+ *         <!-- You can repeat this route tag as needed. -->
+ *     </routes>
+ *
  *     <!-- Be warned: trusting all certificates is usually a bad idea. -->
  *     <trustAllSSLCertificates>[false|true]</trustAllSSLCertificates>
  *
@@ -210,6 +308,9 @@ import com.norconex.importer.util.CharsetUtil;
  *     <!-- Disable Server Name Indication (SNI) -->
  *     <disableSNI>[false|true]</disableSNI>
  *
+ *     <!-- Disable gzip/deflate compressed transfer -->
+ *     <disableCompression>[false|true]</disableCompression>
+ *
  *     <proxyHost>...</proxyHost>
  *     <proxyPort>...</proxyPort>
  *     <proxyRealm>...</proxyRealm>
@@ -265,6 +366,16 @@ import com.norconex.importer.util.CharsetUtil;
  *     <headersPrefix>(string to prefix headers)</headersPrefix>
  *     <detectContentType>[false|true]</detectContentType>
  *     <detectCharset>[false|true]</detectCharset>
+ *     <filterBeforeDownload>[false|true]</filterBeforeDownload>
+ *     <storeFetchTimings>[false|true]</storeFetchTimings>
+ *
+ *     <!-- Maximum bytes downloaded per content type (first match wins) -->
+ *     <maxContentLengths>
+ *         <maxContentLength
+ *                 contentType="(regex, matching all when blank)"
+ *                 policy="[reject|truncate]">(bytes)</maxContentLength>
+ *         <!-- You can repeat this maxContentLength tag as needed. -->
+ *     </maxContentLengths>
  *
  *     <restrictions>
  *         <restrictTo caseSensitive="[false|true]"
@@ -316,6 +427,21 @@ public class GenericHttpFetcher extends AbstractHttpFetcher {
 
     private static final int FTP_PORT = 80;
 
+    private static final String CTX_TRANSFER_ENTITY =
+            GenericHttpFetcher.class.getName() + ".transferEntity";
+    private static final String CTX_DNS_START =
+            GenericHttpFetcher.class.getName() + ".dnsStart";
+    private static final String CTX_DNS_NANOS =
+            GenericHttpFetcher.class.getName() + ".dnsNanos";
+    private static final String CTX_CONNECT_NANOS =
+            GenericHttpFetcher.class.getName() + ".connectNanos";
+    private static final String CTX_TLS_NANOS =
+            GenericHttpFetcher.class.getName() + ".tlsNanos";
+    private static final String CTX_REQUEST_SENT =
+            GenericHttpFetcher.class.getName() + ".requestSent";
+    private static final String CTX_RESPONSE_RECEIVED =
+            GenericHttpFetcher.class.getName() + ".responseReceived";
+
     private static final SchemePortResolver SCHEME_PORT_RESOLVER =
             host -> {
         Args.notNull(host, "HTTP host");
@@ -336,8 +462,26 @@ public class GenericHttpFetcher extends AbstractHttpFetcher {
     private HttpClient httpClient;
     @HashCodeExclude
     @EqualsExclude
+    private RequestConfig requestConfig;
+    @HashCodeExclude
+    @EqualsExclude
+    private ConnectionPoolStats connectionPoolStats;
+    @HashCodeExclude
+    @EqualsExclude
     private final AuthCache authCache = new BasicAuthCache();
     private Object userToken;
+    @HashCodeExclude
+    @EqualsExclude
+    private HttpCrawler crawler;
+    @HashCodeExclude
+    @EqualsExclude
+    private final AtomicLong compressedTransferBytes = new AtomicLong();
+    @HashCodeExclude
+    @EqualsExclude
+    private final AtomicLong compressedContentBytes = new AtomicLong();
+    @HashCodeExclude
+    @EqualsExclude
+    private final AtomicLong downloadedBytes = new AtomicLong();
 
     public GenericHttpFetcher() {
         this(new GenericHttpFetcherConfig());
@@ -355,11 +499,37 @@ public class GenericHttpFetcher extends AbstractHttpFetcher {
     public HttpClient getHttpClient() {
         return httpClient;
     }
+    /**
+     * Gets live statistics of the HTTP connection pool. Statistics are
+     * also registered with JMX while the crawler is running.
+     * @return connection pool statistics or <code>null</code> if the
+     *         crawler is not started
+     * @since 3.0.0
+     */
+    public ConnectionPoolStats getConnectionPoolStats() {
+        return connectionPoolStats;
+    }
+    /**
+     * Gets the number of bytes received so far for document bodies.
+     * For compressed transfers, this is the compressed size.
+     * @return downloaded bytes
+     * @since 3.0.0
+     */
+    public long getDownloadedBytes() {
+        return downloadedBytes.get();
+    }
 
     @Override
     protected void crawlerStartup(CrawlerEvent<Crawler> event) {
         this.httpClient = createHttpClient();
         initializeRedirectionStrategy();
+        if (connectionPoolStats != null) {
+            connectionPoolStats.register(JmxUtil.instanceName(
+                    event.getSource().getId(), this));
+        }
+        if (cfg.isFilterBeforeDownload()) {
+            this.crawler = (HttpCrawler) event.getSource();
+        }
 
         String userAgent = cfg.getUserAgent();
         if (StringUtils.isBlank(userAgent)) {
@@ -371,8 +541,33 @@ public class GenericHttpFetcher extends AbstractHttpFetcher {
             LOG.info("User-Agent: {}", userAgent);
         }
     }
+    @Override
+    protected void crawlerEvent(CrawlerEvent<Crawler> event) {
+        // resolve hosts ahead of time
+        if (event.is(HttpCrawlerEvent.URL_ROOT_QUEUED)
+                && event.getCrawlReference() != null
+                && cfg.getDnsResolver() instanceof GenericDnsResolver) {
+            ((GenericDnsResolver) cfg.getDnsResolver()).preResolve(
+                    new HttpURL(event.getCrawlReference()
+                            .getReference()).getHost());
+        }
+    }
+
     @Override
     protected void crawlerShutdown(CrawlerEvent<Crawler> event) {
+        if (cfg.getDnsResolver() instanceof GenericDnsResolver) {
+            ((GenericDnsResolver) cfg.getDnsResolver()).shutdown();
+        }
+        if (connectionPoolStats != null) {
+            connectionPoolStats.unregister();
+        }
+        long contentBytes = compressedContentBytes.get();
+        if (contentBytes > 0) {
+            long transferBytes = compressedTransferBytes.get();
+            LOG.info("Compressed transfer: {} bytes received for {} bytes "
+                    + "of content ({}% saved).", transferBytes, contentBytes,
+                    (contentBytes - transferBytes) * 100 / contentBytes);
+        }
         if (httpClient instanceof CloseableHttpClient) {
             try {
                 ((CloseableHttpClient) httpClient).close();
@@ -419,6 +614,10 @@ public class GenericHttpFetcher extends AbstractHttpFetcher {
         //TODO replace signature with Writer class.
         LOG.debug("Fetching document: {}", url);
         HttpRequestBase method = createUriRequest(url, head);
+        applyRouteSettings(method);
+        FetchSpan span = CrawlEvents.beginFetch(url, method.getMethod());
+        HttpFetchTimings timings = new HttpFetchTimings();
+        long bytes = 0;
         try {
             HttpClientContext ctx = HttpClientContext.create();
             // auth cache
@@ -429,14 +628,28 @@ public class GenericHttpFetcher extends AbstractHttpFetcher {
             }
 
             // Execute the method.
+            long start = System.nanoTime();
             HttpResponse response = httpClient.execute(method, ctx);
+            long headersReceived = System.nanoTime();
 
             int statusCode = response.getStatusLine().getStatusCode();
+            trackConnection(ctx, timings);
+            trackFirstByte(ctx, timings, headersReceived - start);
+            timings.setProtocolVersion(Objects.toString(
+                    response.getStatusLine().getProtocolVersion(), null));
+            responseBuilder.setTimings(timings);
+            span.connected(timings.getConnectNanos() + timings.getTlsNanos());
+            span.responseReceived(statusCode);
             String reason = response.getStatusLine().getReasonPhrase();
 
             responseBuilder.setStatusCode(statusCode);
             responseBuilder.setReasonPhrase(reason);
             responseBuilder.setUserAgent(cfg.getUserAgent());
+            Header retryAfter =
+                    response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+            if (retryAfter != null) {
+                responseBuilder.setRetryAfter(retryAfter.getValue());
+            }
 
 //System.err.println((head ? "HEAD" : "GET") + ": " + response.getStatusLine() + "  ==>  " + url);
 
@@ -460,18 +673,82 @@ public class GenericHttpFetcher extends AbstractHttpFetcher {
                     }
                 }
 
+                if (!head && isHeadersRejected(
+                        url, metadata, stream.getValue())) {
+                    LOG.debug("Document rejected on headers before "
+                            + "download: {}", url);
+                    // we do not want the body, drop the connection
+                    method.abort();
+                    return responseBuilder
+                            .setCrawlState(HttpCrawlState.REJECTED)
+                            .build();
+                }
+
                 if (!head) {
                     //--- Fetch body
+                    MaxContentLength maxLength = getMaxContentLength(response);
+                    if (maxLength != null && maxLength.getPolicy()
+                            == ContentLengthPolicy.REJECT && response
+                                    .getEntity().getContentLength()
+                                            > maxLength.getMaxLength()) {
+                        LOG.debug("Declared content length exceeds {} bytes, "
+                                + "rejecting: {}", maxLength.getMaxLength(),
+                                url);
+                        method.abort();
+                        return responseBuilder
+                                .setCrawlState(HttpCrawlState.TOO_LARGE)
+                                .build();
+                    }
+
+                    CountingInputStream countingStream =
+                            new CountingInputStream(is);
+                    InputStream bodyStream = countingStream;
+                    if (maxLength != null) {
+                        BoundedInputStream bounded = new BoundedInputStream(
+                                countingStream, maxLength.getMaxLength());
+                        bounded.setPropagateClose(false);
+                        bodyStream = bounded;
+                    }
                     CachedInputStream content = stream.getValue()
-                            .getStreamFactory().newInputStream(is);
+                            .getStreamFactory().newInputStream(bodyStream);
                     //read a copy to force caching and then close the stream
                     IOUtils.copy(content, new NullOutputStream());
+
+                    // if there is more to read, we went over the limit
+                    if (maxLength != null && is.read() != -1) {
+                        method.abort();
+                        if (maxLength.getPolicy()
+                                == ContentLengthPolicy.TRUNCATE) {
+                            LOG.debug("Content truncated to {} bytes: {}",
+                                    maxLength.getMaxLength(), url);
+                            metadata.set(
+                                    HttpMetadata.COLLECTOR_CONTENT_TRUNCATED,
+                                    Boolean.TRUE.toString());
+                        } else {
+                            LOG.debug("Content exceeds {} bytes, "
+                                    + "rejecting: {}",
+                                    maxLength.getMaxLength(), url);
+                            content.dispose();
+                            return responseBuilder
+                                    .setCrawlState(HttpCrawlState.TOO_LARGE)
+                                    .build();
+                        }
+                    }
                     stream.setValue(content);
+                    bytes = trackTransfer(
+                            ctx, metadata, countingStream.getByteCount());
+                    timings.setDownloadNanos(
+                            System.nanoTime() - headersReceived);
+                    timings.setWireBytes(bytes);
+                    timings.setDecodedBytes(countingStream.getByteCount());
 //                    performDetection(doc);
                 }
 
                 userToken = ctx.getUserToken();
 
+                if (cfg.isStoreFetchTimings()) {
+                    timings.storeIn(metadata);
+                }
                 return responseBuilder
                         .setCrawlState(HttpCrawlState.NEW)
                         .build();
@@ -506,6 +783,10 @@ public class GenericHttpFetcher extends AbstractHttpFetcher {
             return responseBuilder
                     .setCrawlState(HttpCrawlState.BAD_STATUS)
                     .build();
+        } catch (ConnectionPoolTimeoutException e) {
+            LOG.warn("Timed out waiting for a connection from the pool "
+                    + "({}): {}", connectionPoolStats, url);
+            throw new CollectorException(e);
         } catch (Exception e) {
             //TODO set exception on response instead?
             LOG.info("Cannot fetch document: {}  ({})",
@@ -515,9 +796,84 @@ public class GenericHttpFetcher extends AbstractHttpFetcher {
             if (method != null) {
                 method.releaseConnection();
             }
+            span.end(bytes);
         }
     }
 
+    private void trackConnection(HttpContext ctx, HttpFetchTimings timings) {
+        Long connectNanos = (Long) ctx.getAttribute(CTX_CONNECT_NANOS);
+        if (connectNanos == null) {
+            timings.setConnectionReused(true);
+            return;
+        }
+        timings.setConnectNanos(connectNanos);
+        timings.setTlsNanos(toNanos(ctx.getAttribute(CTX_TLS_NANOS)));
+        timings.setDnsNanos(toNanos(ctx.getAttribute(CTX_DNS_NANOS)));
+    }
+    // From the request being sent, when known (not when the HTTP client
+    // was given another request executor)
+    private void trackFirstByte(
+            HttpContext ctx, HttpFetchTimings timings, long executeNanos) {
+        Long sent = (Long) ctx.getAttribute(CTX_REQUEST_SENT);
+        Long received = (Long) ctx.getAttribute(CTX_RESPONSE_RECEIVED);
+        if (sent != null && received != null) {
+            timings.setTimeToFirstByteNanos(received - sent);
+        } else {
+            timings.setTimeToFirstByteNanos(Math.max(0, executeNanos
+                    - timings.getDnsNanos() - timings.getConnectNanos()
+                    - timings.getTlsNanos()));
+        }
+    }
+    private static long toNanos(Object value) {
+        return value == null ? 0 : (Long) value;
+    }
+
+    // Returns bytes actually received for the body
+    private long trackTransfer(
+            HttpContext ctx, HttpMetadata metadata, long contentBytes) {
+        TransferCountingEntity entity = (TransferCountingEntity)
+                ctx.getAttribute(CTX_TRANSFER_ENTITY);
+        if (entity == null) {
+            downloadedBytes.addAndGet(contentBytes);
+            return contentBytes;
+        }
+        long transferBytes = entity.getByteCount();
+        downloadedBytes.addAndGet(transferBytes);
+        metadata.set(HttpMetadata.COLLECTOR_TRANSFER_ENCODING,
+                entity.getContentEncoding().getValue());
+        metadata.set(HttpMetadata.COLLECTOR_TRANSFER_LENGTH,
+                Long.toString(transferBytes));
+        compressedTransferBytes.addAndGet(transferBytes);
+        compressedContentBytes.addAndGet(contentBytes);
+        return transferBytes;
+    }
+
+    private MaxContentLength getMaxContentLength(HttpResponse response) {
+        if (cfg.getMaxContentLengths().isEmpty()) {
+            return null;
+        }
+        Header ctHeader = response.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+        MaxContentLength maxLength = cfg.getMaxContentLength(
+                ctHeader == null ? null : ctHeader.getValue());
+        if (maxLength == null || maxLength.getMaxLength() < 0) {
+            return null;
+        }
+        return maxLength;
+    }
+
+    // Crawler metadata filters, applied on headers only, before any
+    // content is downloaded.
+    private boolean isHeadersRejected(String url, HttpMetadata metadata,
+            CachedInputStream content) {
+        if (!cfg.isFilterBeforeDownload() || crawler == null) {
+            return false;
+        }
+        return ImporterPipelineUtil.isHeadersRejected(
+                new HttpImporterPipelineContext(crawler,
+                        new HttpCrawlReference(url, 0), null,
+                        new HttpDocument(url, content, metadata)));
+    }
+
     //TODO remove this method and configuration options: always do it
     // by framework?  Then how to leverage getting it from client
     // directly (e.g. http response headers)?  Rely on metadata for that?
@@ -569,24 +925,51 @@ public class GenericHttpFetcher extends AbstractHttpFetcher {
         return new HttpGet(uri);
     }
 
+    // Overrides request timeouts for hosts having route settings.
+    private void applyRouteSettings(HttpRequestBase method) {
+        if (requestConfig == null || cfg.getRouteSettings().isEmpty()) {
+            return;
+        }
+        RouteSettings rs = cfg.getRouteSettings(method.getURI().getHost());
+        if (rs == null || (rs.getConnectionTimeout() < 0
+                && rs.getSocketTimeout() < 0)) {
+            return;
+        }
+        RequestConfig.Builder b = RequestConfig.copy(requestConfig);
+        if (rs.getConnectionTimeout() >= 0) {
+            b.setConnectTimeout(rs.getConnectionTimeout());
+        }
+        if (rs.getSocketTimeout() >= 0) {
+            b.setSocketTimeout(rs.getSocketTimeout());
+        }
+        method.setConfig(b.build());
+    }
+
     protected HttpClient createHttpClient() {
         HttpClientBuilder builder = HttpClientBuilder.create();
-        SSLContext sslContext = createSSLContext();
-        builder.setSSLContext(sslContext);
-        builder.setSSLSocketFactory(createSSLSocketFactory(sslContext));
+        PoolingHttpClientConnectionManager connManager =
+                createConnectionManager(createSSLContext());
+        connectionPoolStats = new ConnectionPoolStats(connManager);
+        builder.setConnectionManager(connManager);
         builder.setSchemePortResolver(createSchemePortResolver());
-        builder.setDefaultRequestConfig(createRequestConfig());
+        requestConfig = createRequestConfig();
+        builder.setDefaultRequestConfig(requestConfig);
         builder.setProxy(createProxy());
         builder.setDefaultCredentialsProvider(createCredentialsProvider());
-        builder.setDefaultConnectionConfig(createConnectionConfig());
         builder.setUserAgent(cfg.getUserAgent());
-        builder.setMaxConnTotal(cfg.getMaxConnections());
-        builder.setMaxConnPerRoute(cfg.getMaxConnectionsPerRoute());
         builder.evictExpiredConnections();
         builder.evictIdleConnections(
                 cfg.getMaxConnectionIdleTime(), TimeUnit.MILLISECONDS);
         builder.setDefaultHeaders(createDefaultRequestHeaders());
         builder.setDefaultCookieStore(createDefaultCookieStore());
+        builder.setRequestExecutor(new TimingRequestExecutor());
+        if (cfg.isDisableCompression()) {
+            builder.disableContentCompression();
+        } else {
+            // added first so it sees compressed entities before
+            // they get decompressed
+            builder.addInterceptorFirst(new TransferCountingInterceptor());
+        }
 
         buildCustomHttpClient(builder);
 
@@ -594,36 +977,46 @@ public class GenericHttpFetcher extends AbstractHttpFetcher {
         if (AUTH_METHOD_FORM.equalsIgnoreCase(cfg.getAuthMethod())) {
             authenticateUsingForm(client);
         }
-        hackValidateAfterInactivity(client);
         return client;
     }
 
     /**
-     * This is a hack to work around
-     * PoolingHttpClientConnectionManager#setValidateAfterInactivity(int)
-     * not being exposed to the builder.
+     * Creates the pooling connection manager used by the HTTP client,
+     * configured with connection limits, SSL and DNS settings.
+     * @param sslContext SSL context (may be <code>null</code>)
+     * @return connection manager
+     * @since 3.0.0
      */
-    //TODO get rid of this method in favor of setXXX method when available
-    // in a future version of HttpClient (planned for 5.0.0).
-    private void hackValidateAfterInactivity(HttpClient httpClient) {
-        if (cfg.getMaxConnectionInactiveTime() <= 0) {
-            return;
+    protected PoolingHttpClientConnectionManager createConnectionManager(
+            SSLContext sslContext) {
+        LayeredConnectionSocketFactory sslFactory =
+                createSSLSocketFactory(sslContext);
+        if (sslFactory == null) {
+            sslFactory = sslContext != null
+                    ? new SSLConnectionSocketFactory(sslContext)
+                    : SSLConnectionSocketFactory.getSocketFactory();
         }
-        try {
-            Object connManager =
-                    FieldUtils.readField(httpClient, "connManager", true);
-            if (connManager instanceof PoolingHttpClientConnectionManager) {
-                ((PoolingHttpClientConnectionManager) connManager)
-                        .setValidateAfterInactivity(
-                                cfg.getMaxConnectionInactiveTime());
-            } else {
-                LOG.warn("\"maxConnectionInactiveTime\" could not be set since "
-                        + "internal connection manager does not support it.");
-            }
-        } catch (Exception e) {
-            LOG.warn("\"maxConnectionInactiveTime\" could not be set since "
-                    + "internal connection manager does not support it.");
+        Registry<ConnectionSocketFactory> registry =
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("http", new ConnectTimingSocketFactory(
+                            PlainConnectionSocketFactory.getSocketFactory(),
+                            false))
+                    .register("https",
+                            new LayeredConnectTimingSocketFactory(sslFactory))
+                    .build();
+        PoolingHttpClientConnectionManager cm =
+                new RouteSettingsConnectionManager(registry,
+                        createSchemePortResolver(), cfg);
+        cm.setMaxTotal(cfg.getMaxConnections());
+        cm.setDefaultMaxPerRoute(cfg.getMaxConnectionsPerRoute());
+        ConnectionConfig connConfig = createConnectionConfig();
+        if (connConfig != null) {
+            cm.setDefaultConnectionConfig(connConfig);
+        }
+        if (cfg.getMaxConnectionInactiveTime() > 0) {
+            cm.setValidateAfterInactivity(cfg.getMaxConnectionInactiveTime());
         }
+        return cm;
     }
 
 
@@ -932,6 +1325,194 @@ public class GenericHttpFetcher extends AbstractHttpFetcher {
         }
     }
 
+    // Sets the maximum connections of a route the first time it is used,
+    // when route settings match its host.
+    private static class RouteSettingsConnectionManager
+            extends PoolingHttpClientConnectionManager {
+        private final GenericHttpFetcherConfig cfg;
+        private final Set<HttpRoute> configuredRoutes =
+                ConcurrentHashMap.newKeySet();
+        public RouteSettingsConnectionManager(
+                Registry<ConnectionSocketFactory> registry,
+                SchemePortResolver schemePortResolver,
+                GenericHttpFetcherConfig cfg) {
+            super(new DnsTimingConnectionOperator(registry,
+                    schemePortResolver, cfg.getDnsResolver()),
+                    null, -1, TimeUnit.MILLISECONDS);
+            this.cfg = cfg;
+        }
+        @Override
+        public ConnectionRequest requestConnection(
+                HttpRoute route, Object state) {
+            if (!cfg.getRouteSettings().isEmpty()
+                    && configuredRoutes.add(route)) {
+                RouteSettings rs = cfg.getRouteSettings(
+                        route.getTargetHost().getHostName());
+                if (rs != null && rs.getMaxConnections() > 0) {
+                    setMaxPerRoute(route, rs.getMaxConnections());
+                }
+            }
+            return super.requestConnection(route, state);
+        }
+    }
+
+    // Marks in the context when a new connection starts, host names
+    // being resolved right before the first socket is created.
+    private static class DnsTimingConnectionOperator
+            extends DefaultHttpClientConnectionOperator {
+        public DnsTimingConnectionOperator(
+                Lookup<ConnectionSocketFactory> registry,
+                SchemePortResolver schemePortResolver,
+                DnsResolver dnsResolver) {
+            super(registry, schemePortResolver, dnsResolver);
+        }
+        @Override
+        public void connect(ManagedHttpClientConnection conn, HttpHost host,
+                InetSocketAddress localAddress, int connectTimeout,
+                SocketConfig socketConfig, HttpContext context)
+                        throws IOException {
+            context.setAttribute(CTX_DNS_START, System.nanoTime());
+            super.connect(conn, host, localAddress,
+                    connectTimeout, socketConfig, context);
+        }
+    }
+
+    // Stores in the context the time spent resolving, connecting and
+    // establishing TLS for a new connection. Not set when a pooled
+    // connection is reused.
+    private static class ConnectTimingSocketFactory
+            implements ConnectionSocketFactory {
+        private final ConnectionSocketFactory factory;
+        private final boolean secure;
+        public ConnectTimingSocketFactory(
+                ConnectionSocketFactory factory, boolean secure) {
+            super();
+            this.factory = factory;
+            this.secure = secure;
+        }
+        @Override
+        public Socket createSocket(HttpContext context) throws IOException {
+            // first one is created right after host name resolution
+            Long dnsStart = context != null
+                    ? (Long) context.removeAttribute(CTX_DNS_START) : null;
+            if (dnsStart != null) {
+                context.setAttribute(
+                        CTX_DNS_NANOS, System.nanoTime() - dnsStart);
+            }
+            Socket socket = factory.createSocket(context);
+            // Plain unconnected sockets (default for HTTP and HTTPS) are
+            // replaced to tell TCP connection and TLS handshake apart.
+            if (socket.getClass() == Socket.class) {
+                return new ConnectTimingSocket();
+            }
+            return socket;
+        }
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket,
+                HttpHost host, InetSocketAddress remoteAddress,
+                InetSocketAddress localAddress, HttpContext context)
+                        throws IOException {
+            long start = System.nanoTime();
+            try {
+                return factory.connectSocket(connectTimeout, socket, host,
+                        remoteAddress, localAddress, context);
+            } finally {
+                if (context != null) {
+                    long total = System.nanoTime() - start;
+                    long connect = total;
+                    if (secure && socket instanceof ConnectTimingSocket) {
+                        connect = ((ConnectTimingSocket) socket).connectNanos;
+                    }
+                    context.setAttribute(CTX_CONNECT_NANOS, connect);
+                    context.setAttribute(CTX_TLS_NANOS, total - connect);
+                }
+            }
+        }
+    }
+    private static class LayeredConnectTimingSocketFactory
+            extends ConnectTimingSocketFactory
+            implements LayeredConnectionSocketFactory {
+        private final LayeredConnectionSocketFactory factory;
+        public LayeredConnectTimingSocketFactory(
+                LayeredConnectionSocketFactory factory) {
+            super(factory, true);
+            this.factory = factory;
+        }
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target,
+                int port, HttpContext context) throws IOException {
+            return factory.createLayeredSocket(socket, target, port, context);
+        }
+    }
+    private static class ConnectTimingSocket extends Socket {
+        private long connectNanos;
+        @Override
+        public void connect(SocketAddress endpoint, int timeout)
+                throws IOException {
+            long start = System.nanoTime();
+            try {
+                super.connect(endpoint, timeout);
+            } finally {
+                connectNanos = System.nanoTime() - start;
+            }
+        }
+    }
+
+    // Stores in the context when the request was sent and when the
+    // response headers were received.
+    private static class TimingRequestExecutor extends HttpRequestExecutor {
+        @Override
+        protected HttpResponse doSendRequest(HttpRequest request,
+                HttpClientConnection conn, HttpContext context)
+                        throws IOException, HttpException {
+            HttpResponse response =
+                    super.doSendRequest(request, conn, context);
+            context.setAttribute(CTX_REQUEST_SENT, System.nanoTime());
+            return response;
+        }
+        @Override
+        protected HttpResponse doReceiveResponse(HttpRequest request,
+                HttpClientConnection conn, HttpContext context)
+                        throws HttpException, IOException {
+            HttpResponse response =
+                    super.doReceiveResponse(request, conn, context);
+            context.setAttribute(CTX_RESPONSE_RECEIVED, System.nanoTime());
+            return response;
+        }
+    }
+
+    // Wraps compressed entities to count bytes actually transferred.
+    private static class TransferCountingInterceptor
+            implements HttpResponseInterceptor {
+        @Override
+        public void process(HttpResponse response, HttpContext context) {
+            HttpEntity entity = response.getEntity();
+            if (entity == null || entity.getContentEncoding() == null) {
+                return;
+            }
+            TransferCountingEntity countingEntity =
+                    new TransferCountingEntity(entity);
+            response.setEntity(countingEntity);
+            context.setAttribute(CTX_TRANSFER_ENTITY, countingEntity);
+        }
+    }
+    private static class TransferCountingEntity extends HttpEntityWrapper {
+        private CountingInputStream content;
+        public TransferCountingEntity(HttpEntity wrappedEntity) {
+            super(wrappedEntity);
+        }
+        @Override
+        public InputStream getContent() throws IOException {
+            if (content == null) {
+                content = new CountingInputStream(wrappedEntity.getContent());
+            }
+            return content;
+        }
+        public long getByteCount() {
+            return content == null ? 0 : content.getByteCount();
+        }
+    }
+
     @Override
     public void loadHttpFetcherFromXML(XML xml) {
         cfg.loadFromXML(xml);
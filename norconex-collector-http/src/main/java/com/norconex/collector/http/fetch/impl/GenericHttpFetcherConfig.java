@@ -22,9 +22,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
@@ -32,7 +34,9 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.DnsResolver;
 
+import com.norconex.collector.http.fetch.util.GenericDnsResolver;
 import com.norconex.collector.http.fetch.util.GenericRedirectURLProvider;
 import com.norconex.collector.http.fetch.util.IRedirectURLProvider;
 import com.norconex.commons.lang.EqualsUtil;
@@ -56,6 +60,19 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
     public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
     public static final int DEFAULT_MAX_IDLE_TIME = 10 * 1000;
 
+    /**
+     * What to do when a document body exceeds its maximum content length.
+     * @since 3.0.0
+     */
+    public enum ContentLengthPolicy {
+        /** Abort the download and reject the document. */
+        REJECT,
+        /**
+         * Keep the content read so far and flag the document as truncated.
+         */
+        TRUNCATE
+    }
+
     public static final List<Integer> DEFAULT_VALID_STATUS_CODES =
             CollectionUtil.unmodifiableList(HttpStatus.SC_OK);
     public static final List<Integer> DEFAULT_NOT_FOUND_STATUS_CODES =
@@ -68,6 +85,9 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
     private String headersPrefix;
     private boolean detectContentType;
     private boolean detectCharset;
+    private boolean filterBeforeDownload;
+    private boolean storeFetchTimings;
+    private final List<MaxContentLength> maxContentLengths = new ArrayList<>();
 
     private String authMethod;
     private String authURL;
@@ -103,13 +123,16 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
     private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
     private int maxConnectionIdleTime = DEFAULT_MAX_IDLE_TIME;
     private int maxConnectionInactiveTime;
+    private final List<RouteSettings> routeSettings = new ArrayList<>();
     private boolean disableSNI;
+    private boolean disableCompression;
     private final List<String> sslProtocols = new ArrayList<>();
     private final Map<String, String> requestHeaders = new HashMap<>();
     private final Map<String, String> authFormParams = new HashMap<>();
     private String userAgent;
     private IRedirectURLProvider redirectURLProvider =
             new GenericRedirectURLProvider();
+    private DnsResolver dnsResolver = new GenericDnsResolver();
 
     /**
      * Gets the redirect URL provider.
@@ -129,6 +152,25 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
         this.redirectURLProvider = redirectURLProvider;
     }
 
+    /**
+     * Gets the DNS resolver.
+     * @return DNS resolver
+     * @since 3.0.0
+     */
+    public DnsResolver getDnsResolver() {
+        return dnsResolver;
+    }
+    /**
+     * Sets the DNS resolver. A <code>null</code> value uses the
+     * system default resolver, without extra caching.
+     * Default is {@link GenericDnsResolver}.
+     * @param dnsResolver DNS resolver
+     * @since 3.0.0
+     */
+    public void setDnsResolver(DnsResolver dnsResolver) {
+        this.dnsResolver = dnsResolver;
+    }
+
     public List<Integer> getValidStatusCodes() {
         return Collections.unmodifiableList(validStatusCodes);
     }
@@ -862,6 +904,50 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
         this.maxConnectionInactiveTime = maxConnectionInactiveTime;
     }
 
+    /**
+     * Gets connection settings overriding defaults for specific hosts.
+     * @return route settings (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public List<RouteSettings> getRouteSettings() {
+        return Collections.unmodifiableList(routeSettings);
+    }
+    /**
+     * Sets connection settings overriding defaults for specific hosts.
+     * The first one matching a host is used.
+     * @param routeSettings route settings
+     * @since 3.0.0
+     */
+    public void setRouteSettings(RouteSettings... routeSettings) {
+        CollectionUtil.setAll(this.routeSettings, routeSettings);
+    }
+    /**
+     * Sets connection settings overriding defaults for specific hosts.
+     * The first one matching a host is used.
+     * @param routeSettings route settings
+     * @since 3.0.0
+     */
+    public void setRouteSettings(List<RouteSettings> routeSettings) {
+        CollectionUtil.setAll(this.routeSettings, routeSettings);
+    }
+    /**
+     * Gets the first route settings matching the given host.
+     * @param host host name
+     * @return route settings or <code>null</code> if none match
+     * @since 3.0.0
+     */
+    public RouteSettings getRouteSettings(String host) {
+        if (StringUtils.isBlank(host)) {
+            return null;
+        }
+        for (RouteSettings rs : routeSettings) {
+            if (rs.matches(host)) {
+                return rs;
+            }
+        }
+        return null;
+    }
+
     /**
      * Gets whether Server Name Indication (SNI) is disabled.
      * @return <code>true</code> if disabled
@@ -879,6 +965,26 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
         this.disableSNI = disableSNI;
     }
 
+    /**
+     * Gets whether compressed transfer is disabled. When enabled (default),
+     * "gzip" and "deflate" encodings are requested via the
+     * "Accept-Encoding" header and responses are decompressed as they
+     * are read.
+     * @return <code>true</code> if disabled
+     * @since 3.0.0
+     */
+    public boolean isDisableCompression() {
+        return disableCompression;
+    }
+    /**
+     * Sets whether compressed transfer is disabled.
+     * @param disableCompression <code>true</code> if disabled
+     * @since 3.0.0
+     */
+    public void setDisableCompression(boolean disableCompression) {
+        this.disableCompression = disableCompression;
+    }
+
     /**
      * Gets the supported SSL/TLS protocols.  Default is <code>null</code>,
      * which means it will use those provided/configured by your Java
@@ -971,6 +1077,98 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
         this.authPreemptive = authPreemptive;
     }
 
+    /**
+     * Gets whether crawler metadata filters are applied on HTTP response
+     * headers as soon as they are received, before the document body
+     * is downloaded.
+     * @return <code>true</code> if filtering headers before download
+     * @since 3.0.0
+     */
+    public boolean isFilterBeforeDownload() {
+        return filterBeforeDownload;
+    }
+    /**
+     * Sets whether crawler metadata filters are applied on HTTP response
+     * headers as soon as they are received, before the document body
+     * is downloaded. When a document is rejected that way, its connection
+     * is aborted and its body is never read or cached. This saves
+     * a HEAD request compared to enabling "fetchHttpHead" on the crawler.
+     * @param filterBeforeDownload <code>true</code> to filter headers
+     *        before download
+     * @since 3.0.0
+     */
+    public void setFilterBeforeDownload(boolean filterBeforeDownload) {
+        this.filterBeforeDownload = filterBeforeDownload;
+    }
+
+    /**
+     * Gets whether the fetch timings of a document (DNS, connect,
+     * TLS handshake, time to first byte, download, bytes, connection reuse
+     * and protocol) are stored in its metadata.
+     * @return <code>true</code> if storing fetch timings
+     * @since 3.0.0
+     */
+    public boolean isStoreFetchTimings() {
+        return storeFetchTimings;
+    }
+    /**
+     * Sets whether the fetch timings of a document (DNS, connect,
+     * TLS handshake, time to first byte, download, bytes, connection reuse
+     * and protocol) are stored in its metadata. Timings are always
+     * available from fetch responses.
+     * @param storeFetchTimings <code>true</code> to store fetch timings
+     * @since 3.0.0
+     */
+    public void setStoreFetchTimings(boolean storeFetchTimings) {
+        this.storeFetchTimings = storeFetchTimings;
+    }
+
+    /**
+     * Gets maximum content lengths, per content types.
+     * @return maximum content lengths (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public List<MaxContentLength> getMaxContentLengths() {
+        return Collections.unmodifiableList(maxContentLengths);
+    }
+    /**
+     * Sets maximum content lengths, per content types. They are evaluated
+     * in the order specified and the first one matching a document
+     * content type is applied.
+     * @param maxContentLengths maximum content lengths
+     * @since 3.0.0
+     */
+    public void setMaxContentLengths(MaxContentLength... maxContentLengths) {
+        CollectionUtil.setAll(this.maxContentLengths, maxContentLengths);
+    }
+    /**
+     * Sets maximum content lengths, per content types. They are evaluated
+     * in the order specified and the first one matching a document
+     * content type is applied.
+     * @param maxContentLengths maximum content lengths
+     * @since 3.0.0
+     */
+    public void setMaxContentLengths(List<MaxContentLength> maxContentLengths) {
+        CollectionUtil.setAll(this.maxContentLengths, maxContentLengths);
+    }
+    /**
+     * Gets the first maximum content length matching the given
+     * content type.
+     * @param contentType content type (e.g., from "Content-Type" header)
+     * @return maximum content length or <code>null</code> if none match
+     * @since 3.0.0
+     */
+    public MaxContentLength getMaxContentLength(String contentType) {
+        String ct = StringUtils.trimToEmpty(
+                StringUtils.substringBefore(contentType, ";"));
+        for (MaxContentLength mcl : maxContentLengths) {
+            if (mcl.matches(ct)) {
+                return mcl;
+            }
+        }
+        return null;
+    }
+
     @Override
     public void loadFromXML(XML xml) {
         setValidStatusCodes(xml.getDelimitedList(
@@ -981,6 +1179,23 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
         setDetectContentType(
                 xml.getBoolean("detectContentType", detectContentType));
         setDetectCharset(xml.getBoolean("detectCharset", detectCharset));
+        setFilterBeforeDownload(xml.getBoolean(
+                "filterBeforeDownload", filterBeforeDownload));
+        setStoreFetchTimings(xml.getBoolean(
+                "storeFetchTimings", storeFetchTimings));
+        List<XML> xmlLengths =
+                xml.getXMLList("maxContentLengths/maxContentLength");
+        if (!xmlLengths.isEmpty()) {
+            List<MaxContentLength> lengths = new ArrayList<>();
+            for (XML x : xmlLengths) {
+                lengths.add(new MaxContentLength(
+                        x.getString("@contentType", null),
+                        NumberUtils.toLong(x.getString("."), -1),
+                        x.getEnum("@policy", ContentLengthPolicy.class,
+                                ContentLengthPolicy.REJECT)));
+            }
+            setMaxContentLengths(lengths);
+        }
 
         userAgent = xml.getString("userAgent", userAgent);
         cookieSpec = xml.getString("cookieSpec", cookieSpec);
@@ -1025,6 +1240,8 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
         trustAllSSLCertificates = xml.getBoolean(
                 "trustAllSSLCertificates", trustAllSSLCertificates);
         disableSNI = xml.getBoolean("disableSNI", disableSNI);;
+        disableCompression =
+                xml.getBoolean("disableCompression", disableCompression);
         localAddress = xml.getString("localAddress", localAddress);
         maxConnectionsPerRoute = xml.getInteger(
                 "maxConnectionsPerRoute", maxConnectionsPerRoute);
@@ -1034,6 +1251,20 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
         maxConnectionInactiveTime = xml.getDurationMillis(
                 "maxConnectionInactiveTime",
                 (long) maxConnectionInactiveTime).intValue();
+        List<XML> xmlRoutes = xml.getXMLList("routes/route");
+        if (!xmlRoutes.isEmpty()) {
+            List<RouteSettings> routes = new ArrayList<>();
+            for (XML x : xmlRoutes) {
+                routes.add(new RouteSettings(
+                        x.getString("@host", null),
+                        x.getInteger("@maxConnections", -1),
+                        x.getDurationMillis(
+                                "@connectionTimeout", -1L).intValue(),
+                        x.getDurationMillis(
+                                "@socketTimeout", -1L).intValue()));
+            }
+            setRouteSettings(routes);
+        }
         setSSLProtocols(
                 xml.getDelimitedStringList("sslProtocols", sslProtocols));
         setRequestHeaders(xml.getStringMap(
@@ -1042,6 +1273,8 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
                 "authFormParams/param", "@name", ".", authFormParams));
         setRedirectURLProvider(xml.getObjectImpl(IRedirectURLProvider.class,
                 "redirectURLProvider", redirectURLProvider));
+        setDnsResolver(xml.getObjectImpl(
+                DnsResolver.class, "dnsResolver", dnsResolver));
 
     }
 
@@ -1049,6 +1282,15 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
     public void saveToXML(XML xml) {
         xml.addElement("detectContentType", detectContentType);
         xml.addElement("detectCharset", detectCharset);
+        xml.addElement("filterBeforeDownload", filterBeforeDownload);
+        xml.addElement("storeFetchTimings", storeFetchTimings);
+        XML xmlLengths = xml.addXML("maxContentLengths");
+        for (MaxContentLength mcl : maxContentLengths) {
+            xmlLengths.addXML("maxContentLength")
+                    .setAttribute("contentType", mcl.getContentType())
+                    .setAttribute("policy", mcl.getPolicy())
+                    .setTextContent(Long.toString(mcl.getMaxLength()));
+        }
         xml.addDelimitedElementList("validStatusCodes", validStatusCodes);
         xml.addDelimitedElementList("notFoundStatusCodes", notFoundStatusCodes);
         xml.addElement("headersPrefix", headersPrefix);
@@ -1086,9 +1328,19 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
         xml.addElement("maxConnections", maxConnections);
         xml.addElement("trustAllSSLCertificates", trustAllSSLCertificates);
         xml.addElement("disableSNI", disableSNI);
+        xml.addElement("disableCompression", disableCompression);
         xml.addElement("maxConnectionsPerRoute", maxConnectionsPerRoute);
         xml.addElement("maxConnectionIdleTime", maxConnectionIdleTime);
         xml.addElement("maxConnectionInactiveTime", maxConnectionInactiveTime);
+        XML xmlRoutes = xml.addXML("routes");
+        for (RouteSettings rs : routeSettings) {
+            xmlRoutes.addXML("route")
+                    .setAttribute("host", rs.getHost())
+                    .setAttribute("maxConnections", rs.getMaxConnections())
+                    .setAttribute("connectionTimeout",
+                            rs.getConnectionTimeout())
+                    .setAttribute("socketTimeout", rs.getSocketTimeout());
+        }
         xml.setDelimitedAttributeList("sslProtocols", sslProtocols);
 
         XML xmlHeaders = xml.addXML("headers");
@@ -1103,6 +1355,7 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
                     "name", entry.getKey()).setTextContent(entry.getValue());
         }
         xml.addElement("redirectURLProvider", redirectURLProvider);
+        xml.addElement("dnsResolver", dnsResolver);
     }
 
     private EncryptionKey loadXMLPasswordKey(
@@ -1149,4 +1402,133 @@ public class GenericHttpFetcherConfig implements IXMLConfigurable {
         return new ReflectionToStringBuilder(
                 this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
     }
+
+    /**
+     * Maximum number of bytes to download for documents matching a
+     * content type regular expression.
+     * @since 3.0.0
+     */
+    public static class MaxContentLength {
+        private final String contentType;
+        private final long maxLength;
+        private final ContentLengthPolicy policy;
+        private final transient Pattern pattern;
+
+        /**
+         * Creates a maximum content length.
+         * @param contentType regular expression matching content types
+         *        (<code>null</code> matches all)
+         * @param maxLength maximum number of bytes (negative for unlimited)
+         * @param policy what to do when maximum length is exceeded
+         *        (<code>null</code> means {@link ContentLengthPolicy#REJECT})
+         */
+        public MaxContentLength(String contentType,
+                long maxLength, ContentLengthPolicy policy) {
+            super();
+            this.contentType = contentType;
+            this.pattern = compile(contentType);
+            this.maxLength = maxLength;
+            this.policy = policy == null ? ContentLengthPolicy.REJECT : policy;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+        public long getMaxLength() {
+            return maxLength;
+        }
+        public ContentLengthPolicy getPolicy() {
+            return policy;
+        }
+
+        private boolean matches(String ct) {
+            return pattern == null || pattern.matcher(ct).matches();
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return EqualsBuilder.reflectionEquals(this, other);
+        }
+        @Override
+        public int hashCode() {
+            return HashCodeBuilder.reflectionHashCode(this);
+        }
+        @Override
+        public String toString() {
+            return new ReflectionToStringBuilder(
+                    this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+        }
+    }
+
+    /**
+     * Connection settings overriding the defaults for hosts matching
+     * a regular expression. Negative values mean the default applies.
+     * @since 3.0.0
+     */
+    public static class RouteSettings {
+        private final String host;
+        private final int maxConnections;
+        private final int connectionTimeout;
+        private final int socketTimeout;
+        private final transient Pattern pattern;
+
+        /**
+         * Creates route settings.
+         * @param host regular expression matching host names
+         *        (<code>null</code> matches all)
+         * @param maxConnections maximum number of connections to matching
+         *        hosts
+         * @param connectionTimeout connection timeout in milliseconds
+         * @param socketTimeout socket timeout in milliseconds
+         */
+        public RouteSettings(String host, int maxConnections,
+                int connectionTimeout, int socketTimeout) {
+            super();
+            this.host = host;
+            this.pattern = compile(host);
+            this.maxConnections = maxConnections;
+            this.connectionTimeout = connectionTimeout;
+            this.socketTimeout = socketTimeout;
+        }
+
+        public String getHost() {
+            return host;
+        }
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+        public int getConnectionTimeout() {
+            return connectionTimeout;
+        }
+        public int getSocketTimeout() {
+            return socketTimeout;
+        }
+
+        private boolean matches(String h) {
+            return pattern == null || pattern.matcher(h).matches();
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return EqualsBuilder.reflectionEquals(this, other);
+        }
+        @Override
+        public int hashCode() {
+            return HashCodeBuilder.reflectionHashCode(this);
+        }
+        @Override
+        public String toString() {
+            return new ReflectionToStringBuilder(
+                    this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+        }
+    }
+
+    // Compiled once on construction so matching needs no locking.
+    private static Pattern compile(String regex) {
+        if (StringUtils.isBlank(regex)) {
+            return null;
+        }
+        return Pattern.compile(
+                regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
 }
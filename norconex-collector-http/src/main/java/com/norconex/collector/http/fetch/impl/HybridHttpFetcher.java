@@ -0,0 +1,611 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.impl;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.EqualsExclude;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.HashCodeExclude;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringExclude;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.apache.http.entity.ContentType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.http.doc.HttpDocument;
+import com.norconex.collector.http.doc.HttpMetadata;
+import com.norconex.collector.http.fetch.AbstractHttpFetcher;
+import com.norconex.collector.http.fetch.IHttpFetchResponse;
+import com.norconex.collector.http.fetch.IHttpFetcher;
+import com.norconex.commons.lang.collection.CollectionUtil;
+import com.norconex.commons.lang.io.CachedInputStream;
+import com.norconex.commons.lang.map.Properties;
+import com.norconex.commons.lang.url.HttpURL;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * Fetches documents with a regular HTTP fetcher first, and only renders
+ * them with a browser-based fetcher when the page appears to need
+ * JavaScript to build its content. Rendering a page in a browser
+ * is many times more expensive than a plain HTTP request, so this
+ * fetcher is meant for sites where only some pages are JavaScript-driven.
+ * </p>
+ *
+ * <h3>Signals</h3>
+ * <p>
+ * An HTML page fetched with the regular fetcher is rendered when any of
+ * these is true:
+ * </p>
+ * <ul>
+ *   <li>Its visible text is shorter than the minimum text length.</li>
+ *   <li>It matches one of the single-page-application (SPA) markers,
+ *       regular expressions such as an empty
+ *       <code>&lt;div id="root"&gt;&lt;/div&gt;</code>.</li>
+ *   <li>Its inline script to visible text ratio is greater than
+ *       the maximum ratio.</li>
+ * </ul>
+ * <p>
+ * Only the beginning of the content is analyzed (see
+ * {@link #setMaxAnalyzedLength(int)}). Non-HTML content is never rendered.
+ * </p>
+ *
+ * <h3>Learning</h3>
+ * <p>
+ * Decisions are tracked by URL pattern: the scheme, host and first path
+ * segment(s) of a URL (see {@link #setUrlPatternDepth(int)}).
+ * Once enough pages of the same pattern led to the same decision,
+ * it is remembered. Pages of a pattern remembered as needing rendering
+ * go to the browser directly, without a first HTTP request.
+ * A rendered page not producing noticeably more text than its
+ * non-rendered version counts as a page not needing rendering.
+ * Remembered decisions are verified again periodically
+ * (see {@link #setRecheckInterval(int)}).
+ * </p>
+ * <p>
+ * Whether a document was rendered is stored in the
+ * {@link HttpMetadata#COLLECTOR_RENDERED} field.
+ * </p>
+ * <p>
+ * Wrapped fetchers receive crawler events like any other configured
+ * component and should not be configured again as regular fetchers.
+ * </p>
+ *
+ * <h3>XML configuration usage:</h3>
+ *
+ * <pre>
+ *  &lt;fetcher class="com.norconex.collector.http.fetch.impl.HybridHttpFetcher"&gt;
+ *
+ *      &lt;!-- Fetcher tried first (default is GenericHttpFetcher). --&gt;
+ *      &lt;httpFetcher&gt;
+ *          &lt;fetcher class="(IHttpFetcher implementation)"/&gt;
+ *      &lt;/httpFetcher&gt;
+ *
+ *      &lt;!-- Fetcher rendering pages (default is WebDriverHttpFetcher). --&gt;
+ *      &lt;renderFetcher&gt;
+ *          &lt;fetcher class="(IHttpFetcher implementation)"/&gt;
+ *      &lt;/renderFetcher&gt;
+ *
+ *      &lt;minTextLength&gt;(visible characters, default is 200)&lt;/minTextLength&gt;
+ *      &lt;maxScriptTextRatio&gt;(default is 3.0, 0 to disable)&lt;/maxScriptTextRatio&gt;
+ *      &lt;maxAnalyzedLength&gt;(bytes, default is 524288)&lt;/maxAnalyzedLength&gt;
+ *      &lt;spaMarkers&gt;
+ *          &lt;marker&gt;(regular expression)&lt;/marker&gt;
+ *          &lt;!-- multiple "marker" tags allowed --&gt;
+ *      &lt;/spaMarkers&gt;
+ *
+ *      &lt;urlPatternDepth&gt;(path segments, default is 1)&lt;/urlPatternDepth&gt;
+ *      &lt;minSamples&gt;(pages before remembering, default is 5)&lt;/minSamples&gt;
+ *      &lt;recheckInterval&gt;(pages between checks, default is 50)&lt;/recheckInterval&gt;
+ *
+ *      &lt;restrictions&gt;
+ *          &lt;restrictTo caseSensitive="[false|true]"
+ *                  field="(name of metadata field name to match)"&gt;
+ *              (regular expression of value to match)
+ *          &lt;/restrictTo&gt;
+ *          &lt;!-- multiple "restrictTo" tags allowed (only one needs to match) --&gt;
+ *      &lt;/restrictions&gt;
+ *  &lt;/fetcher&gt;
+ * </pre>
+ *
+ * <h4>Usage example:</h4>
+ * <p>This example renders pages with Chrome only when needed.
+ * </p>
+ * <pre>
+ *  &lt;fetcher class="com.norconex.collector.http.fetch.impl.HybridHttpFetcher"&gt;
+ *      &lt;renderFetcher&gt;
+ *          &lt;fetcher class="com.norconex.collector.http.fetch.impl.WebDriverHttpFetcher"&gt;
+ *              &lt;browser&gt;chrome&lt;/browser&gt;
+ *          &lt;/fetcher&gt;
+ *      &lt;/renderFetcher&gt;
+ *  &lt;/fetcher&gt;
+ * </pre>
+ *
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class HybridHttpFetcher extends AbstractHttpFetcher {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(HybridHttpFetcher.class);
+
+    public static final int DEFAULT_MIN_TEXT_LENGTH = 200;
+    public static final float DEFAULT_MAX_SCRIPT_TEXT_RATIO = 3.0f;
+    public static final int DEFAULT_MAX_ANALYZED_LENGTH = 512 * 1024;
+    public static final int DEFAULT_URL_PATTERN_DEPTH = 1;
+    public static final int DEFAULT_MIN_SAMPLES = 5;
+    public static final int DEFAULT_RECHECK_INTERVAL = 50;
+    public static final List<String> DEFAULT_SPA_MARKERS =
+            Collections.unmodifiableList(Arrays.asList(
+                "(?i)<div[^>]+id\\s*=\\s*[\"']?(root|app|__next|__nuxt)"
+              + "[\"']?[^>]*>\\s*</div>",
+                "(?i)<[^>]+\\sng-app\\b",
+                "(?i)<app-root[^>]*>\\s*</app-root>"));
+
+    // Remembered patterns are bounded to protect memory on wide crawls.
+    private static final int MAX_URL_PATTERNS = 10000;
+    // Rendered text must exceed non-rendered text by this much for
+    // rendering to be considered useful.
+    private static final float RENDER_GAIN_RATIO = 1.1f;
+    private static final int RENDER_GAIN_MIN_CHARS = 50;
+
+    private static final Pattern SCRIPT_PATTERN = Pattern.compile(
+            "(?is)<script\\b[^>]*>(.*?)</script>");
+    private static final Pattern NON_TEXT_PATTERN = Pattern.compile(
+            "(?is)<(script|style|noscript|template)\\b.*?</\\1\\s*>"
+          + "|<!--.*?-->");
+    private static final Pattern TAG_PATTERN = Pattern.compile("(?s)<[^>]*>");
+
+    private IHttpFetcher httpFetcher = new GenericHttpFetcher();
+    private IHttpFetcher renderFetcher = new WebDriverHttpFetcher();
+    private int minTextLength = DEFAULT_MIN_TEXT_LENGTH;
+    private float maxScriptTextRatio = DEFAULT_MAX_SCRIPT_TEXT_RATIO;
+    private int maxAnalyzedLength = DEFAULT_MAX_ANALYZED_LENGTH;
+    private final List<String> spaMarkers =
+            new ArrayList<>(DEFAULT_SPA_MARKERS);
+    private int urlPatternDepth = DEFAULT_URL_PATTERN_DEPTH;
+    private int minSamples = DEFAULT_MIN_SAMPLES;
+    private int recheckInterval = DEFAULT_RECHECK_INTERVAL;
+
+    @EqualsExclude
+    @HashCodeExclude
+    @ToStringExclude
+    private final Map<String, PatternHistory> history =
+            new ConcurrentHashMap<>();
+    @EqualsExclude
+    @HashCodeExclude
+    @ToStringExclude
+    private List<Pattern> compiledSpaMarkers;
+
+    public IHttpFetcher getHttpFetcher() {
+        return httpFetcher;
+    }
+    /**
+     * Sets the fetcher used first, without rendering.
+     * Default is {@link GenericHttpFetcher}.
+     * @param httpFetcher regular HTTP fetcher
+     */
+    public void setHttpFetcher(IHttpFetcher httpFetcher) {
+        this.httpFetcher = httpFetcher;
+    }
+
+    public IHttpFetcher getRenderFetcher() {
+        return renderFetcher;
+    }
+    /**
+     * Sets the fetcher used to render pages needing it.
+     * Default is {@link WebDriverHttpFetcher}.
+     * @param renderFetcher rendering fetcher
+     */
+    public void setRenderFetcher(IHttpFetcher renderFetcher) {
+        this.renderFetcher = renderFetcher;
+    }
+
+    public int getMinTextLength() {
+        return minTextLength;
+    }
+    /**
+     * Sets the minimum number of visible text characters under which
+     * a page gets rendered.
+     * @param minTextLength minimum text length
+     */
+    public void setMinTextLength(int minTextLength) {
+        this.minTextLength = minTextLength;
+    }
+
+    public float getMaxScriptTextRatio() {
+        return maxScriptTextRatio;
+    }
+    /**
+     * Sets the inline script to visible text ratio (in characters) above
+     * which a page gets rendered. Zero or less disables this check.
+     * @param maxScriptTextRatio maximum script to text ratio
+     */
+    public void setMaxScriptTextRatio(float maxScriptTextRatio) {
+        this.maxScriptTextRatio = maxScriptTextRatio;
+    }
+
+    public int getMaxAnalyzedLength() {
+        return maxAnalyzedLength;
+    }
+    /**
+     * Sets the maximum number of bytes analyzed at the beginning of
+     * a page.
+     * @param maxAnalyzedLength maximum analyzed length
+     */
+    public void setMaxAnalyzedLength(int maxAnalyzedLength) {
+        this.maxAnalyzedLength = maxAnalyzedLength;
+    }
+
+    public List<String> getSpaMarkers() {
+        return Collections.unmodifiableList(spaMarkers);
+    }
+    /**
+     * Sets regular expressions which, when found anywhere in a page
+     * content, indicate the page is built with JavaScript.
+     * @param spaMarkers single-page-application markers
+     */
+    public void setSpaMarkers(List<String> spaMarkers) {
+        CollectionUtil.setAll(this.spaMarkers, spaMarkers);
+        compiledSpaMarkers = null;
+    }
+
+    public int getUrlPatternDepth() {
+        return urlPatternDepth;
+    }
+    /**
+     * Sets how many URL path segments are part of the URL pattern
+     * decisions are remembered for. Zero remembers decisions per host.
+     * @param urlPatternDepth URL pattern depth
+     */
+    public void setUrlPatternDepth(int urlPatternDepth) {
+        this.urlPatternDepth = urlPatternDepth;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+    /**
+     * Sets how many pages of a URL pattern must agree before the decision
+     * is remembered. Zero or less disables learning.
+     * @param minSamples minimum number of pages
+     */
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    public int getRecheckInterval() {
+        return recheckInterval;
+    }
+    /**
+     * Sets every how many pages a remembered decision is verified again.
+     * Zero or less never verifies remembered decisions.
+     * @param recheckInterval number of pages
+     */
+    public void setRecheckInterval(int recheckInterval) {
+        this.recheckInterval = recheckInterval;
+    }
+
+    @Override
+    public String getUserAgent() {
+        return httpFetcher.getUserAgent();
+    }
+
+    @Override
+    public IHttpFetchResponse fetchHeaders(
+            String url, HttpMetadata httpHeaders) {
+        return httpFetcher.fetchHeaders(url, httpHeaders);
+    }
+
+    @Override
+    public IHttpFetchResponse fetchDocument(HttpDocument doc) {
+        PatternHistory ph = getPatternHistory(doc.getReference());
+        Boolean remembered = ph != null ? ph.nextDecision(
+                minSamples, recheckInterval) : null;
+
+        if (Boolean.TRUE.equals(remembered)) {
+            LOG.debug("Rendering (remembered): {}", doc.getReference());
+            doc.getMetadata().set(HttpMetadata.COLLECTOR_RENDERED, "true");
+            return renderFetcher.fetchDocument(doc);
+        }
+
+        IHttpFetchResponse response = httpFetcher.fetchDocument(doc);
+        if (Boolean.FALSE.equals(remembered) || response == null
+                || response.getCrawlState() == null
+                || !response.getCrawlState().isGoodState()
+                || !isHtml(doc)) {
+            doc.getMetadata().set(HttpMetadata.COLLECTOR_RENDERED, "false");
+            return response;
+        }
+
+        String content = readContent(doc);
+        if (!isRenderingNeeded(content)) {
+            record(ph, false);
+            doc.getMetadata().set(HttpMetadata.COLLECTOR_RENDERED, "false");
+            return response;
+        }
+
+        LOG.debug("Rendering: {}", doc.getReference());
+        CachedInputStream fetchedContent = doc.getInputStream();
+        Properties fetchedMetadata = new Properties();
+        fetchedMetadata.putAll(doc.getMetadata());
+        doc.getMetadata().clear();
+        IHttpFetchResponse renderResponse;
+        try {
+            renderResponse = renderFetcher.fetchDocument(doc);
+        } catch (RuntimeException e) {
+            LOG.warn("Could not render {}, keeping non-rendered content.",
+                    doc.getReference(), e);
+            if (doc.getInputStream() != fetchedContent) {
+                doc.getInputStream().dispose();
+                doc.setInputStream(fetchedContent);
+            }
+            doc.getMetadata().clear();
+            doc.getMetadata().putAll(fetchedMetadata);
+            doc.getMetadata().set(HttpMetadata.COLLECTOR_RENDERED, "false");
+            return response;
+        }
+        if (doc.getInputStream() != fetchedContent) {
+            fetchedContent.dispose();
+        }
+        // Rendered headers replace those of the first fetch.
+        fetchedMetadata.forEach((key, values) -> {
+            if (!doc.getMetadata().containsKey(key)) {
+                doc.getMetadata().setList(key, values);
+            }
+        });
+        doc.getMetadata().set(HttpMetadata.COLLECTOR_RENDERED, "true");
+        if (renderResponse != null && renderResponse.getCrawlState() != null
+                && renderResponse.getCrawlState().isGoodState()) {
+            int before = textLength(content);
+            int after = textLength(readContent(doc));
+            record(ph, after > before * RENDER_GAIN_RATIO
+                    && after - before > RENDER_GAIN_MIN_CHARS);
+        }
+        return renderResponse;
+    }
+
+    /**
+     * Gets whether the given page content needs to be rendered by
+     * a browser, based on configured signals. This method does not
+     * consider learned decisions.
+     * @param content page content (HTML)
+     * @return <code>true</code> if rendering is needed
+     */
+    protected boolean isRenderingNeeded(String content) {
+        if (StringUtils.isBlank(content)) {
+            return true;
+        }
+        int textLength = textLength(content);
+        if (textLength < minTextLength) {
+            LOG.trace("Text length of {} is under {}.",
+                    textLength, minTextLength);
+            return true;
+        }
+        for (Pattern marker : getCompiledSpaMarkers()) {
+            if (marker.matcher(content).find()) {
+                LOG.trace("SPA marker matched: {}", marker);
+                return true;
+            }
+        }
+        if (maxScriptTextRatio > 0) {
+            int scriptLength = 0;
+            Matcher m = SCRIPT_PATTERN.matcher(content);
+            while (m.find()) {
+                scriptLength += m.group(1).trim().length();
+            }
+            if (scriptLength > textLength * maxScriptTextRatio) {
+                LOG.trace("Script to text ratio of {}/{} is over {}.",
+                        scriptLength, textLength, maxScriptTextRatio);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int textLength(String content) {
+        if (StringUtils.isBlank(content)) {
+            return 0;
+        }
+        String text = NON_TEXT_PATTERN.matcher(content).replaceAll(" ");
+        text = TAG_PATTERN.matcher(text).replaceAll(" ");
+        return StringUtils.normalizeSpace(text).length();
+    }
+
+    private boolean isHtml(HttpDocument doc) {
+        String ct = doc.getMetadata().getString(HttpMetadata.HTTP_CONTENT_TYPE);
+        if (StringUtils.isBlank(ct) && doc.getContentType() != null) {
+            ct = doc.getContentType().toString();
+        }
+        return StringUtils.isBlank(ct) || StringUtils.containsIgnoreCase(
+                ct, "html");
+    }
+
+    private String readContent(HttpDocument doc) {
+        CachedInputStream is = doc.getInputStream();
+        try {
+            byte[] bytes = IOUtils.toByteArray(
+                    new BoundedInputStream(is, maxAnalyzedLength));
+            return new String(bytes, contentCharset(doc));
+        } catch (IOException e) {
+            LOG.debug("Could not read content of: {}", doc.getReference(), e);
+            return null;
+        } finally {
+            is.rewind();
+        }
+    }
+
+    // Content is not yet decoded, so the encoding is taken from
+    // the document if set, else from the HTTP Content-Type header.
+    private static Charset contentCharset(HttpDocument doc) {
+        String encoding = doc.getContentEncoding();
+        if (StringUtils.isBlank(encoding)) {
+            encoding = doc.getMetadata().getString(
+                    HttpMetadata.COLLECTOR_CONTENT_ENCODING);
+        }
+        try {
+            if (StringUtils.isNotBlank(encoding)) {
+                return Charset.forName(encoding.trim());
+            }
+            String httpCT = doc.getMetadata().getString(
+                    HttpMetadata.HTTP_CONTENT_TYPE);
+            if (StringUtils.isNotBlank(httpCT)) {
+                Charset charset = ContentType.parse(httpCT).getCharset();
+                if (charset != null) {
+                    return charset;
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.debug("Unsupported content encoding for: {}",
+                    doc.getReference(), e);
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private synchronized List<Pattern> getCompiledSpaMarkers() {
+        if (compiledSpaMarkers == null) {
+            List<Pattern> patterns = new ArrayList<>();
+            for (String marker : spaMarkers) {
+                if (StringUtils.isNotBlank(marker)) {
+                    patterns.add(Pattern.compile(marker));
+                }
+            }
+            compiledSpaMarkers = patterns;
+        }
+        return compiledSpaMarkers;
+    }
+
+    private PatternHistory getPatternHistory(String url) {
+        if (minSamples <= 0) {
+            return null;
+        }
+        String key = toUrlPattern(url);
+        PatternHistory ph = history.get(key);
+        if (ph == null && history.size() < MAX_URL_PATTERNS) {
+            ph = history.computeIfAbsent(key, k -> new PatternHistory());
+        }
+        return ph;
+    }
+
+    private String toUrlPattern(String url) {
+        StringBuilder b = new StringBuilder(HttpURL.getRoot(url));
+        String[] segments = StringUtils.split(
+                StringUtils.defaultString(new HttpURL(url).getPath()), '/');
+        for (int i = 0; i < urlPatternDepth && i < segments.length - 1; i++) {
+            b.append('/').append(segments[i]);
+        }
+        return b.toString();
+    }
+
+    private void record(PatternHistory ph, boolean renderingNeeded) {
+        if (ph != null) {
+            ph.record(renderingNeeded);
+        }
+    }
+
+    // Counts decisions for a URL pattern. Decisions are remembered once
+    // all samples agree.
+    private static class PatternHistory {
+        private final AtomicInteger rendered = new AtomicInteger();
+        private final AtomicInteger notRendered = new AtomicInteger();
+        private final AtomicInteger remembered = new AtomicInteger();
+        private void record(boolean renderingNeeded) {
+            if (renderingNeeded) {
+                rendered.incrementAndGet();
+                notRendered.set(0);
+            } else {
+                notRendered.incrementAndGet();
+                rendered.set(0);
+            }
+        }
+        // null if no decision remembered or it is time to verify it
+        private Boolean nextDecision(int minSamples, int recheckInterval) {
+            Boolean decision = null;
+            if (rendered.get() >= minSamples) {
+                decision = Boolean.TRUE;
+            } else if (notRendered.get() >= minSamples) {
+                decision = Boolean.FALSE;
+            }
+            if (decision != null && recheckInterval > 0
+                    && remembered.incrementAndGet() % recheckInterval == 0) {
+                return null;
+            }
+            return decision;
+        }
+    }
+
+    @Override
+    protected void loadHttpFetcherFromXML(XML xml) {
+        setHttpFetcher(xml.getObjectImpl(
+                IHttpFetcher.class, "httpFetcher/fetcher", httpFetcher));
+        setRenderFetcher(xml.getObjectImpl(
+                IHttpFetcher.class, "renderFetcher/fetcher", renderFetcher));
+        setMinTextLength(xml.getInteger("minTextLength", minTextLength));
+        setMaxScriptTextRatio(
+                xml.getFloat("maxScriptTextRatio", maxScriptTextRatio));
+        setMaxAnalyzedLength(
+                xml.getInteger("maxAnalyzedLength", maxAnalyzedLength));
+        List<String> markers = xml.getStringList("spaMarkers/marker");
+        if (!markers.isEmpty()) {
+            setSpaMarkers(markers);
+        }
+        setUrlPatternDepth(xml.getInteger("urlPatternDepth", urlPatternDepth));
+        setMinSamples(xml.getInteger("minSamples", minSamples));
+        setRecheckInterval(xml.getInteger("recheckInterval", recheckInterval));
+    }
+    @Override
+    protected void saveHttpFetcherToXML(XML xml) {
+        xml.addElement("httpFetcher").addElement("fetcher", httpFetcher);
+        xml.addElement("renderFetcher").addElement("fetcher", renderFetcher);
+        xml.addElement("minTextLength", minTextLength);
+        xml.addElement("maxScriptTextRatio", maxScriptTextRatio);
+        xml.addElement("maxAnalyzedLength", maxAnalyzedLength);
+        xml.addElement("spaMarkers").addElementList("marker", spaMarkers);
+        xml.addElement("urlPatternDepth", urlPatternDepth);
+        xml.addElement("minSamples", minSamples);
+        xml.addElement("recheckInterval", recheckInterval);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
@@ -28,6 +28,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.BiConsumer;
 import java.util.regex.Pattern;
 
 import javax.imageio.ImageIO;
@@ -43,6 +44,7 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.commons.text.StringEscapeUtils;
 import org.apache.http.HttpStatus;
 import org.imgscalr.Scalr;
 import org.imgscalr.Scalr.Method;
@@ -51,6 +53,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.norconex.collector.core.CollectorException;
+import com.norconex.collector.core.crawler.Crawler;
+import com.norconex.collector.core.crawler.CrawlerEvent;
 import com.norconex.collector.core.doc.CollectorMetadata;
 import com.norconex.collector.http.doc.HttpDocument;
 import com.norconex.collector.http.doc.HttpMetadata;
@@ -171,6 +175,21 @@ import com.norconex.importer.util.CharsetUtil;
  * long time.
  * </p>
  *
+ * <h3>Render workers</h3>
+ * <p>
+ * <b>Since 3.0.0</b>, PhantomJS can be kept running between documents
+ * instead of being launched for each of them. When the number of
+ * workers is greater than zero, that many PhantomJS processes are started
+ * as needed with the <code>scripts/phantom-server.js</code> script, and
+ * receive render requests over a local socket. Each page is rendered
+ * in a new browser page of a running process, saving the process startup
+ * time on every document. A worker is restarted after a configurable number
+ * of documents, or when it fails. Screenshots and content type handling are
+ * the same in both modes. Cookies are kept in memory for the life of
+ * a worker. The default (zero workers) launches a new process
+ * for each document.
+ * </p>
+ *
  * <p>
  * XML configuration entries expecting millisecond durations
  * can be provided in human-readable format (English only), as per
@@ -200,6 +219,18 @@ import com.norconex.importer.util.CharsetUtil;
  *        &lt;opt&gt;(optional extra PhantomJS command-line option)&lt;/opt&gt;
  *        &lt;!-- You can have multiple opt tags --&gt;
  *      &lt;/options&gt;
+ *      &lt;workers&gt;
+ *          (Number of long-running PhantomJS processes. Default is 0,
+ *           which launches a new process for each document.)
+ *      &lt;/workers&gt;
+ *      &lt;workerScriptPath&gt;
+ *          (Optional path to the PhantomJS script used by workers.
+ *           Defaults to scripts/phantom-server.js)
+ *      &lt;/workerScriptPath&gt;
+ *      &lt;workerMaxRequests&gt;
+ *          (Number of documents after which a worker is restarted.
+ *           Default is 500. Zero or less never restarts it.)
+ *      &lt;/workerMaxRequests&gt;
  *      &lt;referencePattern&gt;
  *          (Regular expression matching URLs for which to use the
  *           PhantomJS browser. Non-matching URLs will fallback
@@ -329,6 +360,11 @@ public class PhantomJSDocumentFetcher extends AbstractHttpFetcher {
     }
 
     public static final String DEFAULT_SCRIPT_PATH = "scripts/phantom.js";
+    /** @since 3.0.0 */
+    public static final String DEFAULT_WORKER_SCRIPT_PATH =
+            "scripts/phantom-server.js";
+    /** @since 3.0.0 */
+    public static final int DEFAULT_WORKER_MAX_REQUESTS = 500;
     public static final int DEFAULT_RENDER_WAIT_TIME = 3000;
     public static final float DEFAULT_SCREENSHOT_ZOOM_FACTOR = 1.0f;
     public static final String DEFAULT_CONTENT_TYPE_PATTERN =
@@ -341,6 +377,9 @@ public class PhantomJSDocumentFetcher extends AbstractHttpFetcher {
     public static final Dimension DEFAULT_SCREENSHOT_SCALE_SIZE =
             new Dimension(300, 300);
 
+    // Extra time given to a render worker to load a page.
+    private static final long WORKER_RESPONSE_MARGIN = 60 * 1000L;
+
     static final List<Integer> DEFAULT_VALID_STATUS_CODES =
             Collections.unmodifiableList(Arrays.asList(HttpStatus.SC_OK));
     static final List<Integer> DEFAULT_NOT_FOUND_STATUS_CODES =
@@ -357,6 +396,9 @@ public class PhantomJSDocumentFetcher extends AbstractHttpFetcher {
     private String scriptPath = DEFAULT_SCRIPT_PATH;
     private int renderWaitTime = DEFAULT_RENDER_WAIT_TIME;
     private int resourceTimeout = -1;
+    private int workers;
+    private String workerScriptPath = DEFAULT_WORKER_SCRIPT_PATH;
+    private int workerMaxRequests = DEFAULT_WORKER_MAX_REQUESTS;
 
     private final List<String> options = new ArrayList<>();
 
@@ -387,6 +429,7 @@ public class PhantomJSDocumentFetcher extends AbstractHttpFetcher {
     private Quality screenshotScaleQuality = Quality.AUTO;
 
     private boolean initialized;
+    private transient PhantomJSRenderWorkerPool workerPool;
 
     public PhantomJSDocumentFetcher() {
         super();
@@ -628,6 +671,61 @@ public class PhantomJSDocumentFetcher extends AbstractHttpFetcher {
     public void setResourceTimeout(int resourceTimeout) {
         this.resourceTimeout = resourceTimeout;
     }
+
+    /**
+     * Gets the number of long-running PhantomJS processes used to render
+     * documents.
+     * @return number of workers, or zero to launch a process per document
+     * @since 3.0.0
+     */
+    public int getWorkers() {
+        return workers;
+    }
+    /**
+     * Sets the number of long-running PhantomJS processes used to render
+     * documents. Zero launches a new PhantomJS process for each document.
+     * @param workers number of workers
+     * @since 3.0.0
+     */
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Gets the PhantomJS script used by render workers.
+     * @return script path
+     * @since 3.0.0
+     */
+    public String getWorkerScriptPath() {
+        return workerScriptPath;
+    }
+    /**
+     * Sets the PhantomJS script used by render workers.
+     * @param workerScriptPath script path
+     * @since 3.0.0
+     */
+    public void setWorkerScriptPath(String workerScriptPath) {
+        this.workerScriptPath = workerScriptPath;
+    }
+
+    /**
+     * Gets the number of documents after which a render worker
+     * is restarted.
+     * @return maximum number of documents per worker
+     * @since 3.0.0
+     */
+    public int getWorkerMaxRequests() {
+        return workerMaxRequests;
+    }
+    /**
+     * Sets the number of documents after which a render worker
+     * is restarted. Zero or less never restarts it.
+     * @param workerMaxRequests maximum number of documents per worker
+     * @since 3.0.0
+     */
+    public void setWorkerMaxRequests(int workerMaxRequests) {
+        this.workerMaxRequests = workerMaxRequests;
+    }
     /**
      * Gets the pixel dimensions we want the stored screenshot to have.
      * @return dimension
@@ -814,21 +912,43 @@ public class PhantomJSDocumentFetcher extends AbstractHttpFetcher {
             return;
         }
         LOG.info("PhantomJS screenshot enabled: {}", screenshotEnabled);
+        if (workers > 0) {
+            LOG.info("PhantomJS render workers: {}", workers);
+            workerPool = new PhantomJSRenderWorkerPool(
+                    createWorkerCommand(), null, workers, workerMaxRequests);
+        }
         initialized = true;
     }
 
+    @Override
+    protected synchronized void crawlerShutdown(
+            CrawlerEvent<Crawler> event) {
+        if (workerPool != null) {
+            LOG.info("Shutting down PhantomJS render workers...");
+            workerPool.shutdown();
+            workerPool = null;
+        }
+        initialized = false;
+    }
+
     private IHttpFetchResponse fetchPhantomJSDocument(HttpDocument doc)
             throws IOException, SystemCommandException {
 
         PhantomJSArguments p = new PhantomJSArguments(this, doc);
-	    SystemCommand cmd = createPhantomJSCommand(p);
-
-	    CmdOutputGrabber output = new CmdOutputGrabber(
-	            cmd, doc.getMetadata(), getHeadersPrefix());
-	    cmd.addErrorListener(output);
-	    cmd.addOutputListener(output);
-
-	    int exit = cmd.execute();
+        CmdOutputGrabber output;
+        int exit;
+        if (workerPool != null) {
+            output = new CmdOutputGrabber(
+                    null, doc.getMetadata(), getHeadersPrefix());
+            exit = renderWithWorker(p, output);
+        } else {
+            SystemCommand cmd = createPhantomJSCommand(p);
+            output = new CmdOutputGrabber(
+                    cmd, doc.getMetadata(), getHeadersPrefix());
+            cmd.addErrorListener(output);
+            cmd.addOutputListener(output);
+            exit = cmd.execute();
+        }
 
         int statusCode = output.getStatusCode();
         String reason = output.getStatusText();
@@ -1026,6 +1146,82 @@ public class PhantomJSDocumentFetcher extends AbstractHttpFetcher {
         return newImg;
     }
 
+    private int renderWithWorker(PhantomJSArguments p, CmdOutputGrabber output)
+            throws IOException {
+        String thumbnailFile = "";
+        if (p.phantomScreenshotFile != null) {
+            thumbnailFile = p.phantomScreenshotFile.toAbsolutePath().toString();
+        }
+        String dimension = "";
+        if (screenshotDimensions != null) {
+            dimension = (int) screenshotDimensions.getWidth() + "x"
+                    + (int) screenshotDimensions.getHeight();
+        }
+        // Same arguments as phantom.js, as a JSON object
+        String json = "{"
+                + jsonEntry("url", p.url) + ","
+                + jsonEntry("outFile", p.outFile.toAbsolutePath().toString())
+                + ","
+                + jsonEntry("timeout", renderWaitTime) + ","
+                + jsonEntry("thumbnailFile", thumbnailFile) + ","
+                + jsonEntry("dimension", dimension) + ","
+                + jsonEntry("zoomFactor", screenshotZoomFactor) + ","
+                + jsonEntry("resourceTimeout", resourceTimeout) + ","
+                + jsonEntry("loadImages", isScreenshotEnabled())
+                + "}";
+
+        // Page load is not bound by renderWaitTime, allow for extra time.
+        long timeout = renderWaitTime + Math.max(resourceTimeout, 0)
+                + WORKER_RESPONSE_MARGIN;
+        return readWorkerOutput(
+                workerPool.render(json, timeout), output::lineStreamed);
+    }
+
+    // Streams worker output lines as if coming from a phantom.js
+    // process and returns the exit code reported by the worker.
+    // A response without exit code is considered failed.
+    static int readWorkerOutput(
+            List<String> lines, BiConsumer<String, String> output) {
+        int exit = 1;
+        for (String line : lines) {
+            if (line.startsWith("EXIT:")) {
+                exit = NumberUtils.toInt(
+                        StringUtils.substringAfter(line, "EXIT:"), 1);
+            } else if (line.startsWith("ERROR:")) {
+                output.accept(ExecUtil.STDERR,
+                        StringUtils.substringAfter(line, "ERROR:"));
+            } else {
+                output.accept(ExecUtil.STDOUT, line);
+            }
+        }
+        return exit;
+    }
+
+    private static String jsonEntry(String key, Object value) {
+        String json = "\"" + key + "\":";
+        if (value instanceof Number || value instanceof Boolean) {
+            return json + value;
+        }
+        return json + "\"" + StringEscapeUtils.escapeJson(
+                Objects.toString(value, "")) + "\"";
+    }
+
+    private List<String> createWorkerCommand() {
+        List<String> cmdArgs = new ArrayList<>();
+        cmdArgs.add(exePath);
+        cmdArgs.add("--ssl-protocol=any");
+        if (LOG.isDebugEnabled()) {
+            cmdArgs.add("--debug=true");
+        }
+        cmdArgs.add("--ignore-ssl-errors=true");
+        cmdArgs.add("--web-security=false");
+        if (!options.isEmpty()) {
+            cmdArgs.addAll(options);
+        }
+        cmdArgs.add(new File(workerScriptPath).getAbsolutePath());
+        return cmdArgs;
+    }
+
     private SystemCommand createPhantomJSCommand(PhantomJSArguments p) {
         List<String> cmdArgs = new ArrayList<>();
         cmdArgs.add(exePath);
@@ -1112,14 +1308,15 @@ public class PhantomJSDocumentFetcher extends AbstractHttpFetcher {
                     "PhantomJS execution path does not exist or is "
                   + "not a valid file: " + new File(exePath).getAbsolutePath());
 	    }
-        if (StringUtils.isBlank(scriptPath)) {
+        String script = workers > 0 ? workerScriptPath : scriptPath;
+        if (StringUtils.isBlank(script)) {
             throw new CollectorException(
                     "PhantomJS script path is not set.");
         }
-        if (!new File(scriptPath).isFile()) {
+        if (!new File(script).isFile()) {
             throw new CollectorException(
                     "PhantomJS script file does not exist or is not a "
-                  + "valid file: " + new File(scriptPath).getAbsolutePath());
+                  + "valid file: " + new File(script).getAbsolutePath());
         }
         if (StringUtils.isNotBlank(screenshotStorageDiskDir)) {
             File dir = new File(screenshotStorageDiskDir);
@@ -1186,6 +1383,11 @@ public class PhantomJSDocumentFetcher extends AbstractHttpFetcher {
                 xml.getBoolean("@detectContentType", fetcherConfig.isDetectContentType()));
         setDetectCharset(xml.getBoolean("@detectCharset", fetcherConfig.isDetectCharset()));
         setOptions(xml.getDelimitedStringList("options/opt", options));
+        setWorkers(xml.getInteger("workers", workers));
+        setWorkerScriptPath(
+                xml.getString("workerScriptPath", workerScriptPath));
+        setWorkerMaxRequests(
+                xml.getInteger("workerMaxRequests", workerMaxRequests));
         setReferencePattern(
                 xml.getString("referencePattern", referencePattern));
         setContentTypePattern(
@@ -1239,6 +1441,9 @@ public class PhantomJSDocumentFetcher extends AbstractHttpFetcher {
                 "notFoundStatusCodes", fetcherConfig.getNotFoundStatusCodes());
         xml.addElement("headersPrefix", fetcherConfig.getHeadersPrefix());
         xml.addElementList("options", "opt", options);
+        xml.addElement("workers", workers);
+        xml.addElement("workerScriptPath", workerScriptPath);
+        xml.addElement("workerMaxRequests", workerMaxRequests);
         xml.addElement("referencePattern", referencePattern);
         xml.addElement("contentTypePattern", contentTypePattern);
 
@@ -1364,7 +1569,9 @@ public class PhantomJSDocumentFetcher extends AbstractHttpFetcher {
             // https://github.com/ariya/phantomjs/issues/10687
             } else if (line.startsWith("ReferenceError:")) {
                 error.write("\n  " + line);
-                cmd.abort();
+                if (cmd != null) {
+                    cmd.abort();
+                }
             // Log errors not matching above as real errors
             } else if (ExecUtil.STDERR.equalsIgnoreCase(type)) {
                     error.write("\n  " + line);
@@ -0,0 +1,301 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.CollectorException;
+
+/**
+ * <p>
+ * Pool of long-running PhantomJS processes, each rendering pages on request
+ * over a local HTTP socket (see <code>scripts/phantom-server.js</code>).
+ * Keeping processes running avoids paying the PhantomJS startup cost
+ * for every document.
+ * </p>
+ * <p>
+ * Processes are started lazily, up to the pool size, and restarted
+ * after a maximum number of requests to contain PhantomJS memory growth,
+ * or after a failed request.
+ * </p>
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+class PhantomJSRenderWorkerPool {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(PhantomJSRenderWorkerPool.class);
+
+    private static final long START_TIMEOUT = 30 * 1000L;
+    private static final int CONNECT_TIMEOUT = 5 * 1000;
+
+    private final List<String> command;
+    private final Path workDir;
+    private final int size;
+    private final int maxRequests;
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final Set<Worker> workers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger workerCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool of PhantomJS render workers.
+     * @param command PhantomJS executable, options, and server script,
+     *     to which the listening port is appended
+     * @param workDir directory where PhantomJS processes are started
+     * @param size maximum number of PhantomJS processes
+     * @param maxRequests number of requests after which a process
+     *     is restarted (zero or less never restarts it)
+     */
+    PhantomJSRenderWorkerPool(
+            List<String> command, Path workDir, int size, int maxRequests) {
+        super();
+        this.command = new ArrayList<>(command);
+        this.workDir = workDir;
+        this.size = Math.max(1, size);
+        this.maxRequests = maxRequests;
+    }
+
+    /**
+     * Renders a page with the next available worker, waiting for one
+     * if they are all busy.
+     * @param jsonRequest render request, as expected by the server script
+     * @param timeout maximum time to wait for the rendering, in milliseconds
+     * @return output lines
+     * @throws IOException problem communicating with PhantomJS
+     */
+    List<String> render(String jsonRequest, long timeout) throws IOException {
+        Worker worker = borrow();
+        boolean broken = true;
+        try {
+            List<String> lines = worker.send(jsonRequest, timeout);
+            broken = false;
+            return lines;
+        } finally {
+            release(worker, broken);
+        }
+    }
+
+    int getWorkerCount() {
+        return workerCount.get();
+    }
+
+    /**
+     * Stops all PhantomJS processes.
+     */
+    void shutdown() {
+        closed = true;
+        for (Worker worker : workers) {
+            worker.destroy();
+        }
+        workers.clear();
+        idle.clear();
+        workerCount.set(0);
+    }
+
+    private Worker borrow() throws IOException {
+        while (!closed) {
+            Worker worker = idle.poll();
+            if (worker != null) {
+                if (worker.isAlive()) {
+                    return worker;
+                }
+                discard(worker);
+                continue;
+            }
+            if (workerCount.incrementAndGet() <= size) {
+                try {
+                    worker = new Worker();
+                    workers.add(worker);
+                    return worker;
+                } catch (IOException | RuntimeException e) {
+                    workerCount.decrementAndGet();
+                    throw e;
+                }
+            }
+            workerCount.decrementAndGet();
+            try {
+                worker = idle.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CollectorException(
+                        "Interrupted while waiting for a PhantomJS worker.", e);
+            }
+            if (worker != null) {
+                if (worker.isAlive()) {
+                    return worker;
+                }
+                discard(worker);
+            }
+        }
+        throw new CollectorException("PhantomJS worker pool is shut down.");
+    }
+
+    private void release(Worker worker, boolean broken) {
+        if (closed || broken
+                || (maxRequests > 0 && worker.requests >= maxRequests)) {
+            LOG.debug("Restarting PhantomJS worker on port {} "
+                    + "(broken={}, requests={}).",
+                    worker.port, broken, worker.requests);
+            discard(worker);
+        } else {
+            idle.add(worker);
+        }
+    }
+
+    private void discard(Worker worker) {
+        worker.destroy();
+        if (workers.remove(worker)) {
+            workerCount.decrementAndGet();
+        }
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private class Worker {
+        private final int port;
+        private final Process process;
+        private int requests;
+
+        private Worker() throws IOException {
+            port = findFreePort();
+            List<String> cmd = new ArrayList<>(command);
+            cmd.add(Integer.toString(port));
+            ProcessBuilder pb = new ProcessBuilder(cmd);
+            if (workDir != null) {
+                pb.directory(workDir.toFile());
+            }
+            pb.redirectErrorStream(true);
+            LOG.debug("Starting PhantomJS worker: {}", cmd);
+            process = pb.start();
+
+            CountDownLatch ready = new CountDownLatch(1);
+            Thread reader = new Thread(() -> readOutput(ready),
+                    "phantomjs-worker-" + port);
+            reader.setDaemon(true);
+            reader.start();
+            try {
+                if (!ready.await(START_TIMEOUT, TimeUnit.MILLISECONDS)
+                        || !process.isAlive()) {
+                    destroy();
+                    throw new IOException("PhantomJS worker did not start "
+                            + "within " + START_TIMEOUT + "ms on port "
+                            + port + ".");
+                }
+            } catch (InterruptedException e) {
+                destroy();
+                Thread.currentThread().interrupt();
+                throw new IOException(
+                        "Interrupted while starting PhantomJS worker.", e);
+            }
+            LOG.info("PhantomJS worker started on port {}.", port);
+        }
+
+        // PhantomJS console output (outside of rendering responses)
+        private void readOutput(CountDownLatch ready) {
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                    process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    if (line.startsWith("READY:")) {
+                        ready.countDown();
+                    } else if (StringUtils.isNotBlank(line)) {
+                        LOG.debug("PhantomJS[{}]: {}", port, line);
+                    }
+                }
+            } catch (IOException e) {
+                LOG.trace("PhantomJS worker output closed.", e);
+            } finally {
+                ready.countDown();
+            }
+        }
+
+        private List<String> send(String jsonRequest, long timeout)
+                throws IOException {
+            requests++;
+            HttpURLConnection conn = (HttpURLConnection) new URL(
+                    "http://127.0.0.1:" + port + "/").openConnection();
+            try {
+                conn.setConnectTimeout(CONNECT_TIMEOUT);
+                conn.setReadTimeout((int) Math.min(timeout, Integer.MAX_VALUE));
+                conn.setRequestMethod("POST");
+                conn.setDoOutput(true);
+                conn.setRequestProperty(
+                        "Content-Type", "application/json; charset=UTF-8");
+                try (OutputStream os = conn.getOutputStream()) {
+                    os.write(jsonRequest.getBytes(StandardCharsets.UTF_8));
+                }
+                if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("PhantomJS worker on port " + port
+                            + " returned status " + conn.getResponseCode());
+                }
+                List<String> lines = new ArrayList<>();
+                try (BufferedReader r = new BufferedReader(
+                        new InputStreamReader(conn.getInputStream(),
+                                StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = r.readLine()) != null) {
+                        lines.add(line);
+                    }
+                }
+                return lines;
+            } finally {
+                conn.disconnect();
+            }
+        }
+
+        private boolean isAlive() {
+            return process.isAlive();
+        }
+
+        private void destroy() {
+            process.destroy();
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -19,7 +19,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
@@ -51,9 +53,10 @@ import com.norconex.collector.http.fetch.AbstractHttpFetcher;
 import com.norconex.collector.http.fetch.HttpFetchResponseBuilder;
 import com.norconex.collector.http.fetch.IHttpFetchResponse;
 import com.norconex.collector.http.fetch.impl.WebDriverHttpSniffer.DriverResponseFilter;
+import com.norconex.collector.http.fetch.impl.WebDriverPool.PooledWebDriver;
 import com.norconex.collector.http.reference.HttpCrawlState;
+import com.norconex.collector.http.util.JmxUtil;
 import com.norconex.commons.lang.SLF4JUtil;
-import com.norconex.commons.lang.Sleeper;
 import com.norconex.commons.lang.io.CachedStreamFactory;
 import com.norconex.commons.lang.xml.XML;
 
@@ -65,6 +68,15 @@ import com.norconex.commons.lang.xml.XML;
  * instance is started as a service for the life-duration of the crawler.
  * </p>
  *
+ * <h3>Browser pool</h3>
+ * <p>
+ * Browsers are kept in a pool shared by all crawler threads
+ * (see {@link WebDriverPoolConfig}). A thread borrows a browser only
+ * while a page is being rendered, so you can have many more crawler threads
+ * than browsers running. Browsers can be recycled after a number of pages
+ * or when their memory grows too large.
+ * </p>
+ *
  * <h3>Considerations</h3>
  * <p>
  * Relying on an external software to fetch pages can be slower and not as
@@ -77,7 +89,9 @@ import com.norconex.commons.lang.xml.XML;
  * <p>
  * By default, web drivers do not expose HTTP headers.  If you want to
  * capture them, configure the "httpSniffer". A proxy service
- * will be started to monitor HTTP traffic and store HTTP headers.
+ * will be started for each browser to monitor HTTP traffic and store
+ * HTTP headers. The configured proxy port is only used when the browser
+ * pool size is one.
  * </p>
  * <p>
  * <b>NOTE:</b> Capturing headers with a proxy may not be supported by all
@@ -94,6 +108,15 @@ import com.norconex.commons.lang.xml.XML;
  *      &lt;driverPath&gt;(driver executable or blank to detect)&lt;/driverPath&gt;
  *      &lt;servicePort&gt;(default is 0 = random free port)&lt;/servicePort&gt;
  *
+ *      &lt;!-- Optional browser pool settings. --&gt;
+ *      &lt;browserPool&gt;
+ *          &lt;size&gt;(maximum number of browsers, default is 1)&lt;/size&gt;
+ *          &lt;maxWait&gt;(max wait time for a browser, default waits forever)&lt;/maxWait&gt;
+ *          &lt;maxPagesPerBrowser&gt;(pages before recycling a browser)&lt;/maxPagesPerBrowser&gt;
+ *          &lt;maxMemoryPerBrowser&gt;(JS heap bytes before recycling a browser)&lt;/maxMemoryPerBrowser&gt;
+ *          &lt;healthCheckDisabled&gt;[false|true]&lt;/healthCheckDisabled&gt;
+ *      &lt;/browserPool&gt;
+ *
  *      &lt;!-- Optional browser capabilities supported by the web driver. --&gt;
  *      &lt;capabilities&gt;
  *          &lt;capability name="(capability name)"&gt;(capability value)&lt;/capability&gt;
@@ -102,8 +125,17 @@ import com.norconex.commons.lang.xml.XML;
  *
  *      &lt;!-- Optionally take screenshots of each web pages. --&gt;
  *      &lt;screenshot&gt;
- *          &lt;capability name="(capability name)"&gt;(capability value)&lt;/capability&gt;
- *          &lt;!-- multiple "capability" tags allowed --&gt;
+ *          &lt;cssSelector&gt;(Optional selector of element to capture)&lt;/cssSelector&gt;
+ *          &lt;targets&gt;[metadata|directory] (One or both, separated by comma)&lt;/targets&gt;
+ *          &lt;imageFormat&gt;(Image format. Default is "png".)&lt;/imageFormat&gt;
+ *          &lt;!-- The following applies to the "directory" target: --&gt;
+ *          &lt;targetDir&gt;(Path where to save screenshots.)&lt;/targetDir&gt;
+ *          &lt;targetDirStructure&gt;[url2path|date|datetime|checksum]&lt;/targetDirStructure&gt;
+ *          &lt;targetDirField&gt;(Field where to store the screenshot path.)&lt;/targetDirField&gt;
+ *          &lt;asyncThreads&gt;(Threads saving screenshots. Default is 0.)&lt;/asyncThreads&gt;
+ *          &lt;asyncQueueSize&gt;(Screenshots waiting to be saved. Default is 100.)&lt;/asyncQueueSize&gt;
+ *          &lt;!-- The following applies to the "metadata" target: --&gt;
+ *          &lt;targetMetaField&gt;(Field where to store the screenshot.)&lt;/targetMetaField&gt;
  *      &lt;/screenshot&gt;
  *
  *      &lt;initScript&gt;
@@ -146,6 +178,13 @@ import com.norconex.commons.lang.xml.XML;
  *              &lt;header name="(header name)"&gt;(header value)&lt;/header&gt;
  *              &lt;!-- You can repeat this header tag as needed. --&gt;
  *          &lt;/headers&gt;
+ *
+ *          &lt;!-- Optionally block page resources to speed up rendering. --&gt;
+ *          &lt;blocking profile="[none|text_only]"&gt;
+ *              &lt;url&gt;(regex of resource URLs to block)&lt;/url&gt;
+ *              &lt;contentType&gt;(regex of content types to block)&lt;/contentType&gt;
+ *              &lt;!-- You can repeat url and contentType tags as needed. --&gt;
+ *          &lt;/blocking&gt;
  *      &lt;/httpSniffer&gt;
  *
  *  &lt;/fetcher&gt;
@@ -184,7 +223,6 @@ public class WebDriverHttpFetcher extends AbstractHttpFetcher {
     private String userAgent;
     private int servicePort;   // default is 0 = any free port
 
-    private WebDriverHttpSniffer httpSniffer;
     private WebDriverHttpSnifferConfig httpSnifferConfig;
     private WebDriverScreenshotHandler screenshotHandler;
 
@@ -199,8 +237,15 @@ public class WebDriverHttpFetcher extends AbstractHttpFetcher {
     private long implicitlyWait;
     private long scriptTimeout;
 
+    private final WebDriverPoolConfig browserPoolConfig =
+            new WebDriverPoolConfig();
+
     private DriverService service;
-    private final ThreadLocal<WebDriver> driverTL = new ThreadLocal<>();
+    private WebDriverPool browserPool;
+    // One sniffer (and proxy) per browser, so captured responses
+    // cannot be mixed between browsers.
+    private final Map<WebDriver, WebDriverHttpSniffer> httpSniffers =
+            new ConcurrentHashMap<>();
 
     public WebDriverHttpFetcher() {
         super();
@@ -255,6 +300,14 @@ public class WebDriverHttpFetcher extends AbstractHttpFetcher {
         return capabilities;
     }
 
+    /**
+     * Gets the browser pool configuration.
+     * @return browser pool configuration (never <code>null</code>)
+     */
+    public WebDriverPoolConfig getBrowserPoolConfig() {
+        return browserPoolConfig;
+    }
+
     public WebDriverScreenshotHandler getScreenshotHandler() {
         return screenshotHandler;
     }
@@ -323,33 +376,84 @@ public class WebDriverHttpFetcher extends AbstractHttpFetcher {
 //                   + "fully headless, or change its 'User-Agent'.");
 //        }
 
-        try {
-            MutableCapabilities options =
-                    browser.createCapabilities(browserPath);
-
-            initWebDriverLogging(options);
-
-            options.setCapability(CapabilityType.ACCEPT_SSL_CERTS, true);
-            options.setCapability(CapabilityType.ACCEPT_INSECURE_CERTS, true);
-
-            options.merge(capabilities);
-
-            if (httpSnifferConfig != null) {
-                httpSniffer = new WebDriverHttpSniffer();
-                httpSniffer.start(options, httpSnifferConfig);
-                userAgent = httpSnifferConfig.getUserAgent();
+        if (httpSnifferConfig != null) {
+            userAgent = httpSnifferConfig.getUserAgent();
+            if (httpSnifferConfig.getPort() != 0
+                    && browserPoolConfig.getSize() > 1) {
+                LOG.warn("HTTP sniffer port is ignored when the browser "
+                        + "pool size is greater than one. Each browser gets "
+                        + "a proxy on a random free port.");
             }
+        }
 
+        try {
             Builder<?,?> serviceBuilder = browser.createServiceBuilder();
             if (driverPath != null) {
                 serviceBuilder.usingDriverExecutable(driverPath.toFile());
             }
             service = serviceBuilder.usingPort(servicePort).build();
             service.start();
+        } catch (IOException e) {
+            //TODO if exception, check if driver and browser were specified
+            // either explicitly, as system property, or in PATH?
+            throw new CollectorException(
+                    "Could not start " + browser + " driver service.", e);
+        }
+
+        browserPool = new WebDriverPool(browserPoolConfig,
+                this::createDriver, this::destroyDriver);
+
+        if (screenshotHandler != null && event != null) {
+            screenshotHandler.getStats().register(JmxUtil.instanceName(
+                    event.getSource().getId(), this));
+        }
+
+        // Start a first browser right away, to fail fast and
+        // resolve the user agent.
+        PooledWebDriver pwd = browserPool.borrow();
+        boolean broken = true;
+        try {
+            if (StringUtils.isBlank(userAgent)) {
+                userAgent = (String) ((JavascriptExecutor) pwd.getDriver())
+                        .executeScript("return navigator.userAgent;");
+            }
+            broken = false;
+        } finally {
+            browserPool.release(pwd, broken);
+        }
+    }
+
+    // Creates a new browser instance, ready to fetch pages.
+    private WebDriver createDriver() {
+        MutableCapabilities options = browser.createCapabilities(browserPath);
+        initWebDriverLogging(options);
+        options.setCapability(CapabilityType.ACCEPT_SSL_CERTS, true);
+        options.setCapability(CapabilityType.ACCEPT_INSECURE_CERTS, true);
+        options.merge(capabilities);
 
-            WebDriver driver = new RemoteWebDriver(service.getUrl(), options);
-            driverTL.set(driver);
+        WebDriverHttpSniffer sniffer = null;
+        if (httpSnifferConfig != null) {
+            sniffer = new WebDriverHttpSniffer();
+            sniffer.start(options, httpSnifferConfig,
+                    browserPoolConfig.getSize() > 1
+                            ? 0 : httpSnifferConfig.getPort());
+        }
 
+        WebDriver driver;
+        try {
+            driver = new RemoteWebDriver(service.getUrl(), options);
+        } catch (RuntimeException e) {
+            if (sniffer != null) {
+                sniffer.stop();
+            }
+            throw e;
+        }
+        if (sniffer != null) {
+            httpSniffers.put(driver, sniffer);
+        }
+
+        // Do not leak the browser or its sniffer if setup fails.
+        try {
             if (windowSize != null) {
                 driver.manage().window().setSize(
                         new org.openqa.selenium.Dimension(
@@ -362,26 +466,36 @@ public class WebDriverHttpFetcher extends AbstractHttpFetcher {
                         pageLoadTimeout, TimeUnit.MILLISECONDS);
             }
             if (implicitlyWait != 0) {
-                timeouts.implicitlyWait(implicitlyWait, TimeUnit.MILLISECONDS);
+                timeouts.implicitlyWait(
+                        implicitlyWait, TimeUnit.MILLISECONDS);
             }
             if (scriptTimeout != 0) {
-                timeouts.setScriptTimeout(scriptTimeout, TimeUnit.MILLISECONDS);
-            }
-
-            if (StringUtils.isBlank(userAgent)) {
-                userAgent = (String) ((JavascriptExecutor) driver).executeScript(
-                        "return navigator.userAgent;");
+                timeouts.setScriptTimeout(
+                        scriptTimeout, TimeUnit.MILLISECONDS);
             }
 
             if (StringUtils.isNotBlank(initScript)) {
                 ((JavascriptExecutor) driver).executeScript(initScript);
             }
+        } catch (RuntimeException e) {
+            try {
+                destroyDriver(driver);
+            } catch (RuntimeException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+        return driver;
+    }
 
-        } catch (IOException e) {
-            //TODO if exception, check if driver and browser were specified
-            // either explicitly, as system property, or in PATH?
-            throw new CollectorException(
-                    "Could not start " + browser + " driver service.", e);
+    private void destroyDriver(WebDriver driver) {
+        try {
+            driver.quit();
+        } finally {
+            WebDriverHttpSniffer sniffer = httpSniffers.remove(driver);
+            if (sniffer != null) {
+                sniffer.stop();
+            }
         }
     }
 
@@ -401,18 +515,20 @@ public class WebDriverHttpFetcher extends AbstractHttpFetcher {
     protected void crawlerShutdown(CrawlerEvent<Crawler> event) {
         LOG.info("Shutting down {} driver service...", browser);
 
-        Sleeper.sleepSeconds(5);
-
-        if (driverTL.get() != null) {
-            driverTL.get().quit();
-            driverTL.remove();
+        if (browserPool != null) {
+            browserPool.shutdown();
+            browserPool = null;
         }
 
         if (service != null && service.isRunning()) {
             service.stop();
         }
-        if (httpSniffer != null) {
-            httpSniffer.stop();
+        httpSniffers.values().forEach(WebDriverHttpSniffer::stop);
+        httpSniffers.clear();
+
+        if (screenshotHandler != null) {
+            screenshotHandler.shutdown();
+            screenshotHandler.getStats().unregister();
         }
     }
 
@@ -432,17 +548,27 @@ public class WebDriverHttpFetcher extends AbstractHttpFetcher {
 
 	    LOG.debug("Fetching document: {}", doc.getReference());
 
-	    if (httpSniffer != null) {
-	        httpSniffer.bind(doc.getReference());
-	    }
-
-        doc.setInputStream(
-                fetchDocumentContent(driverTL.get(), doc.getReference()));
-
-        IHttpFetchResponse response = resolveDriverResponse(doc);
-
-        if (screenshotHandler != null) {
-            screenshotHandler.takeScreenshot(driverTL.get(), doc);
+        // Browser is only held for rendering.
+        IHttpFetchResponse response;
+        PooledWebDriver pwd = browserPool.borrow();
+        WebDriverHttpSniffer httpSniffer = httpSniffers.get(pwd.getDriver());
+        boolean broken = true;
+        try {
+            if (httpSniffer != null) {
+                httpSniffer.bind(doc.getReference());
+            }
+            doc.setInputStream(fetchDocumentContent(
+                    pwd.getDriver(), doc.getReference()));
+            response = resolveDriverResponse(httpSniffer, doc);
+            if (screenshotHandler != null) {
+                screenshotHandler.takeScreenshot(pwd.getDriver(), doc);
+            }
+            broken = false;
+        } finally {
+            if (broken && httpSniffer != null) {
+                httpSniffer.unbind();
+            }
+            browserPool.release(pwd, broken);
         }
 
 //      performDetection(doc);
@@ -470,7 +596,8 @@ public class WebDriverHttpFetcher extends AbstractHttpFetcher {
         return IOUtils.toInputStream(pageSource, StandardCharsets.UTF_8);
     }
 
-    private IHttpFetchResponse resolveDriverResponse(HttpDocument doc) {
+    private IHttpFetchResponse resolveDriverResponse(
+            WebDriverHttpSniffer httpSniffer, HttpDocument doc) {
         IHttpFetchResponse response = null;
         if (httpSniffer != null) {
             DriverResponseFilter driverResponseFilter = httpSniffer.unbind();
@@ -479,6 +606,16 @@ public class WebDriverHttpFetcher extends AbstractHttpFetcher {
                         driverResponseFilter.getHeaders()) {
                     doc.getMetadata().add(en.getKey(), en.getValue());
                 }
+                if (driverResponseFilter.getBlockedRequests() > 0) {
+                    doc.getMetadata().set(
+                            HttpMetadata.COLLECTOR_BLOCKED_REQUESTS,
+                            Integer.toString(
+                                    driverResponseFilter.getBlockedRequests()));
+                    doc.getMetadata().set(
+                            HttpMetadata.COLLECTOR_BLOCKED_BYTES,
+                            Long.toString(
+                                    driverResponseFilter.getBlockedBytes()));
+                }
                 response = toFetchResponse(driverResponseFilter);
             }
         }
@@ -512,6 +649,7 @@ public class WebDriverHttpFetcher extends AbstractHttpFetcher {
         setDriverPath(xml.getPath("driverPath", driverPath));
         setBrowserPath(xml.getPath("browserPath", browserPath));
         setServicePort(xml.getInteger("servicePort", servicePort));
+        xml.ifXML("browserPool", browserPoolConfig::loadFromXML);
 
         xml.ifXML("httpSniffer", x -> {
             WebDriverHttpSnifferConfig cfg = new WebDriverHttpSnifferConfig();
@@ -546,6 +684,7 @@ public class WebDriverHttpFetcher extends AbstractHttpFetcher {
         xml.addElement("driverPath", driverPath);
         xml.addElement("browserPath", browserPath);
         xml.addElement("servicePort", servicePort);
+        browserPoolConfig.saveToXML(xml.addElement("browserPool"));
 
         if (httpSnifferConfig != null) {
             httpSnifferConfig.saveToXML(xml.addElement("httpSniffer"));
@@ -15,13 +15,17 @@
 package com.norconex.collector.http.fetch.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
-import org.littleshoot.proxy.HttpFiltersSource;
 import org.openqa.selenium.MutableCapabilities;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
@@ -31,11 +35,16 @@ import org.openqa.selenium.remote.CapabilityType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.norconex.collector.http.fetch.impl.WebDriverHttpSnifferConfig.BlockingProfile;
+
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
 import net.lightbody.bmp.BrowserMobProxyServer;
 import net.lightbody.bmp.client.ClientUtil;
 import net.lightbody.bmp.filters.ResponseFilter;
-import net.lightbody.bmp.filters.ResponseFilterAdapter;
 import net.lightbody.bmp.util.HttpMessageContents;
 import net.lightbody.bmp.util.HttpMessageInfo;
 
@@ -44,6 +53,18 @@ import net.lightbody.bmp.util.HttpMessageInfo;
  * Used to set and capture HTTP request/response headers, when enabled.
  * </p>
  * <p>
+ * Each sniffer runs its own proxy and is meant to serve a single browser,
+ * which renders one page at a time. Responses are therefore attributed to
+ * the page currently bound, even when several browsers run in parallel.
+ * </p>
+ * <p>
+ * Resources loaded by a page (images, fonts, scripts, etc.) can be blocked
+ * by URL or content type to speed up rendering
+ * (see {@link WebDriverHttpSnifferConfig#setBlockingProfile(BlockingProfile)}).
+ * The page itself is never blocked. The number of blocked requests and
+ * bytes kept from the browser are reported for each page.
+ * </p>
+ * <p>
  * <b>EXPERIMENTAL:</b> The use of this class is experimental.
  * It is known to not be supported properly
  * with some web drivers and/or browsers. It can even be ignored altogether
@@ -58,37 +79,46 @@ public class WebDriverHttpSniffer {
     private static final Logger LOG = LoggerFactory.getLogger(
             WebDriverHttpSniffer.class);
 
-    private final ThreadLocal<FilterAndSource> tlocal = new ThreadLocal<>();
+    private static final List<String> TEXT_ONLY_URLS = Arrays.asList(
+            "(?i).*\\.(png|jpe?g|gif|webp|svg|ico|bmp|tiff?|woff2?|ttf|otf|eot"
+          + "|mp4|webm|ogg|mp3|wav|avi|mov|m4a)(\\?.*)?",
+            "(?i)https?://([^/]*\\.)?(google-analytics\\.com|googletagmanager"
+          + "\\.com|doubleclick\\.net|googlesyndication\\.com|facebook\\.net"
+          + "|hotjar\\.com|scorecardresearch\\.com)([:/].*)?");
+    private static final List<String> TEXT_ONLY_CONTENT_TYPES =
+            Arrays.asList("(?i)(image|font|audio|video)/.*");
+
+    private final List<Pattern> blockedURLs = new ArrayList<>();
+    private final List<Pattern> blockedContentTypes = new ArrayList<>();
+    private final AtomicReference<DriverResponseFilter> boundFilter =
+            new AtomicReference<>();
     private BrowserMobProxyServer mobProxy;
 
+    /**
+     * Starts capturing the response for the given URL.
+     * @param url the URL about to be loaded by the browser
+     * @throws IllegalStateException if a URL is already bound
+     */
     public void bind(String url) {
         if (mobProxy == null) {
             return;
         }
-
-        FilterAndSource fs = tlocal.get();
-        if (fs != null) {
+        DriverResponseFilter f = new DriverResponseFilter(url);
+        if (!boundFilter.compareAndSet(null, f)) {
             throw new IllegalStateException("A URL is already bound to "
-                    + "WebDriverHttpAdapter on this thread: " + fs.filter.url);
+                    + "this WebDriverHttpSniffer: " + boundFilter.get().url);
         }
-
-        DriverResponseFilter f = new DriverResponseFilter(url);
-        HttpFiltersSource s = new ResponseFilterAdapter.FilterSource(f);
-        tlocal.set(new FilterAndSource(f, s));
-        mobProxy.addLastHttpFilterFactory(s);
     }
 
+    /**
+     * Stops capturing the response for the currently bound URL.
+     * @return the captured response or <code>null</code> if no URL is bound
+     */
     public DriverResponseFilter unbind() {
         if (mobProxy == null) {
             return null;
         }
-        FilterAndSource fs = tlocal.get();
-        if (fs == null) {
-            return null;
-        }
-        mobProxy.getFilterFactories().remove(fs.source);
-        tlocal.remove();
-        return fs.filter;
+        return boundFilter.getAndSet(null);
     }
 
     public void start(MutableCapabilities options) {
@@ -96,7 +126,20 @@ public class WebDriverHttpSniffer {
     }
     public void start(
             MutableCapabilities options, WebDriverHttpSnifferConfig config) {
-        Objects.requireNonNull("'options' must not be null");
+        start(options, config, Optional.ofNullable(config).map(
+                WebDriverHttpSnifferConfig::getPort).orElse(0));
+    }
+    /**
+     * Starts the proxy on the given port and configures the browser
+     * options to use it.
+     * @param options browser options
+     * @param config sniffer configuration
+     * @param port proxy port (0 for any free port)
+     * @since 3.0.0
+     */
+    public void start(MutableCapabilities options,
+            WebDriverHttpSnifferConfig config, int port) {
+        Objects.requireNonNull(options, "'options' must not be null");
 
         WebDriverHttpSnifferConfig cfg = Optional.ofNullable(
                 config).orElseGet(WebDriverHttpSnifferConfig::new);
@@ -105,7 +148,7 @@ public class WebDriverHttpSniffer {
         mobProxy.setTrustAllServers(true);
 
         // request headers
-        config.getRequestHeaders().entrySet().forEach(
+        cfg.getRequestHeaders().entrySet().forEach(
                 en -> mobProxy.addHeader(en.getKey(), en.getValue()));
 
         // User agent
@@ -113,7 +156,30 @@ public class WebDriverHttpSniffer {
             mobProxy.addHeader("User-Agent", cfg.getUserAgent());
         }
 
-        mobProxy.start(cfg.getPort());
+        // Resource blocking
+        if (cfg.getBlockingProfile() == BlockingProfile.TEXT_ONLY) {
+            compile(blockedURLs, TEXT_ONLY_URLS);
+            compile(blockedContentTypes, TEXT_ONLY_CONTENT_TYPES);
+        }
+        compile(blockedURLs, cfg.getBlockedURLs());
+        compile(blockedContentTypes, cfg.getBlockedContentTypes());
+        if (!blockedURLs.isEmpty()) {
+            mobProxy.addRequestFilter(this::filterRequest);
+        }
+
+        // Single filter for the proxy lifetime, delegating to whatever
+        // page is currently bound.
+        mobProxy.addResponseFilter((response, contents, messageInfo) -> {
+            DriverResponseFilter f = boundFilter.get();
+            if (f != null) {
+                f.filterResponse(response, contents, messageInfo);
+            }
+            if (!blockedContentTypes.isEmpty()) {
+                filterResponseContent(f, response, contents, messageInfo);
+            }
+        });
+
+        mobProxy.start(port);
 
         int actualPort = mobProxy.getPort();
         LOG.info("Proxy started on port {} "
@@ -158,29 +224,87 @@ public class WebDriverHttpSniffer {
         }
     }
 
-    private class FilterAndSource {
-        private final DriverResponseFilter filter;
-        private final HttpFiltersSource source;
-        public FilterAndSource(
-                DriverResponseFilter filter, HttpFiltersSource source) {
-            super();
-            this.filter = filter;
-            this.source = source;
+    // Short-circuits blocked requests with an empty response.
+    private HttpResponse filterRequest(HttpRequest request,
+            HttpMessageContents contents, HttpMessageInfo messageInfo) {
+        String url = messageInfo.getOriginalUrl();
+        DriverResponseFilter f = boundFilter.get();
+        if (url == null || (f != null && url.equals(f.url))
+                || !matchesAny(blockedURLs, url)) {
+            return null;
+        }
+        LOG.trace("Blocked request: {}", url);
+        if (f != null) {
+            f.blockedRequests.incrementAndGet();
+        }
+        HttpResponse response = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.NO_CONTENT);
+        response.headers().set("Content-Length", "0");
+        return response;
+    }
+
+    // Empties responses with a blocked content type.
+    private void filterResponseContent(DriverResponseFilter f,
+            HttpResponse response, HttpMessageContents contents,
+            HttpMessageInfo messageInfo) {
+        String url = messageInfo.getOriginalUrl();
+        String contentType = response.headers().get("Content-Type");
+        if (contents == null || contentType == null
+                || (f != null && url != null && url.equals(f.url))
+                || !matchesAny(blockedContentTypes,
+                        StringUtils.substringBefore(contentType, ";").trim())) {
+            return;
+        }
+        LOG.trace("Blocked content ({}): {}", contentType, url);
+        int length = contents.getBinaryContents().length;
+        contents.setBinaryContents(new byte[0]);
+        response.headers().set("Content-Length", "0");
+        if (f != null) {
+            f.blockedRequests.incrementAndGet();
+            f.blockedBytes.addAndGet(length);
         }
     }
 
+    private static void compile(List<Pattern> patterns, List<String> regexes) {
+        for (String regex : regexes) {
+            if (StringUtils.isNotBlank(regex)) {
+                patterns.add(Pattern.compile(regex));
+            }
+        }
+    }
+    private static boolean matchesAny(List<Pattern> patterns, String value) {
+        for (Pattern p : patterns) {
+            if (p.matcher(value).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the port the proxy listens on.
+     * @return proxy port or -1 if not started
+     * @since 3.0.0
+     */
+    public int getPort() {
+        return mobProxy != null ? mobProxy.getPort() : -1;
+    }
+
     public static class DriverResponseFilter implements ResponseFilter {
         private final List<Map.Entry<String, String>> headers =
                 new ArrayList<>();
         private int statusCode;
         private String reasonPhrase;
         private final String url;
+        private final AtomicInteger blockedRequests = new AtomicInteger();
+        private final AtomicLong blockedBytes = new AtomicLong();
         public DriverResponseFilter(String url) {
             super();
             this.url = url;
         }
+        // Invoked by proxy threads, read by crawler threads.
         @Override
-        public void filterResponse(HttpResponse response,
+        public synchronized void filterResponse(HttpResponse response,
                 HttpMessageContents contents, HttpMessageInfo messageInfo) {
             if (url.equals(messageInfo.getOriginalUrl())) {
                 headers.addAll(response.headers().entries());
@@ -188,14 +312,32 @@ public class WebDriverHttpSniffer {
                 reasonPhrase = response.getStatus().reasonPhrase();
             }
         }
-        public List<Map.Entry<String, String>> getHeaders() {
-            return headers;
+        public synchronized List<Map.Entry<String, String>> getHeaders() {
+            return new ArrayList<>(headers);
         }
-        public int getStatusCode() {
+        public synchronized int getStatusCode() {
             return statusCode;
         }
-        public String getReasonPhrase() {
+        public synchronized String getReasonPhrase() {
             return reasonPhrase;
         }
+        /**
+         * Gets the number of requests blocked while loading the page.
+         * @return blocked request count
+         * @since 3.0.0
+         */
+        public int getBlockedRequests() {
+            return blockedRequests.get();
+        }
+        /**
+         * Gets the number of bytes kept from the browser by blocking
+         * resources by content type. Resources blocked by URL are never
+         * downloaded and their size is unknown.
+         * @return blocked bytes
+         * @since 3.0.0
+         */
+        public long getBlockedBytes() {
+            return blockedBytes.get();
+        }
     }
 }
\ No newline at end of file
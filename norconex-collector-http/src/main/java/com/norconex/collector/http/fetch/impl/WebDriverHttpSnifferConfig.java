@@ -14,9 +14,13 @@
  */
 package com.norconex.collector.http.fetch.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -24,6 +28,7 @@ import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 import com.norconex.commons.lang.EqualsUtil;
+import com.norconex.commons.lang.collection.CollectionUtil;
 import com.norconex.commons.lang.xml.IXMLConfigurable;
 import com.norconex.commons.lang.xml.XML;
 
@@ -36,9 +41,27 @@ import com.norconex.commons.lang.xml.XML;
  */
 public class WebDriverHttpSnifferConfig implements IXMLConfigurable {
 
+    /**
+     * Predefined sets of resources to block.
+     * @since 3.0.0
+     */
+    public enum BlockingProfile {
+        /** Nothing blocked unless explicitly configured. */
+        NONE,
+        /**
+         * Blocks images, fonts, audio, video and common analytics
+         * and advertising hosts, keeping only what is needed to build
+         * the page text.
+         */
+        TEXT_ONLY
+    }
+
     private int port;
     private String userAgent;
     private final Map<String, String> requestHeaders = new HashMap<>();
+    private BlockingProfile blockingProfile = BlockingProfile.NONE;
+    private final List<String> blockedURLs = new ArrayList<>();
+    private final List<String> blockedContentTypes = new ArrayList<>();
 
     public int getPort() {
         return port;
@@ -60,12 +83,83 @@ public class WebDriverHttpSnifferConfig implements IXMLConfigurable {
         this.requestHeaders.putAll(requestHeaders);
     }
 
+    /**
+     * Gets the predefined set of resources to block.
+     * @return blocking profile (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public BlockingProfile getBlockingProfile() {
+        return blockingProfile;
+    }
+    /**
+     * Sets a predefined set of resources to block, in addition to
+     * explicitly blocked URLs and content types. Default is
+     * {@link BlockingProfile#NONE}.
+     * @param blockingProfile blocking profile
+     * @since 3.0.0
+     */
+    public void setBlockingProfile(BlockingProfile blockingProfile) {
+        this.blockingProfile = Optional.ofNullable(
+                blockingProfile).orElse(BlockingProfile.NONE);
+    }
+
+    /**
+     * Gets regular expressions matching URLs of resources the browser
+     * should not download.
+     * @return URL regular expressions (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public List<String> getBlockedURLs() {
+        return Collections.unmodifiableList(blockedURLs);
+    }
+    /**
+     * Sets regular expressions matching URLs of resources the browser
+     * should not download. Matching requests get an empty response
+     * without reaching the remote server.
+     * @param blockedURLs URL regular expressions
+     * @since 3.0.0
+     */
+    public void setBlockedURLs(List<String> blockedURLs) {
+        CollectionUtil.setAll(this.blockedURLs, blockedURLs);
+    }
+
+    /**
+     * Gets regular expressions matching content types of resources
+     * not to be handed to the browser.
+     * @return content type regular expressions (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public List<String> getBlockedContentTypes() {
+        return Collections.unmodifiableList(blockedContentTypes);
+    }
+    /**
+     * Sets regular expressions matching content types of resources
+     * not to be handed to the browser. Content type is only known once
+     * the response is received, so matching resources are still downloaded
+     * by the proxy, but the browser does not get to process them.
+     * @param blockedContentTypes content type regular expressions
+     * @since 3.0.0
+     */
+    public void setBlockedContentTypes(List<String> blockedContentTypes) {
+        CollectionUtil.setAll(this.blockedContentTypes, blockedContentTypes);
+    }
+
     @Override
     public void loadFromXML(XML xml) {
         setPort(xml.getInteger("port"));
         setUserAgent(xml.getString("userAgent"));
         setRequestHeaders(xml.getStringMap(
                 "headers/header", "@name", ".", requestHeaders));
+        setBlockingProfile(xml.getEnum(
+                "blocking/@profile", BlockingProfile.class, blockingProfile));
+        List<String> urls = xml.getStringList("blocking/url");
+        if (!urls.isEmpty()) {
+            setBlockedURLs(urls);
+        }
+        List<String> contentTypes = xml.getStringList("blocking/contentType");
+        if (!contentTypes.isEmpty()) {
+            setBlockedContentTypes(contentTypes);
+        }
     }
     @Override
     public void saveToXML(XML xml) {
@@ -76,6 +170,10 @@ public class WebDriverHttpSnifferConfig implements IXMLConfigurable {
             xmlHeaders.addXML("header").setAttribute(
                     "name", entry.getKey()).setTextContent(entry.getValue());
         }
+        XML xmlBlocking = xml.addXML("blocking");
+        xmlBlocking.setAttribute("profile", blockingProfile);
+        xmlBlocking.addElementList("url", blockedURLs);
+        xmlBlocking.addElementList("contentType", blockedContentTypes);
     }
 
     @Override
@@ -0,0 +1,274 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.impl;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.CollectorException;
+
+/**
+ * <p>
+ * Pool of web driver browser instances shared by crawler threads.
+ * Threads borrow a browser only for as long as they need it, so the number
+ * of browsers running can be lower than the number of crawler threads.
+ * </p>
+ * <p>
+ * Browsers are created on demand, up to the configured pool size.
+ * They are replaced when they stop responding, after a configurable
+ * number of pages, or when their memory usage grows too large.
+ * </p>
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ * @see WebDriverPoolConfig
+ */
+public class WebDriverPool {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(WebDriverPool.class);
+
+    private static final String MEMORY_SCRIPT =
+            "return window.performance && window.performance.memory "
+          + "? window.performance.memory.usedJSHeapSize : -1;";
+
+    private final WebDriverPoolConfig config;
+    private final Supplier<WebDriver> driverFactory;
+    private final Consumer<WebDriver> driverDisposer;
+    private final Semaphore permits;
+    private final BlockingQueue<PooledWebDriver> idle =
+            new LinkedBlockingQueue<>();
+    private final Set<PooledWebDriver> drivers = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * Creates a new pool.
+     * @param config pool configuration
+     * @param driverFactory creates new, fully initialized browser instances
+     */
+    public WebDriverPool(
+            WebDriverPoolConfig config, Supplier<WebDriver> driverFactory) {
+        this(config, driverFactory, WebDriver::quit);
+    }
+    /**
+     * Creates a new pool.
+     * @param config pool configuration
+     * @param driverFactory creates new, fully initialized browser instances
+     * @param driverDisposer quits browsers and releases associated
+     *        resources
+     */
+    public WebDriverPool(WebDriverPoolConfig config,
+            Supplier<WebDriver> driverFactory,
+            Consumer<WebDriver> driverDisposer) {
+        super();
+        this.config = Objects.requireNonNull(
+                config, "'config' must not be null.");
+        this.driverFactory = Objects.requireNonNull(
+                driverFactory, "'driverFactory' must not be null.");
+        this.driverDisposer = Objects.requireNonNull(
+                driverDisposer, "'driverDisposer' must not be null.");
+        this.permits = new Semaphore(Math.max(1, config.getSize()), true);
+    }
+
+    /**
+     * Borrows a browser from the pool, waiting for one to be
+     * available if needed.  Borrowed browsers must be returned with
+     * {@link #release(PooledWebDriver, boolean)}.
+     * @return a browser
+     * @throws CollectorException if the pool is closed, no browser was
+     *         available in time, or a browser could not be created
+     */
+    public PooledWebDriver borrow() {
+        acquirePermit();
+        try {
+            PooledWebDriver pwd;
+            while ((pwd = idle.poll()) != null) {
+                if (isHealthy(pwd)) {
+                    return pwd;
+                }
+                LOG.info("Replacing unresponsive browser.");
+                destroy(pwd);
+            }
+            return create();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a borrowed browser to the pool.
+     * @param pwd the borrowed browser
+     * @param broken <code>true</code> if the browser failed while
+     *        borrowed and should be discarded
+     */
+    public void release(PooledWebDriver pwd, boolean broken) {
+        if (pwd == null) {
+            return;
+        }
+        try {
+            pwd.pageCount++;
+            if (closed || broken || isWornOut(pwd)) {
+                destroy(pwd);
+            } else {
+                idle.offer(pwd);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Gets the number of browsers currently running.
+     * @return browser count
+     */
+    public int getBrowserCount() {
+        return drivers.size();
+    }
+    /**
+     * Gets the number of browsers currently borrowed.
+     * @return borrowed browser count
+     */
+    public int getBorrowedCount() {
+        return drivers.size() - idle.size();
+    }
+
+    /**
+     * Quits all browsers. Browsers currently borrowed are quit as well
+     * and will be discarded when returned.
+     */
+    public void shutdown() {
+        closed = true;
+        idle.clear();
+        for (PooledWebDriver pwd : drivers) {
+            destroy(pwd);
+        }
+    }
+
+    private void acquirePermit() {
+        if (closed) {
+            throw new CollectorException("Browser pool is closed.");
+        }
+        try {
+            if (config.getMaxWait() > 0) {
+                if (!permits.tryAcquire(
+                        config.getMaxWait(), TimeUnit.MILLISECONDS)) {
+                    throw new CollectorException("No browser available after "
+                            + "waiting " + config.getMaxWait() + "ms.");
+                }
+            } else {
+                permits.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CollectorException(
+                    "Interrupted while waiting for a browser.", e);
+        }
+    }
+
+    private PooledWebDriver create() {
+        if (closed) {
+            throw new CollectorException("Browser pool is closed.");
+        }
+        PooledWebDriver pwd = new PooledWebDriver(driverFactory.get());
+        drivers.add(pwd);
+        LOG.debug("Browser created (running: {}).", drivers.size());
+        return pwd;
+    }
+
+    private void destroy(PooledWebDriver pwd) {
+        if (!drivers.remove(pwd)) {
+            return;
+        }
+        try {
+            driverDisposer.accept(pwd.driver);
+        } catch (Exception e) {
+            LOG.debug("Could not quit browser.", e);
+        }
+        LOG.debug("Browser quit after {} pages (running: {}).",
+                pwd.pageCount, drivers.size());
+    }
+
+    private boolean isHealthy(PooledWebDriver pwd) {
+        if (config.isHealthCheckDisabled()) {
+            return true;
+        }
+        try {
+            pwd.driver.getWindowHandle();
+            return true;
+        } catch (Exception e) {
+            LOG.debug("Browser health check failed.", e);
+            return false;
+        }
+    }
+
+    private boolean isWornOut(PooledWebDriver pwd) {
+        if (config.getMaxPagesPerBrowser() > 0
+                && pwd.pageCount >= config.getMaxPagesPerBrowser()) {
+            LOG.debug("Browser reached {} pages, recycling it.",
+                    pwd.pageCount);
+            return true;
+        }
+        if (config.getMaxMemoryPerBrowser() > 0
+                && pwd.driver instanceof JavascriptExecutor) {
+            try {
+                Object mem = ((JavascriptExecutor) pwd.driver)
+                        .executeScript(MEMORY_SCRIPT);
+                if (mem instanceof Number && ((Number) mem).longValue()
+                        > config.getMaxMemoryPerBrowser()) {
+                    LOG.debug("Browser uses {} bytes of memory, "
+                            + "recycling it.", mem);
+                    return true;
+                }
+            } catch (Exception e) {
+                LOG.debug("Could not obtain browser memory usage.", e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A browser borrowed from a {@link WebDriverPool}.
+     */
+    public static final class PooledWebDriver {
+        private final WebDriver driver;
+        private int pageCount;
+        private PooledWebDriver(WebDriver driver) {
+            super();
+            this.driver = driver;
+        }
+        public WebDriver getDriver() {
+            return driver;
+        }
+        /**
+         * Gets how many times this browser was borrowed and returned.
+         * @return page count
+         */
+        public int getPageCount() {
+            return pageCount;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.impl;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * Configuration for {@link WebDriverPool}.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class WebDriverPoolConfig implements IXMLConfigurable {
+
+    public static final int DEFAULT_SIZE = 1;
+
+    private int size = DEFAULT_SIZE;
+    private long maxWait;
+    private int maxPagesPerBrowser;
+    private long maxMemoryPerBrowser;
+    private boolean healthCheckDisabled;
+
+    /**
+     * Gets the maximum number of browsers running at once.
+     * @return pool size
+     */
+    public int getSize() {
+        return size;
+    }
+    /**
+     * Sets the maximum number of browsers running at once. Crawler threads
+     * wait for a browser to be available when they all are in use, so
+     * this number can be lower than the number of crawler threads.
+     * Default is 1.
+     * @param size pool size
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Gets the maximum time in milliseconds to wait for a browser to
+     * be available.
+     * @return maximum wait time
+     */
+    public long getMaxWait() {
+        return maxWait;
+    }
+    /**
+     * Sets the maximum time in milliseconds to wait for a browser to
+     * be available. Zero or less waits indefinitely (default).
+     * @param maxWait maximum wait time
+     */
+    public void setMaxWait(long maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Gets the number of pages a browser renders before being replaced
+     * with a new one.
+     * @return maximum pages per browser
+     */
+    public int getMaxPagesPerBrowser() {
+        return maxPagesPerBrowser;
+    }
+    /**
+     * Sets the number of pages a browser renders before being replaced
+     * with a new one. Zero or less never replaces browsers (default).
+     * @param maxPagesPerBrowser maximum pages per browser
+     */
+    public void setMaxPagesPerBrowser(int maxPagesPerBrowser) {
+        this.maxPagesPerBrowser = maxPagesPerBrowser;
+    }
+
+    /**
+     * Gets the JavaScript heap size in bytes above which a browser
+     * is replaced with a new one.
+     * @return maximum memory per browser
+     */
+    public long getMaxMemoryPerBrowser() {
+        return maxMemoryPerBrowser;
+    }
+    /**
+     * Sets the JavaScript heap size in bytes above which a browser
+     * is replaced with a new one. Only browsers exposing
+     * <code>performance.memory</code> (e.g. Chrome) report memory usage,
+     * others ignore this setting. Zero or less disables this check
+     * (default).
+     * @param maxMemoryPerBrowser maximum memory per browser
+     */
+    public void setMaxMemoryPerBrowser(long maxMemoryPerBrowser) {
+        this.maxMemoryPerBrowser = maxMemoryPerBrowser;
+    }
+
+    /**
+     * Gets whether to skip verifying a browser still responds before
+     * handing it to a crawler thread.
+     * @return <code>true</code> if health checks are disabled
+     */
+    public boolean isHealthCheckDisabled() {
+        return healthCheckDisabled;
+    }
+    /**
+     * Sets whether to skip verifying a browser still responds before
+     * handing it to a crawler thread. Unresponsive browsers are
+     * otherwise replaced.
+     * @param healthCheckDisabled <code>true</code> to disable health checks
+     */
+    public void setHealthCheckDisabled(boolean healthCheckDisabled) {
+        this.healthCheckDisabled = healthCheckDisabled;
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setSize(xml.getInteger("size", size));
+        setMaxWait(xml.getDurationMillis("maxWait", maxWait));
+        setMaxPagesPerBrowser(
+                xml.getInteger("maxPagesPerBrowser", maxPagesPerBrowser));
+        setMaxMemoryPerBrowser(NumberUtils.toLong(xml.getString(
+                "maxMemoryPerBrowser"), maxMemoryPerBrowser));
+        setHealthCheckDisabled(
+                xml.getBoolean("healthCheckDisabled", healthCheckDisabled));
+    }
+    @Override
+    public void saveToXML(XML xml) {
+        xml.addElement("size", size);
+        xml.addElement("maxWait", maxWait);
+        xml.addElement("maxPagesPerBrowser", maxPagesPerBrowser);
+        xml.addElement("maxMemoryPerBrowser", maxMemoryPerBrowser);
+        xml.addElement("healthCheckDisabled", healthCheckDisabled);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
@@ -0,0 +1,99 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.ObjectName;
+
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import com.norconex.collector.http.util.JmxUtil;
+
+/**
+ * Live statistics of a {@link PoolingHttpClientConnectionManager},
+ * optionally registered as a JMX MBean under the
+ * "com.norconex.collector.http" domain.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class ConnectionPoolStats implements ConnectionPoolStatsMXBean {
+
+    private final PoolingHttpClientConnectionManager connManager;
+    private ObjectName objectName;
+
+    public ConnectionPoolStats(PoolingHttpClientConnectionManager connManager) {
+        super();
+        this.connManager = connManager;
+    }
+
+    @Override
+    public int getLeased() {
+        return connManager.getTotalStats().getLeased();
+    }
+    @Override
+    public int getPending() {
+        return connManager.getTotalStats().getPending();
+    }
+    @Override
+    public int getAvailable() {
+        return connManager.getTotalStats().getAvailable();
+    }
+    @Override
+    public int getMax() {
+        return connManager.getTotalStats().getMax();
+    }
+    @Override
+    public Map<String, String> getRouteStats() {
+        Map<String, String> stats = new TreeMap<>();
+        for (HttpRoute route : connManager.getRoutes()) {
+            stats.put(route.getTargetHost().toURI(),
+                    toString(connManager.getStats(route)));
+        }
+        return stats;
+    }
+
+    /**
+     * Registers these statistics with the platform MBean server.
+     * Failing to do so is logged and otherwise ignored.
+     * @param name value of the "name" key of the MBean object name
+     */
+    public synchronized void register(String name) {
+        unregister();
+        objectName = JmxUtil.register(this, "ConnectionPool", name);
+    }
+    /**
+     * Unregisters these statistics from the platform MBean server, if
+     * registered.
+     */
+    public synchronized void unregister() {
+        JmxUtil.unregister(objectName);
+        objectName = null;
+    }
+
+    @Override
+    public String toString() {
+        return toString(connManager.getTotalStats());
+    }
+    private static String toString(PoolStats stats) {
+        return "leased=" + stats.getLeased()
+                + ", pending=" + stats.getPending()
+                + ", available=" + stats.getAvailable()
+                + ", max=" + stats.getMax();
+    }
+}
@@ -0,0 +1,55 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.util;
+
+import java.util.Map;
+
+/**
+ * Live statistics of an HTTP connection pool, exposed through JMX.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public interface ConnectionPoolStatsMXBean {
+
+    /**
+     * Gets the number of connections currently in use, for all routes.
+     * @return leased connections
+     */
+    int getLeased();
+    /**
+     * Gets the number of threads waiting for a connection, for all routes.
+     * When it stays above zero, the pool is the bottleneck rather than
+     * the web servers.
+     * @return pending connection requests
+     */
+    int getPending();
+    /**
+     * Gets the number of idle connections ready to be reused,
+     * for all routes.
+     * @return available connections
+     */
+    int getAvailable();
+    /**
+     * Gets the maximum number of connections, for all routes.
+     * @return maximum connections
+     */
+    int getMax();
+    /**
+     * Gets statistics for each route (scheme, host and port), as
+     * "leased=N, pending=N, available=N, max=N" values.
+     * @return statistics per route
+     */
+    Map<String, String> getRouteStats();
+}
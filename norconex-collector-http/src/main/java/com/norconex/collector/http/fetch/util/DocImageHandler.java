@@ -1,15 +1,27 @@
 package com.norconex.collector.http.fetch.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
@@ -27,8 +39,27 @@ import com.norconex.commons.lang.xml.XML;
 import com.norconex.importer.handler.transformer.impl.ImageTransformer;
 
 /**
+ * <p>
  * Handles images associated with a document (which is different than a document
  * being itself an image.  Examples can be screenshots, featured image, etc.
+ * </p>
+ * <p>
+ * When storing images in a directory, the <code>CHECKSUM</code> directory
+ * structure names image files after a checksum of the original image,
+ * so identical images (e.g., error pages, login walls) are stored only once.
+ * Those images are written before the document moves on and their path
+ * is only added to the document metadata once the file is stored.
+ * </p>
+ * <p>
+ * Images stored in a directory with other structures can be scaled, encoded
+ * and written by background threads (see {@link #setAsyncThreads(int)}),
+ * in which case the image path is added to the document metadata right
+ * away but the image file may be written shortly after. When the queue of
+ * pending images is full, the calling thread encodes the image itself,
+ * slowing down crawling rather than using more memory.
+ * Images stored in metadata are always encoded by the calling thread.
+ * Statistics are available from {@link #getStats()}.
+ * </p>
  * @author Pascal Essiembre
  * @since 3.0.0
  */
@@ -38,8 +69,9 @@ public class DocImageHandler implements IXMLConfigurable {
             DocImageHandler.class);
 
     public enum Target { METADATA, DIRECTORY }
-    public enum DirStructure { URL2PATH, DATE, DATETIME }
+    public enum DirStructure { URL2PATH, DATE, DATETIME, CHECKSUM }
     public static final String DEFAULT_IMAGE_FORMAT = "png";
+    public static final int DEFAULT_ASYNC_QUEUE_SIZE = 100;
 
     protected static final List<Target> DEFAULT_TYPES =
             Arrays.asList(Target.DIRECTORY) ;
@@ -50,10 +82,17 @@ public class DocImageHandler implements IXMLConfigurable {
     private DirStructure targetDirStructure = DirStructure.DATETIME;
     private String targetMetaField;
     private String imageFormat = DEFAULT_IMAGE_FORMAT;
-
+    private int asyncThreads;
+    private int asyncQueueSize = DEFAULT_ASYNC_QUEUE_SIZE;
 
     private final ImageTransformer imgTransformer = new ImageTransformer();
 
+    private transient ThreadPoolExecutor executor;
+    private final transient Map<String, CompletableFuture<Boolean>>
+            pendingChecksums = new ConcurrentHashMap<>();
+    private final transient DocImageHandlerStats stats =
+            new DocImageHandlerStats(this::getQueueDepth);
+
     public DocImageHandler(
             Path defaultDir,
             String defaultDirField,
@@ -113,6 +152,50 @@ public class DocImageHandler implements IXMLConfigurable {
         this.imageFormat = imageFormat;
     }
 
+    /**
+     * Gets the number of threads scaling, encoding and storing images
+     * in the background.
+     * @return number of threads
+     */
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+    /**
+     * Sets the number of threads scaling, encoding and storing images
+     * in the background. Zero (default) does it on the calling thread.
+     * Only applies to images stored in a directory, except with the
+     * <code>CHECKSUM</code> structure.
+     * @param asyncThreads number of threads
+     */
+    public void setAsyncThreads(int asyncThreads) {
+        this.asyncThreads = asyncThreads;
+    }
+
+    /**
+     * Gets the maximum number of images waiting to be processed in the
+     * background.
+     * @return queue size
+     */
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+    /**
+     * Sets the maximum number of images waiting to be processed in the
+     * background. When full, the calling thread processes the image.
+     * @param asyncQueueSize queue size
+     */
+    public void setAsyncQueueSize(int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    /**
+     * Gets image encoding statistics.
+     * @return statistics
+     */
+    public DocImageHandlerStats getStats() {
+        return stats;
+    }
+
     public void handleImage(InputStream imageStream, HttpDocument doc) {
 
         //TODO check for null and:
@@ -121,37 +204,22 @@ public class DocImageHandler implements IXMLConfigurable {
         try {
             String format = Optional.ofNullable(
                     imageFormat).orElse(DEFAULT_IMAGE_FORMAT);
-            MutableImage img = new MutableImage(imageStream);
-            imgTransformer.transformImage(img);
+            byte[] bytes = IOUtils.toByteArray(imageStream);
 
+            // Inline images have to be encoded before the document moves on
             if (targets.contains(Target.METADATA)) {
                 Objects.requireNonNull(
                         targetMetaField, "'targetMetaField'' must not be null");
+                long start = System.currentTimeMillis();
+                MutableImage img = toImage(bytes);
                 doc.getMetadata().add(
                         targetMetaField, img.toBase64String(format));
-            }
-            if (targets.contains(Target.DIRECTORY)) {
-                Objects.requireNonNull(
-                        targetDirField, "'targetDirField'' must not be null");
-                Objects.requireNonNull(
-                        targetDir, "'targetDir'' must not be null");
-                File dir = targetDir.toFile();
-                String ref = doc.getReference();
-                String ext = "." + format;
-                File imageFile = null;
-                if (targetDirStructure == DirStructure.URL2PATH) {
-                    imageFile = new File(FileUtil.createURLDirs(
-                            dir, ref, true).getAbsolutePath() + ext);
-                } else if (targetDirStructure == DirStructure.DATE) {
-                    imageFile = new File(FileUtil.createDateDirs(dir),
-                            TimeIdGenerator.next() + ext);
-                } else { // DATETIME (Default)
-                    imageFile = new File(FileUtil.createDateTimeDirs(dir),
-                            TimeIdGenerator.next() + ext);
+                if (targets.contains(Target.DIRECTORY)) {
+                    storeImage(img, bytes, format, doc);
                 }
-                img.write(imageFile.toPath(), format);
-                doc.getMetadata().add(
-                        targetDirField, imageFile.getCanonicalPath());
+                stats.encoded(System.currentTimeMillis() - start);
+            } else if (targets.contains(Target.DIRECTORY)) {
+                storeImage(null, bytes, format, doc);
             }
         } catch (Exception e) {
             LOG.error("Could not take screenshot of: {}",
@@ -159,6 +227,160 @@ public class DocImageHandler implements IXMLConfigurable {
         }
     }
 
+    /**
+     * Waits for images being processed in the background to be stored
+     * and stops background threads.
+     */
+    public synchronized void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.warn("Images still being stored after one minute: {}",
+                        executor.getQueue().size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        LOG.info("Image handler statistics: {}", stats);
+    }
+
+    private void storeImage(MutableImage encodedImg, byte[] bytes,
+            String format, HttpDocument doc) throws IOException {
+        Objects.requireNonNull(
+                targetDirField, "'targetDirField'' must not be null");
+        Objects.requireNonNull(
+                targetDir, "'targetDir'' must not be null");
+        File dir = targetDir.toFile();
+        String ref = doc.getReference();
+        String ext = "." + format;
+        String checksum = null;
+        File imageFile = null;
+        if (targetDirStructure == DirStructure.URL2PATH) {
+            imageFile = new File(FileUtil.createURLDirs(
+                    dir, ref, true).getAbsolutePath() + ext);
+        } else if (targetDirStructure == DirStructure.DATE) {
+            imageFile = new File(FileUtil.createDateDirs(dir),
+                    TimeIdGenerator.next() + ext);
+        } else if (targetDirStructure == DirStructure.CHECKSUM) {
+            checksum = DigestUtils.sha1Hex(bytes);
+            imageFile = new File(dir, checksum.substring(0, 2)
+                    + File.separator + checksum.substring(2, 4)
+                    + File.separator + checksum + ext);
+        } else { // DATETIME (Default)
+            imageFile = new File(FileUtil.createDateTimeDirs(dir),
+                    TimeIdGenerator.next() + ext);
+        }
+        String path = imageFile.getCanonicalPath();
+
+        // Same checksum, same image: only store it once, and only
+        // reference it once it is stored.
+        if (checksum != null) {
+            if (storeOnce(checksum, imageFile,
+                    encodedImg, bytes, format, ref)) {
+                doc.getMetadata().add(targetDirField, path);
+            }
+            return;
+        }
+
+        doc.getMetadata().add(targetDirField, path);
+        File file = imageFile;
+        Runnable task = () -> writeImage(file, encodedImg, bytes, format, ref);
+        if (encodedImg == null && asyncThreads > 0) {
+            getExecutor().execute(task);
+        } else {
+            task.run();
+        }
+    }
+
+    // Returns whether the image is stored, waiting for another thread
+    // already storing the same image if need be.
+    private boolean storeOnce(String checksum, File file,
+            MutableImage encodedImg, byte[] bytes, String format, String ref) {
+        CompletableFuture<Boolean> stored = new CompletableFuture<>();
+        CompletableFuture<Boolean> pending =
+                pendingChecksums.putIfAbsent(checksum, stored);
+        if (pending != null) {
+            LOG.debug("Identical image being stored for: {}", ref);
+            stats.deduplicated();
+            return pending.join();
+        }
+        boolean success = false;
+        try {
+            if (file.isFile()) {
+                LOG.debug("Identical image already stored for: {}", ref);
+                stats.deduplicated();
+                success = true;
+            } else {
+                success = writeImage(file, encodedImg, bytes, format, ref);
+            }
+        } finally {
+            pendingChecksums.remove(checksum);
+            stored.complete(success);
+        }
+        return success;
+    }
+
+    private boolean writeImage(File file, MutableImage encodedImg,
+            byte[] bytes, String format, String ref) {
+        try {
+            long start = System.currentTimeMillis();
+            MutableImage img = encodedImg;
+            if (img == null) {
+                img = toImage(bytes);
+            }
+            FileUtil.createDirsForFile(file);
+            img.write(file.toPath(), format);
+            if (encodedImg == null) {
+                stats.encoded(System.currentTimeMillis() - start);
+            }
+            return true;
+        } catch (Exception e) {
+            LOG.error("Could not store image of: {}", ref, e);
+            return false;
+        }
+    }
+
+    private MutableImage toImage(byte[] bytes) throws IOException {
+        MutableImage img = new MutableImage(new ByteArrayInputStream(bytes));
+        imgTransformer.transformImage(img);
+        return img;
+    }
+
+    private int getQueueDepth() {
+        ThreadPoolExecutor exec = executor;
+        return exec == null ? 0 : exec.getQueue().size();
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            AtomicInteger count = new AtomicInteger();
+            RejectedExecutionHandler callerRuns =
+                    new ThreadPoolExecutor.CallerRunsPolicy();
+            executor = new ThreadPoolExecutor(
+                    asyncThreads, asyncThreads,
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, asyncQueueSize)),
+                    r -> {
+                        Thread t = new Thread(r, "doc-image-handler-"
+                                + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    (r, ex) -> {
+                        // Back-pressure: queue is full, do it ourselves.
+                        stats.callerEncoded();
+                        callerRuns.rejectedExecution(r, ex);
+                    });
+        }
+        return executor;
+    }
+
     @Override
     public boolean equals(final Object other) {
         return EqualsBuilder.reflectionEquals(this, other);
@@ -182,6 +404,8 @@ public class DocImageHandler implements IXMLConfigurable {
                 "targetDirStructure", DirStructure.class, targetDirStructure));
         setTargetMetaField(xml.getString("targetMetaField", targetMetaField));
         setImageFormat(xml.getString("imageFormat", imageFormat));
+        setAsyncThreads(xml.getInteger("asyncThreads", asyncThreads));
+        setAsyncQueueSize(xml.getInteger("asyncQueueSize", asyncQueueSize));
     }
 
     @Override
@@ -192,5 +416,7 @@ public class DocImageHandler implements IXMLConfigurable {
         xml.addElement("targetDirStructure", targetDirStructure);
         xml.addElement("targetMetaField", targetMetaField);
         xml.addElement("imageFormat", imageFormat);
+        xml.addElement("asyncThreads", asyncThreads);
+        xml.addElement("asyncQueueSize", asyncQueueSize);
     }
 }
@@ -0,0 +1,111 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+import javax.management.ObjectName;
+
+import com.norconex.collector.http.util.JmxUtil;
+
+/**
+ * Live statistics of a {@link DocImageHandler},
+ * optionally registered as a JMX MBean under the
+ * "com.norconex.collector.http" domain.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class DocImageHandlerStats implements DocImageHandlerStatsMXBean {
+
+    private final IntSupplier queueDepth;
+    private final AtomicLong encodedCount = new AtomicLong();
+    private final AtomicLong deduplicatedCount = new AtomicLong();
+    private final AtomicLong callerEncodedCount = new AtomicLong();
+    private final AtomicLong totalEncodeTime = new AtomicLong();
+    private final AtomicLong maxEncodeTime = new AtomicLong();
+    private ObjectName objectName;
+
+    DocImageHandlerStats(IntSupplier queueDepth) {
+        super();
+        this.queueDepth = queueDepth;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+    @Override
+    public long getEncodedCount() {
+        return encodedCount.get();
+    }
+    @Override
+    public long getDeduplicatedCount() {
+        return deduplicatedCount.get();
+    }
+    @Override
+    public long getCallerEncodedCount() {
+        return callerEncodedCount.get();
+    }
+    @Override
+    public long getAverageEncodeTime() {
+        long count = encodedCount.get();
+        return count == 0 ? 0 : totalEncodeTime.get() / count;
+    }
+    @Override
+    public long getMaxEncodeTime() {
+        return maxEncodeTime.get();
+    }
+
+    void encoded(long millis) {
+        encodedCount.incrementAndGet();
+        totalEncodeTime.addAndGet(millis);
+        maxEncodeTime.accumulateAndGet(millis, Math::max);
+    }
+    void deduplicated() {
+        deduplicatedCount.incrementAndGet();
+    }
+    void callerEncoded() {
+        callerEncodedCount.incrementAndGet();
+    }
+
+    /**
+     * Registers these statistics with the platform MBean server.
+     * Failing to do so is logged and otherwise ignored.
+     * @param name value of the "name" key of the MBean object name
+     */
+    public synchronized void register(String name) {
+        unregister();
+        objectName = JmxUtil.register(this, "ImageHandler", name);
+    }
+    /**
+     * Unregisters these statistics from the platform MBean server, if
+     * registered.
+     */
+    public synchronized void unregister() {
+        JmxUtil.unregister(objectName);
+        objectName = null;
+    }
+
+    @Override
+    public String toString() {
+        return "queued=" + getQueueDepth()
+                + ", encoded=" + getEncodedCount()
+                + ", deduplicated=" + getDeduplicatedCount()
+                + ", callerEncoded=" + getCallerEncodedCount()
+                + ", avgEncodeTime=" + getAverageEncodeTime() + "ms"
+                + ", maxEncodeTime=" + getMaxEncodeTime() + "ms";
+    }
+}
@@ -0,0 +1,60 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.util;
+
+/**
+ * Live statistics of a {@link DocImageHandler}, exposed through JMX.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public interface DocImageHandlerStatsMXBean {
+
+    /**
+     * Gets the number of images waiting to be encoded and stored
+     * in the background.
+     * @return queued images
+     */
+    int getQueueDepth();
+    /**
+     * Gets the number of images encoded so far.
+     * @return encoded images
+     */
+    long getEncodedCount();
+    /**
+     * Gets the number of images not stored because an identical image
+     * was already stored.
+     * @return deduplicated images
+     */
+    long getDeduplicatedCount();
+    /**
+     * Gets the number of images encoded by crawler threads because the
+     * background queue was full.  When it keeps increasing,
+     * consider adding encoding threads.
+     * @return images encoded by crawler threads
+     */
+    long getCallerEncodedCount();
+    /**
+     * Gets the average time it took to scale, encode and store an image,
+     * in milliseconds.
+     * @return average encode time
+     */
+    long getAverageEncodeTime();
+    /**
+     * Gets the longest time it took to scale, encode and store an image,
+     * in milliseconds.
+     * @return maximum encode time
+     */
+    long getMaxEncodeTime();
+}
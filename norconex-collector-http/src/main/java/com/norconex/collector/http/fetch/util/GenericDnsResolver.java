@@ -0,0 +1,348 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.collections4.map.LRUMap;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.commons.lang.time.DurationParser;
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * DNS resolver caching host name lookups in a bounded, thread-safe cache.
+ * When full, the least recently used host name is removed.
+ * Successful lookups are cached for a configurable time-to-live (TTL).
+ * Failed lookups are also cached (negative caching) for a
+ * usually shorter TTL, so unresolvable hosts do not hit the system
+ * resolver over and over. Set a TTL of zero to disable the corresponding
+ * caching.
+ * </p>
+ * <p>
+ * Host names can be resolved ahead of time, in background threads,
+ * with {@link #preResolve(String)}. When used with
+ * {@link com.norconex.collector.http.fetch.impl.GenericHttpFetcher},
+ * this happens as soon as a new URL root is queued,
+ * removing lookup latency from the crawling threads.
+ * A host is only looked up by one thread at a time: threads resolving
+ * a host already being looked up wait for and share that lookup.
+ * </p>
+ * <p>
+ * Java does not expose DNS record TTLs, so cache expiry is based on
+ * the configured values. The JVM's own address cache still applies to
+ * actual lookups.
+ * </p>
+ * <p>
+ * XML configuration entries expecting millisecond durations
+ * can be provided in human-readable format (English only), as per
+ * {@link DurationParser} (e.g., "5 minutes and 30 seconds" or "5m30s").
+ * </p>
+ *
+ * <h3>XML configuration usage:</h3>
+ * <pre>{@code
+ * <dnsResolver class="com.norconex.collector.http.fetch.util.GenericDnsResolver">
+ *     <maxCacheSize>(maximum number of host names cached)</maxCacheSize>
+ *     <ttl>(milliseconds to keep resolved addresses)</ttl>
+ *     <negativeTtl>(milliseconds to remember unresolvable hosts)</negativeTtl>
+ *     <preResolveThreads>(threads for background resolution)</preResolveThreads>
+ * </dnsResolver>
+ * }</pre>
+ *
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class GenericDnsResolver implements DnsResolver, IXMLConfigurable {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(GenericDnsResolver.class);
+
+    public static final int DEFAULT_MAX_CACHE_SIZE = 10000;
+    public static final long DEFAULT_TTL = 5 * 60 * 1000L;
+    public static final long DEFAULT_NEGATIVE_TTL = 30 * 1000L;
+    public static final int DEFAULT_PRE_RESOLVE_THREADS = 2;
+
+    // Pre-resolution is best effort: extra requests are dropped.
+    private static final int PRE_RESOLVE_QUEUE_SIZE = 10000;
+
+    private int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+    private long ttl = DEFAULT_TTL;
+    private long negativeTtl = DEFAULT_NEGATIVE_TTL;
+    private int preResolveThreads = DEFAULT_PRE_RESOLVE_THREADS;
+
+    private transient volatile Map<String, CachedLookup> cache =
+            newCache(DEFAULT_MAX_CACHE_SIZE);
+    // Lookups in progress. A null result means the lookup was abandoned
+    // and waiting threads have to do it themselves.
+    private final transient Map<String, CompletableFuture<InetAddress[]>>
+            inFlight = new ConcurrentHashMap<>();
+    private transient ExecutorService executor;
+    private transient DnsResolver delegate = SystemDefaultDnsResolver.INSTANCE;
+
+    public int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+    public void setMaxCacheSize(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+        this.cache = newCache(maxCacheSize);
+    }
+
+    /**
+     * Gets how long resolved addresses are cached, in milliseconds.
+     * @return time-to-live
+     */
+    public long getTtl() {
+        return ttl;
+    }
+    /**
+     * Sets how long resolved addresses are cached, in milliseconds.
+     * @param ttl time-to-live
+     */
+    public void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Gets how long unresolvable hosts are remembered, in milliseconds.
+     * @return negative time-to-live
+     */
+    public long getNegativeTtl() {
+        return negativeTtl;
+    }
+    /**
+     * Sets how long unresolvable hosts are remembered, in milliseconds.
+     * @param negativeTtl negative time-to-live
+     */
+    public void setNegativeTtl(long negativeTtl) {
+        this.negativeTtl = negativeTtl;
+    }
+
+    /**
+     * Gets the number of threads used to resolve hosts in the background.
+     * @return number of threads
+     */
+    public int getPreResolveThreads() {
+        return preResolveThreads;
+    }
+    /**
+     * Sets the number of threads used to resolve hosts in the background.
+     * Zero or less disables pre-resolution.
+     * @param preResolveThreads number of threads
+     */
+    public void setPreResolveThreads(int preResolveThreads) {
+        this.preResolveThreads = preResolveThreads;
+    }
+
+    /**
+     * Sets the resolver performing actual lookups. Default is
+     * {@link SystemDefaultDnsResolver}.
+     * @param delegate actual resolver
+     */
+    public void setDelegate(DnsResolver delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        CachedLookup lookup = cache.get(host);
+        if (lookup != null && !lookup.isExpired(System.currentTimeMillis())) {
+            if (lookup.addresses == null) {
+                throw new UnknownHostException(host);
+            }
+            return lookup.addresses.clone();
+        }
+        return lookup(host).clone();
+    }
+
+    /**
+     * Resolves the given host in a background thread, unless it is
+     * already cached or being resolved.
+     * @param host host name to resolve
+     */
+    public void preResolve(String host) {
+        if (StringUtils.isBlank(host) || preResolveThreads <= 0) {
+            return;
+        }
+        CachedLookup cached = cache.get(host);
+        if (cached != null && !cached.isExpired(System.currentTimeMillis())) {
+            return;
+        }
+        CompletableFuture<InetAddress[]> lookup = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(host, lookup) != null) {
+            return;
+        }
+        try {
+            getExecutor().execute(() -> {
+                try {
+                    lookup(host, lookup);
+                } catch (UnknownHostException e) {
+                    LOG.debug("Could not pre-resolve host: {}", host);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.trace("DNS pre-resolution queue full.");
+            abandon(host, lookup);
+        }
+    }
+
+    /**
+     * Stops background resolution threads and clears the cache.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        inFlight.forEach(this::abandon);
+        cache.clear();
+    }
+
+    // Shares the lookup of a host already being looked up, if any.
+    private InetAddress[] lookup(String host) throws UnknownHostException {
+        CompletableFuture<InetAddress[]> lookup = new CompletableFuture<>();
+        CompletableFuture<InetAddress[]> existing =
+                inFlight.putIfAbsent(host, lookup);
+        if (existing == null) {
+            return lookup(host, lookup);
+        }
+        InetAddress[] addresses;
+        try {
+            addresses = existing.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UnknownHostException) {
+                throw new UnknownHostException(host);
+            }
+            throw e;
+        }
+        return addresses != null ? addresses : lookup(host);
+    }
+
+    private InetAddress[] lookup(String host,
+            CompletableFuture<InetAddress[]> lookup)
+                    throws UnknownHostException {
+        long now = System.currentTimeMillis();
+        try {
+            InetAddress[] addresses = delegate.resolve(host);
+            if (ttl > 0) {
+                cache.put(host, new CachedLookup(addresses, now + ttl));
+            }
+            lookup.complete(addresses);
+            return addresses;
+        } catch (UnknownHostException e) {
+            if (negativeTtl > 0) {
+                cache.put(host, new CachedLookup(null, now + negativeTtl));
+            }
+            lookup.completeExceptionally(e);
+            throw e;
+        } finally {
+            // lets waiting threads retry if not completed above
+            abandon(host, lookup);
+        }
+    }
+
+    private void abandon(
+            String host, CompletableFuture<InetAddress[]> lookup) {
+        inFlight.remove(host, lookup);
+        lookup.complete(null);
+    }
+
+    // Expired entries are not looked up again and eventually become
+    // the least recently used ones.
+    private static Map<String, CachedLookup> newCache(int maxSize) {
+        return Collections.synchronizedMap(new LRUMap<>(Math.max(maxSize, 1)));
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            AtomicInteger count = new AtomicInteger();
+            executor = new ThreadPoolExecutor(
+                    preResolveThreads, preResolveThreads,
+                    0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(PRE_RESOLVE_QUEUE_SIZE),
+                    r -> {
+                        Thread t = new Thread(r, "dns-pre-resolver-"
+                                + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+        return executor;
+    }
+
+    private static class CachedLookup {
+        private final InetAddress[] addresses;
+        private final long expiry;
+        public CachedLookup(InetAddress[] addresses, long expiry) {
+            super();
+            this.addresses = addresses;
+            this.expiry = expiry;
+        }
+        public boolean isExpired(long now) {
+            return now >= expiry;
+        }
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setMaxCacheSize(xml.getInteger("maxCacheSize", maxCacheSize));
+        setTtl(xml.getDurationMillis("ttl", ttl));
+        setNegativeTtl(xml.getDurationMillis("negativeTtl", negativeTtl));
+        setPreResolveThreads(
+                xml.getInteger("preResolveThreads", preResolveThreads));
+    }
+    @Override
+    public void saveToXML(XML xml) {
+        xml.addElement("maxCacheSize", maxCacheSize);
+        xml.addElement("ttl", ttl);
+        xml.addElement("negativeTtl", negativeTtl);
+        xml.addElement("preResolveThreads", preResolveThreads);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
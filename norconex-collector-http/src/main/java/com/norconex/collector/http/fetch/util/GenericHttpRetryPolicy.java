@@ -0,0 +1,439 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.util;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.HttpHostConnectException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.http.doc.HttpMetadata;
+import com.norconex.collector.http.fetch.IHttpFetchResponse;
+import com.norconex.collector.http.reference.HttpCrawlState;
+import com.norconex.commons.lang.collection.CollectionUtil;
+import com.norconex.commons.lang.time.DurationParser;
+import com.norconex.commons.lang.url.HttpURL;
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * Retry policy waiting exponentially longer between attempts, with
+ * random "jitter" so many failing requests do not all retry at the same
+ * time. Only failures likely to be temporary are retried:
+ * </p>
+ * <ul>
+ *   <li>Connection errors: connection refused or timed out, read
+ *       timeouts, and servers closing connections without responding.
+ *       Unknown hosts and SSL errors are considered permanent.</li>
+ *   <li>Responses with a retryable status code (by default
+ *       408, 429, 500, 502, 503 and 504). Others, like 404, are
+ *       never retried.</li>
+ * </ul>
+ * <p>
+ * A failed fetch is retried up to a maximum number of times (3 by default),
+ * regardless of the maximum number of retries configured on the crawler.
+ * </p>
+ * <p>
+ * When a response has a <code>Retry-After</code> header, its value is used
+ * instead of the computed delay. A failure is not retried when that
+ * value exceeds the maximum delay.
+ * </p>
+ * <p>
+ * A per-host retry budget can limit how many retries are made for a
+ * given host within a time window, so a failing site does not keep
+ * crawling threads busy retrying.
+ * </p>
+ * <p>
+ * Retries can be deferred: instead of waiting in the crawling thread,
+ * failed URLs are queued back to be fetched once their delay expired.
+ * </p>
+ * <p>
+ * XML configuration entries expecting millisecond durations
+ * can be provided in human-readable format (English only), as per
+ * {@link DurationParser} (e.g., "5 minutes and 30 seconds" or "5m30s").
+ * </p>
+ *
+ * <h3>XML configuration usage:</h3>
+ * <pre>{@code
+ * <retryPolicy class="com.norconex.collector.http.fetch.util.GenericHttpRetryPolicy">
+ *     <maxRetries>(maximum number of retries, default is 3)</maxRetries>
+ *     <baseDelay>(delay before first retry, default is 1 second)</baseDelay>
+ *     <maxDelay>(maximum delay between retries, default is 1 minute)</maxDelay>
+ *     <multiplier>(delay increase factor, default is 2)</multiplier>
+ *     <jitter>(0 to 1, random fraction of the delay removed, default is 0.5)</jitter>
+ *     <retryableStatusCodes>(default is 408,429,500,502,503,504)</retryableStatusCodes>
+ *     <retryOnConnectionErrors>[true|false]</retryOnConnectionErrors>
+ *     <retryAfterIgnored>[false|true]</retryAfterIgnored>
+ *     <hostRetryBudget>(max retries per host per window, default is unlimited)</hostRetryBudget>
+ *     <hostRetryBudgetWindow>(budget time window, default is 1 minute)</hostRetryBudgetWindow>
+ *     <deferred>[false|true]</deferred>
+ * </retryPolicy>
+ * }</pre>
+ *
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class GenericHttpRetryPolicy
+        implements IHttpRetryPolicy, IXMLConfigurable {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(GenericHttpRetryPolicy.class);
+
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final long DEFAULT_BASE_DELAY = 1000L;
+    public static final long DEFAULT_MAX_DELAY = 60 * 1000L;
+    public static final double DEFAULT_MULTIPLIER = 2.0;
+    public static final double DEFAULT_JITTER = 0.5;
+    public static final long DEFAULT_HOST_RETRY_BUDGET_WINDOW = 60 * 1000L;
+    public static final List<Integer> DEFAULT_RETRYABLE_STATUS_CODES =
+            Collections.unmodifiableList(
+                    Arrays.asList(408, 429, 500, 502, 503, 504));
+
+    // Hosts tracked for budgets are bounded to protect memory.
+    private static final int MAX_BUDGET_HOSTS = 10000;
+
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long baseDelay = DEFAULT_BASE_DELAY;
+    private long maxDelay = DEFAULT_MAX_DELAY;
+    private double multiplier = DEFAULT_MULTIPLIER;
+    private double jitter = DEFAULT_JITTER;
+    private final List<Integer> retryableStatusCodes =
+            new ArrayList<>(DEFAULT_RETRYABLE_STATUS_CODES);
+    private boolean retryOnConnectionErrors = true;
+    private boolean retryAfterIgnored;
+    private int hostRetryBudget;
+    private long hostRetryBudgetWindow = DEFAULT_HOST_RETRY_BUDGET_WINDOW;
+    private boolean deferred;
+
+    private final transient Map<String, HostBudget> budgets =
+            new ConcurrentHashMap<>();
+
+    @Override
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+    /**
+     * Sets the maximum number of retries for a failed fetch.
+     * @param maxRetries maximum number of retries
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+    /**
+     * Sets the delay before the first retry, in milliseconds.
+     * @param baseDelay base delay
+     */
+    public void setBaseDelay(long baseDelay) {
+        this.baseDelay = baseDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+    /**
+     * Sets the maximum delay between retries, in milliseconds.
+     * Responses asking to retry after a longer delay are not retried.
+     * @param maxDelay maximum delay
+     */
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+    /**
+     * Sets by how much the delay is multiplied after each retry.
+     * @param multiplier delay multiplier
+     */
+    public void setMultiplier(double multiplier) {
+        this.multiplier = multiplier;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+    /**
+     * Sets the maximum fraction of a delay (0 to 1) randomly removed from it.
+     * Zero always waits for the exact computed delay.
+     * @param jitter jitter fraction
+     */
+    public void setJitter(double jitter) {
+        this.jitter = jitter;
+    }
+
+    public List<Integer> getRetryableStatusCodes() {
+        return Collections.unmodifiableList(retryableStatusCodes);
+    }
+    public void setRetryableStatusCodes(List<Integer> retryableStatusCodes) {
+        CollectionUtil.setAll(this.retryableStatusCodes, retryableStatusCodes);
+    }
+    public void setRetryableStatusCodes(Integer... retryableStatusCodes) {
+        CollectionUtil.setAll(this.retryableStatusCodes, retryableStatusCodes);
+    }
+
+    public boolean isRetryOnConnectionErrors() {
+        return retryOnConnectionErrors;
+    }
+    public void setRetryOnConnectionErrors(boolean retryOnConnectionErrors) {
+        this.retryOnConnectionErrors = retryOnConnectionErrors;
+    }
+
+    public boolean isRetryAfterIgnored() {
+        return retryAfterIgnored;
+    }
+    /**
+     * Sets whether to ignore the <code>Retry-After</code> response header
+     * and always use the computed delay.
+     * @param retryAfterIgnored <code>true</code> to ignore it
+     */
+    public void setRetryAfterIgnored(boolean retryAfterIgnored) {
+        this.retryAfterIgnored = retryAfterIgnored;
+    }
+
+    public int getHostRetryBudget() {
+        return hostRetryBudget;
+    }
+    /**
+     * Sets the maximum number of retries for a host within the budget
+     * time window. Zero or less is unlimited.
+     * @param hostRetryBudget maximum retries per host
+     */
+    public void setHostRetryBudget(int hostRetryBudget) {
+        this.hostRetryBudget = hostRetryBudget;
+    }
+
+    public long getHostRetryBudgetWindow() {
+        return hostRetryBudgetWindow;
+    }
+    /**
+     * Sets the time window for host retry budgets, in milliseconds.
+     * @param hostRetryBudgetWindow budget window
+     */
+    public void setHostRetryBudgetWindow(long hostRetryBudgetWindow) {
+        this.hostRetryBudgetWindow = hostRetryBudgetWindow;
+    }
+
+    @Override
+    public boolean isRetryDeferred() {
+        return deferred;
+    }
+    /**
+     * Sets whether to queue failed URLs back instead of waiting in
+     * the crawling thread.
+     * @param deferred <code>true</code> to defer retries
+     */
+    public void setDeferred(boolean deferred) {
+        this.deferred = deferred;
+    }
+
+    @Override
+    public long getRetryDelay(String url, HttpMetadata metadata,
+            IHttpFetchResponse response, Exception exception, int retryCount) {
+        if (!isRetryable(response, exception)) {
+            return -1;
+        }
+
+        long delay = computeDelay(retryCount);
+        if (!retryAfterIgnored && response != null) {
+            long retryAfter = getRetryAfter(response);
+            if (retryAfter > maxDelay) {
+                LOG.debug("Retry-After of {}ms exceeds maximum delay, "
+                        + "not retrying: {}", retryAfter, url);
+                return -1;
+            }
+            if (retryAfter >= 0) {
+                delay = retryAfter;
+            }
+        }
+
+        if (!consumeBudget(url)) {
+            LOG.debug("Host retry budget exhausted, not retrying: {}", url);
+            return -1;
+        }
+        return delay;
+    }
+
+    /**
+     * Gets whether a failure is worth retrying.
+     * @param response fetch response, or <code>null</code>
+     * @param exception fetch exception, or <code>null</code>
+     * @return <code>true</code> if retryable
+     */
+    protected boolean isRetryable(
+            IHttpFetchResponse response, Exception exception) {
+        if (exception != null) {
+            return retryOnConnectionErrors && isConnectionError(exception);
+        }
+        if (response == null || response.getCrawlState() == null
+                || response.getCrawlState().isOneOf(
+                        HttpCrawlState.UNSUPPORTED,
+                        HttpCrawlState.NOT_FOUND,
+                        HttpCrawlState.REJECTED,
+                        HttpCrawlState.TOO_LARGE)) {
+            return false;
+        }
+        return retryableStatusCodes.contains(response.getStatusCode());
+    }
+
+    private static boolean isConnectionError(Exception exception) {
+        for (Throwable t : ExceptionUtils.getThrowableList(exception)) {
+            if (t instanceof ConnectTimeoutException
+                    || t instanceof HttpHostConnectException
+                    || t instanceof ConnectException
+                    || t instanceof SocketTimeoutException
+                    || t instanceof NoHttpResponseException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long computeDelay(int retryCount) {
+        double delay = baseDelay * Math.pow(
+                Math.max(1.0, multiplier), Math.max(0, retryCount - 1));
+        delay = Math.min(delay, maxDelay);
+        if (jitter > 0) {
+            delay -= delay * Math.min(1.0, jitter)
+                    * ThreadLocalRandom.current().nextDouble();
+        }
+        return Math.max(0, (long) delay);
+    }
+
+    // -1 if none or invalid. Only the failed response is considered, as
+    // metadata can hold headers from earlier attempts.
+    private static long getRetryAfter(IHttpFetchResponse response) {
+        String value = StringUtils.trimToNull(response.getRetryAfter());
+        if (value == null) {
+            return -1;
+        }
+        if (NumberUtils.isDigits(value)) {
+            return NumberUtils.toLong(value, -1) * 1000;
+        }
+        Date date = DateUtils.parseDate(value);
+        if (date == null) {
+            return -1;
+        }
+        return Math.max(0, date.getTime() - System.currentTimeMillis());
+    }
+
+    private boolean consumeBudget(String url) {
+        if (hostRetryBudget <= 0) {
+            return true;
+        }
+        String host = StringUtils.defaultString(new HttpURL(url).getHost());
+        long now = System.currentTimeMillis();
+        if (budgets.size() >= MAX_BUDGET_HOSTS) {
+            budgets.values().removeIf(
+                    b -> now - b.windowStart >= hostRetryBudgetWindow);
+        }
+        HostBudget budget = budgets.computeIfAbsent(
+                host, h -> new HostBudget(now));
+        synchronized (budget) {
+            if (now - budget.windowStart >= hostRetryBudgetWindow) {
+                budget.windowStart = now;
+                budget.retries = 0;
+            }
+            if (budget.retries >= hostRetryBudget) {
+                return false;
+            }
+            budget.retries++;
+            return true;
+        }
+    }
+
+    private static class HostBudget {
+        private long windowStart;
+        private int retries;
+        public HostBudget(long windowStart) {
+            super();
+            this.windowStart = windowStart;
+        }
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setMaxRetries(xml.getInteger("maxRetries", maxRetries));
+        setBaseDelay(xml.getDurationMillis("baseDelay", baseDelay));
+        setMaxDelay(xml.getDurationMillis("maxDelay", maxDelay));
+        setMultiplier(NumberUtils.toDouble(
+                xml.getString("multiplier"), multiplier));
+        setJitter(NumberUtils.toDouble(xml.getString("jitter"), jitter));
+        setRetryableStatusCodes(xml.getDelimitedList("retryableStatusCodes",
+                Integer.class, retryableStatusCodes));
+        setRetryOnConnectionErrors(xml.getBoolean(
+                "retryOnConnectionErrors", retryOnConnectionErrors));
+        setRetryAfterIgnored(
+                xml.getBoolean("retryAfterIgnored", retryAfterIgnored));
+        setHostRetryBudget(xml.getInteger("hostRetryBudget", hostRetryBudget));
+        setHostRetryBudgetWindow(xml.getDurationMillis(
+                "hostRetryBudgetWindow", hostRetryBudgetWindow));
+        setDeferred(xml.getBoolean("deferred", deferred));
+    }
+    @Override
+    public void saveToXML(XML xml) {
+        xml.addElement("maxRetries", maxRetries);
+        xml.addElement("baseDelay", baseDelay);
+        xml.addElement("maxDelay", maxDelay);
+        xml.addElement("multiplier", multiplier);
+        xml.addElement("jitter", jitter);
+        xml.addDelimitedElementList(
+                "retryableStatusCodes", retryableStatusCodes);
+        xml.addElement("retryOnConnectionErrors", retryOnConnectionErrors);
+        xml.addElement("retryAfterIgnored", retryAfterIgnored);
+        xml.addElement("hostRetryBudget", hostRetryBudget);
+        xml.addElement("hostRetryBudgetWindow", hostRetryBudgetWindow);
+        xml.addElement("deferred", deferred);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
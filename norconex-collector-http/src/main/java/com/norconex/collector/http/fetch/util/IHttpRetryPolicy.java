@@ -0,0 +1,67 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.util;
+
+import com.norconex.collector.http.doc.HttpMetadata;
+import com.norconex.collector.http.fetch.IHttpFetchResponse;
+
+/**
+ * Decides whether and when a failed HTTP fetch is attempted again.
+ * A fetch fails when it returns a response that is not in a good crawl
+ * state, or when it throws an exception.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ * @see GenericHttpRetryPolicy
+ */
+@FunctionalInterface
+public interface IHttpRetryPolicy {
+
+    /**
+     * Gets how long to wait before attempting a failed fetch again.
+     * @param url URL that failed being fetched
+     * @param metadata metadata obtained so far (e.g., response headers)
+     * @param response the fetch response, or <code>null</code> if the
+     *     fetch threw an exception
+     * @param exception the exception thrown, or <code>null</code> if
+     *     a response was returned
+     * @param retryCount the retry attempt about to be made (starting at 1)
+     * @return delay in milliseconds, or a negative value to not retry
+     */
+    long getRetryDelay(String url, HttpMetadata metadata,
+            IHttpFetchResponse response, Exception exception, int retryCount);
+
+    /**
+     * Whether retries should be deferred instead of waiting for the
+     * retry delay in the crawling thread. When <code>true</code>, the
+     * failed URL is returned with a time before which it should not be
+     * fetched again, for the crawler to queue it back.
+     * Default is <code>false</code>.
+     * @return <code>true</code> to defer retries
+     */
+    default boolean isRetryDeferred() {
+        return false;
+    }
+
+    /**
+     * Gets the maximum number of retries allowed by this policy.
+     * When zero or more, it replaces the maximum number of retries
+     * configured on the fetch client. Default is <code>-1</code>
+     * (the fetch client maximum applies).
+     * @return maximum number of retries, or <code>-1</code>
+     */
+    default int getMaxRetries() {
+        return -1;
+    }
+}
@@ -0,0 +1,220 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * <p>
+ * Emits JDK Flight Recorder (JFR) events for HTTP fetches, politeness
+ * delays and pipeline stages, under the "Norconex / HTTP Collector"
+ * category. Events can then be correlated with garbage collection,
+ * lock contention, I/O and other JVM events in tools such as
+ * JDK Mission Control.
+ * </p>
+ * <p>
+ * Events are only created when a recording enabling them is running
+ * (e.g., started with {@link CrawlFlightRecorder}, the
+ * <code>-XX:StartFlightRecording</code> JVM option or
+ * <code>jcmd</code>). Otherwise, and on Java runtimes without JFR support,
+ * a shared no-op instance is returned and the overhead is negligible.
+ * </p>
+ * <p>
+ * JFR support is compiled separately, for Java 11 or higher, and loaded
+ * reflectively so this library still runs on Java 8.
+ * </p>
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public final class CrawlEvents {
+
+    public static final String PIPELINE_QUEUE = "queue";
+    public static final String PIPELINE_IMPORTER = "importer";
+
+    private static final String JFR_SUPPORT_CLASS =
+            "com.norconex.collector.http.jfr.JfrSupport";
+
+    private static final Recorder RECORDER = loadRecorder();
+    private static final boolean AVAILABLE = RECORDER != null;
+
+    private CrawlEvents() {
+        super();
+    }
+
+    /**
+     * Gets whether JDK Flight Recorder is supported by the running JVM.
+     * @return <code>true</code> if supported
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Gets whether pipeline stage events are currently being recorded.
+     * Cheap enough to be checked before every stage execution.
+     * @return <code>true</code> if stage events are recorded
+     */
+    public static boolean isStageEnabled() {
+        return AVAILABLE && RECORDER.isStageEnabled();
+    }
+
+    // JFR classes are only touched once known to exist. The support
+    // class is absent when built with Java 8 and cannot be loaded
+    // by a Java 8 runtime (LinkageError).
+    private static Recorder loadRecorder() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            return (Recorder) Class.forName(JFR_SUPPORT_CLASS)
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException
+                | RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // Only called when available.
+    /*default*/ static AutoCloseable startRecording(String name,
+            String settings, long maxAge, long maxSize, Path destination)
+                    throws IOException {
+        return RECORDER.startRecording(
+                name, settings, maxAge, maxSize, destination);
+    }
+
+    /**
+     * Begins recording an HTTP fetch.
+     * @param url URL being fetched
+     * @param method HTTP method
+     * @return fetch event (never <code>null</code>)
+     */
+    public static FetchSpan beginFetch(String url, String method) {
+        return AVAILABLE ? RECORDER.beginFetch(url, method) : NoopSpan.NOOP;
+    }
+    /**
+     * Begins recording a politeness delay.
+     * @param url URL being delayed
+     * @param scope delay scope
+     * @param expectedDelayNanos delay expected between hits, in nanoseconds
+     * @return delay event (never <code>null</code>)
+     */
+    public static Span beginDelay(
+            String url, String scope, long expectedDelayNanos) {
+        return AVAILABLE
+                ? RECORDER.beginDelay(url, scope, expectedDelayNanos)
+                : NoopSpan.NOOP;
+    }
+    /**
+     * Begins recording the execution of a pipeline stage.
+     * @param pipeline pipeline name (e.g., {@link #PIPELINE_IMPORTER})
+     * @param stage stage name
+     * @param url URL being processed
+     * @return stage event (never <code>null</code>)
+     */
+    public static StageSpan beginStage(
+            String pipeline, String stage, String url) {
+        return AVAILABLE
+                ? RECORDER.beginStage(pipeline, stage, url) : NoopSpan.NOOP;
+    }
+
+    /**
+     * An event being recorded, committed when ended.
+     */
+    public interface Span {
+        void end();
+    }
+
+    /**
+     * A pipeline stage event being recorded.
+     */
+    public interface StageSpan {
+        /**
+         * Ends and commits this event.
+         * @param passed whether the stage let the document go through
+         */
+        void end(boolean passed);
+    }
+
+    /**
+     * An HTTP fetch event being recorded.
+     */
+    public interface FetchSpan {
+        /**
+         * Sets the time spent opening a connection (including TLS
+         * handshake), zero if an existing connection was reused.
+         * @param connectNanos connection time in nanoseconds
+         */
+        void connected(long connectNanos);
+        /**
+         * Marks response headers as received.
+         * @param statusCode HTTP status code
+         */
+        void responseReceived(int statusCode);
+        /**
+         * Ends and commits this event.
+         * @param bytes bytes received for the response body
+         */
+        void end(long bytes);
+    }
+
+    /**
+     * Bridge to the <code>jdk.jfr</code> API, implemented by a class
+     * compiled for Java 11 or higher.
+     */
+    /*default*/ interface Recorder {
+        boolean isStageEnabled();
+        FetchSpan beginFetch(String url, String method);
+        Span beginDelay(String url, String scope, long expectedDelayNanos);
+        StageSpan beginStage(String pipeline, String stage, String url);
+        /**
+         * Creates and starts a recording.
+         * @param name recording name
+         * @param settings predefined configuration name or path to a
+         *        configuration file
+         * @param maxAge maximum age of data kept, in milliseconds
+         * @param maxSize maximum bytes of data kept
+         * @param destination where the recording is written when stopped
+         *        or when the JVM exits (may be <code>null</code>)
+         * @return the recording, as an {@link AutoCloseable} stopping it
+         * @throws IOException could not start recording
+         */
+        AutoCloseable startRecording(String name, String settings,
+                long maxAge, long maxSize, Path destination)
+                        throws IOException;
+    }
+
+    /*default*/ enum NoopSpan implements Span, StageSpan, FetchSpan {
+        NOOP;
+        @Override
+        public void end() {
+            //NOOP
+        }
+        @Override
+        public void end(boolean passed) {
+            //NOOP
+        }
+        @Override
+        public void connected(long connectNanos) {
+            //NOOP
+        }
+        @Override
+        public void responseReceived(int statusCode) {
+            //NOOP
+        }
+        @Override
+        public void end(long bytes) {
+            //NOOP
+        }
+    }
+}
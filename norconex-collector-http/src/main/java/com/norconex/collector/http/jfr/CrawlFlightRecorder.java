@@ -0,0 +1,245 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.jfr;
+
+import java.nio.file.Path;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.CollectorException;
+import com.norconex.collector.core.crawler.Crawler;
+import com.norconex.collector.core.crawler.CrawlerEvent;
+import com.norconex.commons.lang.event.IEventListener;
+import com.norconex.commons.lang.time.DurationParser;
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * Starts a continuous JDK Flight Recorder (JFR) recording when the crawler
+ * starts, and stops it when the crawler ends, writing it to the configured
+ * destination file, if any. The recording holds the crawler events emitted by
+ * {@link CrawlEvents} along with the JVM events enabled by the chosen
+ * settings, so slow fetches or stages can be correlated with garbage
+ * collection pauses, lock contention, etc.
+ * Disabled by default.
+ * </p>
+ * <p>
+ * Settings can either be the name of a configuration shipped with the JVM
+ * ("default", which has very low overhead, or "profile") or the path to
+ * a custom <code>.jfc</code> file. Data older than the maximum age or
+ * exceeding the maximum size (in bytes) is discarded as the crawl goes.
+ * When a destination is set, the recording is also written if the JVM
+ * exits before the crawler ends. The recording can be dumped at any time
+ * with <code>jcmd &lt;pid&gt; JFR.dump</code>.
+ * </p>
+ * <p>
+ * Requires a Java runtime supporting JFR (OpenJDK 8u262+ or 11+).
+ * A warning is logged and nothing is recorded otherwise.
+ * </p>
+ * <p>
+ * XML configuration entries expecting millisecond durations
+ * can be provided in human-readable format (English only), as per
+ * {@link DurationParser} (e.g., "5 minutes and 30 seconds" or "5m30s").
+ * </p>
+ *
+ * <h3>XML configuration usage:</h3>
+ * <pre>{@code
+ * <flightRecorder enabled="[false|true]">
+ *     <settings>(configuration name or path to .jfc file)</settings>
+ *     <maxAge>(maximum age of recorded data)</maxAge>
+ *     <maxSize>(maximum size of recorded data)</maxSize>
+ *     <destination>(file the recording is written to)</destination>
+ * </flightRecorder>
+ * }</pre>
+ *
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class CrawlFlightRecorder implements IXMLConfigurable,
+        IEventListener<CrawlerEvent<Crawler>> {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(CrawlFlightRecorder.class);
+
+    public static final String DEFAULT_SETTINGS = "default";
+    public static final long DEFAULT_MAX_AGE = 60 * 60 * 1000L;
+    public static final long DEFAULT_MAX_SIZE = 250L * 1024 * 1024;
+
+    private boolean enabled;
+    private String settings = DEFAULT_SETTINGS;
+    private long maxAge = DEFAULT_MAX_AGE;
+    private long maxSize = DEFAULT_MAX_SIZE;
+    private Path destination;
+
+    private transient AutoCloseable recording;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the JFR configuration name or path to a configuration file.
+     * @return settings
+     */
+    public String getSettings() {
+        return settings;
+    }
+    /**
+     * Sets the JFR configuration name (e.g., "default" or "profile")
+     * or path to a configuration file.
+     * @param settings settings
+     */
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Gets the maximum age in milliseconds of recorded data kept.
+     * @return maximum age
+     */
+    public long getMaxAge() {
+        return maxAge;
+    }
+    /**
+     * Sets the maximum age in milliseconds of recorded data kept.
+     * Zero or less keeps data regardless of age.
+     * @param maxAge maximum age
+     */
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Gets the maximum size in bytes of recorded data kept.
+     * @return maximum size
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+    /**
+     * Sets the maximum size in bytes of recorded data kept.
+     * Zero or less keeps data regardless of size.
+     * @param maxSize maximum size
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the file the recording is written to.
+     * @return destination file or <code>null</code>
+     */
+    public Path getDestination() {
+        return destination;
+    }
+    /**
+     * Sets the file the recording is written to. When <code>null</code>,
+     * the recording is discarded when the crawler ends.
+     * @param destination destination file
+     */
+    public void setDestination(Path destination) {
+        this.destination = destination;
+    }
+
+    @Override
+    public void accept(CrawlerEvent<Crawler> event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.is(CrawlerEvent.CRAWLER_RUN_BEGIN)) {
+            start(event.getSource());
+        } else if (event.is(CrawlerEvent.CRAWLER_RUN_END)
+                || event.is(CrawlerEvent.CRAWLER_STOP_END)) {
+            stop();
+        }
+    }
+
+    private synchronized void start(Crawler crawler) {
+        if (recording != null) {
+            return;
+        }
+        if (!CrawlEvents.isAvailable()) {
+            LOG.warn("Flight recorder is enabled but JDK Flight Recorder "
+                    + "is not supported by this Java runtime. "
+                    + "Nothing will be recorded.");
+            return;
+        }
+        String name = "norconex-http-collector-" + crawler.getId();
+        try {
+            recording = CrawlEvents.startRecording(
+                    name, settings, maxAge, maxSize, destination);
+        } catch (Exception e) {
+            throw new CollectorException(
+                    "Could not start flight recording.", e);
+        }
+        if (destination != null) {
+            LOG.info("Flight recording \"{}\" started. Will be written "
+                    + "to: {}", name, destination.toAbsolutePath());
+        } else {
+            LOG.info("Flight recording \"{}\" started.", name);
+        }
+    }
+    private synchronized void stop() {
+        if (recording == null) {
+            return;
+        }
+        try {
+            recording.close();
+        } catch (Exception e) {
+            LOG.error("Could not stop flight recording.", e);
+        }
+        recording = null;
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setEnabled(xml.getBoolean("@enabled", enabled));
+        setSettings(xml.getString("settings", settings));
+        setMaxAge(xml.getDurationMillis("maxAge", maxAge));
+        setMaxSize(xml.getLong("maxSize", maxSize));
+        setDestination(xml.getPath("destination", destination));
+    }
+    @Override
+    public void saveToXML(XML xml) {
+        xml.setAttribute("enabled", enabled);
+        xml.addElement("settings", settings);
+        xml.addElement("maxAge", maxAge);
+        xml.addElement("maxSize", maxSize);
+        xml.addElement("destination", destination);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
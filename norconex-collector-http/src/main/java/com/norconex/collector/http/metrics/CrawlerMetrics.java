@@ -0,0 +1,431 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.metrics;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import com.norconex.collector.core.crawler.Crawler;
+import com.norconex.collector.core.crawler.CrawlerEvent;
+import com.norconex.collector.http.crawler.HttpCrawler;
+import com.norconex.collector.http.crawler.HttpCrawlerConfig;
+import com.norconex.collector.http.fetch.HttpFetchClient;
+import com.norconex.collector.http.fetch.IHttpFetcher;
+import com.norconex.collector.http.fetch.impl.GenericHttpFetcher;
+import com.norconex.collector.http.metrics.MetricsRegistry.Counter;
+import com.norconex.collector.http.metrics.MetricsRegistry.Type;
+import com.norconex.collector.http.pipeline.LatencyHistogram;
+import com.norconex.collector.http.robot.impl.StandardRobotsTxtProvider;
+import com.norconex.commons.lang.event.IEventListener;
+import com.norconex.commons.lang.time.DurationParser;
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * Crawler metrics exposed in
+ * <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">
+ * Prometheus text format</a>, from a local HTTP endpoint and/or
+ * a snapshot file written at regular intervals.
+ * Disabled by default.
+ * </p>
+ * <p>
+ * Metrics are labeled with the crawler id and include:
+ * </p>
+ * <ul>
+ *   <li><b>http_crawler_fetches_total</b>: HTTP requests by status code,
+ *       including robots.txt and sitemap ones ("error" when the request
+ *       failed with an exception).</li>
+ *   <li><b>http_crawler_fetch_retries_total</b>: fetch attempts retried,
+ *       immediately or deferred.</li>
+ *   <li><b>http_crawler_downloaded_bytes_total</b>: bytes received for
+ *       document bodies (compressed size when compressed), by
+ *       {@link GenericHttpFetcher} instances.</li>
+ *   <li><b>http_crawler_robots_txt_cache_hits_total</b> and
+ *       <b>http_crawler_robots_txt_cache_misses_total</b>: robots.txt
+ *       lookups by {@link StandardRobotsTxtProvider}.</li>
+ *   <li><b>http_crawler_sitemap_urls_total</b>: URLs emitted by
+ *       sitemaps.</li>
+ *   <li><b>http_crawler_queue_submissions_total</b> and
+ *       <b>http_crawler_dequeued_total</b>: references submitted to
+ *       the queue after passing queue pipeline filters, and references
+ *       taken from the queue for processing. Submissions include
+ *       references the queue ignores for being already queued or
+ *       processed, but not deferred references put back in the queue
+ *       (which are counted again when dequeued).</li>
+ *   <li><b>http_crawler_active_threads</b> and
+ *       <b>http_crawler_threads</b>: threads processing documents and
+ *       threads configured.</li>
+ *   <li><b>http_crawler_delay_seconds</b>: time crawling threads slept
+ *       to honor politeness delays.</li>
+ *   <li><b>http_crawler_events_total</b>: crawler events fired,
+ *       by event name.</li>
+ *   <li><b>http_crawler_stage_seconds</b>: time spent in pipeline stages,
+ *       when stage timings are enabled on the crawler.</li>
+ * </ul>
+ * <p>
+ * The endpoint only listens on the loopback interface by default.
+ * Crawlers sharing the same endpoint (host and port) or snapshot
+ * file have their metrics served together.
+ * A port of zero or less disables the endpoint.
+ * </p>
+ * <p>
+ * XML configuration entries expecting millisecond durations
+ * can be provided in human-readable format (English only), as per
+ * {@link DurationParser} (e.g., "5 minutes and 30 seconds" or "5m30s").
+ * </p>
+ *
+ * <h3>XML configuration usage:</h3>
+ * <pre>{@code
+ * <metrics enabled="[false|true]">
+ *     <host>(host name or IP address to listen on)</host>
+ *     <port>(port to listen on)</port>
+ *     <path>(URL path metrics are served from)</path>
+ *     <snapshotFile>(file periodically receiving metrics)</snapshotFile>
+ *     <snapshotInterval>(milliseconds between snapshots)</snapshotInterval>
+ * </metrics>
+ * }</pre>
+ *
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class CrawlerMetrics implements IXMLConfigurable,
+        IEventListener<CrawlerEvent<Crawler>> {
+
+    public static final String DEFAULT_HOST = "127.0.0.1";
+    public static final int DEFAULT_PORT = 9098;
+    public static final String DEFAULT_PATH = "/metrics";
+    public static final long DEFAULT_SNAPSHOT_INTERVAL = 60 * 1000L;
+
+    private boolean enabled;
+    private String host = DEFAULT_HOST;
+    private int port = DEFAULT_PORT;
+    private String path = DEFAULT_PATH;
+    private Path snapshotFile;
+    private long snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+
+    private final transient LongAdder queued = new LongAdder();
+    private final transient LongAdder dequeued = new LongAdder();
+    private final transient LongAdder sitemapURLs = new LongAdder();
+    private final transient AtomicInteger activeThreads = new AtomicInteger();
+    private final transient LatencyHistogram delays = new LatencyHistogram();
+    private transient volatile Counter events;
+    private transient MetricsRegistry registry;
+    private transient int endpointPort = -1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the host name or IP address the metrics endpoint listens on.
+     * @return host
+     */
+    public String getHost() {
+        return host;
+    }
+    /**
+     * Sets the host name or IP address the metrics endpoint listens on.
+     * Use "0.0.0.0" to listen on all interfaces.
+     * @param host host
+     */
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    /**
+     * Gets the port the metrics endpoint listens on.
+     * @return port
+     */
+    public int getPort() {
+        return port;
+    }
+    /**
+     * Sets the port the metrics endpoint listens on. Zero or less
+     * disables the endpoint.
+     * @param port port
+     */
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getPath() {
+        return path;
+    }
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Gets the file metrics are periodically written to.
+     * @return snapshot file or <code>null</code>
+     */
+    public Path getSnapshotFile() {
+        return snapshotFile;
+    }
+    /**
+     * Sets the file metrics are periodically written to.
+     * @param snapshotFile snapshot file
+     */
+    public void setSnapshotFile(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Gets the interval in milliseconds between snapshots.
+     * @return snapshot interval
+     */
+    public long getSnapshotInterval() {
+        return snapshotInterval;
+    }
+    /**
+     * Sets the interval in milliseconds between snapshots. Zero or less
+     * only writes a snapshot when the crawler ends.
+     * @param snapshotInterval snapshot interval
+     */
+    public void setSnapshotInterval(long snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Gets the metrics registry of the running crawler.
+     * @return metrics registry or <code>null</code> if not running
+     */
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Counts a reference submitted to the crawl queue. Deferred references
+     * put back in the queue are not counted again.
+     */
+    public void referenceQueued() {
+        if (enabled) {
+            queued.increment();
+        }
+    }
+    /**
+     * Counts a URL emitted by a sitemap.
+     */
+    public void sitemapURLEmitted() {
+        if (enabled) {
+            sitemapURLs.increment();
+        }
+    }
+    /**
+     * Counts a reference taken from the queue for processing by
+     * the current thread.
+     */
+    public void processingStarted() {
+        if (enabled) {
+            dequeued.increment();
+            activeThreads.incrementAndGet();
+        }
+    }
+    /**
+     * Marks the current thread as done processing a reference.
+     */
+    public void processingEnded() {
+        if (enabled) {
+            activeThreads.decrementAndGet();
+        }
+    }
+    /**
+     * Records time slept by a crawling thread for politeness.
+     * @param nanos time slept in nanoseconds
+     */
+    public void recordDelay(long nanos) {
+        if (enabled) {
+            delays.recordNanos(nanos);
+        }
+    }
+
+    @Override
+    public void accept(CrawlerEvent<Crawler> event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.is(CrawlerEvent.CRAWLER_RUN_BEGIN)) {
+            start(event.getSource());
+        }
+        Counter c = events;
+        if (c != null) {
+            c.inc(event.getName());
+        }
+        if (event.is(CrawlerEvent.CRAWLER_RUN_END)
+                || event.is(CrawlerEvent.CRAWLER_STOP_END)) {
+            stop();
+        }
+    }
+
+    private synchronized void start(Crawler crawler) {
+        queued.reset();
+        dequeued.reset();
+        sitemapURLs.reset();
+        activeThreads.set(0);
+        delays.reset();
+        registry = createRegistry(crawler);
+        events = registry.counter("http_crawler_events_total",
+                "Crawler events fired, by event name.", "event");
+        PrometheusExporter.register(registry);
+        if (port > 0) {
+            endpointPort = PrometheusExporter.startEndpoint(host, port, path);
+        }
+        if (snapshotFile != null) {
+            PrometheusExporter.startSnapshots(snapshotFile, snapshotInterval);
+        }
+    }
+    private synchronized void stop() {
+        if (registry == null) {
+            return;
+        }
+        if (snapshotFile != null) {
+            PrometheusExporter.stopSnapshots(snapshotFile);
+        }
+        if (endpointPort > 0) {
+            PrometheusExporter.stopEndpoint(host, endpointPort);
+            endpointPort = -1;
+        }
+        PrometheusExporter.unregister(registry);
+        events = null;
+        registry = null;
+    }
+
+    private MetricsRegistry createRegistry(Crawler crawler) {
+        MetricsRegistry r = new MetricsRegistry(
+                Collections.singletonMap("crawler", crawler.getId()));
+        HttpCrawler httpCrawler = crawler instanceof HttpCrawler
+                ? (HttpCrawler) crawler : null;
+
+        r.labeledFunction("http_crawler_fetches_total",
+                "HTTP requests by status code.", Type.COUNTER, "status",
+                () -> statusCounts(httpCrawler));
+        r.functionCounter("http_crawler_fetch_retries_total",
+                "HTTP fetch attempts retried.", () -> {
+                    HttpFetchClient client = fetchClient(httpCrawler);
+                    return client == null ? 0 : client.getRetryCount();
+                });
+        r.functionCounter("http_crawler_downloaded_bytes_total",
+                "Bytes received for document bodies.",
+                () -> downloadedBytes(httpCrawler));
+        if (httpCrawler != null && httpCrawler.getCrawlerConfig()
+                .getRobotsTxtProvider() instanceof StandardRobotsTxtProvider) {
+            StandardRobotsTxtProvider robots = (StandardRobotsTxtProvider)
+                    httpCrawler.getCrawlerConfig().getRobotsTxtProvider();
+            r.functionCounter("http_crawler_robots_txt_cache_hits_total",
+                    "Robots.txt lookups found in cache.",
+                    robots::getCacheHits);
+            r.functionCounter("http_crawler_robots_txt_cache_misses_total",
+                    "Robots.txt lookups requiring a download.",
+                    robots::getCacheMisses);
+        }
+        r.functionCounter("http_crawler_sitemap_urls_total",
+                "URLs emitted by sitemaps.", sitemapURLs::sum);
+        r.functionCounter("http_crawler_queue_submissions_total",
+                "References submitted to the queue.", queued::sum);
+        r.functionCounter("http_crawler_dequeued_total",
+                "References taken from the queue for processing.",
+                dequeued::sum);
+        r.gauge("http_crawler_active_threads",
+                "Threads currently processing a document.",
+                activeThreads::get);
+        r.gauge("http_crawler_threads", "Crawler threads configured.",
+                () -> crawler.getCrawlerConfig().getNumThreads());
+        r.functionSummary("http_crawler_delay_seconds",
+                "Time slept by crawler threads for politeness delays.",
+                () -> delays);
+        if (httpCrawler != null) {
+            HttpCrawlerConfig cfg = httpCrawler.getCrawlerConfig();
+            r.labeledSummaries("http_crawler_stage_seconds",
+                    "Time spent in pipeline stages.", "stage",
+                    () -> cfg.getStageTimings().isEnabled()
+                            ? cfg.getStageTimings().getHistograms() : null);
+        }
+        return r;
+    }
+
+    private static HttpFetchClient fetchClient(HttpCrawler crawler) {
+        return crawler == null ? null : crawler.getHttpFetchClient();
+    }
+    private static Map<String, Long> statusCounts(HttpCrawler crawler) {
+        HttpFetchClient client = fetchClient(crawler);
+        if (client == null) {
+            return null;
+        }
+        Map<String, Long> counts = new TreeMap<>();
+        client.getStatusCounts().forEach((status, count) -> counts.put(
+                status < 0 ? "error" : Integer.toString(status), count));
+        return counts;
+    }
+    private static long downloadedBytes(HttpCrawler crawler) {
+        HttpFetchClient client = fetchClient(crawler);
+        if (client == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (IHttpFetcher fetcher : client.getHttpFetchers()) {
+            if (fetcher instanceof GenericHttpFetcher) {
+                bytes += ((GenericHttpFetcher) fetcher).getDownloadedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setEnabled(xml.getBoolean("@enabled", enabled));
+        setHost(xml.getString("host", host));
+        setPort(xml.getInteger("port", port));
+        setPath(xml.getString("path", path));
+        setSnapshotFile(xml.getPath("snapshotFile", snapshotFile));
+        setSnapshotInterval(
+                xml.getDurationMillis("snapshotInterval", snapshotInterval));
+    }
+    @Override
+    public void saveToXML(XML xml) {
+        xml.setAttribute("enabled", enabled);
+        xml.addElement("host", host);
+        xml.addElement("port", port);
+        xml.addElement("path", path);
+        xml.addElement("snapshotFile", snapshotFile);
+        xml.addElement("snapshotInterval", snapshotInterval);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
@@ -0,0 +1,544 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import com.norconex.collector.http.pipeline.LatencyHistogram;
+
+/**
+ * <p>
+ * Lightweight registry of counters, gauges and summaries, written in the
+ * <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">
+ * Prometheus text exposition format</a> (version 0.0.4).
+ * </p>
+ * <p>
+ * Metrics are either updated directly (counters and summaries obtained
+ * from this registry) or read from other components when collected
+ * (function counters and gauges). Labels common to all metrics
+ * (e.g., the crawler id) can be given at construction time.
+ * Summaries are backed by {@link LatencyHistogram} and report durations
+ * in seconds.
+ * </p>
+ * <p>
+ * Updating metrics is thread-safe and lock-free.
+ * </p>
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class MetricsRegistry {
+
+    public static final String CONTENT_TYPE =
+            "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Pattern NAME_PATTERN =
+            Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+    public enum Type {
+        COUNTER, GAUGE, SUMMARY;
+        @Override
+        public String toString() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final Map<String, String> constantLabels;
+    private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+    private final Map<String, Collector> collectorsByName =
+            new ConcurrentHashMap<>();
+
+    public MetricsRegistry() {
+        this(Collections.emptyMap());
+    }
+    /**
+     * Creates a registry adding the given labels to all metrics.
+     * @param constantLabels labels common to all metrics
+     */
+    public MetricsRegistry(Map<String, String> constantLabels) {
+        super();
+        this.constantLabels = Collections.unmodifiableMap(
+                new LinkedHashMap<>(constantLabels));
+    }
+
+    public Map<String, String> getConstantLabels() {
+        return constantLabels;
+    }
+
+    /**
+     * Registers a counter updated directly.
+     * @param name metric name
+     * @param help metric description
+     * @param labelNames label names, if any
+     * @return counter
+     */
+    public Counter counter(String name, String help, String... labelNames) {
+        return register(new Counter(name, help, labelNames));
+    }
+    /**
+     * Registers a summary of durations updated directly.
+     * @param name metric name, usually ending with "_seconds"
+     * @param help metric description
+     * @param labelNames label names, if any
+     * @return summary
+     */
+    public Summary summary(String name, String help, String... labelNames) {
+        return register(new Summary(name, help, labelNames));
+    }
+    /**
+     * Registers a counter whose value is read when collected.
+     * @param name metric name
+     * @param help metric description
+     * @param value value supplier
+     */
+    public void functionCounter(
+            String name, String help, DoubleSupplier value) {
+        register(new FunctionCollector(name, help, Type.COUNTER, value));
+    }
+    /**
+     * Registers a gauge whose value is read when collected.
+     * @param name metric name
+     * @param help metric description
+     * @param value value supplier
+     */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        register(new FunctionCollector(name, help, Type.GAUGE, value));
+    }
+    /**
+     * Registers a summary whose histogram is read when collected.
+     * @param name metric name, usually ending with "_seconds"
+     * @param help metric description
+     * @param histogram histogram supplier
+     */
+    public void functionSummary(String name, String help,
+            Supplier<LatencyHistogram> histogram) {
+        register(new LabeledSummaryCollector(name, help, null, () -> {
+            LatencyHistogram h = histogram.get();
+            return h == null ? null : Collections.singletonMap(null, h);
+        }));
+    }
+    /**
+     * Registers a counter or gauge with a single label, whose values
+     * are read when collected.
+     * @param name metric name
+     * @param help metric description
+     * @param type {@link Type#COUNTER} or {@link Type#GAUGE}
+     * @param labelName label name
+     * @param values supplier of values per label value
+     */
+    public void labeledFunction(String name, String help, Type type,
+            String labelName,
+            Supplier<Map<String, ? extends Number>> values) {
+        if (type == Type.SUMMARY) {
+            throw new IllegalArgumentException(
+                    "Use labeledSummaries(...) for summaries.");
+        }
+        register(new LabeledFunctionCollector(
+                name, help, type, labelName, values));
+    }
+    /**
+     * Registers summaries with a single label, whose histograms are read
+     * when collected.
+     * @param name metric name, usually ending with "_seconds"
+     * @param help metric description
+     * @param labelName label name
+     * @param histograms supplier of histograms per label value
+     */
+    public void labeledSummaries(String name, String help, String labelName,
+            Supplier<Map<String, LatencyHistogram>> histograms) {
+        register(new LabeledSummaryCollector(
+                name, help, labelName, histograms));
+    }
+
+    /**
+     * Collects the current value of all registered metrics.
+     * @return metric families, in registration order
+     */
+    public List<MetricFamily> collect() {
+        List<MetricFamily> families = new ArrayList<>(collectors.size());
+        for (Collector c : collectors) {
+            MetricFamily family = new MetricFamily(c.name, c.help, c.type);
+            c.collect(family);
+            families.add(family);
+        }
+        return families;
+    }
+
+    /**
+     * Writes all metrics in Prometheus text format.
+     * @param writer where to write
+     * @throws IOException problem writing
+     */
+    public void writePrometheus(Writer writer) throws IOException {
+        writePrometheus(writer, Arrays.asList(this));
+    }
+    /**
+     * Writes the metrics of all given registries in Prometheus text format,
+     * merging metric families of the same name (e.g., from
+     * different crawlers).
+     * @param writer where to write
+     * @param registries metric registries
+     * @throws IOException problem writing
+     */
+    public static void writePrometheus(
+            Writer writer, Collection<MetricsRegistry> registries)
+                    throws IOException {
+        Map<String, MetricFamily> merged = new LinkedHashMap<>();
+        for (MetricsRegistry registry : registries) {
+            for (MetricFamily family : registry.collect()) {
+                MetricFamily existing = merged.putIfAbsent(
+                        family.getName(), family);
+                if (existing != null) {
+                    existing.samples.addAll(family.samples);
+                }
+            }
+        }
+        StringBuilder b = new StringBuilder();
+        for (MetricFamily family : merged.values()) {
+            b.append("# HELP ").append(family.getName()).append(' ')
+                    .append(escapeHelp(family.getHelp())).append('\n');
+            b.append("# TYPE ").append(family.getName()).append(' ')
+                    .append(family.getType()).append('\n');
+            for (Sample s : family.getSamples()) {
+                b.append(s.getName());
+                if (!s.getLabels().isEmpty()) {
+                    b.append('{');
+                    boolean first = true;
+                    for (Entry<String, String> en : s.getLabels().entrySet()) {
+                        if (!first) {
+                            b.append(',');
+                        }
+                        b.append(en.getKey()).append("=\"")
+                                .append(escapeLabelValue(en.getValue()))
+                                .append('"');
+                        first = false;
+                    }
+                    b.append('}');
+                }
+                b.append(' ').append(formatValue(s.getValue())).append('\n');
+            }
+        }
+        writer.write(b.toString());
+        writer.flush();
+    }
+
+    private <T extends Collector> T register(T collector) {
+        String name = ((Collector) collector).name;
+        if (!NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException(
+                    "Invalid metric name: " + name);
+        }
+        if (collectorsByName.putIfAbsent(name, collector) != null) {
+            throw new IllegalArgumentException(
+                    "Metric already registered: " + name);
+        }
+        collectors.add(collector);
+        return collector;
+    }
+
+    private Map<String, String> labels(
+            String[] names, List<String> values, String... extra) {
+        Map<String, String> labels = new LinkedHashMap<>(constantLabels);
+        for (int i = 0; i < names.length; i++) {
+            labels.put(names[i], values.get(i));
+        }
+        for (int i = 0; i + 1 < extra.length; i += 2) {
+            labels.put(extra[i], extra[i + 1]);
+        }
+        return labels;
+    }
+
+    private void addSummarySamples(MetricFamily family,
+            String[] labelNames, List<String> labelValues, LatencyHistogram h) {
+        for (double q : QUANTILES) {
+            family.add(family.getName(), labels(labelNames, labelValues,
+                    "quantile", formatValue(q)),
+                    h.getPercentileMillis(q * 100) / 1000d);
+        }
+        family.add(family.getName() + "_sum",
+                labels(labelNames, labelValues), h.getTotalMillis() / 1000d);
+        family.add(family.getName() + "_count",
+                labels(labelNames, labelValues), h.getCount());
+    }
+
+    /*default*/ static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+    private static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private abstract static class Collector {
+        private final String name;
+        private final String help;
+        private final Type type;
+        public Collector(String name, String help, Type type) {
+            super();
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+        protected abstract void collect(MetricFamily family);
+    }
+
+    // Label values are stored as lists so they can be used as map keys.
+    private abstract static class LabeledCollector<T> extends Collector {
+        private final String[] labelNames;
+        private final Map<List<String>, T> children = new ConcurrentHashMap<>();
+        public LabeledCollector(
+                String name, String help, Type type, String[] labelNames) {
+            super(name, help, type);
+            this.labelNames = labelNames.clone();
+        }
+        protected T child(String... labelValues) {
+            if (labelValues.length != labelNames.length) {
+                throw new IllegalArgumentException("Expected "
+                        + labelNames.length + " label values but got "
+                        + labelValues.length + ".");
+            }
+            List<String> key = Arrays.asList(labelValues);
+            T child = children.get(key);
+            if (child == null) {
+                child = children.computeIfAbsent(key, k -> newChild());
+            }
+            return child;
+        }
+        protected abstract T newChild();
+    }
+
+    /**
+     * Monotonically increasing value, optionally with labels.
+     */
+    public final class Counter extends LabeledCollector<LongAdder> {
+        private Counter(String name, String help, String[] labelNames) {
+            super(name, help, Type.COUNTER, labelNames);
+        }
+        /**
+         * Increments this counter by one.
+         * @param labelValues label values, matching label names
+         */
+        public void inc(String... labelValues) {
+            child(labelValues).increment();
+        }
+        /**
+         * Increments this counter by the given amount.
+         * @param amount amount to add (zero or more)
+         * @param labelValues label values, matching label names
+         */
+        public void add(long amount, String... labelValues) {
+            child(labelValues).add(amount);
+        }
+        /**
+         * Gets the current value for the given labels.
+         * @param labelValues label values, matching label names
+         * @return counter value
+         */
+        public long get(String... labelValues) {
+            LongAdder adder = super.children.get(Arrays.asList(labelValues));
+            return adder == null ? 0 : adder.sum();
+        }
+        @Override
+        protected LongAdder newChild() {
+            return new LongAdder();
+        }
+        @Override
+        protected void collect(MetricFamily family) {
+            super.children.forEach((values, adder) -> family.add(
+                    family.getName(),
+                    labels(super.labelNames, values), adder.sum()));
+        }
+    }
+
+    /**
+     * Distribution of durations, reported as quantiles, sum and count.
+     */
+    public final class Summary extends LabeledCollector<LatencyHistogram> {
+        private Summary(String name, String help, String[] labelNames) {
+            super(name, help, Type.SUMMARY, labelNames);
+        }
+        /**
+         * Records a duration.
+         * @param nanos duration in nanoseconds
+         * @param labelValues label values, matching label names
+         */
+        public void recordNanos(long nanos, String... labelValues) {
+            child(labelValues).recordNanos(nanos);
+        }
+        @Override
+        protected LatencyHistogram newChild() {
+            return new LatencyHistogram();
+        }
+        @Override
+        protected void collect(MetricFamily family) {
+            super.children.forEach((values, h) -> addSummarySamples(
+                    family, super.labelNames, values, h));
+        }
+    }
+
+    private final class FunctionCollector extends Collector {
+        private final DoubleSupplier value;
+        public FunctionCollector(
+                String name, String help, Type type, DoubleSupplier value) {
+            super(name, help, type);
+            this.value = value;
+        }
+        @Override
+        protected void collect(MetricFamily family) {
+            family.add(family.getName(), new LinkedHashMap<>(constantLabels),
+                    value.getAsDouble());
+        }
+    }
+
+    private final class LabeledFunctionCollector extends Collector {
+        private final String[] labelNames;
+        private final Supplier<Map<String, ? extends Number>> values;
+        public LabeledFunctionCollector(String name, String help, Type type,
+                String labelName,
+                Supplier<Map<String, ? extends Number>> values) {
+            super(name, help, type);
+            this.labelNames = new String[] { labelName };
+            this.values = values;
+        }
+        @Override
+        protected void collect(MetricFamily family) {
+            Map<String, ? extends Number> map = values.get();
+            if (map != null) {
+                map.forEach((label, value) -> family.add(family.getName(),
+                        labels(labelNames, Arrays.asList(label)),
+                        value.doubleValue()));
+            }
+        }
+    }
+
+    private final class LabeledSummaryCollector extends Collector {
+        private final String[] labelNames;
+        private final Supplier<Map<String, LatencyHistogram>> histograms;
+        public LabeledSummaryCollector(String name, String help,
+                String labelName,
+                Supplier<Map<String, LatencyHistogram>> histograms) {
+            super(name, help, Type.SUMMARY);
+            this.labelNames = labelName == null
+                    ? new String[] {} : new String[] { labelName };
+            this.histograms = histograms;
+        }
+        @Override
+        protected void collect(MetricFamily family) {
+            Map<String, LatencyHistogram> map = histograms.get();
+            if (map != null) {
+                map.forEach((label, h) -> addSummarySamples(family,
+                        labelNames, labelNames.length == 0
+                                ? Collections.emptyList()
+                                : Arrays.asList(label), h));
+            }
+        }
+    }
+
+    /**
+     * All samples of a metric at the time it was collected.
+     */
+    public static class MetricFamily {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final List<Sample> samples = new ArrayList<>();
+        public MetricFamily(String name, String help, Type type) {
+            super();
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+        public String getName() {
+            return name;
+        }
+        public String getHelp() {
+            return help;
+        }
+        public Type getType() {
+            return type;
+        }
+        public List<Sample> getSamples() {
+            return Collections.unmodifiableList(samples);
+        }
+        private void add(
+                String name, Map<String, String> labels, double value) {
+            samples.add(new Sample(name, labels, value));
+        }
+        @Override
+        public String toString() {
+            return new ReflectionToStringBuilder(
+                    this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+        }
+    }
+
+    /**
+     * A single metric value with its labels.
+     */
+    public static class Sample {
+        private final String name;
+        private final Map<String, String> labels;
+        private final double value;
+        public Sample(String name, Map<String, String> labels, double value) {
+            super();
+            this.name = name;
+            this.labels = Collections.unmodifiableMap(labels);
+            this.value = value;
+        }
+        public String getName() {
+            return name;
+        }
+        public Map<String, String> getLabels() {
+            return labels;
+        }
+        public double getValue() {
+            return value;
+        }
+        @Override
+        public String toString() {
+            return new ReflectionToStringBuilder(
+                    this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+        }
+    }
+}
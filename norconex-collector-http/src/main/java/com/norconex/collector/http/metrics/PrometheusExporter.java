@@ -0,0 +1,225 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.http.util.EmbeddedHttpServer;
+
+/**
+ * <p>
+ * Exposes the metrics of all registered {@link MetricsRegistry} instances
+ * (typically one per running crawler) in Prometheus text format.
+ * Metrics can be pulled from an embedded HTTP endpoint and/or
+ * periodically written to a snapshot file (for environments where
+ * scraping is not an option, such as the node exporter "textfile"
+ * collector).
+ * </p>
+ * <p>
+ * Endpoints and snapshot files are shared: crawlers configured with the
+ * same host and port (or the same file) use a single server (or writer),
+ * which is stopped once no crawler uses it anymore. Every endpoint and
+ * snapshot file holds the metrics of all crawlers running in the JVM,
+ * distinguished by their "crawler" label.
+ * </p>
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public final class PrometheusExporter {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(PrometheusExporter.class);
+
+    private static final Set<MetricsRegistry> REGISTRIES =
+            new CopyOnWriteArraySet<>();
+    private static final Map<String, Endpoint> ENDPOINTS = new HashMap<>();
+    private static final Map<Path, Snapshot> SNAPSHOTS = new HashMap<>();
+
+    private PrometheusExporter() {
+        super();
+    }
+
+    public static void register(MetricsRegistry registry) {
+        REGISTRIES.add(registry);
+    }
+    public static void unregister(MetricsRegistry registry) {
+        REGISTRIES.remove(registry);
+    }
+
+    /**
+     * Writes the metrics of all registered registries.
+     * @param writer where to write
+     * @throws IOException problem writing
+     */
+    public static void write(Writer writer) throws IOException {
+        MetricsRegistry.writePrometheus(writer, REGISTRIES);
+    }
+
+    /**
+     * Starts an HTTP endpoint serving metrics, or reuses the one already
+     * started on the same host and port.
+     * @param host host name or IP address to bind to
+     * @param port port to listen on (zero for any free port)
+     * @param path URL path metrics are served from
+     * @return port actually used, to be given when stopping the endpoint
+     */
+    public static synchronized int startEndpoint(
+            String host, int port, String path) {
+        Endpoint endpoint = ENDPOINTS.get(host + ":" + port);
+        if (endpoint == null) {
+            endpoint = new Endpoint(host, port, path);
+            ENDPOINTS.put(host + ":" + endpoint.server.getPort(), endpoint);
+            LOG.info("Metrics available at: http://{}:{}{}",
+                    host, endpoint.server.getPort(), path);
+        }
+        endpoint.users++;
+        return endpoint.server.getPort();
+    }
+    /**
+     * Stops an HTTP endpoint once no longer used.
+     * @param host host name or IP address the endpoint is bound to
+     * @param port port returned when starting the endpoint
+     */
+    public static synchronized void stopEndpoint(String host, int port) {
+        Endpoint endpoint = ENDPOINTS.get(host + ":" + port);
+        if (endpoint != null && --endpoint.users <= 0) {
+            ENDPOINTS.remove(host + ":" + port);
+            endpoint.server.stop();
+        }
+    }
+
+    /**
+     * Starts writing metrics to a file at regular intervals, unless
+     * already being written.
+     * @param file snapshot file
+     * @param interval milliseconds between writes
+     */
+    public static synchronized void startSnapshots(Path file, long interval) {
+        SNAPSHOTS.computeIfAbsent(file, f -> new Snapshot(f, interval))
+                .users++;
+    }
+    /**
+     * Writes a last snapshot and stops writing to the given file once
+     * no longer used.
+     * @param file snapshot file
+     */
+    public static synchronized void stopSnapshots(Path file) {
+        Snapshot snapshot = SNAPSHOTS.get(file);
+        if (snapshot == null) {
+            return;
+        }
+        writeSnapshot(file);
+        if (--snapshot.users <= 0) {
+            SNAPSHOTS.remove(file);
+            snapshot.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the metrics of all registered registries to a file.
+     * The file is replaced atomically, so readers never see
+     * a partially written file.
+     * @param file target file
+     */
+    public static void writeSnapshot(Path file) {
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(
+                    dir, file.getFileName().toString(), ".tmp");
+            try (Writer w = Files.newBufferedWriter(
+                    tmp, StandardCharsets.UTF_8)) {
+                write(w);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.error("Could not write metrics snapshot: {}", file, e);
+        }
+    }
+
+    private static class Endpoint {
+        private final EmbeddedHttpServer server;
+        private int users;
+        public Endpoint(String host, int port, String path) {
+            super();
+            server = new EmbeddedHttpServer("metrics-endpoint",
+                    host, port, new MetricsHandler(path));
+        }
+    }
+
+    private static class MetricsHandler extends AbstractHandler {
+        private final String path;
+        public MetricsHandler(String path) {
+            super();
+            this.path = path;
+        }
+        @Override
+        public void handle(String target, Request baseRequest,
+                HttpServletRequest request, HttpServletResponse response)
+                        throws IOException {
+            if (!path.equals(target)) {
+                return;
+            }
+            baseRequest.setHandled(true);
+            if (!"GET".equals(request.getMethod())
+                    && !"HEAD".equals(request.getMethod())) {
+                response.sendError(
+                        HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(MetricsRegistry.CONTENT_TYPE);
+            write(response.getWriter());
+        }
+    }
+
+    private static class Snapshot {
+        private final ScheduledExecutorService executor;
+        private int users;
+        public Snapshot(Path file, long interval) {
+            super();
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            if (interval > 0) {
+                executor.scheduleAtFixedRate(() -> writeSnapshot(file),
+                        interval, interval, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.partition;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.CollectorException;
+import com.norconex.collector.http.reference.HttpCrawlReference;
+import com.norconex.commons.lang.time.DurationParser;
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * Splits a crawl across several nodes (typically one collector per
+ * machine), each running the same crawler configuration with a different
+ * node index. The URL roots (scheme, host and port) are hashed and each
+ * node owns an equal range of hash values. A node only processes URLs
+ * it owns and sends the others to their owner through the configured
+ * {@link IPartitionTransport}. Since all URLs of a site are
+ * crawled by the same node, politeness delays, robots.txt and sitemap
+ * handling remain local to each node.
+ * </p>
+ * <p>
+ * References are routed before robots.txt rules are checked. Received
+ * references are queued right away on their owner node, and their
+ * robots.txt and sitemap checks are made by crawling threads when
+ * they are processed. Start URLs are routed like any other
+ * URL, so all nodes can share the same start URLs.
+ * Disabled by default, or when the node count is one.
+ * </p>
+ * <p>
+ * A node does not stop when it has no more references to process, as
+ * other nodes may still send it some. At every idle check interval, each
+ * node reports to the others whether it is idle. Nodes stop once they
+ * are all idle, with no references on their way to another node.
+ * To do so, each node keeps a "barrier" reference in its queue
+ * until then, which is never fetched nor committed. The barrier remains
+ * in the crawl store afterwards, so later runs of the crawler
+ * process it again (doing nothing), even without partitioning, instead
+ * of treating it as an orphan. Since all nodes must
+ * be running for the crawl to complete, start them together.
+ * </p>
+ * <p>
+ * The default transport is {@link FilePartitionTransport}.
+ * </p>
+ * <p>
+ * XML configuration entries expecting millisecond durations
+ * can be provided in human-readable format (English only), as per
+ * {@link DurationParser} (e.g., "5 minutes and 30 seconds" or "5m30s").
+ * </p>
+ *
+ * <h3>XML configuration usage:</h3>
+ * <pre>{@code
+ * <partitioning enabled="[false|true]">
+ *     <nodeIndex>(this node index, from zero)</nodeIndex>
+ *     <nodeCount>(total number of nodes)</nodeCount>
+ *     <idleCheckInterval>(how often to check if all are idle)</idleCheckInterval>
+ *     <transport class="(IPartitionTransport implementation)"/>
+ * </partitioning>
+ * }</pre>
+ *
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class CrawlPartitioning implements IXMLConfigurable {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(CrawlPartitioning.class);
+
+    public static final long DEFAULT_IDLE_CHECK_INTERVAL = 2000;
+
+    // ".invalid" is a reserved top-level domain that never resolves.
+    // The same on every node, so a stored one is found again whatever
+    // the node index of a later run.
+    private static final String BARRIER_REFERENCE =
+            "http://partition-barrier.invalid/";
+
+    private boolean enabled;
+    private int nodeIndex;
+    private int nodeCount = 1;
+    private long idleCheckInterval = DEFAULT_IDLE_CHECK_INTERVAL;
+    private IPartitionTransport transport = new FilePartitionTransport();
+
+    private final transient AtomicLong sentCount = new AtomicLong();
+    private final transient AtomicLong receivedCount = new AtomicLong();
+    private final transient AtomicLong startedCount = new AtomicLong();
+    private final transient AtomicInteger activeCount = new AtomicInteger();
+    private transient long lastStartedCount;
+    private transient long lastReceivedCount;
+    private transient boolean open;
+    private transient boolean complete;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the index of this node, from zero to node count minus one.
+     * @return node index
+     */
+    public int getNodeIndex() {
+        return nodeIndex;
+    }
+    /**
+     * Sets the index of this node, from zero to node count minus one.
+     * Each node must have a different index.
+     * @param nodeIndex node index
+     */
+    public void setNodeIndex(int nodeIndex) {
+        this.nodeIndex = nodeIndex;
+    }
+
+    /**
+     * Gets the total number of nodes.
+     * @return node count
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+    /**
+     * Sets the total number of nodes. Must be the same on all nodes.
+     * @param nodeCount node count
+     */
+    public void setNodeCount(int nodeCount) {
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * Gets how often in milliseconds nodes check whether they are all
+     * idle and can stop.
+     * @return idle check interval
+     */
+    public long getIdleCheckInterval() {
+        return idleCheckInterval;
+    }
+    /**
+     * Sets how often in milliseconds nodes check whether they are all
+     * idle and can stop.
+     * @param idleCheckInterval idle check interval
+     */
+    public void setIdleCheckInterval(long idleCheckInterval) {
+        this.idleCheckInterval = idleCheckInterval;
+    }
+
+    public IPartitionTransport getTransport() {
+        return transport;
+    }
+    public void setTransport(IPartitionTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Gets whether references are being routed between nodes.
+     * @return <code>true</code> if enabled with more than one node
+     */
+    public boolean isActive() {
+        return enabled && nodeCount > 1;
+    }
+
+    /**
+     * Gets the index of the node owning a URL root.
+     * @param urlRoot URL root (scheme, host and port)
+     * @return node index (the local node if the URL root is
+     *         <code>null</code>)
+     */
+    public int getOwnerNode(String urlRoot) {
+        if (urlRoot == null || nodeCount <= 1) {
+            return nodeIndex;
+        }
+        return getKeyRange(urlRoot, nodeCount);
+    }
+
+    /**
+     * Gets which of equally sized ranges of hash values a URL root
+     * falls in. The same URL root always falls in the same range,
+     * on any node or JVM.
+     * @param urlRoot URL root (scheme, host and port)
+     * @param rangeCount number of ranges
+     * @return range index, from zero to range count minus one (zero
+     *         if the URL root is <code>null</code>)
+     */
+    public static int getKeyRange(String urlRoot, int rangeCount) {
+        if (urlRoot == null || rangeCount <= 1) {
+            return 0;
+        }
+        // String hash codes are the same on every JVM. They are mixed
+        // so similar host names spread evenly.
+        int h = urlRoot.toLowerCase(Locale.ROOT).hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return (int) (((h & 0xFFFFFFFFL) * rangeCount) >>> 32);
+    }
+
+    /**
+     * Gets whether a URL root is owned by this node.
+     * @param urlRoot URL root (scheme, host and port)
+     * @return <code>true</code> if owned by this node or not partitioning
+     */
+    public boolean isLocal(String urlRoot) {
+        return !isActive() || getOwnerNode(urlRoot) == nodeIndex;
+    }
+
+    /**
+     * Starts exchanging references with other nodes, if active.
+     * @param crawlerId crawler identifier
+     * @param receiver where references received from other nodes go
+     */
+    public synchronized void open(
+            String crawlerId, Consumer<HttpCrawlReference> receiver) {
+        if (!isActive() || open) {
+            return;
+        }
+        if (nodeIndex < 0 || nodeIndex >= nodeCount) {
+            throw new CollectorException("Partitioning node index must be "
+                    + "between 0 and " + (nodeCount - 1) + ". Was: "
+                    + nodeIndex);
+        }
+        if (transport == null) {
+            throw new CollectorException(
+                    "Partitioning transport must be set.");
+        }
+        sentCount.set(0);
+        receivedCount.set(0);
+        startedCount.set(0);
+        activeCount.set(0);
+        lastStartedCount = 0;
+        lastReceivedCount = 0;
+        complete = false;
+        transport.open(crawlerId, nodeIndex, nodeCount, ref -> {
+            receivedCount.incrementAndGet();
+            receiver.accept(ref);
+        });
+        open = true;
+        LOG.info("Crawling partition {} of {}.", nodeIndex + 1, nodeCount);
+    }
+
+    /**
+     * Sends a reference to the node owning it.
+     * @param reference reference to send
+     * @param ownerNode index of the owner node
+     */
+    public void send(HttpCrawlReference reference, int ownerNode) {
+        transport.send(ownerNode, reference);
+        sentCount.incrementAndGet();
+    }
+
+    /**
+     * Creates the barrier reference keeping this node running until
+     * all nodes are idle. It is due after the idle check interval.
+     * Barrier references are not fetched and are never queued through
+     * the queue pipeline.
+     * @return barrier reference
+     */
+    public HttpCrawlReference createBarrierReference() {
+        HttpCrawlReference ref = new HttpCrawlReference(BARRIER_REFERENCE, 0);
+        ref.setNotBefore(System.currentTimeMillis() + idleCheckInterval);
+        return ref;
+    }
+    /**
+     * Gets whether a reference is a barrier reference, which must not
+     * be fetched.
+     * @param reference the reference
+     * @return <code>true</code> if a barrier reference
+     */
+    public static boolean isBarrierReference(String reference) {
+        return reference != null && reference.startsWith(BARRIER_REFERENCE);
+    }
+
+    /**
+     * Marks a reference as being processed by the local node.
+     * @param reference the reference
+     */
+    public void processingStarted(String reference) {
+        if (isActive() && !isBarrierReference(reference)) {
+            startedCount.incrementAndGet();
+            activeCount.incrementAndGet();
+        }
+    }
+    /**
+     * Marks a reference as no longer being processed by the local node.
+     * @param reference the reference
+     */
+    public void processingEnded(String reference) {
+        if (isActive() && !isBarrierReference(reference)) {
+            activeCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Checks whether all nodes are done crawling. The local node is idle
+     * when it is not processing references, did not start or receive
+     * any since the last check, and has no deferred ones waiting.
+     * Meant to be invoked at every idle check interval.
+     * @param deferredPending whether references queued locally are
+     *        waiting to be processed at a later time
+     * @return <code>true</code> if no node has references left to
+     *         process (always <code>true</code> when not exchanging
+     *         references)
+     */
+    public synchronized boolean isCrawlComplete(boolean deferredPending) {
+        if (!open || complete) {
+            return true;
+        }
+        long started = startedCount.get();
+        long received = receivedCount.get();
+        boolean idle = activeCount.get() == 0 && !deferredPending
+                && started == lastStartedCount
+                && received == lastReceivedCount;
+        lastStartedCount = started;
+        lastReceivedCount = received;
+        complete = transport.isCrawlComplete(idle);
+        if (complete) {
+            LOG.info("All {} partitions are done crawling.", nodeCount);
+        }
+        return complete;
+    }
+
+    /**
+     * Stops exchanging references with other nodes, delivering pending ones.
+     */
+    public synchronized void close() {
+        if (!open) {
+            return;
+        }
+        transport.close();
+        open = false;
+        LOG.info("Partition {} of {}: {} references sent to other nodes, "
+                + "{} received.", nodeIndex + 1, nodeCount,
+                sentCount.get(), receivedCount.get());
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setEnabled(xml.getBoolean("@enabled", enabled));
+        setNodeIndex(xml.getInteger("nodeIndex", nodeIndex));
+        setNodeCount(xml.getInteger("nodeCount", nodeCount));
+        setIdleCheckInterval(xml.getDurationMillis(
+                "idleCheckInterval", idleCheckInterval));
+        setTransport(xml.getObjectImpl(
+                IPartitionTransport.class, "transport", transport));
+    }
+    @Override
+    public void saveToXML(XML xml) {
+        xml.setAttribute("enabled", enabled);
+        xml.addElement("nodeIndex", nodeIndex);
+        xml.addElement("nodeCount", nodeCount);
+        xml.addElement("idleCheckInterval", idleCheckInterval);
+        xml.addElement("transport", transport);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
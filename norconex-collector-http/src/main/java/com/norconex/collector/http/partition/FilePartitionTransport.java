@@ -0,0 +1,485 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.partition;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.CollectorException;
+import com.norconex.collector.http.reference.HttpCrawlReference;
+import com.norconex.commons.lang.time.DurationParser;
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * Exchanges references between nodes through a directory shared by all
+ * nodes (e.g., a network file system, or a local directory when all nodes
+ * run on the same host). Each node has an inbox directory under
+ * <code>[directory]/[crawlerId]/node-[index]</code>.
+ * </p>
+ * <p>
+ * Sent references are buffered and written to the inbox of their node
+ * in batches, at every poll interval (or sooner when a batch is full).
+ * Batch files are moved in place once fully written, so nodes never read
+ * partial batches. At the same interval, the local inbox is read and batch
+ * files are deleted once their references were queued.
+ * </p>
+ * <p>
+ * Each node also writes its status to a
+ * <code>[directory]/[crawlerId]/node-[index].status</code> file: whether
+ * it is idle, how many references it received, and how many it sent to
+ * each node. Crawling is complete when all nodes are idle, all inboxes
+ * are empty, each node received as many references as were sent to it,
+ * and none of this changed since the previous check. A node stopped
+ * before completion is marked as closed and its inbox is kept for its
+ * next run.
+ * </p>
+ * <p>
+ * XML configuration entries expecting millisecond durations
+ * can be provided in human-readable format (English only), as per
+ * {@link DurationParser} (e.g., "5 minutes and 30 seconds" or "5m30s").
+ * </p>
+ *
+ * <h3>XML configuration usage:</h3>
+ * <pre>{@code
+ * <transport class="com.norconex.collector.http.partition.FilePartitionTransport">
+ *     <directory>(directory shared by all nodes)</directory>
+ *     <pollInterval>(how often to write and read batches)</pollInterval>
+ *     <batchSize>(maximum references per batch file)</batchSize>
+ * </transport>
+ * }</pre>
+ *
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class FilePartitionTransport
+        implements IPartitionTransport, IXMLConfigurable {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(FilePartitionTransport.class);
+
+    public static final long DEFAULT_POLL_INTERVAL = 1000;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final String BATCH_EXT = ".urls";
+    private static final String TEMP_EXT = ".tmp";
+    private static final String STATUS_EXT = ".status";
+    private static final String IDLE = "idle";
+    private static final String BUSY = "busy";
+    private static final String CLOSED = "closed";
+
+    private Path directory;
+    private long pollInterval = DEFAULT_POLL_INTERVAL;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private transient Path crawlerDir;
+    private transient int localNode;
+    private transient int nodeCount;
+    private transient Consumer<HttpCrawlReference> receiver;
+    private transient ScheduledExecutorService poller;
+    private final transient Map<Integer, List<String>> outbox =
+            new HashMap<>();
+    private final transient AtomicLong batchSequence = new AtomicLong();
+    private final transient AtomicLong receivedCount = new AtomicLong();
+    private transient AtomicLongArray sentCounts;
+    // guarded by "statusLock"
+    private final transient Object statusLock = new Object();
+    private transient boolean reportedIdle;
+    private transient String reportedCounts;
+    // only accessed by the thread checking completion
+    private transient String lastSnapshot;
+    private transient boolean complete;
+
+    /**
+     * Gets the directory shared by all nodes.
+     * @return directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+    /**
+     * Sets the directory shared by all nodes.
+     * @param directory directory
+     */
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets how often in milliseconds batches are written and read.
+     * @return poll interval
+     */
+    public long getPollInterval() {
+        return pollInterval;
+    }
+    /**
+     * Sets how often in milliseconds batches are written and read.
+     * @param pollInterval poll interval
+     */
+    public void setPollInterval(long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Gets the maximum number of references written per batch file.
+     * @return batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+    /**
+     * Sets the maximum number of references written per batch file.
+     * @param batchSize batch size
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public synchronized void open(String crawlerId, int nodeIndex,
+            int nodeCount, Consumer<HttpCrawlReference> receiver) {
+        if (directory == null) {
+            throw new CollectorException(
+                    "Partition transport directory must be set.");
+        }
+        this.crawlerDir = directory.resolve(
+                crawlerId.replaceAll("[^\\w.-]", "_"));
+        this.localNode = nodeIndex;
+        this.nodeCount = nodeCount;
+        this.receiver = receiver;
+        receivedCount.set(0);
+        sentCounts = new AtomicLongArray(Math.max(nodeCount, 1));
+        reportedIdle = false;
+        reportedCounts = null;
+        lastSnapshot = null;
+        complete = false;
+        try {
+            Files.createDirectories(inbox(nodeIndex));
+        } catch (IOException e) {
+            throw new CollectorException(
+                    "Could not create partition inbox: "
+                            + inbox(nodeIndex), e);
+        }
+        writeStatus(BUSY);
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "partition-transport-" + crawlerId);
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(pollInterval, 10);
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+                receive();
+                updateStatus();
+            } catch (RuntimeException e) {
+                LOG.error("Partition transport failure.", e);
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+        LOG.info("Partition inbox for node {}: {}",
+                nodeIndex, inbox(nodeIndex).toAbsolutePath());
+    }
+
+    @Override
+    public void send(int nodeIndex, HttpCrawlReference reference) {
+        List<String> full = null;
+        String line = PartitionReferenceCodec.encode(reference);
+        synchronized (outbox) {
+            List<String> lines = outbox.computeIfAbsent(
+                    nodeIndex, k -> new ArrayList<>());
+            lines.add(line);
+            if (lines.size() >= batchSize) {
+                full = lines;
+                outbox.remove(nodeIndex);
+            }
+        }
+        if (full != null) {
+            write(nodeIndex, full);
+        }
+    }
+
+    @Override
+    public boolean isCrawlComplete(boolean localIdle) {
+        flush();
+        synchronized (statusLock) {
+            reportedIdle = localIdle;
+            reportedCounts = counts();
+            updateStatus();
+        }
+        String snapshot = readSnapshot();
+        // must be the same twice in a row, as statuses are not all
+        // written at once
+        complete = snapshot != null && snapshot.equals(lastSnapshot);
+        lastSnapshot = snapshot;
+        return complete;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (poller == null) {
+            return;
+        }
+        poller.shutdown();
+        try {
+            poller.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (!complete) {
+            writeStatus(CLOSED);
+        }
+        poller = null;
+        receiver = null;
+    }
+
+    private Path inbox(int nodeIndex) {
+        return crawlerDir.resolve("node-" + nodeIndex);
+    }
+    private Path statusFile(int nodeIndex) {
+        return crawlerDir.resolve("node-" + nodeIndex + STATUS_EXT);
+    }
+
+    // "[received] [sent to node 0] [sent to node 1] ..."
+    private String counts() {
+        StringBuilder b = new StringBuilder().append(receivedCount.get());
+        for (int i = 0; i < sentCounts.length(); i++) {
+            b.append(' ').append(sentCounts.get(i));
+        }
+        return b.toString();
+    }
+
+    // Idle as last reported, unless references were exchanged since.
+    private void updateStatus() {
+        synchronized (statusLock) {
+            boolean idle = reportedIdle && counts().equals(reportedCounts)
+                    && isOutboxEmpty() && !hasBatches(localNode);
+            writeStatus(idle ? IDLE : BUSY);
+        }
+    }
+    private void writeStatus(String state) {
+        synchronized (statusLock) {
+            Path file = statusFile(localNode);
+            Path tmp = crawlerDir.resolve(file.getFileName() + TEMP_EXT);
+            try {
+                Files.write(tmp, (state + " " + counts())
+                        .getBytes(StandardCharsets.UTF_8));
+                move(tmp, file);
+            } catch (IOException e) {
+                throw new CollectorException(
+                        "Could not write partition status: " + file, e);
+            }
+        }
+    }
+
+    // Null unless crawling looks complete on all nodes.
+    private String readSnapshot() {
+        List<String[]> statuses = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            String[] status = readStatus(i);
+            if (status == null || BUSY.equals(status[0])) {
+                return null;
+            }
+            statuses.add(status);
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            // references sent to closed nodes wait for their next run
+            if (CLOSED.equals(statuses.get(i)[0])) {
+                continue;
+            }
+            if (hasBatches(i)) {
+                return null;
+            }
+            long sent = 0;
+            for (String[] status : statuses) {
+                sent += NumberUtils.toLong(status[i + 2]);
+            }
+            if (sent != NumberUtils.toLong(statuses.get(i)[1])) {
+                return null;
+            }
+        }
+        StringBuilder b = new StringBuilder();
+        for (String[] status : statuses) {
+            b.append(String.join(" ", status)).append('\n');
+        }
+        return b.toString();
+    }
+    // [state, received, sent to node 0, ...] or null if missing or
+    // not matching the node count
+    private String[] readStatus(int nodeIndex) {
+        Path file = statusFile(nodeIndex);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            String[] status = new String(Files.readAllBytes(file),
+                    StandardCharsets.UTF_8).trim().split(" ");
+            return status.length == nodeCount + 2 ? status : null;
+        } catch (IOException e) {
+            LOG.debug("Could not read partition status: {}", file, e);
+            return null;
+        }
+    }
+
+    private boolean isOutboxEmpty() {
+        synchronized (outbox) {
+            return outbox.isEmpty();
+        }
+    }
+    private boolean hasBatches(int nodeIndex) {
+        Path dir = inbox(nodeIndex);
+        if (!Files.isDirectory(dir)) {
+            return false;
+        }
+        try (DirectoryStream<Path> stream =
+                Files.newDirectoryStream(dir, "*" + BATCH_EXT)) {
+            return stream.iterator().hasNext();
+        } catch (IOException e) {
+            throw new CollectorException(
+                    "Could not read partition inbox: " + dir, e);
+        }
+    }
+
+    private void flush() {
+        Map<Integer, List<String>> batches;
+        synchronized (outbox) {
+            batches = new HashMap<>(outbox);
+            outbox.clear();
+        }
+        batches.forEach(this::write);
+    }
+
+    private void write(int nodeIndex, List<String> lines) {
+        Path dir = inbox(nodeIndex);
+        String name = System.currentTimeMillis() + "-" + localNode
+                + "-" + batchSequence.incrementAndGet();
+        try {
+            Files.createDirectories(dir);
+            Path tmp = dir.resolve(name + TEMP_EXT);
+            try (Writer w = Files.newBufferedWriter(
+                    tmp, StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    w.write(line);
+                    w.write('\n');
+                }
+            }
+            move(tmp, dir.resolve(name + BATCH_EXT));
+            sentCounts.addAndGet(nodeIndex, lines.size());
+        } catch (IOException e) {
+            throw new CollectorException("Could not send " + lines.size()
+                    + " references to node " + nodeIndex + ".", e);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void receive() {
+        List<Path> batches = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+                inbox(localNode), "*" + BATCH_EXT)) {
+            stream.forEach(batches::add);
+        } catch (IOException e) {
+            throw new CollectorException("Could not read partition inbox: "
+                    + inbox(localNode), e);
+        }
+        // oldest first
+        Collections.sort(batches);
+        for (Path batch : batches) {
+            try (BufferedReader r = Files.newBufferedReader(
+                    batch, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    HttpCrawlReference ref =
+                            PartitionReferenceCodec.decode(line);
+                    if (ref != null) {
+                        receiver.accept(ref);
+                    }
+                    // counted like sent ones, even if invalid
+                    receivedCount.incrementAndGet();
+                }
+            } catch (IOException e) {
+                throw new CollectorException(
+                        "Could not read partition batch: " + batch, e);
+            }
+            try {
+                Files.delete(batch);
+            } catch (IOException e) {
+                throw new CollectorException(
+                        "Could not delete partition batch: " + batch, e);
+            }
+        }
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setDirectory(xml.getPath("directory", directory));
+        setPollInterval(xml.getDurationMillis("pollInterval", pollInterval));
+        setBatchSize(xml.getInteger("batchSize", batchSize));
+    }
+    @Override
+    public void saveToXML(XML xml) {
+        xml.addElement("directory", directory);
+        xml.addElement("pollInterval", pollInterval);
+        xml.addElement("batchSize", batchSize);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
@@ -0,0 +1,67 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.partition;
+
+import java.util.function.Consumer;
+
+import com.norconex.collector.http.reference.HttpCrawlReference;
+
+/**
+ * Exchanges references between crawler nodes when crawling is
+ * partitioned (see {@link CrawlPartitioning}). Sending may be
+ * asynchronous, but references sent before {@link #close()} is invoked
+ * must eventually be delivered to their node.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public interface IPartitionTransport {
+
+    /**
+     * Opens this transport for a crawler node, before any reference
+     * is sent.
+     * @param crawlerId crawler identifier (same on all nodes)
+     * @param nodeIndex index of the local node
+     * @param nodeCount total number of nodes
+     * @param receiver consumer of references received for the local node.
+     *        May be invoked from any thread.
+     */
+    void open(String crawlerId, int nodeIndex, int nodeCount,
+            Consumer<HttpCrawlReference> receiver);
+
+    /**
+     * Sends a reference to the node owning it.
+     * @param nodeIndex index of the target node
+     * @param reference reference to send
+     */
+    void send(int nodeIndex, HttpCrawlReference reference);
+
+    /**
+     * Reports whether the local node is idle and gets whether all nodes
+     * are, with no references sent but not yet received. Invoked
+     * periodically by each node, which keeps running until it
+     * returns <code>true</code>. The default implementation only
+     * considers the local node.
+     * @param localIdle whether the local node has nothing to process
+     * @return <code>true</code> if crawling is complete on all nodes
+     */
+    default boolean isCrawlComplete(boolean localIdle) {
+        return localIdle;
+    }
+
+    /**
+     * Delivers pending references and stops receiving new ones.
+     */
+    void close();
+}
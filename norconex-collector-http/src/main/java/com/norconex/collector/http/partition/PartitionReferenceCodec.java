@@ -0,0 +1,103 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.partition;
+
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import com.norconex.collector.http.reference.HttpCrawlReference;
+import com.norconex.collector.http.util.TsvUtil;
+
+/**
+ * Converts references sent to other nodes to and from single lines
+ * of text, for use by {@link IPartitionTransport} implementations.
+ * Only what is known about a reference before it is queued is kept:
+ * URL, depth, referrer details, redirect trail and sitemap attributes.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public final class PartitionReferenceCodec {
+
+    private static final char LIST_SEP = ' ';
+
+    private PartitionReferenceCodec() {
+        super();
+    }
+
+    /**
+     * Encodes a reference as a line of tab-separated values.
+     * @param ref reference
+     * @return encoded reference, without line terminator
+     */
+    public static String encode(HttpCrawlReference ref) {
+        return TsvUtil.join(
+                ref.getReference(),
+                Integer.toString(ref.getDepth()),
+                ref.getReferrerReference(),
+                ref.getReferrerLinkTag(),
+                ref.getReferrerLinkText(),
+                ref.getReferrerLinkTitle(),
+                StringUtils.join(ref.getRedirectTrail(), LIST_SEP),
+                toString(ref.getSitemapLastMod()),
+                ref.getSitemapChangeFreq(),
+                toString(ref.getSitemapPriority()));
+    }
+
+    /**
+     * Decodes a reference encoded with {@link #encode(HttpCrawlReference)}.
+     * @param line encoded reference
+     * @return reference or <code>null</code> if the line is blank
+     */
+    public static HttpCrawlReference decode(String line) {
+        if (StringUtils.isBlank(line)) {
+            return null;
+        }
+        List<String> f = TsvUtil.split(line);
+        HttpCrawlReference ref = new HttpCrawlReference(
+                f.get(0), NumberUtils.toInt(field(f, 1), 0));
+        ref.setReferrerReference(field(f, 2));
+        ref.setReferrerLinkTag(field(f, 3));
+        ref.setReferrerLinkText(field(f, 4));
+        ref.setReferrerLinkTitle(field(f, 5));
+        String trail = field(f, 6);
+        if (trail != null) {
+            for (String url : StringUtils.split(trail, LIST_SEP)) {
+                ref.addRedirectURL(url);
+            }
+        }
+        String lastMod = field(f, 7);
+        if (lastMod != null) {
+            ref.setSitemapLastMod(Long.valueOf(lastMod));
+        }
+        ref.setSitemapChangeFreq(field(f, 8));
+        String priority = field(f, 9);
+        if (priority != null) {
+            ref.setSitemapPriority(Float.valueOf(priority));
+        }
+        return ref;
+    }
+
+    private static String toString(Object value) {
+        return value == null ? null : value.toString();
+    }
+    private static String field(List<String> fields, int index) {
+        if (index >= fields.size()) {
+            return null;
+        }
+        return StringUtils.defaultIfEmpty(fields.get(index), null);
+    }
+}
@@ -0,0 +1,106 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.pipeline;
+
+import com.norconex.collector.core.pipeline.BasePipelineContext;
+import com.norconex.collector.http.crawler.HttpCrawlerConfig;
+import com.norconex.collector.http.jfr.CrawlEvents;
+import com.norconex.collector.http.jfr.CrawlEvents.StageSpan;
+import com.norconex.commons.lang.pipeline.IPipelineStage;
+
+/**
+ * Pipeline stage recording the time spent in it with the crawler
+ * {@link StageTimings} and as a JFR event, when either is enabled.
+ * @author Pascal Essiembre
+ * @param <C> pipeline context type
+ * @param <T> HTTP pipeline context type expected by the stage
+ * @since 3.0.0
+ */
+public abstract class AbstractTimedStage<C extends BasePipelineContext,
+        T extends C> implements IPipelineStage<C> {
+
+    private final String pipelineName;
+    private final String stageName;
+    private final Class<T> contextType;
+
+    /**
+     * Creates a stage with the given name, used to report time spent
+     * in it.  Defaults to the class simple name when <code>null</code>.
+     * @param pipelineName pipeline name (e.g.,
+     *        {@link CrawlEvents#PIPELINE_IMPORTER})
+     * @param stageName stage name
+     * @param contextType HTTP pipeline context type
+     */
+    protected AbstractTimedStage(
+            String pipelineName, String stageName, Class<T> contextType) {
+        super();
+        this.pipelineName = pipelineName;
+        this.stageName = stageName != null
+                ? stageName : getClass().getSimpleName();
+        this.contextType = contextType;
+    }
+
+    @Override
+    public final boolean execute(C context) {
+        if (!contextType.isInstance(context)) {
+            throw new AssertionError("Unexpected type: " + context);
+        }
+        T ctx = contextType.cast(context);
+        StageTimings timings =
+                ((HttpCrawlerConfig) ctx.getConfig()).getStageTimings();
+        boolean timed = timings != null && timings.isEnabled();
+        String ref = ctx.getCrawlReference().getReference();
+        StageSpan span = CrawlEvents.isStageEnabled()
+                ? CrawlEvents.beginStage(pipelineName, stageName, ref)
+                : null;
+        long start = timed ? System.nanoTime() : 0;
+        boolean passed = false;
+        try {
+            passed = executeStage(ctx);
+            return passed;
+        } finally {
+            if (span != null) {
+                span.end(passed);
+            }
+            if (timed) {
+                timings.record(stageName, ref, System.nanoTime() - start);
+            }
+        }
+    }
+    public abstract boolean executeStage(T ctx);
+
+    /**
+     * Wraps a stage not extending this class (e.g., from Collector Core)
+     * so the time spent in it is recorded like other stages.
+     * @param pipelineName pipeline name (e.g.,
+     *        {@link CrawlEvents#PIPELINE_IMPORTER})
+     * @param contextType HTTP pipeline context type
+     * @param stage the stage to wrap
+     * @param <C> pipeline context type
+     * @param <T> HTTP pipeline context type
+     * @return wrapped stage
+     */
+    public static <C extends BasePipelineContext, T extends C>
+            IPipelineStage<C> wrap(String pipelineName,
+                    Class<T> contextType, IPipelineStage<? super C> stage) {
+        return new AbstractTimedStage<C, T>(pipelineName,
+                stage.getClass().getSimpleName(), contextType) {
+            @Override
+            public boolean executeStage(T ctx) {
+                return stage.execute(ctx);
+            }
+        };
+    }
+}
@@ -0,0 +1,330 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.crawler.Crawler;
+import com.norconex.collector.core.crawler.CrawlerEvent;
+import com.norconex.collector.http.util.JmxUtil;
+import com.norconex.commons.lang.event.IEventListener;
+import com.norconex.commons.lang.time.DurationParser;
+import com.norconex.commons.lang.url.HttpURL;
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * Records the time spent in each stage of the queue and importer
+ * pipelines (delay wait, HTTP HEAD and GET, canonical link detection,
+ * robots meta, link extraction, filters, pre-processors, import, etc.)
+ * into {@link LatencyHistogram}s, per stage and optionally per URL root
+ * (scheme, host and port).
+ * </p>
+ * <p>
+ * When enabled, timings are registered as a JMX MBean under the
+ * "com.norconex.collector.http" domain while the crawler is running,
+ * and a summary of stages sorted by total time spent is logged
+ * at regular intervals and when the crawler ends.
+ * Disabled by default, in which case the overhead is a single
+ * boolean check per stage.
+ * </p>
+ * <p>
+ * Per-host timings use about 4 KB per host and stage, so the number
+ * of hosts tracked is capped. Hosts over that limit are grouped
+ * under "(other)".
+ * </p>
+ * <p>
+ * XML configuration entries expecting millisecond durations
+ * can be provided in human-readable format (English only), as per
+ * {@link DurationParser} (e.g., "5 minutes and 30 seconds" or "5m30s").
+ * </p>
+ *
+ * <h3>XML configuration usage:</h3>
+ * <pre>{@code
+ * <stageTimings enabled="[false|true]">
+ *     <perHost>[false|true]</perHost>
+ *     <maxHosts>(maximum number of hosts with their own timings)</maxHosts>
+ *     <logInterval>(milliseconds between logged summaries)</logInterval>
+ * </stageTimings>
+ * }</pre>
+ * <p>
+ * A log interval of zero or less only logs a summary when the crawler ends.
+ * </p>
+ *
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class StageTimings implements StageTimingsMXBean, IXMLConfigurable,
+        IEventListener<CrawlerEvent<Crawler>> {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(StageTimings.class);
+
+    public static final int DEFAULT_MAX_HOSTS = 100;
+    public static final long DEFAULT_LOG_INTERVAL = 60 * 1000L;
+
+    private static final String OTHER_HOSTS = "(other)";
+
+    private boolean enabled;
+    private boolean perHost;
+    private int maxHosts = DEFAULT_MAX_HOSTS;
+    private long logInterval = DEFAULT_LOG_INTERVAL;
+
+    private final transient Map<String, LatencyHistogram> stages =
+            new ConcurrentHashMap<>();
+    private final transient Map<String, Map<String, LatencyHistogram>>
+            hosts = new ConcurrentHashMap<>();
+    private transient ScheduledExecutorService summaryLogger;
+    private transient ObjectName objectName;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets whether timings are also recorded per URL root
+     * (scheme, host and port).
+     * @return <code>true</code> if recording timings per host
+     */
+    public boolean isPerHost() {
+        return perHost;
+    }
+    /**
+     * Sets whether timings are also recorded per URL root
+     * (scheme, host and port).
+     * @param perHost <code>true</code> to record timings per host
+     */
+    public void setPerHost(boolean perHost) {
+        this.perHost = perHost;
+    }
+
+    public int getMaxHosts() {
+        return maxHosts;
+    }
+    public void setMaxHosts(int maxHosts) {
+        this.maxHosts = maxHosts;
+    }
+
+    /**
+     * Gets the interval in milliseconds between logged summaries.
+     * @return log interval
+     */
+    public long getLogInterval() {
+        return logInterval;
+    }
+    /**
+     * Sets the interval in milliseconds between logged summaries.
+     * @param logInterval log interval
+     */
+    public void setLogInterval(long logInterval) {
+        this.logInterval = logInterval;
+    }
+
+    /**
+     * Records the time spent in a pipeline stage.
+     * @param stage stage name
+     * @param url URL being processed
+     * @param nanos time spent in nanoseconds
+     */
+    public void record(String stage, String url, long nanos) {
+        histogram(stages, stage).recordNanos(nanos);
+        if (perHost && url != null) {
+            String root = StringUtils.defaultIfBlank(
+                    HttpURL.getRoot(url), OTHER_HOSTS);
+            Map<String, LatencyHistogram> hostStages = hosts.get(root);
+            if (hostStages == null) {
+                if (hosts.size() >= maxHosts) {
+                    root = OTHER_HOSTS;
+                }
+                hostStages = hosts.computeIfAbsent(
+                        root, k -> new ConcurrentHashMap<>());
+            }
+            histogram(hostStages, stage).recordNanos(nanos);
+        }
+    }
+
+    /**
+     * Gets the histogram of a stage, or <code>null</code> if no time was
+     * recorded for it.
+     * @param stage stage name
+     * @return histogram
+     */
+    public LatencyHistogram getHistogram(String stage) {
+        return stages.get(stage);
+    }
+
+    /**
+     * Gets the histograms of all stages with recorded time.
+     * @return histograms by stage name (live, unmodifiable view)
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(stages);
+    }
+
+    @Override
+    public Map<String, String> getStageTimings() {
+        Map<String, String> timings = new TreeMap<>();
+        stages.forEach((stage, h) -> timings.put(stage, h.toString()));
+        return timings;
+    }
+    @Override
+    public Map<String, String> getHostStageTimings() {
+        Map<String, String> timings = new TreeMap<>();
+        hosts.forEach((root, hostStages) -> hostStages.forEach(
+                (stage, h) -> timings.put(root + " " + stage, h.toString())));
+        return timings;
+    }
+    @Override
+    public void reset() {
+        stages.clear();
+        hosts.clear();
+    }
+
+    /**
+     * Logs stages sorted by total time spent in them, the most
+     * time-consuming first.
+     */
+    public void logSummary() {
+        if (stages.isEmpty() || !LOG.isInfoEnabled()) {
+            return;
+        }
+        List<Entry<String, LatencyHistogram>> entries =
+                new ArrayList<>(stages.entrySet());
+        entries.sort(Comparator.comparingDouble(
+                (Entry<String, LatencyHistogram> e) ->
+                        e.getValue().getTotalMillis()).reversed());
+        StringBuilder b = new StringBuilder("Stage timings:");
+        for (Entry<String, LatencyHistogram> en : entries) {
+            b.append(String.format(Locale.ENGLISH, "%n  %s: total=%.1fs, %s",
+                    en.getKey(), en.getValue().getTotalMillis() / 1000d,
+                    en.getValue()));
+        }
+        LOG.info("{}", b);
+        if (LOG.isDebugEnabled() && !hosts.isEmpty()) {
+            StringBuilder hb = new StringBuilder("Stage timings per host:");
+            getHostStageTimings().forEach((key, value) ->
+                    hb.append("\n  ").append(key).append(": ").append(value));
+            LOG.debug("{}", hb);
+        }
+    }
+
+    @Override
+    public void accept(CrawlerEvent<Crawler> event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.is(CrawlerEvent.CRAWLER_RUN_BEGIN)) {
+            start(event.getSource().getId());
+        } else if (event.is(CrawlerEvent.CRAWLER_RUN_END)
+                || event.is(CrawlerEvent.CRAWLER_STOP_END)) {
+            stop();
+        }
+    }
+
+    private synchronized void start(String crawlerId) {
+        reset();
+        register(crawlerId);
+        if (logInterval > 0) {
+            summaryLogger = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "stage-timings-" + crawlerId);
+                t.setDaemon(true);
+                return t;
+            });
+            summaryLogger.scheduleAtFixedRate(this::logSummary,
+                    logInterval, logInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+    private synchronized void stop() {
+        if (summaryLogger != null) {
+            summaryLogger.shutdownNow();
+            summaryLogger = null;
+        }
+        logSummary();
+        unregister();
+    }
+
+    private void register(String name) {
+        unregister();
+        objectName = JmxUtil.register(this, "StageTimings", name);
+    }
+    private void unregister() {
+        JmxUtil.unregister(objectName);
+        objectName = null;
+    }
+
+    // Avoids locking on computeIfAbsent when the histogram already exists.
+    private static LatencyHistogram histogram(
+            Map<String, LatencyHistogram> map, String stage) {
+        LatencyHistogram h = map.get(stage);
+        if (h == null) {
+            h = map.computeIfAbsent(stage, k -> new LatencyHistogram());
+        }
+        return h;
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setEnabled(xml.getBoolean("@enabled", enabled));
+        setPerHost(xml.getBoolean("perHost", perHost));
+        setMaxHosts(xml.getInteger("maxHosts", maxHosts));
+        setLogInterval(xml.getDurationMillis("logInterval", logInterval));
+    }
+    @Override
+    public void saveToXML(XML xml) {
+        xml.setAttribute("enabled", enabled);
+        xml.addElement("perHost", perHost);
+        xml.addElement("maxHosts", maxHosts);
+        xml.addElement("logInterval", logInterval);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
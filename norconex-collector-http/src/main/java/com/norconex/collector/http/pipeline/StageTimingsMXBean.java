@@ -0,0 +1,43 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.pipeline;
+
+import java.util.Map;
+
+/**
+ * Time spent in each crawler pipeline stage, exposed through JMX.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public interface StageTimingsMXBean {
+
+    /**
+     * Gets timing statistics for each stage, as
+     * "count=N, mean=Nms, p50=Nms, p90=Nms, p99=Nms, max=Nms" values.
+     * @return statistics per stage
+     */
+    Map<String, String> getStageTimings();
+    /**
+     * Gets timing statistics for each URL root (scheme, host and port)
+     * and stage, keyed as "root stage". Empty unless per-host timings
+     * are enabled.
+     * @return statistics per host and stage
+     */
+    Map<String, String> getHostStageTimings();
+    /**
+     * Clears all timings recorded so far.
+     */
+    void reset();
+}
@@ -15,20 +15,40 @@
 package com.norconex.collector.http.pipeline.importer;
 
 import com.norconex.collector.core.pipeline.importer.ImporterPipelineContext;
+import com.norconex.collector.http.jfr.CrawlEvents;
+import com.norconex.collector.http.pipeline.AbstractTimedStage;
 import com.norconex.commons.lang.pipeline.IPipelineStage;
 
 /**
  * @author Pascal Essiembre
  *
  */
-/*default*/ abstract class AbstractImporterStage 
-        implements IPipelineStage<ImporterPipelineContext> {
-    @Override
-    public final boolean execute(ImporterPipelineContext context) {
-        if (!(context instanceof HttpImporterPipelineContext)) {
-            throw new AssertionError("Unexpected type: " + context);
-        }
-        return executeStage((HttpImporterPipelineContext) context);
+/*default*/ abstract class AbstractImporterStage
+        extends AbstractTimedStage<
+                ImporterPipelineContext, HttpImporterPipelineContext> {
+
+    public AbstractImporterStage() {
+        this(null);
+    }
+    /**
+     * Creates a stage with the given name, used to report time spent
+     * in it.  Defaults to the class simple name when <code>null</code>.
+     * @param stageName stage name
+     */
+    public AbstractImporterStage(String stageName) {
+        super(CrawlEvents.PIPELINE_IMPORTER, stageName,
+                HttpImporterPipelineContext.class);
+    }
+
+    /**
+     * Wraps a stage not extending this class (e.g., from Collector Core)
+     * so the time spent in it is recorded like other stages.
+     * @param stage the stage to wrap
+     * @return wrapped stage
+     */
+    static IPipelineStage<ImporterPipelineContext> wrap(
+            IPipelineStage<? super ImporterPipelineContext> stage) {
+        return AbstractTimedStage.wrap(CrawlEvents.PIPELINE_IMPORTER,
+                HttpImporterPipelineContext.class, stage);
     }
-    public abstract boolean executeStage(HttpImporterPipelineContext ctx);
 }
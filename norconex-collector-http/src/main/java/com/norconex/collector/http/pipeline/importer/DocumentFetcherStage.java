@@ -20,6 +20,8 @@ import org.apache.commons.lang3.StringUtils;
 
 import com.norconex.collector.core.reference.CrawlState;
 import com.norconex.collector.http.crawler.HttpCrawlerEvent;
+import com.norconex.collector.http.dashboard.HostActivity;
+import com.norconex.collector.http.doc.HttpMetadata;
 import com.norconex.collector.http.fetch.IHttpFetchResponse;
 import com.norconex.collector.http.fetch.util.RedirectStrategyWrapper;
 import com.norconex.collector.http.reference.HttpCrawlReference;
@@ -38,8 +40,19 @@ import com.norconex.collector.http.reference.HttpCrawlState;
     public boolean executeStage(HttpImporterPipelineContext ctx) {
         HttpCrawlReference crawlRef = ctx.getCrawlReference();
 
-        IHttpFetchResponse response =
-                ctx.getHttpFetchClient().fetchDocument(ctx.getDocument());
+        HostActivity activity = ctx.getCrawler().getHostActivity();
+        IHttpFetchResponse response;
+        try {
+            response = ctx.getHttpFetchClient().fetchDocument(
+                    ctx.getDocument(), crawlRef.getRetryCount());
+        } catch (RuntimeException e) {
+            activity.failed(crawlRef.getReference());
+            throw e;
+        }
+        activity.fetched(crawlRef.getReference(), response);
+        if (HttpImporterPipelineUtil.deferRetry(ctx, response)) {
+            return false;
+        }
 
         crawlRef.setCrawlDate(LocalDateTime.now());
 
@@ -62,10 +75,21 @@ import com.norconex.collector.http.reference.HttpCrawlState;
         if (state.isGoodState()) {
             ctx.fireCrawlerEvent(HttpCrawlerEvent.DOCUMENT_FETCHED,
                     crawlRef, response);
+            if (ctx.getMetadata().getBoolean(
+                    HttpMetadata.COLLECTOR_CONTENT_TRUNCATED)) {
+                ctx.fireCrawlerEvent(HttpCrawlerEvent.DOCUMENT_TRUNCATED,
+                        crawlRef, response);
+            }
+        } else if (state.isOneOf(HttpCrawlState.REJECTED)) {
+            // rejected by fetcher on headers, before download: the
+            // metadata filters already fired the rejection event
+            return false;
         } else {
             String eventType = null;
             if (state.isOneOf(HttpCrawlState.NOT_FOUND)) {
                 eventType = HttpCrawlerEvent.REJECTED_NOTFOUND;
+            } else if (state.isOneOf(HttpCrawlState.TOO_LARGE)) {
+                eventType = HttpCrawlerEvent.REJECTED_TOO_LARGE;
             } else {
                 eventType = HttpCrawlerEvent.REJECTED_BAD_STATUS;
             }
@@ -16,8 +16,8 @@ package com.norconex.collector.http.pipeline.importer;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.collections4.queue.CircularFifoQueue;
 
 import com.norconex.collector.core.CollectorException;
 import com.norconex.collector.core.pipeline.importer.DocumentFiltersStage;
@@ -25,10 +25,16 @@ import com.norconex.collector.core.pipeline.importer.ImportModuleStage;
 import com.norconex.collector.core.pipeline.importer.ImporterPipelineContext;
 import com.norconex.collector.core.pipeline.importer.ImporterPipelineUtil;
 import com.norconex.collector.core.pipeline.importer.SaveDocumentStage;
+import com.norconex.collector.http.crawler.DeferredReferences;
 import com.norconex.collector.http.crawler.HttpCrawlerEvent;
 import com.norconex.collector.http.delay.IDelayResolver;
+import com.norconex.collector.http.partition.CrawlPartitioning;
+import com.norconex.collector.http.pipeline.queue.HttpQueuePipeline;
+import com.norconex.collector.http.pipeline.queue.HttpQueuePipelineContext;
 import com.norconex.collector.http.processor.IHttpDocumentProcessor;
+import com.norconex.collector.http.reference.HttpCrawlReference;
 import com.norconex.collector.http.reference.HttpCrawlState;
+import com.norconex.collector.http.robot.RobotsTxt;
 import com.norconex.commons.lang.pipeline.Pipeline;
 
 /**
@@ -38,16 +44,18 @@ import com.norconex.commons.lang.pipeline.Pipeline;
 public class HttpImporterPipeline
         extends Pipeline<ImporterPipelineContext> {
 
-    //TODO Hack for ticket #533. Version 3 shall have a more robust fix.
-    public static final CircularFifoQueue<String> GOOD_REDIRECTS =
-            new CircularFifoQueue<>(10000);
-
     //TODO create a DocumentPipelinePrototype to generate prototypes
     //sharing all thread safe/common information,
     //just changing what is url/doc specific.
 
     public HttpImporterPipeline(boolean isKeepDownloads, boolean isOrphan) {
 
+        // URLs put back in queue come back when due
+        addStage(new NotBeforeStage());
+
+        // partitioning barrier and checks on URLs from other nodes
+        addStage(new PartitionStage());
+
         // if an orphan is reprocessed, it could be that it is no longer
         // referenced because of deletion.  Because of that, we need
         // to process it again to find out.
@@ -67,7 +75,7 @@ public class HttpImporterPipeline
         // HTTP "GET" and onward:
         addStage(new DocumentFetcherStage());
         if (isKeepDownloads) {
-            addStage(new SaveDocumentStage());
+            addStage(AbstractImporterStage.wrap(new SaveDocumentStage()));
         }
         addStage(new MetadataCanonicalGETStage());
         addStage(new DocumentCanonicalStage());
@@ -76,9 +84,67 @@ public class HttpImporterPipeline
         addStage(new RobotsMetaNoIndexStage());
         addStage(new MetadataFiltersGETStage());
         addStage(new MetadataChecksumStage(false));
-        addStage(new DocumentFiltersStage());
+        addStage(AbstractImporterStage.wrap(new DocumentFiltersStage()));
         addStage(new DocumentPreProcessingStage());
-        addStage(new ImportModuleStage());
+        addStage(AbstractImporterStage.wrap(new ImportModuleStage()));
+    }
+
+    //--- Put back in queue if dequeued too early ------------------------------
+    /*default*/ static class NotBeforeStage extends AbstractImporterStage {
+        @Override
+        public boolean executeStage(HttpImporterPipelineContext ctx) {
+            HttpCrawlReference crawlRef = ctx.getCrawlReference();
+            DeferredReferences deferred =
+                    ctx.getCrawler().getDeferredReferences();
+            long notBefore = crawlRef.getNotBefore();
+            long remaining = 0;
+            if (notBefore > 0) {
+                deferred.dequeued(notBefore);
+                remaining = notBefore - System.currentTimeMillis();
+                if (remaining > 0) {
+                    // When nothing else is ready, waits for this one
+                    // or the earliest one instead of requeuing right away
+                    remaining = deferred.awaitDue(
+                            notBefore, ctx.getConfig().getNumThreads());
+                }
+            }
+            if (remaining <= 0) {
+                crawlRef.setNotBefore(0);
+                deferred.readyDequeued();
+                return true;
+            }
+            HttpImporterPipelineUtil.deferCrawlReference(
+                    ctx, notBefore, deferred);
+            return false;
+        }
+    }
+
+    //--- Partitioning ---------------------------------------------------------
+    /*default*/ static class PartitionStage extends AbstractImporterStage {
+        @Override
+        public boolean executeStage(HttpImporterPipelineContext ctx) {
+            HttpCrawlReference crawlRef = ctx.getCrawlReference();
+            if (CrawlPartitioning.isBarrierReference(
+                    crawlRef.getReference())) {
+                // Keeps the node running until all nodes are done.
+                CrawlPartitioning partitioning =
+                        ctx.getConfig().getPartitioning();
+                if (!partitioning.isCrawlComplete(ctx.getCrawler()
+                        .getDeferredReferences().getEarliest() > 0)) {
+                    ctx.getCrawler().queueDeferredReference(
+                            partitioning.createBarrierReference());
+                }
+                crawlRef.setState(HttpCrawlState.DEFERRED);
+                return false;
+            }
+            if (crawlRef.isPartitionReceived()) {
+                crawlRef.setPartitionReceived(false);
+                return HttpQueuePipeline.executeReceivedChecks(
+                        new HttpQueuePipelineContext(
+                                ctx.getCrawler(), crawlRef));
+            }
+            return true;
+        }
     }
 
     //--- Wait for delay to expire ---------------------------------------------
@@ -86,20 +152,47 @@ public class HttpImporterPipeline
         @Override
         public boolean executeStage(HttpImporterPipelineContext ctx) {
             IDelayResolver delayResolver = ctx.getConfig().getDelayResolver();
-            if (delayResolver != null) {
-                if (!ctx.getConfig().isIgnoreRobotsTxt()) {
-                    delayResolver.delay(
-                            ctx.getConfig().getRobotsTxtProvider().getRobotsTxt(
-                                    ctx.getHttpFetchClient(),
-                                    ctx.getCrawlReference().getReference()),
-                            ctx.getCrawlReference().getReference());
-                } else {
-                    delayResolver.delay(
-                            null, ctx.getCrawlReference().getReference());
-                }
+            if (delayResolver == null) {
+                return true;
+            }
+            HttpCrawlReference crawlRef = ctx.getCrawlReference();
+            if (crawlRef.isDelaySlotReserved()) {
+                // the hit was accounted for when the slot was reserved
+                crawlRef.setDelaySlotReserved(false);
+                return true;
+            }
+            String url = crawlRef.getReference();
+            RobotsTxt robotsTxt = null;
+            if (!ctx.getConfig().isIgnoreRobotsTxt()) {
+                robotsTxt = ctx.getConfig().getRobotsTxtProvider()
+                        .getRobotsTxt(ctx.getHttpFetchClient(), url);
+            }
+            if (!delayResolver.isDelayDeferred()) {
+                long start = System.nanoTime();
+                delayResolver.delay(robotsTxt, url);
+                long elapsed = System.nanoTime() - start;
+                ctx.getConfig().getMetrics().recordDelay(elapsed);
+                ctx.getCrawler().getHostActivity().delayed(
+                        url, elapsed, crawlDelay(robotsTxt));
+                return true;
+            }
+            long delay = delayResolver.tryDelay(robotsTxt, url);
+            ctx.getCrawler().getHostActivity().delayed(url,
+                    TimeUnit.MILLISECONDS.toNanos(Math.max(delay, 0)),
+                    crawlDelay(robotsTxt));
+            if (delay > 0) {
+                // requeued to be crawled at the reserved slot
+                crawlRef.setDelaySlotReserved(true);
+                HttpImporterPipelineUtil.deferCrawlReference(ctx,
+                        System.currentTimeMillis() + delay, delayResolver);
+                crawlRef.setDelaySlotReserved(false);
+                return false;
             }
             return true;
         }
+        private float crawlDelay(RobotsTxt robotsTxt) {
+            return robotsTxt == null ? 0 : robotsTxt.getCrawlDelay();
+        }
     }
 
 
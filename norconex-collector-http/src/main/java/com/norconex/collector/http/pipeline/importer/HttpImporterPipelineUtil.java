@@ -27,6 +27,7 @@ import com.norconex.collector.core.reference.CrawlReference.Stage;
 import com.norconex.collector.http.crawler.HttpCrawlerEvent;
 import com.norconex.collector.http.doc.HttpDocument;
 import com.norconex.collector.http.doc.HttpMetadata;
+import com.norconex.collector.http.fetch.HttpFetchClientResponse;
 import com.norconex.collector.http.fetch.HttpFetchResponseBuilder;
 import com.norconex.collector.http.fetch.IHttpFetchResponse;
 import com.norconex.collector.http.pipeline.queue.HttpQueuePipeline;
@@ -208,6 +209,56 @@ import com.norconex.commons.lang.file.ContentType;
         return true;
     }
 
+    /**
+     * Puts a copy of the current crawl reference back in the queue, not
+     * to be processed before the given time. The current reference
+     * is marked as {@link HttpCrawlState#DEFERRED}.
+     * @param ctx importer pipeline context
+     * @param notBefore earliest processing time (epoch milliseconds)
+     * @param subject what caused the deferral (for the event fired)
+     */
+    public static void deferCrawlReference(
+            HttpImporterPipelineContext ctx, long notBefore, Object subject) {
+        HttpCrawlReference crawlRef = ctx.getCrawlReference();
+        HttpCrawlReference newData = (HttpCrawlReference) crawlRef.clone();
+        newData.setState(null);
+        newData.setNotBefore(notBefore);
+        ctx.getCrawler().queueDeferredReference(newData);
+        ctx.getCrawler().getHostActivity().queued(newData.getReference());
+
+        crawlRef.setState(HttpCrawlState.DEFERRED);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Deferring processing by {}ms: {}",
+                    notBefore - System.currentTimeMillis(),
+                    crawlRef.getReference());
+        }
+        ctx.fireCrawlerEvent(
+                HttpCrawlerEvent.DOCUMENT_DEFERRED, crawlRef, subject);
+    }
+
+    /**
+     * Defers the current crawl reference if the fetch response asks
+     * for a deferred retry.
+     * @param ctx importer pipeline context
+     * @param response fetch response
+     * @return <code>true</code> if deferred
+     */
+    public static boolean deferRetry(
+            HttpImporterPipelineContext ctx, IHttpFetchResponse response) {
+        if (!(response instanceof HttpFetchClientResponse)) {
+            return false;
+        }
+        long notBefore = ((HttpFetchClientResponse) response)
+                .getRetryNotBefore();
+        if (notBefore <= 0) {
+            return false;
+        }
+        HttpCrawlReference crawlRef = ctx.getCrawlReference();
+        crawlRef.setRetryCount(crawlRef.getRetryCount() + 1);
+        deferCrawlReference(ctx, notBefore, response);
+        return true;
+    }
+
     // Keep this method static so multi-threads treat this method as one
     // instance (to avoid redirect dups).
     public static synchronized void queueRedirectURL(
@@ -241,8 +292,7 @@ import com.norconex.commons.lang.file.ContentType;
                 rejectRedirectDup("processed", sourceURL, redirectURL);
                 return;
             //TODO improve this #533 hack in v3
-            } else if (HttpImporterPipeline.GOOD_REDIRECTS.contains(
-                    redirectURL)) {
+            } else if (ctx.getCrawler().isGoodRedirect(redirectURL)) {
                 if (LOG.isTraceEnabled()) {
                     LOG.trace("Redirect URL previously processed and was "
                             + "valid, rejecting: " + redirectURL);
@@ -278,6 +328,8 @@ import com.norconex.commons.lang.file.ContentType;
         newData.addRedirectURL(sourceURL);
         if (requeue) {
             ctx.getCrawlReferenceService().queue(newData);
+            ctx.getConfig().getMetrics().referenceQueued();
+            ctx.getCrawler().getHostActivity().queued(redirectURL);
         } else if (ctx.getConfig().getURLCrawlScopeStrategy().isInScope(
                 crawlRef.getReference(), redirectURL)) {
             HttpQueuePipelineContext newContext =
@@ -28,7 +28,8 @@ import com.norconex.collector.http.reference.HttpCrawlState;
     private final boolean useHttpHEADFetchHeaders;
 
     public MetadataChecksumStage(boolean useHttpHEADFetchHeaders) {
-        super();
+        super(useHttpHEADFetchHeaders
+                ? "MetadataChecksumHEADStage" : "MetadataChecksumGETStage");
         this.useHttpHEADFetchHeaders = useHttpHEADFetchHeaders;
     }
 
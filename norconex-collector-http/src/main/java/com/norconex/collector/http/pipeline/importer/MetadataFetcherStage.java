@@ -18,6 +18,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import com.norconex.collector.core.reference.CrawlState;
 import com.norconex.collector.http.crawler.HttpCrawlerEvent;
+import com.norconex.collector.http.dashboard.HostActivity;
 import com.norconex.collector.http.doc.HttpMetadata;
 import com.norconex.collector.http.fetch.HttpFetchClient;
 import com.norconex.collector.http.fetch.IHttpFetchResponse;
@@ -48,8 +49,19 @@ import com.norconex.collector.http.reference.HttpCrawlState;
         HttpMetadata metadata = ctx.getMetadata();
 //        Properties headers = new Properties(metadata.isCaseInsensitiveKeys());
 
-        IHttpFetchResponse response = fetcher.fetchHeaders(
-                crawlRef.getReference(), metadata);
+        HostActivity activity = ctx.getCrawler().getHostActivity();
+        IHttpFetchResponse response;
+        try {
+            response = fetcher.fetchHeaders(crawlRef.getReference(),
+                    metadata, crawlRef.getRetryCount());
+        } catch (RuntimeException e) {
+            activity.failed(crawlRef.getReference());
+            throw e;
+        }
+        activity.fetched(crawlRef.getReference(), response);
+        if (HttpImporterPipelineUtil.deferRetry(ctx, response)) {
+            return false;
+        }
 
 //        metadata.putAll(headers);
 
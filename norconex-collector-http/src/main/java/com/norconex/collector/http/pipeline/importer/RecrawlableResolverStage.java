@@ -56,6 +56,12 @@ import com.norconex.collector.http.reference.HttpCrawlState;
         prevData.setSitemapChangeFreq(currentData.getSitemapChangeFreq());
         prevData.setSitemapLastMod(currentData.getSitemapLastMod());
         prevData.setSitemapPriority(currentData.getSitemapPriority());
+        prevData.setDepth(currentData.getDepth());
+        prevData.setFirstCrawlDate(cachedData.getFirstCrawlDate());
+        prevData.setCrawlCount(cachedData.getCrawlCount());
+        prevData.setChangeCount(cachedData.getChangeCount());
+        prevData.setLastChangeDate(cachedData.getLastChangeDate());
+        prevData.setChangeIntervals(cachedData.getChangeIntervals());
 
         boolean isRecrawlable = rr.isRecrawlable(prevData);
         if (!isRecrawlable) {
@@ -66,7 +72,19 @@ import com.norconex.collector.http.reference.HttpCrawlState;
             ctx.fireCrawlerEvent(
                     HttpCrawlerEvent.REJECTED_PREMATURE, currentData, rr);
             currentData.setState(HttpCrawlState.PREMATURE);
+            return false;
         }
-        return isRecrawlable;
+
+        // Give a chance to more deserving documents to be recrawled first
+        if (!currentData.isRecrawlPrioritized()) {
+            currentData.setRecrawlPrioritized(true);
+            long delay = rr.getRecrawlDelay(prevData);
+            if (delay > 0) {
+                HttpImporterPipelineUtil.deferCrawlReference(
+                        ctx, System.currentTimeMillis() + delay, rr);
+                return false;
+            }
+        }
+        return true;
     }
 }
\ No newline at end of file
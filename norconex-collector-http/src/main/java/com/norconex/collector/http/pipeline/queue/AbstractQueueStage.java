@@ -15,20 +15,40 @@
 package com.norconex.collector.http.pipeline.queue;
 
 import com.norconex.collector.core.pipeline.BasePipelineContext;
+import com.norconex.collector.http.jfr.CrawlEvents;
+import com.norconex.collector.http.pipeline.AbstractTimedStage;
 import com.norconex.commons.lang.pipeline.IPipelineStage;
 
 /**
  * @author Pascal Essiembre
  *
  */
-/*default*/ abstract class AbstractQueueStage 
-        implements IPipelineStage<BasePipelineContext> {
-    @Override
-    public final boolean execute(BasePipelineContext context) {
-        if (!(context instanceof HttpQueuePipelineContext)) {
-            throw new AssertionError("Unexpected type: " + context);
-        }
-        return executeStage((HttpQueuePipelineContext) context);
+/*default*/ abstract class AbstractQueueStage
+        extends AbstractTimedStage<
+                BasePipelineContext, HttpQueuePipelineContext> {
+
+    public AbstractQueueStage() {
+        this(null);
+    }
+    /**
+     * Creates a stage with the given name, used to report time spent
+     * in it.  Defaults to the class simple name when <code>null</code>.
+     * @param stageName stage name
+     */
+    public AbstractQueueStage(String stageName) {
+        super(CrawlEvents.PIPELINE_QUEUE, stageName,
+                HttpQueuePipelineContext.class);
+    }
+
+    /**
+     * Wraps a stage not extending this class (e.g., from Collector Core)
+     * so the time spent in it is recorded like other stages.
+     * @param stage the stage to wrap
+     * @return wrapped stage
+     */
+    static IPipelineStage<BasePipelineContext> wrap(
+            IPipelineStage<? super BasePipelineContext> stage) {
+        return AbstractTimedStage.wrap(CrawlEvents.PIPELINE_QUEUE,
+                HttpQueuePipelineContext.class, stage);
     }
-    public abstract boolean executeStage(HttpQueuePipelineContext ctx);
 }
@@ -24,6 +24,7 @@ import com.norconex.collector.core.pipeline.BasePipelineContext;
 import com.norconex.collector.core.pipeline.queue.QueueReferenceStage;
 import com.norconex.collector.core.pipeline.queue.ReferenceFiltersStage;
 import com.norconex.collector.http.crawler.HttpCrawlerEvent;
+import com.norconex.collector.http.partition.CrawlPartitioning;
 import com.norconex.collector.http.reference.HttpCrawlState;
 import com.norconex.collector.http.robot.RobotsTxt;
 import com.norconex.collector.http.sitemap.ISitemapResolver;
@@ -43,13 +44,44 @@ public final class HttpQueuePipeline
             LoggerFactory.getLogger(HttpQueuePipeline.class);
 
     public HttpQueuePipeline() {
+        this(false);
+    }
+    /**
+     * Creates a queue pipeline.
+     * @param partitionReceived <code>true</code> for references received
+     *        from another crawler node, which skip robots.txt and sitemap
+     *        stages so they are queued quickly. These stages are then
+     *        executed when the references are processed
+     *        (see {@link #executeReceivedChecks(HttpQueuePipelineContext)}).
+     * @since 3.0.0
+     */
+    public HttpQueuePipeline(boolean partitionReceived) {
         super();
         addStage(new DepthValidationStage());
-        addStage(new ReferenceFiltersStage());
-        addStage(new RobotsTxtFiltersStage());
+        addStage(AbstractQueueStage.wrap(new ReferenceFiltersStage()));
         addStage(new URLNormalizerStage());
-        addStage(new SitemapStage());
-        addStage(new QueueReferenceStage());
+        addStage(new PartitionStage());
+        // before robots.txt, so a new site is known before its
+        // robots.txt gets fetched
+        addStage(new URLRootStage());
+        if (!partitionReceived) {
+            addStage(new RobotsTxtFiltersStage());
+            addStage(new SitemapStage());
+        }
+        addStage(AbstractQueueStage.wrap(new QueueReferenceStage()));
+        addStage(new QueuedMetricsStage());
+    }
+
+    /**
+     * Executes the robots.txt and sitemap stages skipped when queuing
+     * a reference received from another crawler node.
+     * @param ctx queue pipeline context
+     * @return <code>true</code> if the reference was not rejected
+     * @since 3.0.0
+     */
+    public static boolean executeReceivedChecks(HttpQueuePipelineContext ctx) {
+        return new RobotsTxtFiltersStage().execute(ctx)
+                && new SitemapStage().execute(ctx);
     }
 
     //--- URL Depth ------------------------------------------------------------
@@ -74,6 +106,35 @@ public final class HttpQueuePipeline
         }
     }
 
+    //--- Partitioning ---------------------------------------------------------
+    // Before robots.txt so only the owner node fetches it
+    private static class PartitionStage extends AbstractQueueStage {
+        @Override
+        public boolean executeStage(HttpQueuePipelineContext ctx) {
+            // only queued by the crawler, never as a document (e.g., orphan)
+            if (CrawlPartitioning.isBarrierReference(
+                    ctx.getCrawlReference().getReference())) {
+                LOG.debug("Partition barrier not queued as a document: {}",
+                        ctx.getCrawlReference().getReference());
+                ctx.getCrawlReference().setState(HttpCrawlState.REJECTED);
+                return false;
+            }
+            CrawlPartitioning partitioning = ctx.getConfig().getPartitioning();
+            if (!partitioning.isActive()) {
+                return true;
+            }
+            int owner = partitioning.getOwnerNode(
+                    ctx.getCrawlReference().getUrlRoot());
+            if (owner == partitioning.getNodeIndex()) {
+                return true;
+            }
+            partitioning.send(ctx.getCrawlReference(), owner);
+            ctx.fireCrawlerEvent(HttpCrawlerEvent.URL_PARTITIONED,
+                    ctx.getCrawlReference(), owner);
+            return false;
+        }
+    }
+
     /*default*/ static RobotsTxt getRobotsTxt(HttpQueuePipelineContext ctx) {
         if (!ctx.getConfig().isIgnoreRobotsTxt()) {
             return ctx.getConfig().getRobotsTxtProvider().getRobotsTxt(
@@ -84,6 +145,22 @@ public final class HttpQueuePipeline
         }
     }
 
+    //--- New URL Root ---------------------------------------------------------
+    private static class URLRootStage extends AbstractQueueStage {
+        @Override
+        public boolean executeStage(HttpQueuePipelineContext ctx) {
+            // lets interested parties (e.g., DNS pre-resolution) know
+            // about a new site as early as possible
+            if (ctx.getCrawler().registerQueuedURLRoot(
+                    ctx.getCrawlReference().getUrlRoot())) {
+                ctx.fireCrawlerEvent(HttpCrawlerEvent.URL_ROOT_QUEUED,
+                        ctx.getCrawlReference(),
+                        ctx.getCrawlReference().getUrlRoot());
+            }
+            return true;
+        }
+    }
+
     //--- Sitemap URL Extraction -----------------------------------------------
     private static class SitemapStage extends AbstractQueueStage {
         @Override
@@ -112,6 +189,7 @@ public final class HttpQueuePipeline
             sitemapResolver.resolveSitemaps(
                     ctx.getCrawler().getHttpFetchClient(), urlRoot,
                     robotsTxtLocations, (ref) -> {
+                        ctx.getConfig().getMetrics().sitemapURLEmitted();
                         HttpQueuePipelineContext context =
                                 new HttpQueuePipelineContext(
                                         ctx.getCrawler(), ref);
@@ -121,6 +199,25 @@ public final class HttpQueuePipeline
         }
     }
 
+    //--- Queued metrics -------------------------------------------------------
+    // Only reached when the reference passed all queue stages
+    private static class QueuedMetricsStage extends AbstractQueueStage {
+        @Override
+        public boolean executeStage(HttpQueuePipelineContext ctx) {
+            ctx.getConfig().getMetrics().referenceQueued();
+            ctx.getCrawler().getHostActivity().queued(
+                    ctx.getCrawlReference().getReference());
+            // lets threads waiting on deferred references know
+            long notBefore = ctx.getCrawlReference().getNotBefore();
+            if (notBefore > System.currentTimeMillis()) {
+                ctx.getCrawler().getDeferredReferences().queued(notBefore);
+            } else {
+                ctx.getCrawler().getDeferredReferences().readyQueued();
+            }
+            return true;
+        }
+    }
+
     //--- URL Normalizer -------------------------------------------------------
     private static class URLNormalizerStage extends AbstractQueueStage {
         @Override
@@ -30,4 +30,21 @@ public interface IRecrawlableResolver {
      * @return <code>true</code> if recrawlable
      */
     boolean isRecrawlable(PreviousCrawlData prevCrawlData);
+
+    /**
+     * Gets how long to postpone a document recrawl so documents more
+     * worthy of being recrawled get processed first. Invoked at most
+     * once per crawler run for each previously crawled document, after
+     * {@link #isRecrawlable(PreviousCrawlData)} returned
+     * <code>true</code>. A postponed document is put back in the queue
+     * and {@link #isRecrawlable(PreviousCrawlData)} is invoked again
+     * when it comes back.
+     * Default implementation returns zero (no postponing).
+     * @param prevCrawlData data about previously crawled document
+     * @return delay in milliseconds
+     * @since 3.0.0
+     */
+    default long getRecrawlDelay(PreviousCrawlData prevCrawlData) {
+        return 0;
+    }
 }
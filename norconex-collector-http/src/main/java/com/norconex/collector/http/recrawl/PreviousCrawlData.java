@@ -15,12 +15,16 @@
 package com.norconex.collector.http.recrawl;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
+import com.norconex.commons.lang.collection.CollectionUtil;
 import com.norconex.commons.lang.file.ContentType;
 
 /**
@@ -36,6 +40,12 @@ public class PreviousCrawlData {
     private Long sitemapLastMod;
     private String sitemapChangeFreq;
     private Float sitemapPriority;
+    private int depth;
+    private LocalDateTime firstCrawlDate;
+    private int crawlCount;
+    private int changeCount;
+    private LocalDateTime lastChangeDate;
+    private final List<Long> changeIntervals = new ArrayList<>();
 
     public String getReference() {
         return reference;
@@ -74,6 +84,106 @@ public class PreviousCrawlData {
         this.sitemapPriority = sitemapPriority;
     }
 
+    /**
+     * Gets the URL depth.
+     * @return depth
+     * @since 3.0.0
+     */
+    public int getDepth() {
+        return depth;
+    }
+    /**
+     * Sets the URL depth.
+     * @param depth depth
+     * @since 3.0.0
+     */
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+    /**
+     * Gets the date the document was first crawled.
+     * @return first crawl date (may be <code>null</code>)
+     * @since 3.0.0
+     */
+    public LocalDateTime getFirstCrawlDate() {
+        return firstCrawlDate;
+    }
+    /**
+     * Sets the date the document was first crawled.
+     * @param firstCrawlDate first crawl date
+     * @since 3.0.0
+     */
+    public void setFirstCrawlDate(LocalDateTime firstCrawlDate) {
+        this.firstCrawlDate = firstCrawlDate;
+    }
+    /**
+     * Gets how many times the document was crawled so far.
+     * @return crawl count
+     * @since 3.0.0
+     */
+    public int getCrawlCount() {
+        return crawlCount;
+    }
+    /**
+     * Sets how many times the document was crawled so far.
+     * @param crawlCount crawl count
+     * @since 3.0.0
+     */
+    public void setCrawlCount(int crawlCount) {
+        this.crawlCount = crawlCount;
+    }
+    /**
+     * Gets how many times the document was found modified when recrawled.
+     * @return change count
+     * @since 3.0.0
+     */
+    public int getChangeCount() {
+        return changeCount;
+    }
+    /**
+     * Sets how many times the document was found modified when recrawled.
+     * @param changeCount change count
+     * @since 3.0.0
+     */
+    public void setChangeCount(int changeCount) {
+        this.changeCount = changeCount;
+    }
+
+    /**
+     * Gets the date the document was last found new or modified.
+     * @return last change date (may be <code>null</code>)
+     * @since 3.0.0
+     */
+    public LocalDateTime getLastChangeDate() {
+        return lastChangeDate;
+    }
+    /**
+     * Sets the date the document was last found new or modified.
+     * @param lastChangeDate last change date
+     * @since 3.0.0
+     */
+    public void setLastChangeDate(LocalDateTime lastChangeDate) {
+        this.lastChangeDate = lastChangeDate;
+    }
+    /**
+     * Gets the most recent intervals observed between document changes,
+     * in milliseconds, from oldest to newest.
+     * @return change intervals (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public List<Long> getChangeIntervals() {
+        return Collections.unmodifiableList(changeIntervals);
+    }
+    /**
+     * Sets the most recent intervals observed between document changes,
+     * in milliseconds, from oldest to newest.
+     * @param changeIntervals change intervals
+     * @since 3.0.0
+     */
+    public void setChangeIntervals(List<Long> changeIntervals) {
+        CollectionUtil.setAll(this.changeIntervals, changeIntervals);
+    }
+
     @Override
     public boolean equals(final Object other) {
         return EqualsBuilder.reflectionEquals(this, other);
@@ -0,0 +1,285 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.recrawl.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.http.recrawl.IRecrawlableResolver;
+import com.norconex.collector.http.recrawl.PreviousCrawlData;
+import com.norconex.commons.lang.time.DurationParser;
+import com.norconex.commons.lang.xml.IXMLConfigurable;
+import com.norconex.commons.lang.xml.XML;
+
+/**
+ * <p>
+ * Learns how often each document changes and recrawls it accordingly:
+ * documents that change often are revisited more often, while documents
+ * that never change are recrawled less and less frequently.
+ * </p>
+ * <p>
+ * The crawler keeps, for each document, the most recent intervals observed
+ * between content changes (as detected by checksums) along with when it
+ * last changed. The mean interval between changes is estimated as
+ * an exponentially weighted moving average (EWMA) of these intervals,
+ * giving more weight to recent ones. When a document has not changed for
+ * longer than that average, the time elapsed since its last change is
+ * used instead, so the estimate keeps growing while a document stays
+ * unchanged. Documents never seen changing get an estimate based on how
+ * long they were observed.
+ * </p>
+ * <p>
+ * Changes are assumed to occur at random at that mean rate
+ * (Poisson process). A document is due for a recrawl once the probability
+ * it changed since it was last crawled reaches the configured
+ * "change probability". The resulting interval is kept between a minimum
+ * and a maximum.
+ * </p>
+ * <p>
+ * Documents never crawled before are always crawled. Sitemap
+ * directives are not considered by this resolver.
+ * </p>
+ * <p>
+ * XML configuration entries expecting millisecond durations
+ * can be provided in human-readable format (English only), as per
+ * {@link DurationParser} (e.g., "5 minutes and 30 seconds" or "5m30s").
+ * </p>
+ *
+ * <h3>XML configuration usage:</h3>
+ * <pre>{@code
+ * <recrawlableResolver
+ *     class="com.norconex.collector.http.recrawl.impl.AdaptiveRecrawlableResolver">
+ *     <minInterval>(minimum milliseconds between recrawls)</minInterval>
+ *     <maxInterval>(maximum milliseconds between recrawls)</maxInterval>
+ *     <smoothing>(weight of the most recent change interval, 0-1)</smoothing>
+ *     <changeProbability>
+ *         (probability a document changed for it to be recrawled, 0-1)
+ *     </changeProbability>
+ * </recrawlableResolver>
+ * }</pre>
+ *
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class AdaptiveRecrawlableResolver
+        implements IRecrawlableResolver, IXMLConfigurable {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(AdaptiveRecrawlableResolver.class);
+
+    public static final long DEFAULT_MIN_INTERVAL = 60 * 60 * 1000L;
+    public static final long DEFAULT_MAX_INTERVAL = 30 * 24 * 60 * 60 * 1000L;
+    public static final float DEFAULT_SMOOTHING = 0.3f;
+    public static final float DEFAULT_CHANGE_PROBABILITY = 0.5f;
+
+    // Pseudo-count for documents never seen changing
+    private static final double CHANGE_SMOOTHING = 0.5d;
+
+    private long minInterval = DEFAULT_MIN_INTERVAL;
+    private long maxInterval = DEFAULT_MAX_INTERVAL;
+    private float smoothing = DEFAULT_SMOOTHING;
+    private float changeProbability = DEFAULT_CHANGE_PROBABILITY;
+
+    /**
+     * Gets the minimum time between two recrawls of a document,
+     * in milliseconds.
+     * @return minimum interval
+     */
+    public long getMinInterval() {
+        return minInterval;
+    }
+    /**
+     * Sets the minimum time between two recrawls of a document,
+     * in milliseconds.
+     * @param minInterval minimum interval
+     */
+    public void setMinInterval(long minInterval) {
+        this.minInterval = minInterval;
+    }
+
+    /**
+     * Gets the maximum time between two recrawls of a document,
+     * in milliseconds.
+     * @return maximum interval
+     */
+    public long getMaxInterval() {
+        return maxInterval;
+    }
+    /**
+     * Sets the maximum time between two recrawls of a document,
+     * in milliseconds.
+     * @param maxInterval maximum interval
+     */
+    public void setMaxInterval(long maxInterval) {
+        this.maxInterval = maxInterval;
+    }
+
+    /**
+     * Gets the weight given to the most recent change interval when
+     * averaging change intervals (between 0 and 1).
+     * @return smoothing factor
+     */
+    public float getSmoothing() {
+        return smoothing;
+    }
+    /**
+     * Sets the weight given to the most recent change interval when
+     * averaging change intervals (between 0 and 1). Higher values
+     * adapt faster to new change patterns.
+     * @param smoothing smoothing factor
+     */
+    public void setSmoothing(float smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * Gets the estimated probability a document changed for it to
+     * be recrawled (between 0 and 1).
+     * @return change probability
+     */
+    public float getChangeProbability() {
+        return changeProbability;
+    }
+    /**
+     * Sets the estimated probability a document changed for it to
+     * be recrawled (between 0 and 1). Lower values recrawl sooner.
+     * @param changeProbability change probability
+     */
+    public void setChangeProbability(float changeProbability) {
+        this.changeProbability = changeProbability;
+    }
+
+    @Override
+    public boolean isRecrawlable(PreviousCrawlData prevData) {
+        if (prevData.getCrawlDate() == null) {
+            return true;
+        }
+        LocalDateTime nextDate = getNextRecrawlDate(prevData);
+        boolean recrawlable = !LocalDateTime.now().isBefore(nextDate);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("{} according to adaptive interval (next recrawl "
+                    + "date: {}): {}", recrawlable
+                            ? "Recrawlable" : "Not recrawlable",
+                    nextDate, prevData.getReference());
+        }
+        return recrawlable;
+    }
+
+    /**
+     * Gets the date a previously crawled document is due for a recrawl.
+     * @param prevData data about previously crawled document
+     * @return next recrawl date
+     */
+    public LocalDateTime getNextRecrawlDate(PreviousCrawlData prevData) {
+        LocalDateTime lastCrawlDate = prevData.getCrawlDate();
+        if (lastCrawlDate == null) {
+            return LocalDateTime.now();
+        }
+        return lastCrawlDate.plus(Duration.ofMillis(
+                getRecrawlInterval(prevData)));
+    }
+
+    /**
+     * Gets the time to wait after the last crawl of a document
+     * before recrawling it, in milliseconds.
+     * @param prevData data about previously crawled document
+     * @return recrawl interval
+     */
+    public long getRecrawlInterval(PreviousCrawlData prevData) {
+        double meanInterval = estimateMeanChangeInterval(prevData);
+        if (meanInterval <= 0) {
+            return minInterval;
+        }
+        // Poisson: P(change within t) = 1 - e^(-t/mean)
+        double p = Math.max(0.001d, Math.min(0.999d, changeProbability));
+        long interval = (long) (-meanInterval * Math.log(1d - p));
+        return Math.max(minInterval, Math.min(maxInterval, interval));
+    }
+
+    /**
+     * Estimates the average time between content changes of a document,
+     * in milliseconds.
+     * @param prevData data about previously crawled document
+     * @return mean change interval, or -1 if there is not enough history
+     */
+    protected double estimateMeanChangeInterval(PreviousCrawlData prevData) {
+        LocalDateTime lastCrawlDate = prevData.getCrawlDate();
+        List<Long> intervals = prevData.getChangeIntervals();
+        if (!intervals.isEmpty()) {
+            double alpha = Math.max(0d, Math.min(1d, smoothing));
+            double ewma = intervals.get(0);
+            for (int i = 1; i < intervals.size(); i++) {
+                ewma = alpha * intervals.get(i) + (1d - alpha) * ewma;
+            }
+            // not changed for longer than usual: back off
+            LocalDateTime lastChangeDate = prevData.getLastChangeDate();
+            if (lastChangeDate != null) {
+                ewma = Math.max(ewma, Duration.between(
+                        lastChangeDate, lastCrawlDate).toMillis());
+            }
+            return ewma;
+        }
+
+        LocalDateTime since = ObjectUtils.firstNonNull(
+                prevData.getLastChangeDate(), prevData.getFirstCrawlDate());
+        if (since == null || prevData.getCrawlCount() < 2) {
+            return -1;
+        }
+        long observed = Duration.between(since, lastCrawlDate).toMillis();
+        if (observed <= 0) {
+            return -1;
+        }
+        return observed / CHANGE_SMOOTHING;
+    }
+
+    @Override
+    public void loadFromXML(XML xml) {
+        setMinInterval(xml.getDurationMillis("minInterval", minInterval));
+        setMaxInterval(xml.getDurationMillis("maxInterval", maxInterval));
+        setSmoothing(xml.getFloat("smoothing", smoothing));
+        setChangeProbability(
+                xml.getFloat("changeProbability", changeProbability));
+    }
+    @Override
+    public void saveToXML(XML xml) {
+        xml.addElement("minInterval", minInterval);
+        xml.addElement("maxInterval", maxInterval);
+        xml.addElement("smoothing", smoothing);
+        xml.addElement("changeProbability", changeProbability);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return EqualsBuilder.reflectionEquals(this, other);
+    }
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+    @Override
+    public String toString() {
+        return new ReflectionToStringBuilder(
+                this, ToStringStyle.SHORT_PREFIX_STYLE).toString();
+    }
+}
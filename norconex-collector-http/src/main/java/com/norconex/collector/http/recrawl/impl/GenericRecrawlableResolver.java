@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
@@ -33,10 +34,13 @@ import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.norconex.collector.core.crawler.Crawler;
+import com.norconex.collector.core.crawler.CrawlerEvent;
 import com.norconex.collector.http.recrawl.IRecrawlableResolver;
 import com.norconex.collector.http.recrawl.PreviousCrawlData;
 import com.norconex.collector.http.sitemap.SitemapChangeFrequency;
 import com.norconex.commons.lang.collection.CollectionUtil;
+import com.norconex.commons.lang.event.IEventListener;
 import com.norconex.commons.lang.time.DateUtil;
 import com.norconex.commons.lang.time.DurationFormatter;
 import com.norconex.commons.lang.time.DurationParser;
@@ -76,6 +80,33 @@ import com.norconex.commons.lang.xml.XML;
  *       "yearly", "never", or a numeric value in milliseconds.</li>
  * </ul>
  *
+ * <h3>Recrawl scoring:</h3>
+ * <p>
+ * As of 3.0.0, you can enable a scoring mode to decide in which order
+ * documents due for a recrawl get recrawled, and how many.
+ * Each recrawlable document gets a score between 0 and 1 combining:
+ * </p>
+ * <ul>
+ *   <li><b>change</b>: the probability the document changed since
+ *       it was last crawled. It is estimated from how many times it was
+ *       found modified over the period it has been crawled
+ *       (assuming changes occur at a constant rate), or 1 if a more recent
+ *       sitemap last modified date is known.</li>
+ *   <li><b>priority</b>: the sitemap priority (0.5 when none).</li>
+ *   <li><b>depth</b>: favors shallow documents (1 / (1 + depth)).</li>
+ * </ul>
+ * <p>
+ * Each factor is weighted as configured. Documents with a score below
+ * a minimum are not recrawled.
+ * A maximum number of recrawls per crawler run can also be set.
+ * Once more than half of it is used, recrawls are postponed
+ * proportionally to how far their score is from 1, within a
+ * "priority window", so that the rest goes to the most promising
+ * documents first. Without a maximum, nothing is postponed.
+ * Documents never crawled before are always processed right away
+ * and do not count against that maximum.
+ * </p>
+ *
  * <p>
  * As of 2.7.0, XML configuration entries expecting millisecond durations
  * can be provided in human-readable format (English only), as per
@@ -94,6 +125,17 @@ import com.norconex.commons.lang.xml.XML;
  *     &lt;/minFrequency&gt;
  *     (... repeat frequency tag as needed ...)
  *
+ *     &lt;!-- Optional: --&gt;
+ *     &lt;scoring&gt;
+ *         &lt;changeWeight&gt;(change probability weight)&lt;/changeWeight&gt;
+ *         &lt;priorityWeight&gt;(sitemap priority weight)&lt;/priorityWeight&gt;
+ *         &lt;depthWeight&gt;(URL depth weight)&lt;/depthWeight&gt;
+ *         &lt;minScore&gt;(minimum score to be recrawled)&lt;/minScore&gt;
+ *         &lt;priorityWindow&gt;
+ *             (maximum milliseconds to postpone a recrawl)
+ *         &lt;/priorityWindow&gt;
+ *         &lt;maxRecrawls&gt;(maximum recrawls per run)&lt;/maxRecrawls&gt;
+ *     &lt;/scoring&gt;
  *  &lt;/recrawlableResolver&gt;
  * </pre>
  *
@@ -115,8 +157,8 @@ import com.norconex.commons.lang.xml.XML;
  * @author Pascal Essiembre
  * @since 2.5.0
  */
-public class GenericRecrawlableResolver
-        implements IRecrawlableResolver, IXMLConfigurable{
+public class GenericRecrawlableResolver implements IRecrawlableResolver,
+        IXMLConfigurable, IEventListener<CrawlerEvent<Crawler>> {
 
     private static final Logger LOG =
             LoggerFactory.getLogger(GenericRecrawlableResolver.class);
@@ -136,8 +178,15 @@ public class GenericRecrawlableResolver
         }
     }
 
+    private static final double DEFAULT_PRIORITY = 0.5d;
+    private static final double DEFAULT_CHANGE_PROBABILITY = 0.5d;
+    private static final double CHANGE_SMOOTHING = 0.5d;
+
     private SitemapSupport sitemapSupport = SitemapSupport.FIRST;
     private final List<MinFrequency> minFrequencies = new ArrayList<>();
+    private Scoring scoring;
+
+    private final transient AtomicInteger recrawlCount = new AtomicInteger();
 
     /**
      * Gets the sitemap support strategy. Defualt is
@@ -179,14 +228,133 @@ public class GenericRecrawlableResolver
         CollectionUtil.setAll(this.minFrequencies, minFrequencies);
     }
 
+    /**
+     * Gets the recrawl scoring settings.
+     * @return scoring settings, or <code>null</code> if scoring is disabled
+     * @since 3.0.0
+     */
+    public Scoring getScoring() {
+        return scoring;
+    }
+    /**
+     * Sets the recrawl scoring settings. A <code>null</code> value
+     * disables scoring.
+     * @param scoring scoring settings
+     * @since 3.0.0
+     */
+    public void setScoring(Scoring scoring) {
+        this.scoring = scoring;
+    }
+
     @Override
-    public boolean isRecrawlable(PreviousCrawlData prevData) {
+    public void accept(CrawlerEvent<Crawler> event) {
+        if (event.is(CrawlerEvent.CRAWLER_RUN_BEGIN)) {
+            recrawlCount.set(0);
+        }
+    }
 
+    @Override
+    public boolean isRecrawlable(PreviousCrawlData prevData) {
         // if never crawled: yes, crawl it
         if (prevData.getCrawlDate() == null) {
             return true;
         }
+        if (!isDue(prevData)) {
+            return false;
+        }
+        if (scoring == null) {
+            return true;
+        }
+        float score = getRecrawlScore(prevData);
+        if (score < scoring.getMinScore()) {
+            LOG.debug("Not recrawlable according to score ({} < {}): {}",
+                    score, scoring.getMinScore(), prevData.getReference());
+            return false;
+        }
+        if (scoring.getMaxRecrawls() > 0 && recrawlCount.incrementAndGet()
+                > scoring.getMaxRecrawls()) {
+            LOG.debug("Not recrawlable, maximum recrawls reached ({}): {}",
+                    scoring.getMaxRecrawls(), prevData.getReference());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only postpones recrawls once more than half of the maximum number
+     * of recrawls is used. A postponed document gives back the recrawl
+     * it was counted for, since it is checked again when it comes back.
+     */
+    @Override
+    public long getRecrawlDelay(PreviousCrawlData prevData) {
+        if (scoring == null || scoring.getPriorityWindow() <= 0
+                || scoring.getMaxRecrawls() <= 0
+                || prevData.getCrawlDate() == null
+                || recrawlCount.get() * 2L <= scoring.getMaxRecrawls()) {
+            return 0;
+        }
+        long delay = (long) ((1f - getRecrawlScore(prevData))
+                * scoring.getPriorityWindow());
+        if (delay > 0) {
+            recrawlCount.decrementAndGet();
+        }
+        return delay;
+    }
+
+    /**
+     * Gets a score between 0 and 1 reflecting how worthy a previously
+     * crawled document is of being recrawled. Always 1 when
+     * scoring is disabled.
+     * @param prevData data about previously crawled document
+     * @return recrawl score
+     * @since 3.0.0
+     */
+    public float getRecrawlScore(PreviousCrawlData prevData) {
+        if (scoring == null) {
+            return 1f;
+        }
+        double totalWeight = scoring.getChangeWeight()
+                + scoring.getPriorityWeight() + scoring.getDepthWeight();
+        if (totalWeight <= 0) {
+            return 1f;
+        }
+        double priority = prevData.getSitemapPriority() != null
+                ? prevData.getSitemapPriority() : DEFAULT_PRIORITY;
+        double depth = 1d / (1 + Math.max(0, prevData.getDepth()));
+        double change = getChangeProbability(prevData);
+        double score = (scoring.getChangeWeight() * change
+                + scoring.getPriorityWeight() * priority
+                + scoring.getDepthWeight() * depth) / totalWeight;
+        return (float) Math.max(0d, Math.min(1d, score));
+    }
+
+    // Assumes changes follow a Poisson process whose rate is estimated
+    // from the changes observed over the time the document was crawled.
+    private double getChangeProbability(PreviousCrawlData prevData) {
+        LocalDateTime lastCrawlDate = prevData.getCrawlDate();
+        if (hasSitemapLastModified(prevData) && DateUtil.toLocalDateTime(
+                prevData.getSitemapLastMod()).isAfter(lastCrawlDate)) {
+            return 1d;
+        }
+        LocalDateTime firstCrawlDate = prevData.getFirstCrawlDate();
+        if (firstCrawlDate == null || prevData.getCrawlCount() < 2) {
+            return DEFAULT_CHANGE_PROBABILITY;
+        }
+        long observedMillis =
+                Duration.between(firstCrawlDate, lastCrawlDate).toMillis();
+        long elapsedMillis = Duration.between(
+                lastCrawlDate, LocalDateTime.now()).toMillis();
+        if (observedMillis <= 0 || elapsedMillis <= 0) {
+            return DEFAULT_CHANGE_PROBABILITY;
+        }
+        // smoothing so documents not seen changing yet are not ruled out
+        double ratePerMilli = (prevData.getChangeCount()
+                + CHANGE_SMOOTHING) / observedMillis;
+        return 1d - Math.exp(-ratePerMilli * elapsedMillis);
+    }
 
+    private boolean isDue(PreviousCrawlData prevData) {
         SitemapSupport ss = sitemapSupport;
         if (ss == null) {
             ss = SitemapSupport.FIRST;
@@ -503,6 +671,91 @@ public class GenericRecrawlableResolver
         }
     }
 
+    /**
+     * Recrawl scoring settings.
+     * @since 3.0.0
+     */
+    public static class Scoring {
+        public static final float DEFAULT_CHANGE_WEIGHT = 0.6f;
+        public static final float DEFAULT_PRIORITY_WEIGHT = 0.3f;
+        public static final float DEFAULT_DEPTH_WEIGHT = 0.1f;
+        public static final long DEFAULT_PRIORITY_WINDOW = 5 * 60 * 1000L;
+
+        private float changeWeight = DEFAULT_CHANGE_WEIGHT;
+        private float priorityWeight = DEFAULT_PRIORITY_WEIGHT;
+        private float depthWeight = DEFAULT_DEPTH_WEIGHT;
+        private float minScore;
+        private long priorityWindow = DEFAULT_PRIORITY_WINDOW;
+        private int maxRecrawls;
+
+        public float getChangeWeight() {
+            return changeWeight;
+        }
+        public void setChangeWeight(float changeWeight) {
+            this.changeWeight = changeWeight;
+        }
+        public float getPriorityWeight() {
+            return priorityWeight;
+        }
+        public void setPriorityWeight(float priorityWeight) {
+            this.priorityWeight = priorityWeight;
+        }
+        public float getDepthWeight() {
+            return depthWeight;
+        }
+        public void setDepthWeight(float depthWeight) {
+            this.depthWeight = depthWeight;
+        }
+        /**
+         * Gets the minimum score a document must have to be recrawled.
+         * @return minimum score
+         */
+        public float getMinScore() {
+            return minScore;
+        }
+        public void setMinScore(float minScore) {
+            this.minScore = minScore;
+        }
+        /**
+         * Gets the maximum time a recrawl can be postponed, in milliseconds.
+         * Documents with lower scores are postponed longer, up to that
+         * value, once more than half of the maximum recrawls are used.
+         * Zero disables postponing.
+         * @return priority window
+         */
+        public long getPriorityWindow() {
+            return priorityWindow;
+        }
+        public void setPriorityWindow(long priorityWindow) {
+            this.priorityWindow = priorityWindow;
+        }
+        /**
+         * Gets the maximum number of documents recrawled per crawler run.
+         * Zero means no maximum.
+         * @return maximum recrawls
+         */
+        public int getMaxRecrawls() {
+            return maxRecrawls;
+        }
+        public void setMaxRecrawls(int maxRecrawls) {
+            this.maxRecrawls = maxRecrawls;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return EqualsBuilder.reflectionEquals(this, other);
+        }
+        @Override
+        public int hashCode() {
+            return HashCodeBuilder.reflectionHashCode(this);
+        }
+        @Override
+        public String toString() {
+            return new ReflectionToStringBuilder(this,
+                    ToStringStyle.SHORT_PREFIX_STYLE).toString();
+        }
+    }
+
     @Override
     public void loadFromXML(XML xml) {
         String smsXml = xml.getString("@sitemapSupport");
@@ -526,6 +779,20 @@ public class GenericRecrawlableResolver
         }
 
         setMinFrequencies(frequencies);
+
+        setScoring(null);
+        xml.ifXML("scoring", x -> {
+            Scoring s = new Scoring();
+            s.setChangeWeight(x.getFloat("changeWeight", s.getChangeWeight()));
+            s.setPriorityWeight(
+                    x.getFloat("priorityWeight", s.getPriorityWeight()));
+            s.setDepthWeight(x.getFloat("depthWeight", s.getDepthWeight()));
+            s.setMinScore(x.getFloat("minScore", s.getMinScore()));
+            s.setPriorityWindow(x.getDurationMillis(
+                    "priorityWindow", s.getPriorityWindow()));
+            s.setMaxRecrawls(x.getInteger("maxRecrawls", s.getMaxRecrawls()));
+            setScoring(s);
+        });
     }
     @Override
     public void saveToXML(XML xml) {
@@ -536,6 +803,17 @@ public class GenericRecrawlableResolver
                     .setAttribute("value", mf.value)
                     .setAttribute("caseSensitive", mf.caseSensitive);
         }
+        if (scoring != null) {
+            XML scoringXML = xml.addElement("scoring");
+            scoringXML.addElement("changeWeight", scoring.getChangeWeight());
+            scoringXML.addElement(
+                    "priorityWeight", scoring.getPriorityWeight());
+            scoringXML.addElement("depthWeight", scoring.getDepthWeight());
+            scoringXML.addElement("minScore", scoring.getMinScore());
+            scoringXML.addElement(
+                    "priorityWindow", scoring.getPriorityWindow());
+            scoringXML.addElement("maxRecrawls", scoring.getMaxRecrawls());
+        }
     }
 
     @Override
@@ -14,6 +14,7 @@
  */
 package com.norconex.collector.http.reference;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -46,6 +47,16 @@ public class HttpCrawlReference extends CrawlReference {
     private String referrerReference;
     private String referrerLinkTag;
     private String referrerLinkTitle;
+    private long notBefore;
+    private boolean delaySlotReserved;
+    private int retryCount;
+    private LocalDateTime firstCrawlDate;
+    private int crawlCount;
+    private int changeCount;
+    private boolean recrawlPrioritized;
+    private boolean partitionReceived;
+    private LocalDateTime lastChangeDate;
+    private final List<Long> changeIntervals = new ArrayList<>();
 
     private final List<String> referencedUrls = new ArrayList<>();
     private final List<String> redirectTrail = new ArrayList<>();
@@ -248,6 +259,199 @@ public class HttpCrawlReference extends CrawlReference {
         redirectTrail.add(url);
     }
 
+    /**
+     * Gets the earliest time this URL should be processed, in milliseconds
+     * (EPOCH date). A URL dequeued before that time is put back in
+     * the queue.
+     * @return not-before time, or zero if the URL can be processed
+     *         right away
+     * @since 3.0.0
+     */
+    public long getNotBefore() {
+        return notBefore;
+    }
+    /**
+     * Sets the earliest time this URL should be processed, in milliseconds
+     * (EPOCH date).
+     * @param notBefore not-before time, or zero for no restriction
+     * @since 3.0.0
+     */
+    public void setNotBefore(long notBefore) {
+        this.notBefore = notBefore;
+    }
+
+    /**
+     * Gets whether a politeness delay slot was already reserved for
+     * this URL at its "not before" time, in which case the delay resolver
+     * is not invoked again when the URL is processed.
+     * @return <code>true</code> if a delay slot is reserved
+     * @since 3.0.0
+     */
+    public boolean isDelaySlotReserved() {
+        return delaySlotReserved;
+    }
+    /**
+     * Sets whether a politeness delay slot was already reserved for
+     * this URL at its "not before" time.
+     * @param delaySlotReserved <code>true</code> if a delay slot is reserved
+     * @since 3.0.0
+     */
+    public void setDelaySlotReserved(boolean delaySlotReserved) {
+        this.delaySlotReserved = delaySlotReserved;
+    }
+
+    /**
+     * Gets the number of fetch retries already attempted for this URL
+     * and deferred to a later time.
+     * @return number of deferred retries
+     * @since 3.0.0
+     */
+    public int getRetryCount() {
+        return retryCount;
+    }
+    /**
+     * Sets the number of fetch retries already attempted for this URL
+     * and deferred to a later time.
+     * @param retryCount number of deferred retries
+     * @since 3.0.0
+     */
+    public void setRetryCount(int retryCount) {
+        this.retryCount = retryCount;
+    }
+
+    /**
+     * Gets the date this URL was first crawled successfully.
+     * @return first crawl date, or <code>null</code> if never crawled
+     * @since 3.0.0
+     */
+    public LocalDateTime getFirstCrawlDate() {
+        return firstCrawlDate;
+    }
+    /**
+     * Sets the date this URL was first crawled successfully.
+     * @param firstCrawlDate first crawl date
+     * @since 3.0.0
+     */
+    public void setFirstCrawlDate(LocalDateTime firstCrawlDate) {
+        this.firstCrawlDate = firstCrawlDate;
+    }
+
+    /**
+     * Gets how many times this URL was crawled successfully, across
+     * crawler runs.
+     * @return crawl count
+     * @since 3.0.0
+     */
+    public int getCrawlCount() {
+        return crawlCount;
+    }
+    /**
+     * Sets how many times this URL was crawled successfully, across
+     * crawler runs.
+     * @param crawlCount crawl count
+     * @since 3.0.0
+     */
+    public void setCrawlCount(int crawlCount) {
+        this.crawlCount = crawlCount;
+    }
+
+    /**
+     * Gets how many times this URL was found modified when recrawled,
+     * across crawler runs.
+     * @return change count
+     * @since 3.0.0
+     */
+    public int getChangeCount() {
+        return changeCount;
+    }
+    /**
+     * Sets how many times this URL was found modified when recrawled,
+     * across crawler runs.
+     * @param changeCount change count
+     * @since 3.0.0
+     */
+    public void setChangeCount(int changeCount) {
+        this.changeCount = changeCount;
+    }
+
+    /**
+     * Gets whether this URL recrawl was already prioritized (and possibly
+     * postponed) during this crawler run.
+     * @return <code>true</code> if prioritized
+     * @since 3.0.0
+     */
+    public boolean isRecrawlPrioritized() {
+        return recrawlPrioritized;
+    }
+    /**
+     * Sets whether this URL recrawl was already prioritized (and possibly
+     * postponed) during this crawler run.
+     * @param recrawlPrioritized <code>true</code> if prioritized
+     * @since 3.0.0
+     */
+    public void setRecrawlPrioritized(boolean recrawlPrioritized) {
+        this.recrawlPrioritized = recrawlPrioritized;
+    }
+
+    /**
+     * Gets whether this URL was received from another crawler node
+     * and was queued without its robots.txt and sitemap checks. These
+     * checks are then made when the URL is processed.
+     * @return <code>true</code> if received and not yet checked
+     * @since 3.0.0
+     */
+    public boolean isPartitionReceived() {
+        return partitionReceived;
+    }
+    /**
+     * Sets whether this URL was received from another crawler node
+     * and was queued without its robots.txt and sitemap checks.
+     * @param partitionReceived <code>true</code> if received and not
+     *        yet checked
+     * @since 3.0.0
+     */
+    public void setPartitionReceived(boolean partitionReceived) {
+        this.partitionReceived = partitionReceived;
+    }
+
+    /**
+     * Gets the crawl date at which this URL content was last found
+     * new or modified.
+     * @return last change date, or <code>null</code>
+     * @since 3.0.0
+     */
+    public LocalDateTime getLastChangeDate() {
+        return lastChangeDate;
+    }
+    /**
+     * Sets the crawl date at which this URL content was last found
+     * new or modified.
+     * @param lastChangeDate last change date
+     * @since 3.0.0
+     */
+    public void setLastChangeDate(LocalDateTime lastChangeDate) {
+        this.lastChangeDate = lastChangeDate;
+    }
+
+    /**
+     * Gets the most recent intervals observed between content changes,
+     * in milliseconds, from oldest to newest.
+     * @return change intervals (never <code>null</code>)
+     * @since 3.0.0
+     */
+    public List<Long> getChangeIntervals() {
+        return Collections.unmodifiableList(changeIntervals);
+    }
+    /**
+     * Sets the most recent intervals observed between content changes,
+     * in milliseconds, from oldest to newest.
+     * @param changeIntervals change intervals
+     * @since 3.0.0
+     */
+    public void setChangeIntervals(List<Long> changeIntervals) {
+        CollectionUtil.setAll(this.changeIntervals, changeIntervals);
+    }
+
     @Override
     public boolean equals(final Object other) {
         return EqualsBuilder.reflectionEquals(this, other);
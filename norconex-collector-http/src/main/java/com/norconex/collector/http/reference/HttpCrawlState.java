@@ -34,6 +34,20 @@ public class HttpCrawlState extends CrawlState {
     public static final HttpCrawlState REDIRECT = 
             new HttpCrawlState("REDIRECT");
 
+    /**
+     * @since 3.0.0
+     */
+    public static final HttpCrawlState TOO_LARGE = 
+            new HttpCrawlState("TOO_LARGE");
+
+    /**
+     * Processing was postponed and the URL put back in the queue
+     * with a "not before" time (e.g., to respect a delay or retry later).
+     * @since 3.0.0
+     */
+    public static final HttpCrawlState DEFERRED = 
+            new HttpCrawlState("DEFERRED");
+
     protected HttpCrawlState(String state) {
         super(state);
     }
@@ -0,0 +1,341 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.reference.transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.CollectorException;
+import com.norconex.collector.core.reference.CrawlReference;
+import com.norconex.collector.http.partition.CrawlPartitioning;
+import com.norconex.collector.http.reference.HttpCrawlReference;
+
+/**
+ * <p>
+ * Exports crawl references to files in a store-neutral
+ * {@link CrawlReferenceFormat}, so they can be imported in another
+ * crawl store with {@link CrawlReferenceImporter}.
+ * </p>
+ * <p>
+ * References are split in key ranges based on their URL root, the same way
+ * {@link CrawlPartitioning} assigns URL roots to nodes. Each key range
+ * is written to its own file by its own thread, so serialization and
+ * compression happen in parallel. When the number of key ranges is the
+ * number of partitioned crawler nodes, each file holds the references
+ * of one node, which makes it easy to move a crawl to a different number of
+ * nodes.
+ * </p>
+ * <p>
+ * References are written as they come, without being held in memory.
+ * Files are only given their final name once closed successfully.
+ * {@link #write(CrawlReference)} may be invoked from several threads.
+ * </p>
+ * <p>
+ * Files are named <code>[prefix]-[range]-of-[rangeCount][extension]</code>
+ * (e.g., <code>references-0-of-4.ndjson.gz</code>).
+ * </p>
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class CrawlReferenceExporter implements Closeable {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(CrawlReferenceExporter.class);
+
+    public static final String DEFAULT_FILE_PREFIX = "references";
+    public static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    private static final HttpCrawlReference END = new HttpCrawlReference();
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private Path directory;
+    private String filePrefix = DEFAULT_FILE_PREFIX;
+    private CrawlReferenceFormat format = CrawlReferenceFormat.NDJSON;
+    private boolean compress = true;
+    private int keyRanges = 1;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+
+    private final List<RangeWriter> rangeWriters = new ArrayList<>();
+    private final AtomicLong count = new AtomicLong();
+
+    public Path getDirectory() {
+        return directory;
+    }
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    public String getFilePrefix() {
+        return filePrefix;
+    }
+    public void setFilePrefix(String filePrefix) {
+        this.filePrefix = filePrefix;
+    }
+
+    public CrawlReferenceFormat getFormat() {
+        return format;
+    }
+    public void setFormat(CrawlReferenceFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Gets whether files are compressed with GZIP.
+     * @return <code>true</code> if compressed
+     */
+    public boolean isCompress() {
+        return compress;
+    }
+    /**
+     * Sets whether files are compressed with GZIP. Default is
+     * <code>true</code>.
+     * @param compress <code>true</code> to compress
+     */
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    /**
+     * Gets the number of key ranges (and files) references are split into.
+     * @return key ranges
+     */
+    public int getKeyRanges() {
+        return keyRanges;
+    }
+    /**
+     * Sets the number of key ranges (and files) references are split into.
+     * Default is one.
+     * @param keyRanges key ranges
+     */
+    public void setKeyRanges(int keyRanges) {
+        this.keyRanges = keyRanges;
+    }
+
+    /**
+     * Gets how many references can wait to be written, per key range.
+     * @return queue size
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+    /**
+     * Sets how many references can wait to be written, per key range.
+     * @param queueSize queue size
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Gets the file a key range is exported to.
+     * @param keyRange key range, from zero to key ranges minus one
+     * @return file
+     */
+    public Path getFile(int keyRange) {
+        return directory.resolve(filePrefix + "-" + keyRange + "-of-"
+                + Math.max(1, keyRanges) + format.getExtension()
+                + (compress ? CrawlReferenceFormat.GZIP_EXTENSION : ""));
+    }
+
+    /**
+     * Exports all references, then closes this exporter.
+     * @param refs crawl references
+     * @return number of references exported
+     */
+    public long export(Iterator<? extends CrawlReference> refs) {
+        open();
+        try {
+            while (refs.hasNext()) {
+                write(refs.next());
+            }
+        } finally {
+            close();
+        }
+        return count.get();
+    }
+
+    /**
+     * Opens files and starts writing threads.
+     */
+    public synchronized void open() {
+        if (!rangeWriters.isEmpty()) {
+            throw new IllegalStateException("Exporter already open.");
+        }
+        if (directory == null) {
+            throw new CollectorException("Export directory must be set.");
+        }
+        count.set(0);
+        try {
+            Files.createDirectories(directory);
+            for (int i = 0; i < Math.max(1, keyRanges); i++) {
+                RangeWriter w = new RangeWriter(i);
+                rangeWriters.add(w);
+                w.start();
+            }
+        } catch (IOException e) {
+            close();
+            throw new CollectorException(
+                    "Could not open export files in: " + directory, e);
+        }
+        LOG.info("Exporting crawl references to: {}",
+                directory.toAbsolutePath());
+    }
+
+    /**
+     * Queues a reference for export.
+     * @param ref crawl reference
+     */
+    public void write(CrawlReference ref) {
+        HttpCrawlReference httpRef = ref instanceof HttpCrawlReference
+                ? (HttpCrawlReference) ref : new HttpCrawlReference(ref);
+        int range = CrawlPartitioning.getKeyRange(
+                httpRef.getUrlRoot(), rangeWriters.size());
+        rangeWriters.get(range).put(httpRef);
+        count.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of references exported so far.
+     * @return reference count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Waits for queued references to be written and closes all files.
+     */
+    @Override
+    public synchronized void close() {
+        if (rangeWriters.isEmpty()) {
+            return;
+        }
+        CollectorException failure = null;
+        for (RangeWriter w : rangeWriters) {
+            w.put(END);
+        }
+        for (RangeWriter w : rangeWriters) {
+            try {
+                w.finish();
+            } catch (CollectorException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        rangeWriters.clear();
+        if (failure != null) {
+            throw failure;
+        }
+        LOG.info("{} crawl references exported.", count.get());
+    }
+
+    private class RangeWriter extends Thread {
+        private final BlockingQueue<HttpCrawlReference> queue;
+        private final Path file;
+        private final Path tempFile;
+        private final CrawlReferenceWriter writer;
+        private volatile Exception error;
+        public RangeWriter(int range) throws IOException {
+            super("reference-export-" + range);
+            setDaemon(true);
+            queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+            file = getFile(range);
+            tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            OutputStream os = Files.newOutputStream(tempFile);
+            if (compress) {
+                os = new GZIPOutputStream(os, GZIP_BUFFER_SIZE);
+            }
+            writer = new CrawlReferenceWriter(os, format);
+        }
+        @Override
+        public void run() {
+            try {
+                HttpCrawlReference ref;
+                while ((ref = queue.take()) != END) {
+                    // after a failure, keep consuming so producers
+                    // do not block
+                    if (error == null) {
+                        write(ref);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = e;
+            }
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+        private void write(HttpCrawlReference ref) {
+            try {
+                writer.write(ref);
+            } catch (IOException | RuntimeException e) {
+                error = e;
+            }
+        }
+        private void put(HttpCrawlReference ref) {
+            if (error != null && ref != END) {
+                throw new CollectorException(
+                        "Could not export to: " + file, error);
+            }
+            try {
+                queue.put(ref);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CollectorException("Export interrupted.", e);
+            }
+        }
+        private void finish() {
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CollectorException("Export interrupted.", e);
+            }
+            if (error != null) {
+                throw new CollectorException(
+                        "Could not export to: " + file, error);
+            }
+            try {
+                Files.move(tempFile, file,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new CollectorException(
+                        "Could not export to: " + file, e);
+            }
+        }
+    }
+}
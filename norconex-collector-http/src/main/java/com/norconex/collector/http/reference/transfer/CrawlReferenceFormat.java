@@ -0,0 +1,83 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.reference.transfer;
+
+import java.nio.file.Path;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Formats crawl references can be exported to.
+ * Both hold the same information: every crawl reference property,
+ * by name.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public enum CrawlReferenceFormat {
+    /**
+     * One JSON object per line (newline-delimited JSON), with
+     * property values as strings or arrays of strings. Easy to inspect
+     * and to process with other tools.
+     */
+    NDJSON(".ndjson"),
+    /**
+     * Records prefixed with their length in bytes, each holding
+     * property names and values. More compact and faster to read
+     * than {@link #NDJSON}.
+     */
+    BINARY(".bin");
+
+    /** Extension added to compressed files. */
+    public static final String GZIP_EXTENSION = ".gz";
+
+    private final String extension;
+
+    CrawlReferenceFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Gets the file extension for this format, without compression.
+     * @return file extension
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Detects the format of a file from its extension.
+     * @param file export file
+     * @return format or <code>null</code> if not recognized
+     */
+    public static CrawlReferenceFormat of(Path file) {
+        String name = StringUtils.removeEndIgnoreCase(
+                file.getFileName().toString(), GZIP_EXTENSION);
+        for (CrawlReferenceFormat format : values()) {
+            if (StringUtils.endsWithIgnoreCase(name, format.extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+    /**
+     * Gets whether a file is compressed, based on its extension.
+     * @param file export file
+     * @return <code>true</code> if compressed
+     */
+    public static boolean isCompressed(Path file) {
+        return StringUtils.endsWithIgnoreCase(
+                file.getFileName().toString(), GZIP_EXTENSION);
+    }
+}
@@ -0,0 +1,253 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.reference.transfer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.CollectorException;
+import com.norconex.collector.http.reference.HttpCrawlReference;
+
+/**
+ * <p>
+ * Imports crawl references exported with {@link CrawlReferenceExporter}
+ * (or written with a {@link CrawlReferenceWriter}), handing them
+ * to a consumer, typically saving them to a crawl store.
+ * Files are read in parallel, one thread per file up to the configured
+ * number of threads, so the consumer must be thread-safe.
+ * </p>
+ * <p>
+ * When a checkpoint directory is set, how many references of each file
+ * were imported is saved there at regular intervals. An interrupted import
+ * then resumes after the last checkpoint of each file, and files fully
+ * imported are skipped. References imported after the last checkpoint
+ * are imported again, so the consumer should replace existing references
+ * rather than duplicating them. Delete the checkpoint directory to import
+ * everything again.
+ * </p>
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class CrawlReferenceImporter {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(CrawlReferenceImporter.class);
+
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 10000;
+
+    private static final String CHECKPOINT_EXT = ".checkpoint";
+    private static final String PROP_COUNT = "imported";
+    private static final String PROP_COMPLETE = "complete";
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Path checkpointDir;
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+    /**
+     * Gets the maximum number of files imported at once.
+     * @return number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+    /**
+     * Sets the maximum number of files imported at once.
+     * Default is the number of available processors.
+     * @param threads number of threads
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Gets the directory where import progress is saved.
+     * @return checkpoint directory or <code>null</code>
+     */
+    public Path getCheckpointDir() {
+        return checkpointDir;
+    }
+    /**
+     * Sets the directory where import progress is saved. When
+     * <code>null</code> (default), progress is not saved.
+     * @param checkpointDir checkpoint directory
+     */
+    public void setCheckpointDir(Path checkpointDir) {
+        this.checkpointDir = checkpointDir;
+    }
+
+    /**
+     * Gets how many references are imported between checkpoints.
+     * @return checkpoint interval
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+    /**
+     * Sets how many references are imported between checkpoints.
+     * @param checkpointInterval checkpoint interval
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Imports references from files.
+     * @param files exported files
+     * @param consumer thread-safe consumer of imported references
+     * @return number of references imported by this invocation
+     */
+    public long importFiles(Collection<Path> files,
+            Consumer<HttpCrawlReference> consumer) {
+        if (checkpointDir != null) {
+            try {
+                Files.createDirectories(checkpointDir);
+            } catch (IOException e) {
+                throw new CollectorException(
+                        "Could not create checkpoint directory: "
+                                + checkpointDir, e);
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(threads, files.size())), r -> {
+                    Thread t = new Thread(r, "reference-import");
+                    t.setDaemon(true);
+                    return t;
+                });
+        long total = 0;
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (Path file : files) {
+                futures.add(executor.submit(
+                        () -> importFile(file, consumer)));
+            }
+            CollectorException failure = null;
+            for (Future<Long> future : futures) {
+                try {
+                    total += future.get();
+                } catch (ExecutionException e) {
+                    CollectorException ce = toCollectorException(e);
+                    if (failure == null) {
+                        failure = ce;
+                    } else {
+                        failure.addSuppressed(ce);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CollectorException("Import interrupted.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        LOG.info("{} crawl references imported from {} files.",
+                total, files.size());
+        return total;
+    }
+
+    private long importFile(Path file, Consumer<HttpCrawlReference> consumer)
+            throws IOException {
+        Properties checkpoint = loadCheckpoint(file);
+        if (Boolean.parseBoolean(checkpoint.getProperty(PROP_COMPLETE))) {
+            LOG.info("Already imported, skipping: {}", file);
+            return 0;
+        }
+        long done = Long.parseLong(checkpoint.getProperty(PROP_COUNT, "0"));
+        long imported = 0;
+        try (CrawlReferenceReader reader = CrawlReferenceReader.open(file)) {
+            if (done > 0) {
+                LOG.info("Resuming import after {} references: {}",
+                        done, file);
+                reader.skip(done);
+            }
+            HttpCrawlReference ref;
+            while ((ref = reader.read()) != null) {
+                consumer.accept(ref);
+                imported++;
+                if (imported % Math.max(1, checkpointInterval) == 0) {
+                    saveCheckpoint(file, reader.getCount(), false);
+                }
+            }
+            saveCheckpoint(file, reader.getCount(), true);
+        }
+        LOG.debug("{} references imported from: {}", imported, file);
+        return imported;
+    }
+
+    private Properties loadCheckpoint(Path file) throws IOException {
+        Properties props = new Properties();
+        if (checkpointDir != null) {
+            Path cp = checkpointFile(file);
+            if (Files.isRegularFile(cp)) {
+                try (Reader r = Files.newBufferedReader(
+                        cp, StandardCharsets.UTF_8)) {
+                    props.load(r);
+                }
+            }
+        }
+        return props;
+    }
+    private void saveCheckpoint(Path file, long count, boolean complete)
+            throws IOException {
+        if (checkpointDir == null) {
+            return;
+        }
+        Properties props = new Properties();
+        props.setProperty(PROP_COUNT, Long.toString(count));
+        props.setProperty(PROP_COMPLETE, Boolean.toString(complete));
+        Path cp = checkpointFile(file);
+        Path tmp = cp.resolveSibling(cp.getFileName() + ".tmp");
+        try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            props.store(w, file.toAbsolutePath().toString());
+        }
+        Files.move(tmp, cp, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+    // Files of the same name in different directories are distinct.
+    private Path checkpointFile(Path file) {
+        String path = file.toAbsolutePath().normalize().toString();
+        return checkpointDir.resolve(file.getFileName() + "-"
+                + DigestUtils.sha1Hex(path).substring(0, 12)
+                + CHECKPOINT_EXT);
+    }
+
+    private CollectorException toCollectorException(ExecutionException e) {
+        if (e.getCause() instanceof CollectorException) {
+            return (CollectorException) e.getCause();
+        }
+        return new CollectorException(
+                "Could not import crawl references.", e.getCause());
+    }
+}
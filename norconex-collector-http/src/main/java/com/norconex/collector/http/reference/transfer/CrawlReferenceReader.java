@@ -0,0 +1,328 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.reference.transfer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.norconex.collector.http.reference.HttpCrawlReference;
+
+/**
+ * Reads crawl references written by a {@link CrawlReferenceWriter}.
+ * Not thread-safe.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class CrawlReferenceReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CrawlReferenceFormat format;
+    private final DataInputStream in;
+    private final BufferedReader lineReader;
+    private long count;
+
+    /**
+     * Creates a reader.
+     * @param in what to read (closed when this reader is closed)
+     * @param format export format
+     */
+    public CrawlReferenceReader(InputStream in, CrawlReferenceFormat format) {
+        super();
+        this.format = format;
+        if (format == CrawlReferenceFormat.BINARY) {
+            this.in = new DataInputStream(
+                    new BufferedInputStream(in, BUFFER_SIZE));
+            this.lineReader = null;
+        } else {
+            this.in = null;
+            this.lineReader = new BufferedReader(new InputStreamReader(
+                    in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Creates a reader from a file. The format and compression are
+     * derived from the file extension.
+     * @param file what to read
+     * @return reader
+     * @throws IOException could not open file
+     */
+    public static CrawlReferenceReader open(Path file) throws IOException {
+        CrawlReferenceFormat format = CrawlReferenceFormat.of(file);
+        if (format == null) {
+            throw new IOException("Unrecognized file extension: " + file);
+        }
+        InputStream is = Files.newInputStream(file);
+        if (CrawlReferenceFormat.isCompressed(file)) {
+            is = new GZIPInputStream(is, BUFFER_SIZE);
+        }
+        return new CrawlReferenceReader(is, format);
+    }
+
+    public CrawlReferenceFormat getFormat() {
+        return format;
+    }
+    /**
+     * Gets how many references were read or skipped so far.
+     * @return reference count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Reads the next crawl reference.
+     * @return crawl reference or <code>null</code> if there are no more
+     * @throws IOException problem reading
+     */
+    public HttpCrawlReference read() throws IOException {
+        Map<String, Object> props = format == CrawlReferenceFormat.BINARY
+                ? readBinary(false) : readJson(false);
+        if (props == null) {
+            return null;
+        }
+        count++;
+        return ReferenceProperties.fromMap(props);
+    }
+
+    /**
+     * Skips crawl references, without parsing them.
+     * @param skipCount how many references to skip
+     * @return how many references were skipped (less than requested
+     *         when there are no more)
+     * @throws IOException problem reading
+     */
+    public long skip(long skipCount) throws IOException {
+        long skipped = 0;
+        while (skipped < skipCount) {
+            boolean found = format == CrawlReferenceFormat.BINARY
+                    ? readBinary(true) != null : readJson(true) != null;
+            if (!found) {
+                break;
+            }
+            skipped++;
+        }
+        count += skipped;
+        return skipped;
+    }
+
+    private Map<String, Object> readBinary(boolean skip) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (skip) {
+            in.readFully(new byte[length]);
+            return Collections.emptyMap();
+        }
+        Map<String, Object> props = new LinkedHashMap<>();
+        int propCount = in.readUnsignedShort();
+        for (int i = 0; i < propCount; i++) {
+            String name = in.readUTF();
+            int valueCount = in.readInt();
+            if (valueCount < 0) {
+                props.put(name, readBinaryString());
+            } else {
+                List<String> values = new ArrayList<>(valueCount);
+                for (int j = 0; j < valueCount; j++) {
+                    values.add(readBinaryString());
+                }
+                props.put(name, values);
+            }
+        }
+        return props;
+    }
+    private String readBinaryString() throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Map<String, Object> readJson(boolean skip) throws IOException {
+        String line;
+        do {
+            line = lineReader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (StringUtils.isBlank(line));
+        if (skip) {
+            return Collections.emptyMap();
+        }
+        return new JsonLineParser(line).parseObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        } else {
+            lineReader.close();
+        }
+    }
+
+    // Parses the flat JSON objects written by CrawlReferenceWriter.
+    // Numbers and booleans are kept as strings.
+    private static class JsonLineParser {
+        private final String json;
+        private int pos;
+        public JsonLineParser(String json) {
+            this.json = json;
+        }
+        private Map<String, Object> parseObject() throws IOException {
+            Map<String, Object> props = new LinkedHashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+                return props;
+            }
+            do {
+                String name = parseString();
+                expect(':');
+                if (peek() == '[') {
+                    pos++;
+                    List<String> values = new ArrayList<>();
+                    if (peek() != ']') {
+                        do {
+                            values.add(parseValue());
+                        } while (next() == ',');
+                        pos--;
+                    }
+                    expect(']');
+                    props.put(name, values);
+                } else {
+                    props.put(name, parseValue());
+                }
+            } while (next() == ',');
+            pos--;
+            expect('}');
+            return props;
+        }
+        private String parseValue() throws IOException {
+            if (peek() == '"') {
+                return parseString();
+            }
+            int start = pos;
+            while (pos < json.length()
+                    && ",]} \t".indexOf(json.charAt(pos)) == -1) {
+                pos++;
+            }
+            String value = json.substring(start, pos);
+            if (value.isEmpty()) {
+                throw error("Value expected");
+            }
+            return "null".equals(value) ? null : value;
+        }
+        private String parseString() throws IOException {
+            expect('"');
+            StringBuilder b = new StringBuilder();
+            while (true) {
+                if (pos >= json.length()) {
+                    throw error("Unterminated string");
+                }
+                char ch = json.charAt(pos++);
+                if (ch == '"') {
+                    return b.toString();
+                }
+                if (ch != '\\') {
+                    b.append(ch);
+                    continue;
+                }
+                if (pos >= json.length()) {
+                    throw error("Unterminated string");
+                }
+                char esc = json.charAt(pos++);
+                switch (esc) {
+                case 'n':
+                    b.append('\n');
+                    break;
+                case 'r':
+                    b.append('\r');
+                    break;
+                case 't':
+                    b.append('\t');
+                    break;
+                case 'b':
+                    b.append('\b');
+                    break;
+                case 'f':
+                    b.append('\f');
+                    break;
+                case 'u':
+                    if (pos + 4 > json.length()) {
+                        throw error("Invalid unicode escape");
+                    }
+                    b.append((char) Integer.parseInt(
+                            json.substring(pos, pos + 4), 16));
+                    pos += 4;
+                    break;
+                default:
+                    b.append(esc);
+                }
+            }
+        }
+        private char peek() throws IOException {
+            skipWhitespace();
+            if (pos >= json.length()) {
+                throw error("Unexpected end of line");
+            }
+            return json.charAt(pos);
+        }
+        private char next() throws IOException {
+            char ch = peek();
+            pos++;
+            return ch;
+        }
+        private void expect(char expected) throws IOException {
+            if (next() != expected) {
+                throw error("'" + expected + "' expected");
+            }
+        }
+        private void skipWhitespace() {
+            while (pos < json.length()
+                    && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+        private IOException error(String msg) {
+            return new IOException(msg + " at position " + pos
+                    + " of: " + StringUtils.abbreviate(json, 200));
+        }
+    }
+}
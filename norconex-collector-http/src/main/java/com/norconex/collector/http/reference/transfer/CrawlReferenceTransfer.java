@@ -0,0 +1,174 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.reference.transfer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.CollectorException;
+
+/**
+ * <p>
+ * Command-line tool converting exported crawl references between formats,
+ * or splitting them into a different number of key ranges (e.g., to move
+ * a partitioned crawl to a different number of nodes). Input files are
+ * read in parallel and, when a checkpoint directory is given, an
+ * interrupted transfer resumes where it left off. Without an output
+ * directory, references are only read and counted, which validates
+ * exported files.
+ * </p>
+ * <pre>
+ * Arguments:
+ *   -in &lt;file or directory&gt;   Exported files (repeatable).
+ *   -out &lt;directory&gt;         Where to write references.
+ *   -format &lt;ndjson|binary&gt;  Output format (default: ndjson).
+ *   -ranges &lt;count&gt;          Output key ranges (default: 1).
+ *   -uncompressed              Do not compress output files.
+ *   -checkpoint &lt;directory&gt;  Where to save progress.
+ *   -threads &lt;count&gt;         Input files read at once.
+ * </pre>
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class CrawlReferenceTransfer {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(CrawlReferenceTransfer.class);
+
+    private final List<Path> inputs = new ArrayList<>();
+    private final CrawlReferenceImporter importer =
+            new CrawlReferenceImporter();
+    private final CrawlReferenceExporter exporter =
+            new CrawlReferenceExporter();
+
+    /**
+     * Invokes the transfer from the command line.
+     * @param args command-line arguments (none for usage)
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length == 0) {
+                usage(System.out);
+                return;
+            }
+            long count = new CrawlReferenceTransfer().transfer(args);
+            System.out.println(count + " crawl references transferred.");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage(System.err);
+            System.exit(1);
+        } catch (CollectorException e) {
+            LOG.error("Could not transfer crawl references.", e);
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Transfers crawl references as per the supplied arguments.
+     * @param args command-line arguments
+     * @return number of references transferred
+     */
+    public long transfer(String... args) {
+        parse(args);
+        List<Path> files = listFiles();
+        if (exporter.getDirectory() == null) {
+            AtomicLong count = new AtomicLong();
+            importer.importFiles(files, ref -> count.incrementAndGet());
+            return count.get();
+        }
+        exporter.open();
+        try {
+            return importer.importFiles(files, exporter::write);
+        } finally {
+            exporter.close();
+        }
+    }
+
+    private void parse(String... args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("-uncompressed".equals(arg)) {
+                exporter.setCompress(false);
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException(
+                        "Missing value for argument: " + arg);
+            }
+            String value = args[++i];
+            if ("-in".equals(arg)) {
+                inputs.add(Paths.get(value));
+            } else if ("-out".equals(arg)) {
+                exporter.setDirectory(Paths.get(value));
+            } else if ("-format".equals(arg)) {
+                exporter.setFormat(CrawlReferenceFormat.valueOf(
+                        value.toUpperCase(Locale.ENGLISH)));
+            } else if ("-ranges".equals(arg)) {
+                exporter.setKeyRanges(Integer.parseInt(value));
+            } else if ("-checkpoint".equals(arg)) {
+                importer.setCheckpointDir(Paths.get(value));
+            } else if ("-threads".equals(arg)) {
+                importer.setThreads(Integer.parseInt(value));
+            } else {
+                throw new IllegalArgumentException(
+                        "Unknown argument: " + arg);
+            }
+        }
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "At least one input is required.");
+        }
+    }
+
+    private List<Path> listFiles() {
+        List<Path> files = new ArrayList<>();
+        for (Path input : inputs) {
+            if (!Files.isDirectory(input)) {
+                files.add(input);
+                continue;
+            }
+            try (Stream<Path> stream = Files.list(input)) {
+                files.addAll(stream.filter(f -> Files.isRegularFile(f)
+                        && CrawlReferenceFormat.of(f) != null)
+                        .sorted()
+                        .collect(Collectors.toList()));
+            } catch (IOException e) {
+                throw new CollectorException(
+                        "Could not list files in: " + input, e);
+            }
+        }
+        return files;
+    }
+
+    private static void usage(PrintStream out) {
+        out.println("Usage: " + CrawlReferenceTransfer.class.getName()
+                + " -in <file or directory> [-in ...] [-out <directory>]");
+        out.println("  [-format <ndjson|binary>] [-ranges <count>] "
+                + "[-uncompressed]");
+        out.println("  [-checkpoint <directory>] [-threads <count>]");
+    }
+}
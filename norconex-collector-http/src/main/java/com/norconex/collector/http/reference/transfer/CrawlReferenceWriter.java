@@ -0,0 +1,208 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.reference.transfer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.GZIPOutputStream;
+
+import com.norconex.collector.http.reference.HttpCrawlReference;
+
+/**
+ * Writes crawl references to a stream, in one of the
+ * {@link CrawlReferenceFormat}s. Not thread-safe.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ * @see CrawlReferenceReader
+ */
+public class CrawlReferenceWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataOutputStream out;
+    private final CrawlReferenceFormat format;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final StringBuilder json = new StringBuilder();
+    private long count;
+
+    /**
+     * Creates a writer.
+     * @param out where to write (closed when this writer is closed)
+     * @param format export format
+     */
+    public CrawlReferenceWriter(
+            OutputStream out, CrawlReferenceFormat format) {
+        super();
+        this.out = new DataOutputStream(
+                new BufferedOutputStream(out, BUFFER_SIZE));
+        this.format = format;
+    }
+
+    /**
+     * Creates a writer to a file, replacing it if it exists.
+     * The format and compression are derived from the file extension.
+     * @param file where to write
+     * @return writer
+     * @throws IOException could not open file
+     */
+    public static CrawlReferenceWriter open(Path file) throws IOException {
+        CrawlReferenceFormat format = CrawlReferenceFormat.of(file);
+        if (format == null) {
+            throw new IOException("Unrecognized file extension: " + file);
+        }
+        OutputStream os = Files.newOutputStream(file);
+        if (CrawlReferenceFormat.isCompressed(file)) {
+            os = new GZIPOutputStream(os, BUFFER_SIZE);
+        }
+        return new CrawlReferenceWriter(os, format);
+    }
+
+    public CrawlReferenceFormat getFormat() {
+        return format;
+    }
+    /**
+     * Gets how many references were written so far.
+     * @return reference count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Writes a crawl reference.
+     * @param ref crawl reference
+     * @throws IOException problem writing
+     */
+    public void write(HttpCrawlReference ref) throws IOException {
+        Map<String, Object> props = ReferenceProperties.toMap(ref);
+        if (format == CrawlReferenceFormat.BINARY) {
+            writeBinary(props);
+        } else {
+            writeJson(props);
+        }
+        count++;
+    }
+
+    // Record: length, property count, then for each property its name,
+    // value count (-1 for a single value) and values.
+    private void writeBinary(Map<String, Object> props) throws IOException {
+        record.reset();
+        recordOut.writeShort(props.size());
+        for (Entry<String, Object> en : props.entrySet()) {
+            recordOut.writeUTF(en.getKey());
+            if (en.getValue() instanceof List) {
+                List<?> values = (List<?>) en.getValue();
+                recordOut.writeInt(values.size());
+                for (Object v : values) {
+                    writeBinaryString((String) v);
+                }
+            } else {
+                recordOut.writeInt(-1);
+                writeBinaryString((String) en.getValue());
+            }
+        }
+        recordOut.flush();
+        out.writeInt(record.size());
+        record.writeTo(out);
+    }
+    // strings can be longer than writeUTF supports
+    private void writeBinaryString(String value) throws IOException {
+        if (value == null) {
+            recordOut.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            recordOut.writeInt(bytes.length);
+            recordOut.write(bytes);
+        }
+    }
+
+    private void writeJson(Map<String, Object> props) throws IOException {
+        json.setLength(0);
+        json.append('{');
+        boolean first = true;
+        for (Entry<String, Object> en : props.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendJsonString(en.getKey());
+            json.append(':');
+            if (en.getValue() instanceof List) {
+                json.append('[');
+                boolean firstValue = true;
+                for (Object v : (List<?>) en.getValue()) {
+                    if (!firstValue) {
+                        json.append(',');
+                    }
+                    firstValue = false;
+                    appendJsonString((String) v);
+                }
+                json.append(']');
+            } else {
+                appendJsonString((String) en.getValue());
+            }
+        }
+        json.append("}\n");
+        out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    private void appendJsonString(String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                json.append('\\').append(ch);
+            } else if (ch == '\n') {
+                json.append("\\n");
+            } else if (ch == '\r') {
+                json.append("\\r");
+            } else if (ch == '\t') {
+                json.append("\\t");
+            } else if (ch < 0x20) {
+                json.append(String.format("\\u%04x", (int) ch));
+            } else {
+                json.append(ch);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Flushes references written so far to the underlying stream.
+     * @throws IOException problem flushing
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
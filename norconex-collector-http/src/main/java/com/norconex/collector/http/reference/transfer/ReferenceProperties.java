@@ -0,0 +1,212 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.reference.transfer;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.CollectorException;
+import com.norconex.collector.http.reference.HttpCrawlReference;
+
+/**
+ * Converts crawl references to and from maps of property names and
+ * string values (or lists of string values), independent of how
+ * crawl stores persist them. Bean properties having both a getter
+ * and a setter are supported when their type is a string,
+ * a primitive (or wrapper), an enum, a {@link Date}, a list of
+ * these or a class with a static <code>valueOf(String)</code> or
+ * <code>parse(CharSequence)</code> method (e.g., dates from
+ * <code>java.time</code>). Other properties are ignored.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+/*default*/ final class ReferenceProperties {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(ReferenceProperties.class);
+
+    /*default*/ static final String REFERENCE = "reference";
+
+    private static final Map<Class<?>, List<PropertyDescriptor>>
+            PROPERTIES = new ConcurrentHashMap<>();
+
+    private ReferenceProperties() {
+        super();
+    }
+
+    /*default*/ static Map<String, Object> toMap(HttpCrawlReference ref) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put(REFERENCE, ref.getReference());
+        for (PropertyDescriptor p : properties(ref.getClass())) {
+            if (REFERENCE.equals(p.getName())) {
+                continue;
+            }
+            Object value = invoke(p.getReadMethod(), ref);
+            if (value instanceof Collection) {
+                List<String> list = new ArrayList<>();
+                for (Object v : (Collection<?>) value) {
+                    list.add(toString(v));
+                }
+                map.put(p.getName(), list);
+            } else if (value != null) {
+                map.put(p.getName(), toString(value));
+            }
+        }
+        return map;
+    }
+
+    /*default*/ static HttpCrawlReference fromMap(Map<String, Object> map) {
+        HttpCrawlReference ref = new HttpCrawlReference();
+        Map<String, PropertyDescriptor> props = new LinkedHashMap<>();
+        for (PropertyDescriptor p : properties(HttpCrawlReference.class)) {
+            props.put(p.getName(), p);
+        }
+        for (Entry<String, Object> en : map.entrySet()) {
+            PropertyDescriptor p = props.get(en.getKey());
+            if (p == null) {
+                LOG.debug("Unknown reference property ignored: {}",
+                        en.getKey());
+                continue;
+            }
+            Method setter = p.getWriteMethod();
+            Object value = en.getValue();
+            if (value instanceof List) {
+                Class<?> elementType = listElementType(setter);
+                List<Object> list = new ArrayList<>();
+                for (Object v : (List<?>) value) {
+                    list.add(fromString((String) v, elementType));
+                }
+                invoke(setter, ref, list);
+            } else if (value != null) {
+                invoke(setter, ref,
+                        fromString((String) value, p.getPropertyType()));
+            }
+        }
+        return ref;
+    }
+
+    private static List<PropertyDescriptor> properties(Class<?> cls) {
+        return PROPERTIES.computeIfAbsent(cls, c -> {
+            List<PropertyDescriptor> list = new ArrayList<>();
+            try {
+                for (PropertyDescriptor p : Introspector.getBeanInfo(
+                        c, Object.class).getPropertyDescriptors()) {
+                    if (p.getReadMethod() != null
+                            && p.getWriteMethod() != null
+                            && isSupported(p)) {
+                        list.add(p);
+                    }
+                }
+            } catch (IntrospectionException e) {
+                throw new CollectorException(
+                        "Could not introspect " + c.getName(), e);
+            }
+            return list;
+        });
+    }
+
+    private static boolean isSupported(PropertyDescriptor p) {
+        Class<?> type = p.getPropertyType();
+        if (List.class.equals(type)) {
+            type = listElementType(p.getWriteMethod());
+        }
+        return type != null && (isSimple(type) || converter(type) != null);
+    }
+    private static boolean isSimple(Class<?> type) {
+        return String.class.equals(type) || type.isEnum()
+                || Date.class.equals(type)
+                || ClassUtils.isPrimitiveOrWrapper(type);
+    }
+    private static Class<?> listElementType(Method setter) {
+        Type t = setter.getGenericParameterTypes()[0];
+        if (t instanceof ParameterizedType) {
+            Type arg = ((ParameterizedType) t).getActualTypeArguments()[0];
+            if (arg instanceof Class) {
+                return (Class<?>) arg;
+            }
+        }
+        return null;
+    }
+    private static Method converter(Class<?> type) {
+        for (Method m : type.getMethods()) {
+            if (Modifier.isStatic(m.getModifiers())
+                    && type.isAssignableFrom(m.getReturnType())
+                    && m.getParameterCount() == 1
+                    && (("valueOf".equals(m.getName())
+                            && String.class.equals(m.getParameterTypes()[0]))
+                    || ("parse".equals(m.getName()) && CharSequence.class
+                            .equals(m.getParameterTypes()[0])))) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    private static String toString(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Date) {
+            return Long.toString(((Date) value).getTime());
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return value.toString();
+    }
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object fromString(String value, Class<?> type) {
+        if (value == null || String.class.equals(type)) {
+            return value;
+        }
+        if (type.isEnum()) {
+            return Enum.valueOf((Class<Enum>) type, value);
+        }
+        if (Date.class.equals(type)) {
+            return new Date(Long.parseLong(value));
+        }
+        if (Character.class.equals(ClassUtils.primitiveToWrapper(type))) {
+            return value.charAt(0);
+        }
+        return invoke(converter(
+                ClassUtils.primitiveToWrapper(type)), null, value);
+    }
+
+    private static Object invoke(Method m, Object obj, Object... args) {
+        try {
+            return m.invoke(obj, args);
+        } catch (ReflectiveOperationException e) {
+            throw new CollectorException(
+                    "Could not invoke " + m.getName() + "().", e);
+        }
+    }
+}
@@ -36,6 +36,7 @@ public class RobotsTxt {
     private final List<IRobotsTxtFilter> allowFilters = new ArrayList<>();
     private final float crawlDelay;
     private final List<String> sitemapLocations = new ArrayList<>();
+    private final long fetchTime;
 
     /**
      * Creates a new robot txt object with the supplied filters.
@@ -61,11 +62,26 @@ public class RobotsTxt {
     }
     public RobotsTxt(List<IRobotsTxtFilter> filters,
             List<String> sitemapLocations, float crawlDelay) {
+        this(filters, sitemapLocations, crawlDelay,
+                System.currentTimeMillis());
+    }
+    /**
+     * Creates a new robot txt object obtained at the given time.
+     * @param filters filters
+     * @param sitemapLocations sitemap locations
+     * @param crawlDelay crawl delay
+     * @param fetchTime when the robots.txt was obtained
+     *        (epoch milliseconds)
+     * @since 3.0.0
+     */
+    public RobotsTxt(List<IRobotsTxtFilter> filters,
+            List<String> sitemapLocations, float crawlDelay, long fetchTime) {
         super();
 
         CollectionUtil.setAll(this.filters, filters);
         CollectionUtil.setAll(this.sitemapLocations, sitemapLocations);
         this.crawlDelay = crawlDelay;
+        this.fetchTime = fetchTime;
 
         if (!this.filters.isEmpty()) {
             List<IRobotsTxtFilter> disallows = new ArrayList<>();
@@ -112,14 +128,23 @@ public class RobotsTxt {
     public float getCrawlDelay() {
         return crawlDelay;
     }
+    /**
+     * Gets when this robots.txt was obtained, which defaults to when
+     * this object was created.
+     * @return epoch milliseconds
+     * @since 3.0.0
+     */
+    public long getFetchTime() {
+        return fetchTime;
+    }
 
     @Override
     public boolean equals(final Object other) {
-        return EqualsBuilder.reflectionEquals(this, other);
+        return EqualsBuilder.reflectionEquals(this, other, "fetchTime");
     }
     @Override
     public int hashCode() {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return HashCodeBuilder.reflectionHashCode(this, "fetchTime");
     }
     @Override
     public String toString() {
@@ -20,10 +20,12 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import org.apache.commons.collections4.map.ListOrderedMap;
@@ -75,6 +77,8 @@ public class StandardRobotsTxtProvider implements IRobotsTxtProvider {
 
     private final Map<String, RobotsTxt> robotsTxtCache =
             new HashMap<>();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
 
 
     @Override
@@ -87,8 +91,10 @@ public class StandardRobotsTxtProvider implements IRobotsTxtProvider {
         String baseURL = getBaseURL(trimmedURL);
         RobotsTxt robotsTxt = robotsTxtCache.get(baseURL);
         if (robotsTxt != null) {
+            cacheHits.incrementAndGet();
             return robotsTxt;
         }
+        cacheMisses.incrementAndGet();
 
         String robotsURL = baseURL + "/robots.txt";
         try {
@@ -208,7 +214,7 @@ public class StandardRobotsTxtProvider implements IRobotsTxtProvider {
         return RobotData.Precision.NOMATCH;
     }
 
-    private String getBaseURL(String url) {
+    private static String getBaseURL(String url) {
         String baseURL = HttpURL.getRoot(url);
         if (StringUtils.endsWith(baseURL, "/")) {
             baseURL = StringUtils.removeEnd(baseURL, "/");
@@ -216,19 +222,76 @@ public class StandardRobotsTxtProvider implements IRobotsTxtProvider {
         return baseURL;
     }
 
+    /**
+     * Gets a copy of the cached robots.txt, keyed by URL root
+     * (without trailing slash).
+     * @return cached robots.txt
+     * @since 3.0.0
+     */
+    public synchronized Map<String, RobotsTxt> getCachedRobotsTxt() {
+        return Collections.unmodifiableMap(new HashMap<>(robotsTxtCache));
+    }
+    /**
+     * Adds a previously obtained robots.txt to the cache, unless the
+     * URL root is already cached (e.g., when resuming a crawl).
+     * @param url URL root or any URL of the site
+     * @param robotsTxt robots.txt
+     * @since 3.0.0
+     */
+    public synchronized void cacheRobotsTxt(String url, RobotsTxt robotsTxt) {
+        robotsTxtCache.putIfAbsent(
+                getBaseURL(StringUtils.trimToEmpty(url)), robotsTxt);
+    }
+
+    /**
+     * Creates a robots.txt rule filter for a site, as if read from
+     * its robots.txt file.
+     * @param url URL root or any URL of the site
+     * @param path robots.txt rule path
+     * @param onMatch {@link OnMatch#INCLUDE} for "Allow" rules,
+     *        {@link OnMatch#EXCLUDE} for "Disallow" ones
+     * @return robots.txt filter
+     * @since 3.0.0
+     */
+    public static IRobotsTxtFilter createFilter(
+            String url, String path, OnMatch onMatch) {
+        return RobotData.buildURLFilter(
+                getBaseURL(StringUtils.trimToEmpty(url)), path, onMatch);
+    }
+
+    /**
+     * Gets how many robots.txt lookups were found in cache.
+     * @return cache hits
+     * @since 3.0.0
+     */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+    /**
+     * Gets how many robots.txt lookups required a download.
+     * @return cache misses
+     * @since 3.0.0
+     */
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
     @Override
     public boolean equals(final Object other) {
-        return EqualsBuilder.reflectionEquals(this, other, "robotsTxtCache");
+        return EqualsBuilder.reflectionEquals(this, other,
+                "robotsTxtCache", "cacheHits", "cacheMisses");
     }
     @Override
     public int hashCode() {
-        return HashCodeBuilder.reflectionHashCode(this, "robotsTxtCache");
+        return HashCodeBuilder.reflectionHashCode(this,
+                "robotsTxtCache", "cacheHits", "cacheMisses");
     }
     @Override
     public String toString() {
         return new ReflectionToStringBuilder(this,
-                ToStringStyle.SHORT_PREFIX_STYLE)
-                .setExcludeFieldNames("robotsTxtCache").toString();
+                ToStringStyle.SHORT_PREFIX_STYLE).setExcludeFieldNames(
+                        "robotsTxtCache", "cacheHits", "cacheMisses")
+                .toString();
     }
 
     private static class RobotData {
@@ -264,7 +327,7 @@ public class StandardRobotsTxtProvider implements IRobotsTxtProvider {
                     crawlDelay, RobotsTxt.UNSPECIFIED_CRAWL_DELAY);
             return new RobotsTxt(filters, sitemaps, delay);
         }
-        private IRobotsTxtFilter buildURLFilter(
+        private static IRobotsTxtFilter buildURLFilter(
                 String baseURL, final String path, final OnMatch onMatch) {
             // Take the robots.txt pattern literally as it may include
             // characters (or character sequences) that would have special
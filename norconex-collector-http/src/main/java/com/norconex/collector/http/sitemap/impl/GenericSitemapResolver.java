@@ -21,6 +21,7 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -136,8 +137,12 @@ public class GenericSitemapResolver
     protected void onCrawlerRunBegin(CrawlerEvent<Crawler> event) {
         tempDir = Optional.ofNullable(tempDir).orElseGet(
                 () -> event.getSource().getTempDir());
+        openStore(event.getSource());
+    }
+    // synchronized since also opened when restoring resolved URL roots
+    private synchronized void openStore(Crawler crawler) {
         resolvedURLRoots = Optional.ofNullable(resolvedURLRoots).orElseGet(
-                () -> event.getSource().getDataStoreEngine().openStore(
+                () -> crawler.getDataStoreEngine().openStore(
                         "generic-sitemap", SimpleValue.class));
     }
     @Override
@@ -152,6 +157,8 @@ public class GenericSitemapResolver
                 c.clear();
                 c.close();
             });
+            // reopened on next run
+            resolvedURLRoots = null;
             deleteTemp();
         }
     }
@@ -241,6 +248,32 @@ public class GenericSitemapResolver
         return true;
     }
 
+    /**
+     * Gets whether sitemaps were resolved for a URL root during
+     * this crawler execution.
+     * @param urlRoot URL root
+     * @return <code>true</code> if resolved
+     * @since 3.0.0
+     */
+    public boolean isResolved(String urlRoot) {
+        IDataStore<SimpleValue> store = resolvedURLRoots;
+        return store != null && store.existsById(urlRoot);
+    }
+    /**
+     * Marks URL roots as having their sitemaps resolved (e.g., when
+     * resuming a crawl), so they are not resolved again.
+     * @param crawler crawler providing the data store engine
+     * @param urlRoots resolved URL roots
+     * @since 3.0.0
+     */
+    public void restoreResolvedURLRoots(
+            Crawler crawler, Collection<String> urlRoots) {
+        openStore(crawler);
+        for (String urlRoot : urlRoots) {
+            resolvedURLRoots.save(new SimpleValue(urlRoot));
+        }
+    }
+
     public boolean isLenient() {
         return lenient;
     }
@@ -0,0 +1,93 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.util;
+
+import java.net.InetSocketAddress;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.norconex.collector.core.CollectorException;
+
+/**
+ * Small embedded HTTP server, started on creation, for serving
+ * infrequent requests (e.g., metrics scrapes or a dashboard) while
+ * crawling. It uses one acceptor, one selector and a few daemon
+ * request threads.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public class EmbeddedHttpServer {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(EmbeddedHttpServer.class);
+
+    private final String name;
+    private final Server server;
+    private final int port;
+
+    /**
+     * Creates and starts an embedded HTTP server.
+     * @param name server name, used for thread names and messages
+     * @param host host name or IP address to listen on
+     * @param port port to listen on (zero or less picks any free port)
+     * @param handler handles requests
+     * @throws CollectorException could not start the server
+     */
+    public EmbeddedHttpServer(
+            String name, String host, int port, Handler handler) {
+        super();
+        this.name = name;
+        QueuedThreadPool threadPool = new QueuedThreadPool(8, 1);
+        threadPool.setName(name);
+        threadPool.setDaemon(true);
+        server = new Server(threadPool);
+        ServerConnector connector = new ServerConnector(server, 1, 1);
+        connector.setHost(host);
+        connector.setPort(Math.max(port, 0));
+        server.addConnector(connector);
+        server.setHandler(handler);
+        try {
+            server.start();
+        } catch (Exception e) {
+            throw new CollectorException("Could not start " + name + " on "
+                    + new InetSocketAddress(host, port), e);
+        }
+        this.port = connector.getLocalPort();
+    }
+
+    /**
+     * Gets the port this server is listening on.
+     * @return port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Stops this server. Failing to stop is only logged.
+     */
+    public void stop() {
+        try {
+            server.stop();
+        } catch (Exception e) {
+            LOG.debug("Could not stop {}.", name, e);
+        }
+    }
+}
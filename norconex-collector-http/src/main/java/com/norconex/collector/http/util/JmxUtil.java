@@ -0,0 +1,96 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.util;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers MBeans with the platform MBean server under the
+ * "com.norconex.collector.http" domain. Failures are logged and
+ * otherwise ignored, so JMX never prevents a crawl from running.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public final class JmxUtil {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmxUtil.class);
+
+    private static final String DOMAIN = "com.norconex.collector.http";
+
+    private JmxUtil() {
+        super();
+    }
+
+    /**
+     * Registers an MBean, replacing any MBean already registered under
+     * the same object name.
+     * @param mbean the MBean to register
+     * @param type value of the "type" key of the object name
+     * @param name value of the "name" key of the object name
+     * @return the object name, or <code>null</code> if registration failed
+     */
+    public static ObjectName register(Object mbean, String type, String name) {
+        try {
+            ObjectName on = new ObjectName(DOMAIN + ":type=" + type
+                    + ",name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(on)) {
+                server.unregisterMBean(on);
+            }
+            server.registerMBean(mbean, on);
+            return on;
+        } catch (Exception e) {
+            LOG.warn("Could not register {} MBean \"{}\" with JMX.",
+                    type, name, e);
+            return null;
+        }
+    }
+
+    /**
+     * Unregisters an MBean. Does nothing if the object name is
+     * <code>null</code>.
+     * @param objectName object name returned on registration
+     */
+    public static void unregister(ObjectName objectName) {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+                    objectName);
+        } catch (Exception e) {
+            LOG.debug("Could not unregister MBean {}.", objectName, e);
+        }
+    }
+
+    /**
+     * Gets an MBean name unique to a component instance of a crawler,
+     * made of the crawler id, the component class simple name and its
+     * identity hash code.
+     * @param crawlerId crawler id
+     * @param component crawler component
+     * @return MBean name
+     */
+    public static String instanceName(String crawlerId, Object component) {
+        return crawlerId + "/" + component.getClass().getSimpleName() + "@"
+                + Integer.toHexString(System.identityHashCode(component));
+    }
+}
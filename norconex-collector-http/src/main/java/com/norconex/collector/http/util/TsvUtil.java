@@ -0,0 +1,111 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Joins and splits lines of tab-separated values, escaping backslashes,
+ * tabs and line breaks so any value fits on a single line.
+ * Empty and <code>null</code> values are written the same way.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+public final class TsvUtil {
+
+    private static final char SEP = '\t';
+
+    private TsvUtil() {
+        super();
+    }
+
+    /**
+     * Joins values as a line of tab-separated values.
+     * @param values values to join
+     * @return joined values, without line terminator
+     */
+    public static String join(String... values) {
+        return join(Arrays.asList(values));
+    }
+    /**
+     * Joins values as a line of tab-separated values.
+     * @param values values to join
+     * @return joined values, without line terminator
+     */
+    public static String join(List<String> values) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                b.append(SEP);
+            }
+            escape(b, values.get(i));
+        }
+        return b.toString();
+    }
+
+    /**
+     * Splits a line joined with {@link #join(String...)}.
+     * @param line line of tab-separated values
+     * @return values (never <code>null</code>)
+     */
+    public static List<String> split(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (ch == SEP) {
+                values.add(b.toString());
+                b.setLength(0);
+            } else if (ch == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                if (next == 't') {
+                    b.append(SEP);
+                } else if (next == 'n') {
+                    b.append('\n');
+                } else if (next == 'r') {
+                    b.append('\r');
+                } else {
+                    b.append(next);
+                }
+            } else {
+                b.append(ch);
+            }
+        }
+        values.add(b.toString());
+        return values;
+    }
+
+    private static void escape(StringBuilder b, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '\\') {
+                b.append("\\\\");
+            } else if (ch == SEP) {
+                b.append("\\t");
+            } else if (ch == '\n') {
+                b.append("\\n");
+            } else if (ch == '\r') {
+                b.append("\\r");
+            } else {
+                b.append(ch);
+            }
+        }
+    }
+}
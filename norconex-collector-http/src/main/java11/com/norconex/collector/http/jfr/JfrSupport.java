@@ -0,0 +1,245 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.jfr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+
+import com.norconex.collector.http.jfr.CrawlEvents.FetchSpan;
+import com.norconex.collector.http.jfr.CrawlEvents.NoopSpan;
+import com.norconex.collector.http.jfr.CrawlEvents.Recorder;
+import com.norconex.collector.http.jfr.CrawlEvents.Span;
+import com.norconex.collector.http.jfr.CrawlEvents.StageSpan;
+import com.norconex.commons.lang.url.HttpURL;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Holds all references to the <code>jdk.jfr</code> API. Compiled
+ * separately for Java 11 (<code>src/main/java11</code>) and only
+ * instantiated by {@link CrawlEvents}, reflectively, on Java runtimes
+ * supporting it.
+ * @author Pascal Essiembre
+ * @since 3.0.0
+ */
+/*default*/ final class JfrSupport implements Recorder {
+
+    private static final String CATEGORY_1 = "Norconex";
+    private static final String CATEGORY_2 = "HTTP Collector";
+
+    private final EventType stageType;
+
+    /*default*/ JfrSupport() {
+        super();
+        if (!FlightRecorder.isAvailable()) {
+            throw new IllegalStateException(
+                    "JDK Flight Recorder is not available.");
+        }
+        stageType = EventType.getEventType(StageEvent.class);
+    }
+
+    @Override
+    public boolean isStageEnabled() {
+        return stageType.isEnabled();
+    }
+
+    @Override
+    public FetchSpan beginFetch(String url, String method) {
+        FetchEvent event = new FetchEvent();
+        if (!event.isEnabled()) {
+            return NoopSpan.NOOP;
+        }
+        event.url = url;
+        event.method = method;
+        event.begin();
+        event.startNanos = System.nanoTime();
+        return event;
+    }
+    @Override
+    public Span beginDelay(String url, String scope, long expectedDelayNanos) {
+        DelayEvent event = new DelayEvent();
+        if (!event.isEnabled()) {
+            return NoopSpan.NOOP;
+        }
+        event.url = url;
+        event.scope = scope;
+        event.expectedDelay = expectedDelayNanos;
+        event.begin();
+        // Event#end() is final, commit() ends it if not already ended
+        return event::commit;
+    }
+    @Override
+    public StageSpan beginStage(String pipeline, String stage, String url) {
+        StageEvent event = new StageEvent();
+        if (!event.isEnabled()) {
+            return NoopSpan.NOOP;
+        }
+        event.pipeline = pipeline;
+        event.stage = stage;
+        event.url = url;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public AutoCloseable startRecording(String name, String settings,
+            long maxAge, long maxSize, Path destination) throws IOException {
+        Configuration config;
+        try {
+            Path settingsFile = Paths.get(settings);
+            if (Files.isRegularFile(settingsFile)) {
+                config = Configuration.create(settingsFile);
+            } else {
+                config = Configuration.getConfiguration(settings);
+            }
+        } catch (ParseException e) {
+            throw new IOException("Invalid JFR settings: " + settings, e);
+        }
+        Recording recording = new Recording(config);
+        recording.setName(name);
+        recording.setToDisk(true);
+        if (maxAge > 0) {
+            recording.setMaxAge(Duration.ofMillis(maxAge));
+        }
+        if (maxSize > 0) {
+            recording.setMaxSize(maxSize);
+        }
+        if (destination != null) {
+            Path parent = destination.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            recording.setDestination(destination);
+            recording.setDumpOnExit(true);
+        }
+        recording.start();
+        return () -> {
+            // writes to destination, if set
+            recording.stop();
+            recording.close();
+        };
+    }
+
+    @Name("com.norconex.collector.http.Fetch")
+    @Label("HTTP Fetch")
+    @Category({ CATEGORY_1, CATEGORY_2 })
+    @Description("HTTP request made by GenericHttpFetcher.")
+    @StackTrace(false)
+    static class FetchEvent extends Event implements FetchSpan {
+        @Label("URL")
+        String url;
+        @Label("URL Root")
+        String urlRoot;
+        @Label("Method")
+        String method;
+        @Label("Status Code")
+        int statusCode;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+        @Label("Connect Time")
+        @Description("Time spent connecting, including TLS handshake. "
+                + "Zero when an existing connection was reused.")
+        @Timespan
+        long connectTime;
+        @Label("Time to First Byte")
+        @Description("Time until response headers were received.")
+        @Timespan
+        long timeToFirstByte;
+        @Label("Download Time")
+        @Description("Time spent reading the response body.")
+        @Timespan
+        long downloadTime;
+
+        private transient long startNanos;
+        private transient long headersNanos;
+
+        @Override
+        public void connected(long connectNanos) {
+            connectTime = connectNanos;
+        }
+        @Override
+        public void responseReceived(int statusCode) {
+            headersNanos = System.nanoTime();
+            this.statusCode = statusCode;
+            timeToFirstByte = headersNanos - startNanos;
+        }
+        @Override
+        public void end(long bytes) {
+            end();
+            if (shouldCommit()) {
+                this.bytes = bytes;
+                urlRoot = HttpURL.getRoot(url);
+                if (headersNanos > 0) {
+                    downloadTime = System.nanoTime() - headersNanos;
+                }
+                commit();
+            }
+        }
+    }
+
+    @Name("com.norconex.collector.http.Delay")
+    @Label("Politeness Delay")
+    @Category({ CATEGORY_1, CATEGORY_2 })
+    @Description("Time a crawler thread waited before hitting a site, "
+            + "including waiting for other threads sharing the same delay.")
+    @StackTrace(false)
+    static class DelayEvent extends Event {
+        @Label("URL")
+        String url;
+        @Label("Scope")
+        String scope;
+        @Label("Expected Delay")
+        @Timespan
+        long expectedDelay;
+    }
+
+    @Name("com.norconex.collector.http.Stage")
+    @Label("Pipeline Stage")
+    @Category({ CATEGORY_1, CATEGORY_2 })
+    @Description("Execution of a queue or importer pipeline stage.")
+    @StackTrace(false)
+    static class StageEvent extends Event implements StageSpan {
+        @Label("Pipeline")
+        String pipeline;
+        @Label("Stage")
+        String stage;
+        @Label("URL")
+        String url;
+        @Label("Passed")
+        boolean passed;
+        @Override
+        public void end(boolean passed) {
+            end();
+            this.passed = passed;
+            commit();
+        }
+    }
+}
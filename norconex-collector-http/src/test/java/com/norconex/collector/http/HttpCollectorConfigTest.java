@@ -52,6 +52,8 @@ public class HttpCollectorConfigTest {
         crawlerCfg.setStartURLsFiles(
                 Paths.get("/path/file1.txt"), Paths.get("/path/file2.txt"));
         config.setCrawlerConfigs(new CrawlerConfig[] {crawlerCfg});
+        config.getDashboard().setEnabled(true);
+        config.getDashboard().setPort(9999);
 
         LOG.debug("Writing/Reading this: {}", config);
         XML.assertWriteRead(config, "httpcollector");
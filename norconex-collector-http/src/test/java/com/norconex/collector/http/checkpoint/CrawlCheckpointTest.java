@@ -0,0 +1,117 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.checkpoint;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.norconex.collector.http.delay.impl.CrawlerDelay;
+import com.norconex.collector.http.robot.IRobotsTxtFilter;
+import com.norconex.collector.http.robot.RobotsTxt;
+import com.norconex.collector.http.robot.impl.StandardRobotsTxtProvider;
+import com.norconex.commons.lang.xml.XML;
+import com.norconex.importer.handler.filter.OnMatch;
+
+public class CrawlCheckpointTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testWriteRead() throws IOException {
+        CrawlCheckpoint c = new CrawlCheckpoint();
+        c.setEnabled(true);
+        c.setDirectory(Paths.get("/tmp/checkpoints"));
+        c.setInterval(60000);
+        c.setRobotsTxtMaxAge(12 * 60 * 60 * 1000L);
+        XML.assertWriteRead(c, "checkpoint");
+    }
+
+    @Test
+    public void testStateWriteRead() throws IOException {
+        String root = "http://www.example.com";
+        CheckpointState state = new CheckpointState();
+        state.getRobotsTxts().put(root, new RobotsTxt(Arrays.asList(
+                StandardRobotsTxtProvider.createFilter(
+                        root, "/private/*", OnMatch.EXCLUDE),
+                StandardRobotsTxtProvider.createFilter(
+                        root, "/private/ok$", OnMatch.INCLUDE)),
+                Arrays.asList(root + "/sitemap.xml"), 2.5f, 1500000000000L));
+        state.getRobotsTxts().put("http://failed.example.com",
+                new RobotsTxt());
+        state.getSitemapRoots().add(root);
+        state.setDelayScope("site");
+        state.getLastHits().put(root, 1234567890L);
+        state.getRedirects().add(root + "/with\ttab\\and\nnewline");
+
+        Path file = tempDir.resolve("test.checkpoint");
+        state.write(file);
+        CheckpointState read = CheckpointState.read(file);
+
+        Assertions.assertEquals(state.getSitemapRoots(),
+                read.getSitemapRoots());
+        Assertions.assertEquals("site", read.getDelayScope());
+        Assertions.assertEquals(state.getLastHits(), read.getLastHits());
+        Assertions.assertEquals(state.getRedirects(), read.getRedirects());
+        Assertions.assertEquals(2, read.getRobotsTxts().size());
+
+        RobotsTxt robotsTxt = read.getRobotsTxts().get(root);
+        Assertions.assertEquals(2.5f, robotsTxt.getCrawlDelay());
+        Assertions.assertEquals(1500000000000L, robotsTxt.getFetchTime());
+        Assertions.assertEquals(Collections.singletonList(
+                root + "/sitemap.xml"), robotsTxt.getSitemapLocations());
+        List<IRobotsTxtFilter> filters = robotsTxt.getFilters();
+        Assertions.assertEquals(2, filters.size());
+        Assertions.assertEquals("/private/*", filters.get(0).getPath());
+        Assertions.assertEquals(OnMatch.EXCLUDE, filters.get(0).getOnMatch());
+        Assertions.assertFalse(filters.get(0).acceptReference(
+                root + "/private/secret.html"));
+        Assertions.assertEquals(OnMatch.INCLUDE, filters.get(1).getOnMatch());
+
+        RobotsTxt failed = read.getRobotsTxts().get(
+                "http://failed.example.com");
+        Assertions.assertTrue(failed.getFilters().isEmpty());
+        Assertions.assertEquals(RobotsTxt.UNSPECIFIED_CRAWL_DELAY,
+                failed.getCrawlDelay());
+    }
+
+    @Test
+    public void testRestoreLastHits() {
+        long delayNanos = TimeUnit.SECONDS.toNanos(60);
+        String url = "http://www.example.com/page.html";
+
+        // first hit is never delayed, and gets recorded
+        CrawlerDelay delay = new CrawlerDelay();
+        Assertions.assertTrue(delay.getLastHits().isEmpty());
+        Assertions.assertEquals(0, delay.tryDelay(delayNanos, url));
+        long lastHit = delay.getLastHits().values().iterator().next();
+        Assertions.assertTrue(
+                Math.abs(System.currentTimeMillis() - lastHit) < 5000);
+
+        // a restored hit delays the first one
+        CrawlerDelay restored = new CrawlerDelay();
+        restored.restoreLastHits(delay.getLastHits());
+        Assertions.assertTrue(restored.tryDelay(delayNanos, url) > 0);
+    }
+}
@@ -0,0 +1,86 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.crawler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.commons.lang.Sleeper;
+
+public class DeferredReferencesTest {
+
+    @Test
+    public void testEarliest() {
+        DeferredReferences refs = new DeferredReferences(2);
+        Assertions.assertEquals(0, refs.getEarliest());
+        refs.queued(3000);
+        refs.queued(2000);
+        refs.queued(2000);
+        Assertions.assertEquals(2000, refs.getEarliest());
+        // bounded: later ones are dropped first
+        refs.queued(1000);
+        refs.queued(4000);
+        Assertions.assertEquals(1000, refs.getEarliest());
+        refs.dequeued(1000);
+        Assertions.assertEquals(2000, refs.getEarliest());
+        refs.dequeued(2000);
+        Assertions.assertEquals(2000, refs.getEarliest());
+        refs.dequeued(2000);
+        Assertions.assertEquals(0, refs.getEarliest());
+    }
+
+    @Test
+    public void testWaitOnlyWhenAllThreadsMiss() {
+        DeferredReferences refs = new DeferredReferences();
+        long notBefore = System.currentTimeMillis() + 60000;
+        long start = System.nanoTime();
+        // one miss out of two threads: no wait
+        Assertions.assertTrue(refs.awaitDue(notBefore, 2) > 0);
+        Assertions.assertTrue(elapsedMillis(start) < 1000);
+
+        // second miss in a row waits until the earliest is due
+        refs.queued(System.currentTimeMillis() + 200);
+        start = System.nanoTime();
+        Assertions.assertTrue(refs.awaitDue(notBefore, 2) > 0);
+        Assertions.assertTrue(elapsedMillis(start) >= 150);
+    }
+
+    @Test
+    public void testWaitUntilOwnDue() {
+        DeferredReferences refs = new DeferredReferences();
+        long notBefore = System.currentTimeMillis() + 200;
+        Assertions.assertTrue(refs.awaitDue(notBefore, 1) <= 0);
+    }
+
+    @Test
+    public void testReadyQueuedWakesUp() throws Exception {
+        DeferredReferences refs = new DeferredReferences();
+        long notBefore = System.currentTimeMillis() + 60000;
+        long start = System.nanoTime();
+        CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(
+                () -> refs.awaitDue(notBefore, 1));
+        Sleeper.sleepMillis(200);
+        refs.readyQueued();
+        Assertions.assertTrue(waiting.get(10, TimeUnit.SECONDS) > 0);
+        Assertions.assertTrue(elapsedMillis(start) < 4000);
+    }
+
+    private long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,105 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.dashboard;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.http.HttpCollector;
+import com.norconex.collector.http.crawler.HttpCrawler;
+import com.norconex.collector.http.crawler.HttpCrawlerConfig;
+import com.norconex.commons.lang.xml.XML;
+
+public class CrawlDashboardTest {
+
+    @Test
+    public void testWriteRead() throws IOException {
+        CrawlDashboard d = new CrawlDashboard();
+        d.setEnabled(true);
+        d.setHost("0.0.0.0");
+        d.setPort(9999);
+        d.setSampleInterval(10000);
+        d.setMaxHosts(25);
+        XML.assertWriteRead(d, "dashboard");
+    }
+
+    @Test
+    public void testServer() throws IOException {
+        CrawlDashboard d = new CrawlDashboard();
+        d.setPort(0);
+        d.start();
+        try {
+            String base = "http://127.0.0.1:" + d.getLocalPort();
+            Assertions.assertTrue(get(base + "/").contains("Crawl Dashboard"));
+            Assertions.assertTrue(get(base + CrawlDashboard.STATUS_PATH)
+                    .contains("\"crawlers\":[]"));
+        } finally {
+            d.stop();
+        }
+        Assertions.assertEquals(-1, d.getLocalPort());
+    }
+
+    @Test
+    public void testRegister() throws IOException {
+        HttpCrawlerConfig cfg = new HttpCrawlerConfig();
+        cfg.setId("dashboard-crawler");
+        HttpCrawler crawler = new HttpCrawler(cfg, new HttpCollector());
+        CrawlDashboard d = new CrawlDashboard();
+        d.setMaxHosts(25);
+
+        // not enabled: ignored
+        d.register(crawler);
+        Assertions.assertTrue(status(d).contains("\"crawlers\":[]"));
+        Assertions.assertEquals(HostActivity.DEFAULT_MAX_HOSTS,
+                crawler.getHostActivity().getMaxHosts());
+
+        d.setEnabled(true);
+        d.register(crawler);
+        Assertions.assertTrue(status(d).contains("dashboard-crawler"));
+        Assertions.assertEquals(25, crawler.getHostActivity().getMaxHosts());
+
+        d.unregister(crawler);
+        Assertions.assertTrue(status(d).contains("\"crawlers\":[]"));
+    }
+
+    @Test
+    public void testQuote() {
+        Assertions.assertEquals("\"a\\\"b\\\\c\\u000a\\u003c\"",
+                CrawlDashboard.quote("a\"b\\c\n<"));
+        Assertions.assertEquals("null", CrawlDashboard.quote(null));
+    }
+
+    private String status(CrawlDashboard d) throws IOException {
+        StringWriter w = new StringWriter();
+        d.writeStatus(w);
+        return w.toString();
+    }
+    private String get(String url) throws IOException {
+        HttpURLConnection conn =
+                (HttpURLConnection) new URL(url).openConnection();
+        Assertions.assertEquals(200, conn.getResponseCode());
+        try (InputStream is = conn.getInputStream()) {
+            return IOUtils.toString(is, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.dashboard;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.http.dashboard.HostActivity.HostStats;
+import com.norconex.collector.http.fetch.HttpFetchResponseBuilder;
+import com.norconex.collector.http.reference.HttpCrawlState;
+
+public class HostActivityTest {
+
+    @Test
+    public void testActivity() {
+        HostActivity a = new HostActivity();
+        a.queued("http://a.com/1");
+        a.queued("http://a.com/2");
+        a.queued("http://b.com/1");
+        a.processingStarted("http://a.com/1");
+        a.fetched("http://a.com/1", new HttpFetchResponseBuilder()
+                .setCrawlState(HttpCrawlState.NEW).setStatusCode(200).build());
+        Assertions.assertEquals(1, a.getActiveThreads());
+        a.processingEnded("http://a.com/1", true);
+        // deferred: back in the queue, not processed
+        a.processingStarted("http://a.com/2");
+        a.processingEnded("http://a.com/2", false);
+        a.queued("http://a.com/2");
+        a.processingStarted("http://a.com/2");
+        a.fetched("http://a.com/2", new HttpFetchResponseBuilder()
+                .setCrawlState(HttpCrawlState.BAD_STATUS)
+                .setStatusCode(500).build());
+        a.processingEnded("http://a.com/2", true);
+        a.delayed("http://a.com/2", 3_000_000_000L, 3f);
+
+        Assertions.assertEquals(0, a.getActiveThreads());
+        Assertions.assertEquals(2, a.getProcessedCount());
+
+        HostStats s = stats(a.getHosts(), "http://a.com");
+        Assertions.assertEquals(2, s.getFetchCount());
+        Assertions.assertEquals(1, s.getErrorCount());
+        Assertions.assertEquals(0.5, s.getErrorRate(), 0.001);
+        Assertions.assertEquals(0, s.getQueueSize());
+        Assertions.assertEquals(3000, s.getDelay());
+        Assertions.assertEquals(3f, s.getRobotsCrawlDelay(), 0.001);
+        Assertions.assertEquals(
+                1, stats(a.getHosts(), "http://b.com").getQueueSize());
+
+        a.sample();
+        Assertions.assertEquals(1, a.getTrend().length);
+        a.reset();
+        Assertions.assertTrue(a.getHosts().isEmpty());
+        Assertions.assertEquals(0, a.getTrend().length);
+    }
+
+    @Test
+    public void testMaxHosts() {
+        HostActivity a = new HostActivity();
+        a.setMaxHosts(2);
+        a.failed("http://a.com/");
+        a.failed("http://b.com/");
+        a.failed("http://c.com/");
+        a.failed("http://d.com/");
+        List<HostStats> hosts = a.getHosts();
+        Assertions.assertEquals(3, hosts.size());
+        Assertions.assertEquals(2, stats(
+                hosts, HostActivity.OTHER_HOSTS).getFetchCount());
+    }
+
+    private HostStats stats(List<HostStats> hosts, String host) {
+        return hosts.stream().filter(
+                s -> s.getHost().equals(host)).findFirst().orElse(null);
+    }
+}
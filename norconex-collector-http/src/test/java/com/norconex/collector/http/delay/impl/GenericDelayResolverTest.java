@@ -37,6 +37,7 @@ public class GenericDelayResolverTest {
         r.setDefaultDelay(10000);
         r.setIgnoreRobotsCrawlDelay(true);
         r.setScope("thread");
+        r.setDelayDeferred(true);
         List<DelaySchedule> schedules = new ArrayList<>();
         schedules.add(new DelaySchedule(
                 "from Monday to Wednesday",
@@ -50,6 +51,39 @@ public class GenericDelayResolverTest {
     }
 
 
+    @Test
+    public void testTryDelay() {
+        GenericDelayResolver r = new GenericDelayResolver();
+        r.setDefaultDelay(60000);
+        r.setScope(AbstractDelayResolver.SCOPE_CRAWLER);
+
+        Assertions.assertEquals(0, r.tryDelay(null, "http://a.com/1.html"));
+        long delay = r.tryDelay(null, "http://b.com/2.html");
+        Assertions.assertTrue(delay > 0 && delay <= 60000,
+                "Unexpected delay: " + delay);
+    }
+
+    @Test
+    public void testTryDelayReservesSlots() {
+        GenericDelayResolver r = new GenericDelayResolver();
+        r.setDefaultDelay(60000);
+        r.setScope(AbstractDelayResolver.SCOPE_SITE);
+
+        // each deferred URL gets the slot after the previous one
+        long first = r.tryDelay(null, "http://a.com/1.html");
+        long second = r.tryDelay(null, "http://a.com/2.html");
+        long third = r.tryDelay(null, "http://a.com/3.html");
+        Assertions.assertTrue(first > 0 && first <= 60000,
+                "Unexpected delay: " + first);
+        Assertions.assertTrue(Math.abs(second - first - 60000) < 1000,
+                "Unexpected delay: " + second);
+        Assertions.assertTrue(Math.abs(third - second - 60000) < 1000,
+                "Unexpected delay: " + third);
+
+        // other sites have their own slots
+        Assertions.assertTrue(r.tryDelay(null, "http://b.com/1.html") <= 60000);
+    }
+
     @Test
     public void testDelayScheduleBoundaries() throws IOException {
         //FYI: Jan 1, 2000 was a Saturday
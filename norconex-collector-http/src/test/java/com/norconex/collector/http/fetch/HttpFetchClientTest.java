@@ -0,0 +1,111 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.http.doc.HttpDocument;
+import com.norconex.collector.http.doc.HttpMetadata;
+import com.norconex.collector.http.fetch.util.GenericHttpRetryPolicy;
+import com.norconex.collector.http.reference.HttpCrawlState;
+import com.norconex.commons.lang.io.CachedStreamFactory;
+
+public class HttpFetchClientTest {
+
+    private static final String URL = "http://example.com/page.html";
+
+    @Test
+    public void testRetryPolicyRetries503() {
+        MockFetcher fetcher = new MockFetcher(
+                new HttpFetchResponseBuilder()
+                        .setCrawlState(HttpCrawlState.BAD_STATUS)
+                        .setStatusCode(503)
+                        .setRetryAfter("0")
+                        .build(),
+                new HttpFetchResponseBuilder()
+                        .setCrawlState(HttpCrawlState.NEW)
+                        .setStatusCode(200)
+                        .build());
+        GenericHttpRetryPolicy policy = new GenericHttpRetryPolicy();
+        policy.setBaseDelay(0);
+
+        // crawler default of zero max retries must not prevent retries
+        HttpFetchClient client = new HttpFetchClient(
+                new CachedStreamFactory(1, 1),
+                Arrays.asList(fetcher), 0, policy);
+        Assertions.assertEquals(
+                GenericHttpRetryPolicy.DEFAULT_MAX_RETRIES,
+                client.getMaxRetries());
+
+        IHttpFetchResponse resp =
+                client.fetchHeaders(URL, new HttpMetadata(URL));
+        Assertions.assertEquals(HttpCrawlState.NEW, resp.getCrawlState());
+        Assertions.assertEquals(200, resp.getStatusCode());
+        Assertions.assertEquals(2, fetcher.calls);
+        Assertions.assertEquals(1, client.getRetryCount());
+    }
+
+    @Test
+    public void testRetryPolicyMaxRetries() {
+        IHttpFetchResponse unavailable = new HttpFetchResponseBuilder()
+                .setCrawlState(HttpCrawlState.BAD_STATUS)
+                .setStatusCode(503)
+                .build();
+        MockFetcher fetcher = new MockFetcher(
+                unavailable, unavailable, unavailable);
+        GenericHttpRetryPolicy policy = new GenericHttpRetryPolicy();
+        policy.setBaseDelay(0);
+        policy.setMaxRetries(1);
+
+        HttpFetchClient client = new HttpFetchClient(
+                new CachedStreamFactory(1, 1),
+                Arrays.asList(fetcher), 5, policy);
+        IHttpFetchResponse resp =
+                client.fetchHeaders(URL, new HttpMetadata(URL));
+        Assertions.assertEquals(503, resp.getStatusCode());
+        Assertions.assertEquals(2, fetcher.calls);
+    }
+
+    private static class MockFetcher implements IHttpFetcher {
+        private final List<IHttpFetchResponse> responses;
+        private int calls;
+        public MockFetcher(IHttpFetchResponse... responses) {
+            super();
+            this.responses = new ArrayList<>(Arrays.asList(responses));
+        }
+        @Override
+        public String getUserAgent() {
+            return null;
+        }
+        @Override
+        public boolean accept(HttpDocument doc) {
+            return true;
+        }
+        @Override
+        public IHttpFetchResponse fetchHeaders(
+                String url, HttpMetadata httpHeaders) {
+            return responses.get(calls++);
+        }
+        @Override
+        public IHttpFetchResponse fetchDocument(HttpDocument doc) {
+            return responses.get(calls++);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.core.reference.CrawlState;
+import com.norconex.collector.http.doc.HttpMetadata;
+
+public class HttpFetchTimingsTest {
+
+    @Test
+    public void testStoreIn() {
+        HttpFetchTimings t = new HttpFetchTimings();
+        t.setDnsNanos(2_000_000);
+        t.setConnectNanos(15_000_000);
+        t.setTlsNanos(30_000_000);
+        t.setTimeToFirstByteNanos(120_000_000);
+        t.setDownloadNanos(45_000_000);
+        t.setWireBytes(1000);
+        t.setDecodedBytes(4000);
+        t.setProtocolVersion("HTTP/1.1");
+
+        HttpMetadata meta = new HttpMetadata("http://example.com");
+        t.storeIn(meta);
+        Assertions.assertEquals("2",
+                meta.getString(HttpMetadata.COLLECTOR_FETCH_DNS_TIME));
+        Assertions.assertEquals("15",
+                meta.getString(HttpMetadata.COLLECTOR_FETCH_CONNECT_TIME));
+        Assertions.assertEquals("30",
+                meta.getString(HttpMetadata.COLLECTOR_FETCH_TLS_TIME));
+        Assertions.assertEquals("120",
+                meta.getString(HttpMetadata.COLLECTOR_FETCH_FIRST_BYTE_TIME));
+        Assertions.assertEquals("45",
+                meta.getString(HttpMetadata.COLLECTOR_FETCH_DOWNLOAD_TIME));
+        Assertions.assertEquals("1000",
+                meta.getString(HttpMetadata.COLLECTOR_FETCH_WIRE_BYTES));
+        Assertions.assertEquals("4000",
+                meta.getString(HttpMetadata.COLLECTOR_FETCH_DECODED_BYTES));
+        Assertions.assertEquals("false", meta.getString(
+                HttpMetadata.COLLECTOR_FETCH_CONNECTION_REUSED));
+        Assertions.assertEquals("HTTP/1.1",
+                meta.getString(HttpMetadata.COLLECTOR_FETCH_PROTOCOL));
+        Assertions.assertEquals(212_000_000, t.getTotalNanos());
+    }
+
+    @Test
+    public void testResponseBuilderCopy() {
+        HttpFetchTimings t = new HttpFetchTimings();
+        t.setConnectionReused(true);
+        IHttpFetchResponse r = new HttpFetchResponseBuilder()
+                .setCrawlState(CrawlState.NEW)
+                .setStatusCode(200)
+                .setTimings(t)
+                .build();
+        Assertions.assertSame(t,
+                new HttpFetchResponseBuilder(r).build().getTimings());
+    }
+}
@@ -14,14 +14,79 @@
  */
 package com.norconex.collector.http.fetch.impl;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
 
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import com.norconex.collector.core.crawler.CrawlerEvent;
+import com.norconex.collector.core.filter.IMetadataFilter;
+import com.norconex.collector.http.HttpCollector;
+import com.norconex.collector.http.crawler.HttpCrawler;
+import com.norconex.collector.http.crawler.HttpCrawlerConfig;
+import com.norconex.collector.http.doc.HttpDocument;
+import com.norconex.collector.http.doc.HttpMetadata;
+import com.norconex.collector.http.fetch.HttpFetchTimings;
+import com.norconex.collector.http.fetch.IHttpFetchResponse;
+import com.norconex.collector.http.fetch.impl.GenericHttpFetcherConfig.ContentLengthPolicy;
+import com.norconex.collector.http.fetch.impl.GenericHttpFetcherConfig.MaxContentLength;
+import com.norconex.collector.http.fetch.impl.GenericHttpFetcherConfig.RouteSettings;
+import com.norconex.collector.http.reference.HttpCrawlState;
+import com.norconex.collector.http.server.TestServer;
+import com.norconex.collector.http.server.TestServerBuilder;
+import com.norconex.commons.lang.io.CachedStreamFactory;
 import com.norconex.commons.lang.xml.XML;
 
 public class GenericHttpFetcherTest  {
 
+    private static final String PAGE = "<html><body>Test page</body></html>";
+    private static final String LARGE_PAGE = "<html><body>"
+            + StringUtils.repeat("<p>Test paragraph</p>", 100)
+            + "</body></html>";
+
+    private static final TestServer SERVER = new TestServerBuilder()
+            .addServlet(new HttpServlet() {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected void doGet(HttpServletRequest req,
+                HttpServletResponse resp) throws IOException {
+            if (req.getRequestURI().startsWith("/rejected")) {
+                resp.setHeader("X-Rejected", "true");
+            }
+            if (req.getRequestURI().startsWith("/gzip")) {
+                byte[] body = gzip(LARGE_PAGE);
+                resp.setContentType("text/html;charset=UTF-8");
+                resp.setHeader("Content-Encoding", "gzip");
+                resp.setContentLength(body.length);
+                resp.getOutputStream().write(body);
+                return;
+            }
+            resp.setContentType("text/html");
+            resp.setCharacterEncoding("UTF-8");
+            resp.getWriter().print(PAGE);
+        }
+    }, "/*").build();
+
+    @BeforeAll
+    public static void beforeClass() {
+        SERVER.start();
+    }
+    @AfterAll
+    public static void afterClass() {
+        SERVER.stop();
+    }
+
     @Test
     public void testWriteRead() throws IOException {
         GenericHttpFetcherConfig cfg = new GenericHttpFetcherConfig();
@@ -30,8 +95,176 @@ public class GenericHttpFetcherTest  {
         cfg.setHeadersPrefix("blah");
         cfg.setDetectCharset(true);
         cfg.setDetectContentType(true);
+        cfg.setFilterBeforeDownload(true);
+        cfg.setStoreFetchTimings(true);
+        cfg.setDisableCompression(true);
+        cfg.setMaxContentLengths(
+                new MaxContentLength("text/.*", 1000,
+                        ContentLengthPolicy.TRUNCATE),
+                new MaxContentLength("video/.*", 500,
+                        ContentLengthPolicy.REJECT));
+        cfg.setMaxConnectionInactiveTime(3000);
+        cfg.setRouteSettings(
+                new RouteSettings(".*\\.example\\.com", 5, 10000, -1),
+                new RouteSettings("slow\\.example\\.org", -1, 60000, 120000));
 
         GenericHttpFetcher f = new GenericHttpFetcher(cfg);
         XML.assertWriteRead(f, "fetcher");
     }
+
+    @Test
+    public void testFetchTimings() {
+        GenericHttpFetcher f = new GenericHttpFetcher();
+        HttpCrawler crawler = startFetcher(f);
+        try {
+            HttpFetchTimings t = fetch(f, "/page").getTimings();
+            Assertions.assertNotNull(t);
+            Assertions.assertFalse(t.isConnectionReused());
+            Assertions.assertTrue(t.getDnsNanos() > 0);
+            Assertions.assertTrue(t.getConnectNanos() > 0);
+            Assertions.assertEquals(0, t.getTlsNanos());
+            Assertions.assertTrue(t.getTimeToFirstByteNanos() > 0);
+            Assertions.assertEquals(PAGE.length(), t.getDecodedBytes());
+            Assertions.assertEquals(PAGE.length(), t.getWireBytes());
+            Assertions.assertEquals("HTTP/1.1", t.getProtocolVersion());
+
+            // DNS and connect phases are not repeated on pooled connections
+            t = fetch(f, "/page2").getTimings();
+            Assertions.assertTrue(t.isConnectionReused());
+            Assertions.assertEquals(0, t.getDnsNanos());
+            Assertions.assertEquals(0, t.getConnectNanos());
+            Assertions.assertTrue(t.getTimeToFirstByteNanos() > 0);
+        } finally {
+            stopFetcher(f, crawler);
+        }
+    }
+
+    @Test
+    public void testMaxContentLength() throws IOException {
+        // rejected
+        GenericHttpFetcherConfig cfg = new GenericHttpFetcherConfig();
+        cfg.setMaxContentLengths(
+                new MaxContentLength("video/.*", 1000,
+                        ContentLengthPolicy.TRUNCATE),
+                new MaxContentLength("text/.*", 10,
+                        ContentLengthPolicy.REJECT));
+        GenericHttpFetcher f = new GenericHttpFetcher(cfg);
+        HttpCrawler crawler = startFetcher(f);
+        try {
+            Assertions.assertEquals(HttpCrawlState.TOO_LARGE,
+                    fetch(f, "/page").getCrawlState());
+        } finally {
+            stopFetcher(f, crawler);
+        }
+
+        // truncated
+        cfg = new GenericHttpFetcherConfig();
+        cfg.setMaxContentLengths(
+                new MaxContentLength("TEXT/HTML.*", 10,
+                        ContentLengthPolicy.TRUNCATE));
+        f = new GenericHttpFetcher(cfg);
+        crawler = startFetcher(f);
+        try {
+            HttpDocument doc = newDocument("/page");
+            Assertions.assertEquals(HttpCrawlState.NEW,
+                    f.fetchDocument(doc).getCrawlState());
+            Assertions.assertEquals(PAGE.substring(0, 10), IOUtils.toString(
+                    doc.getInputStream(), StandardCharsets.UTF_8));
+            Assertions.assertEquals("true", doc.getMetadata().getString(
+                    HttpMetadata.COLLECTOR_CONTENT_TRUNCATED));
+        } finally {
+            stopFetcher(f, crawler);
+        }
+    }
+
+    @Test
+    public void testFilterBeforeDownload() throws IOException {
+        HttpCrawlerConfig crawlerConfig = new HttpCrawlerConfig();
+        IMetadataFilter filter = (reference, metadata) ->
+                !"true".equals(metadata.getString("X-Rejected"));
+        crawlerConfig.setMetadataFilters(filter);
+        GenericHttpFetcherConfig cfg = new GenericHttpFetcherConfig();
+        cfg.setFilterBeforeDownload(true);
+        GenericHttpFetcher f = new GenericHttpFetcher(cfg);
+        HttpCrawler crawler = startFetcher(f, crawlerConfig);
+        try {
+            // rejected on headers, without downloading the body
+            HttpDocument doc = newDocument("/rejected");
+            Assertions.assertEquals(HttpCrawlState.REJECTED,
+                    f.fetchDocument(doc).getCrawlState());
+            Assertions.assertEquals("true",
+                    doc.getMetadata().getString("X-Rejected"));
+            Assertions.assertEquals(0, f.getDownloadedBytes());
+            Assertions.assertEquals("", IOUtils.toString(
+                    doc.getInputStream(), StandardCharsets.UTF_8));
+
+            doc = newDocument("/accepted");
+            Assertions.assertEquals(HttpCrawlState.NEW,
+                    f.fetchDocument(doc).getCrawlState());
+            Assertions.assertEquals(PAGE.length(), f.getDownloadedBytes());
+            Assertions.assertEquals(PAGE, IOUtils.toString(
+                    doc.getInputStream(), StandardCharsets.UTF_8));
+        } finally {
+            stopFetcher(f, crawler);
+        }
+    }
+
+    @Test
+    public void testCompressedTransfer() throws IOException {
+        GenericHttpFetcher f = new GenericHttpFetcher();
+        HttpCrawler crawler = startFetcher(f);
+        try {
+            long wireBytes = gzip(LARGE_PAGE).length;
+            long decodedBytes = LARGE_PAGE.length();
+            HttpDocument doc = newDocument("/gzip");
+            HttpFetchTimings t = f.fetchDocument(doc).getTimings();
+            Assertions.assertTrue(wireBytes < decodedBytes);
+            Assertions.assertEquals(wireBytes, t.getWireBytes());
+            Assertions.assertEquals(decodedBytes, t.getDecodedBytes());
+            Assertions.assertEquals(wireBytes, f.getDownloadedBytes());
+            Assertions.assertEquals("gzip", doc.getMetadata().getString(
+                    HttpMetadata.COLLECTOR_TRANSFER_ENCODING));
+            Assertions.assertEquals(Long.toString(wireBytes),
+                    doc.getMetadata().getString(
+                            HttpMetadata.COLLECTOR_TRANSFER_LENGTH));
+            Assertions.assertEquals(LARGE_PAGE, IOUtils.toString(
+                    doc.getInputStream(), StandardCharsets.UTF_8));
+        } finally {
+            stopFetcher(f, crawler);
+        }
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static HttpCrawler startFetcher(GenericHttpFetcher fetcher) {
+        return startFetcher(fetcher, new HttpCrawlerConfig());
+    }
+    private static HttpCrawler startFetcher(
+            GenericHttpFetcher fetcher, HttpCrawlerConfig crawlerConfig) {
+        HttpCrawler crawler =
+                new HttpCrawler(crawlerConfig, new HttpCollector());
+        fetcher.accept(
+                CrawlerEvent.create(CrawlerEvent.CRAWLER_RUN_BEGIN, crawler));
+        return crawler;
+    }
+    private static void stopFetcher(
+            GenericHttpFetcher fetcher, HttpCrawler crawler) {
+        fetcher.accept(
+                CrawlerEvent.create(CrawlerEvent.CRAWLER_RUN_END, crawler));
+    }
+    private static IHttpFetchResponse fetch(
+            GenericHttpFetcher fetcher, String path) {
+        return fetcher.fetchDocument(newDocument(path));
+    }
+    private static HttpDocument newDocument(String path) {
+        return new HttpDocument(
+                "http://localhost:" + SERVER.getPort() + path,
+                new CachedStreamFactory(10000, 10000).newInputStream());
+    }
 }
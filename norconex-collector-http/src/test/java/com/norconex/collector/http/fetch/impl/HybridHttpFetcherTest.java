@@ -0,0 +1,211 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.http.doc.HttpDocument;
+import com.norconex.collector.http.doc.HttpMetadata;
+import com.norconex.collector.http.fetch.HttpFetchResponseBuilder;
+import com.norconex.collector.http.fetch.IHttpFetchResponse;
+import com.norconex.collector.http.fetch.IHttpFetcher;
+import com.norconex.collector.http.reference.HttpCrawlState;
+import com.norconex.commons.lang.io.CachedStreamFactory;
+import com.norconex.commons.lang.xml.XML;
+
+public class HybridHttpFetcherTest {
+
+    private static final String TEXT = StringUtils.repeat(
+            "Some meaningful sentence. ", 20);
+
+    @Test
+    public void testWriteRead() throws IOException {
+        HybridHttpFetcher f = new HybridHttpFetcher();
+        GenericHttpFetcher http = new GenericHttpFetcher();
+        http.getConfig().setUserAgent("Test User Agent");
+        f.setHttpFetcher(http);
+        WebDriverHttpFetcher render = new WebDriverHttpFetcher();
+        render.setPageLoadTimeout(1234);
+        f.setRenderFetcher(render);
+        f.setMinTextLength(123);
+        f.setMaxScriptTextRatio(2.5f);
+        f.setMaxAnalyzedLength(4096);
+        f.setSpaMarkers(Arrays.asList("<my-app>", "data-spa"));
+        f.setUrlPatternDepth(2);
+        f.setMinSamples(3);
+        f.setRecheckInterval(20);
+        XML.assertWriteRead(f, "fetcher");
+    }
+
+    @Test
+    public void testRenderingNeeded() {
+        HybridHttpFetcher f = new HybridHttpFetcher();
+
+        // Enough text: no rendering
+        Assertions.assertFalse(f.isRenderingNeeded(
+                "<html><body><p>" + TEXT + "</p></body></html>"));
+
+        // Too little text
+        Assertions.assertTrue(f.isRenderingNeeded(
+                "<html><body><p>Loading...</p></body></html>"));
+
+        // Text in scripts/styles does not count
+        Assertions.assertTrue(f.isRenderingNeeded(
+                "<html><body><script>var t = '" + TEXT + "';</script>"
+              + "<style>/* " + TEXT + " */</style></body></html>"));
+
+        // SPA marker
+        Assertions.assertTrue(f.isRenderingNeeded(
+                "<html><body><p>" + TEXT + "</p>"
+              + "<div id=\"root\"></div></body></html>"));
+
+        // Too much script for the text
+        Assertions.assertTrue(f.isRenderingNeeded(
+                "<html><body><p>" + TEXT + "</p><script>"
+              + StringUtils.repeat("render();", 200)
+              + "</script></body></html>"));
+        f.setMaxScriptTextRatio(0);
+        Assertions.assertFalse(f.isRenderingNeeded(
+                "<html><body><p>" + TEXT + "</p><script>"
+              + StringUtils.repeat("render();", 200)
+              + "</script></body></html>"));
+    }
+
+    @Test
+    public void testRender() throws IOException {
+        HybridHttpFetcher f = new HybridHttpFetcher();
+        // only matches when decoded with the page encoding
+        f.setSpaMarkers(Arrays.asList("<caf\u00e9-app>"));
+        f.setHttpFetcher(new MockFetcher(doc -> {
+            doc.setInputStream(new ByteArrayInputStream((
+                    "<html><body><p>" + TEXT + "</p><caf\u00e9-app>"
+                  + "</body></html>").getBytes(StandardCharsets.ISO_8859_1)));
+            doc.getMetadata().add(HttpMetadata.HTTP_CONTENT_TYPE,
+                    "text/html; charset=ISO-8859-1");
+            doc.getMetadata().add("X-Static", "static");
+        }));
+        f.setRenderFetcher(new MockFetcher(doc -> {
+            doc.setInputStream(new ByteArrayInputStream(
+                    "<html><body><p>rendered</p></body></html>".getBytes(
+                            StandardCharsets.UTF_8)));
+            doc.getMetadata().add(
+                    HttpMetadata.HTTP_CONTENT_TYPE, "text/html");
+        }));
+
+        HttpDocument doc = new HttpDocument("http://example.com/page",
+                new CachedStreamFactory(10000, 10000).newInputStream());
+        f.fetchDocument(doc);
+
+        Assertions.assertEquals("true",
+                doc.getMetadata().getString(HttpMetadata.COLLECTOR_RENDERED));
+        Assertions.assertEquals("<html><body><p>rendered</p></body></html>",
+                IOUtils.toString(doc.getInputStream(), StandardCharsets.UTF_8));
+        // rendered headers replace static ones, others are kept
+        Assertions.assertEquals(Collections.singletonList("text/html"),
+                doc.getMetadata().getStrings(HttpMetadata.HTTP_CONTENT_TYPE));
+        Assertions.assertEquals("static",
+                doc.getMetadata().getString("X-Static"));
+    }
+
+    @Test
+    public void testLearning() {
+        AtomicInteger httpFetches = new AtomicInteger();
+        AtomicInteger renders = new AtomicInteger();
+        HybridHttpFetcher f = new HybridHttpFetcher();
+        f.setMinSamples(2);
+        f.setRecheckInterval(2);
+        f.setHttpFetcher(new MockFetcher(doc -> {
+            httpFetches.incrementAndGet();
+            doc.setInputStream(new ByteArrayInputStream(
+                    "<html><body><div id=\"app\"></div></body></html>"
+                            .getBytes(StandardCharsets.UTF_8)));
+        }));
+        f.setRenderFetcher(new MockFetcher(doc -> {
+            renders.incrementAndGet();
+            doc.setInputStream(new ByteArrayInputStream(
+                    ("<html><body><p>" + TEXT + "</p></body></html>")
+                            .getBytes(StandardCharsets.UTF_8)));
+        }));
+
+        // Each page is fetched, then rendered as it needs it
+        fetch(f, "http://example.com/app/page1");
+        fetch(f, "http://example.com/app/page2");
+        Assertions.assertEquals(2, httpFetches.get());
+        Assertions.assertEquals(2, renders.get());
+
+        // Decision remembered: rendered right away
+        Assertions.assertEquals("true", fetch(f, "http://example.com/app/page3")
+                .getMetadata().getString(HttpMetadata.COLLECTOR_RENDERED));
+        Assertions.assertEquals(2, httpFetches.get());
+        Assertions.assertEquals(3, renders.get());
+
+        // Decision verified again every 2 remembered pages
+        fetch(f, "http://example.com/app/page4");
+        Assertions.assertEquals(3, httpFetches.get());
+        Assertions.assertEquals(4, renders.get());
+
+        // Other URL patterns are not affected
+        fetch(f, "http://example.com/other/page1");
+        Assertions.assertEquals(4, httpFetches.get());
+        Assertions.assertEquals(5, renders.get());
+    }
+
+    private static HttpDocument fetch(HybridHttpFetcher f, String url) {
+        HttpDocument doc = new HttpDocument(url,
+                new CachedStreamFactory(10000, 10000).newInputStream());
+        f.fetchDocument(doc);
+        return doc;
+    }
+
+    private static class MockFetcher implements IHttpFetcher {
+        private final Consumer<HttpDocument> fetch;
+        public MockFetcher(Consumer<HttpDocument> fetch) {
+            super();
+            this.fetch = fetch;
+        }
+        @Override
+        public String getUserAgent() {
+            return null;
+        }
+        @Override
+        public boolean accept(HttpDocument doc) {
+            return true;
+        }
+        @Override
+        public IHttpFetchResponse fetchHeaders(
+                String url, HttpMetadata httpHeaders) {
+            return null;
+        }
+        @Override
+        public IHttpFetchResponse fetchDocument(HttpDocument doc) {
+            fetch.accept(doc);
+            return new HttpFetchResponseBuilder()
+                    .setCrawlState(HttpCrawlState.NEW)
+                    .setStatusCode(200)
+                    .build();
+        }
+    }
+}
@@ -41,6 +41,9 @@ public class PhantomJSDocumentFetcherTest  {
         f.setExePath(new File("/path/to/phantomjs.exe").getAbsolutePath());
         f.setRenderWaitTime(1000);
         f.setResourceTimeout(3000);
+        f.setWorkers(4);
+        f.setWorkerScriptPath("/path/to/phantom-server.js");
+        f.setWorkerMaxRequests(100);
         f.setContentTypePattern(".blah.");
         f.setReferencePattern(".blah.blah");
         f.setDetectContentType(true);
@@ -0,0 +1,132 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.commons.lang.exec.ExecUtil;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the render worker protocol against a fake worker process
+ * answering like <code>phantom-server.js</code>.
+ */
+public class PhantomJSRenderWorkerPoolTest {
+
+    private PhantomJSRenderWorkerPool pool;
+
+    @BeforeEach
+    public void before() {
+        pool = new PhantomJSRenderWorkerPool(Arrays.asList(
+                System.getProperty("java.home") + File.separator + "bin"
+                        + File.separator + "java",
+                "-cp", System.getProperty("java.class.path"),
+                FakeWorker.class.getName()), null, 1, 2);
+    }
+    @AfterEach
+    public void after() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testRender() throws IOException {
+        List<String> lines = pool.render("{\"url\":\"http://a.com\"}", 10000);
+        Assertions.assertEquals(Arrays.asList("STATUS:200",
+                "REQUEST:{\"url\":\"http://a.com\"}", "EXIT:0"), lines);
+        Assertions.assertEquals(1, pool.getWorkerCount());
+
+        // restarted after max requests
+        pool.render("{\"url\":\"http://b.com\"}", 10000);
+        Assertions.assertEquals(0, pool.getWorkerCount());
+    }
+
+    @Test
+    public void testFailedRequest() throws IOException {
+        Assertions.assertThrows(IOException.class,
+                () -> pool.render("not json", 10000));
+        Assertions.assertEquals(0, pool.getWorkerCount());
+
+        // a new worker takes over
+        Assertions.assertEquals("EXIT:0", pool.render(
+                "{\"url\":\"http://a.com\"}", 10000).get(2));
+    }
+
+    @Test
+    public void testReadWorkerOutput() {
+        List<String> out = new ArrayList<>();
+        List<String> err = new ArrayList<>();
+        int exit = PhantomJSDocumentFetcher.readWorkerOutput(Arrays.asList(
+                "STATUS:200", "ERROR:Some error", "EXIT:1"), (type, line) -> {
+            if (ExecUtil.STDERR.equals(type)) {
+                err.add(line);
+            } else {
+                out.add(line);
+            }
+        });
+        Assertions.assertEquals(1, exit);
+        Assertions.assertEquals(Arrays.asList("STATUS:200"), out);
+        Assertions.assertEquals(Arrays.asList("Some error"), err);
+
+        Assertions.assertEquals(0, PhantomJSDocumentFetcher.readWorkerOutput(
+                Arrays.asList("STATUS:200", "EXIT:0"), (type, line) -> {}));
+        // incomplete response
+        Assertions.assertEquals(1, PhantomJSDocumentFetcher.readWorkerOutput(
+                Arrays.asList("STATUS:200"), (type, line) -> {}));
+    }
+
+    /**
+     * Listens on the port given as last argument and echoes requests
+     * the way phantom-server.js answers them, rejecting invalid ones.
+     */
+    public static class FakeWorker {
+        public static void main(String[] args) throws IOException {
+            String port = args[args.length - 1];
+            HttpServer server = HttpServer.create(new InetSocketAddress(
+                    "127.0.0.1", Integer.parseInt(port)), 0);
+            server.createContext("/", exchange -> {
+                String request = IOUtils.toString(
+                        exchange.getRequestBody(), StandardCharsets.UTF_8);
+                byte[] body;
+                if (request.startsWith("{")) {
+                    body = ("STATUS:200\nREQUEST:" + request + "\nEXIT:0")
+                            .getBytes(StandardCharsets.UTF_8);
+                    exchange.sendResponseHeaders(200, body.length);
+                } else {
+                    body = ("ERROR:Invalid request: " + request)
+                            .getBytes(StandardCharsets.UTF_8);
+                    exchange.sendResponseHeaders(400, body.length);
+                }
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            });
+            server.start();
+            System.out.println("READY:" + port);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.impl;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.http.fetch.impl.WebDriverHttpSnifferConfig.BlockingProfile;
+import com.norconex.commons.lang.xml.XML;
+
+public class WebDriverHttpSnifferConfigTest {
+
+    @Test
+    public void testWriteRead() throws IOException {
+        WebDriverHttpSnifferConfig cfg = new WebDriverHttpSnifferConfig();
+        cfg.setPort(123);
+        cfg.setUserAgent("Test User Agent");
+        cfg.setRequestHeaders(Collections.singletonMap("X-Test", "value"));
+        cfg.setBlockingProfile(BlockingProfile.TEXT_ONLY);
+        cfg.setBlockedURLs(Arrays.asList(".*/ads/.*", ".*\\.css"));
+        cfg.setBlockedContentTypes(Arrays.asList("application/pdf"));
+        XML.assertWriteRead(cfg, "httpSniffer");
+    }
+}
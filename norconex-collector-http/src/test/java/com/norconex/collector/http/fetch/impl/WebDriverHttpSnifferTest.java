@@ -0,0 +1,94 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.impl;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.MutableCapabilities;
+
+import com.norconex.collector.http.fetch.impl.WebDriverHttpSniffer.DriverResponseFilter;
+import com.norconex.collector.http.server.TestServer;
+import com.norconex.collector.http.server.TestServerBuilder;
+
+public class WebDriverHttpSnifferTest {
+
+    @Test
+    public void testBlockedURL() throws IOException {
+        List<String> received = new CopyOnWriteArrayList<>();
+        TestServer server = new TestServerBuilder()
+                .addServlet(new HttpServlet() {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected void doGet(HttpServletRequest req,
+                    HttpServletResponse resp) throws IOException {
+                received.add(req.getRequestURI());
+                resp.setContentType("text/html");
+                resp.getWriter().print("<html><body>Test</body></html>");
+            }
+        }, "/*").build();
+        server.start();
+
+        WebDriverHttpSnifferConfig cfg = new WebDriverHttpSnifferConfig();
+        cfg.setBlockedURLs(Arrays.asList(".*/blocked/.*"));
+        WebDriverHttpSniffer sniffer = new WebDriverHttpSniffer();
+        sniffer.start(new MutableCapabilities(), cfg, 0);
+        String baseURL = "http://localhost:" + server.getPort();
+        try (CloseableHttpClient client = HttpClients.custom()
+                .setProxy(new HttpHost("localhost", sniffer.getPort()))
+                .build()) {
+            sniffer.bind(baseURL + "/blocked/page.html");
+
+            // the bound page itself is never blocked
+            Assertions.assertEquals(200,
+                    get(client, baseURL + "/blocked/page.html"));
+            Assertions.assertEquals(204,
+                    get(client, baseURL + "/blocked/image.png"));
+            Assertions.assertEquals(200, get(client, baseURL + "/style.css"));
+
+            DriverResponseFilter f = sniffer.unbind();
+            Assertions.assertEquals(200, f.getStatusCode());
+            Assertions.assertEquals(1, f.getBlockedRequests());
+            Assertions.assertEquals(Arrays.asList(
+                    "/blocked/page.html", "/style.css"), received);
+        } finally {
+            sniffer.stop();
+            server.stop();
+        }
+    }
+
+    private static int get(CloseableHttpClient client, String url)
+            throws IOException {
+        try (CloseableHttpResponse response =
+                client.execute(new HttpGet(url))) {
+            EntityUtils.consume(response.getEntity());
+            return response.getStatusLine().getStatusCode();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.impl;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+
+import com.norconex.collector.core.CollectorException;
+import com.norconex.collector.http.fetch.impl.WebDriverPool.PooledWebDriver;
+import com.norconex.commons.lang.xml.XML;
+
+public class WebDriverPoolTest {
+
+    @Test
+    public void testWriteRead() throws IOException {
+        WebDriverPoolConfig cfg = new WebDriverPoolConfig();
+        cfg.setSize(3);
+        cfg.setMaxWait(5000);
+        cfg.setMaxPagesPerBrowser(100);
+        cfg.setMaxMemoryPerBrowser(500000000L);
+        cfg.setHealthCheckDisabled(true);
+        XML.assertWriteRead(cfg, "browserPool");
+    }
+
+    @Test
+    public void testBorrowAndRecycle() {
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger quit = new AtomicInteger();
+        WebDriverPoolConfig cfg = new WebDriverPoolConfig();
+        cfg.setSize(2);
+        cfg.setMaxWait(50);
+        cfg.setMaxPagesPerBrowser(2);
+        WebDriverPool pool = new WebDriverPool(
+                cfg, () -> stubDriver(created, quit));
+
+        PooledWebDriver d1 = pool.borrow();
+        PooledWebDriver d2 = pool.borrow();
+        Assertions.assertEquals(2, created.get());
+        Assertions.assertEquals(2, pool.getBorrowedCount());
+
+        // pool exhausted
+        Assertions.assertThrows(CollectorException.class, pool::borrow);
+
+        // returned browser is reused
+        pool.release(d1, false);
+        Assertions.assertSame(d1, pool.borrow());
+        Assertions.assertEquals(2, created.get());
+
+        // recycled after 2 pages
+        pool.release(d1, false);
+        Assertions.assertEquals(1, quit.get());
+
+        // broken browser is discarded
+        pool.release(d2, true);
+        Assertions.assertEquals(2, quit.get());
+        Assertions.assertEquals(0, pool.getBrowserCount());
+
+        pool.borrow();
+        Assertions.assertEquals(3, created.get());
+        pool.shutdown();
+        Assertions.assertEquals(3, quit.get());
+    }
+
+    private static WebDriver stubDriver(
+            AtomicInteger created, AtomicInteger quit) {
+        created.incrementAndGet();
+        return (WebDriver) Proxy.newProxyInstance(
+                WebDriver.class.getClassLoader(),
+                new Class<?>[] { WebDriver.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "quit":
+                        quit.incrementAndGet();
+                        return null;
+                    case "getWindowHandle":
+                        return "stub";
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return null;
+                    }
+                });
+    }
+}
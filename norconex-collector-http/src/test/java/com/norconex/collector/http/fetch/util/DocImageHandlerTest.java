@@ -0,0 +1,111 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.norconex.collector.http.doc.HttpDocument;
+import com.norconex.collector.http.fetch.util.DocImageHandler.DirStructure;
+import com.norconex.collector.http.fetch.util.DocImageHandler.Target;
+import com.norconex.commons.lang.io.CachedStreamFactory;
+import com.norconex.commons.lang.xml.XML;
+
+public class DocImageHandlerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testWriteRead() throws IOException {
+        DocImageHandler h = new DocImageHandler();
+        h.setTargets(Target.METADATA, Target.DIRECTORY);
+        h.setTargetDir(tempDir);
+        h.setTargetDirField("dirField");
+        h.setTargetDirStructure(DirStructure.CHECKSUM);
+        h.setTargetMetaField("metaField");
+        h.setImageFormat("jpg");
+        h.setAsyncThreads(2);
+        h.setAsyncQueueSize(50);
+        XML.assertWriteRead(h, "handler");
+    }
+
+    @Test
+    public void testChecksumDedup() throws IOException {
+        DocImageHandler h = new DocImageHandler(tempDir, "path", "image");
+        h.setTargetDirStructure(DirStructure.CHECKSUM);
+        h.setAsyncThreads(1);
+
+        byte[] red = createImage(Color.RED);
+        byte[] blue = createImage(Color.BLUE);
+        HttpDocument doc1 = handle(h, "http://example.com/a.html", red);
+        HttpDocument doc2 = handle(h, "http://example.com/b.html", red);
+        HttpDocument doc3 = handle(h, "http://example.com/c.html", blue);
+
+        // Checksum paths are only added once the image is stored
+        for (HttpDocument doc : Arrays.asList(doc1, doc2, doc3)) {
+            Assertions.assertTrue(Files.isRegularFile(
+                    Paths.get(doc.getMetadata().getString("path"))));
+        }
+        h.shutdown();
+
+        Assertions.assertEquals(doc1.getMetadata().getString("path"),
+                doc2.getMetadata().getString("path"));
+        Assertions.assertNotEquals(doc1.getMetadata().getString("path"),
+                doc3.getMetadata().getString("path"));
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            Assertions.assertEquals(2,
+                    files.filter(Files::isRegularFile).count());
+        }
+        Assertions.assertEquals(2, h.getStats().getEncodedCount());
+        Assertions.assertEquals(1, h.getStats().getDeduplicatedCount());
+        Assertions.assertEquals(0, h.getStats().getQueueDepth());
+    }
+
+    private HttpDocument handle(
+            DocImageHandler h, String url, byte[] image) {
+        HttpDocument doc = new HttpDocument(
+                url, new CachedStreamFactory(10000, 10000).newInputStream());
+        h.handleImage(new ByteArrayInputStream(image), doc);
+        return doc;
+    }
+
+    private byte[] createImage(Color color) throws IOException {
+        BufferedImage img = new BufferedImage(20, 10,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, 20, 10);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+}
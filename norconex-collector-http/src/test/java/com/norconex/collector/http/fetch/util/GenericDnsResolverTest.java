@@ -0,0 +1,133 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.util;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.commons.lang.xml.XML;
+
+public class GenericDnsResolverTest {
+
+    @Test
+    public void testWriteRead() throws IOException {
+        GenericDnsResolver r = new GenericDnsResolver();
+        r.setMaxCacheSize(123);
+        r.setTtl(60000);
+        r.setNegativeTtl(5000);
+        r.setPreResolveThreads(4);
+        XML.assertWriteRead(r, "dnsResolver");
+    }
+
+    @Test
+    public void testCaching() throws IOException {
+        AtomicInteger lookups = new AtomicInteger();
+        GenericDnsResolver r = new GenericDnsResolver();
+        r.setDelegate(host -> {
+            lookups.incrementAndGet();
+            if ("bad.example.com".equals(host)) {
+                throw new UnknownHostException(host);
+            }
+            return new InetAddress[] {
+                    InetAddress.getByAddress(host, new byte[] {10, 0, 0, 1})
+            };
+        });
+
+        r.resolve("good.example.com");
+        r.resolve("good.example.com");
+        Assertions.assertEquals(1, lookups.get());
+
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertThrows(UnknownHostException.class,
+                    () -> r.resolve("bad.example.com"));
+        }
+        Assertions.assertEquals(2, lookups.get());
+
+        r.shutdown();
+        r.resolve("good.example.com");
+        Assertions.assertEquals(3, lookups.get());
+    }
+
+    @Test
+    public void testSharedLookup() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        GenericDnsResolver r = new GenericDnsResolver();
+        r.setDelegate(host -> {
+            lookups.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new InetAddress[] {
+                    InetAddress.getByAddress(host, new byte[] {10, 0, 0, 1})
+            };
+        });
+
+        // resolving while pre-resolving waits for the same lookup
+        r.preResolve("a.example.com");
+        started.await();
+        CompletableFuture<InetAddress[]> resolved =
+                CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return r.resolve("a.example.com");
+                    } catch (UnknownHostException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+        release.countDown();
+        Assertions.assertEquals("10.0.0.1",
+                resolved.get()[0].getHostAddress());
+        Assertions.assertEquals(1, lookups.get());
+        r.shutdown();
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        AtomicInteger lookups = new AtomicInteger();
+        GenericDnsResolver r = new GenericDnsResolver();
+        r.setMaxCacheSize(2);
+        r.setDelegate(host -> {
+            lookups.incrementAndGet();
+            return new InetAddress[] {
+                    InetAddress.getByAddress(host, new byte[] {10, 0, 0, 1})
+            };
+        });
+
+        r.resolve("a.example.com");
+        r.resolve("b.example.com");
+        // "b" becomes the least recently used
+        r.resolve("a.example.com");
+        r.resolve("c.example.com");
+        Assertions.assertEquals(3, lookups.get());
+
+        r.resolve("a.example.com");
+        r.resolve("c.example.com");
+        Assertions.assertEquals(3, lookups.get());
+        r.resolve("b.example.com");
+        Assertions.assertEquals(4, lookups.get());
+    }
+}
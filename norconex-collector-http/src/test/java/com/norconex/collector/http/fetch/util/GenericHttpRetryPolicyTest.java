@@ -0,0 +1,136 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.fetch.util;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.core.CollectorException;
+import com.norconex.collector.http.doc.HttpMetadata;
+import com.norconex.collector.http.fetch.HttpFetchResponseBuilder;
+import com.norconex.collector.http.fetch.IHttpFetchResponse;
+import com.norconex.collector.http.reference.HttpCrawlState;
+import com.norconex.commons.lang.xml.XML;
+
+public class GenericHttpRetryPolicyTest {
+
+    private static final String URL = "http://example.com/page.html";
+
+    @Test
+    public void testWriteRead() throws IOException {
+        GenericHttpRetryPolicy p = new GenericHttpRetryPolicy();
+        p.setMaxRetries(5);
+        p.setBaseDelay(500);
+        p.setMaxDelay(30000);
+        p.setMultiplier(3);
+        p.setJitter(0.25);
+        p.setRetryableStatusCodes(429, 503);
+        p.setRetryOnConnectionErrors(false);
+        p.setRetryAfterIgnored(true);
+        p.setHostRetryBudget(10);
+        p.setHostRetryBudgetWindow(120000);
+        p.setDeferred(true);
+        XML.assertWriteRead(p, "retryPolicy");
+    }
+
+    @Test
+    public void testClassification() {
+        GenericHttpRetryPolicy p = new GenericHttpRetryPolicy();
+        p.setJitter(0);
+        HttpMetadata meta = new HttpMetadata(URL);
+
+        Assertions.assertEquals(1000, p.getRetryDelay(
+                URL, meta, response(HttpCrawlState.BAD_STATUS, 503), null, 1));
+        Assertions.assertEquals(-1, p.getRetryDelay(
+                URL, meta, response(HttpCrawlState.NOT_FOUND, 404), null, 1));
+        Assertions.assertEquals(-1, p.getRetryDelay(
+                URL, meta, response(HttpCrawlState.BAD_STATUS, 403), null, 1));
+
+        Assertions.assertEquals(1000, p.getRetryDelay(URL, meta, null,
+                new CollectorException(new SocketTimeoutException()), 1));
+        Assertions.assertEquals(-1, p.getRetryDelay(URL, meta, null,
+                new CollectorException(new UnknownHostException()), 1));
+    }
+
+    @Test
+    public void testBackoff() {
+        GenericHttpRetryPolicy p = new GenericHttpRetryPolicy();
+        p.setJitter(0);
+        p.setMaxDelay(5000);
+        IHttpFetchResponse resp = response(HttpCrawlState.BAD_STATUS, 500);
+        Assertions.assertEquals(1000, p.getRetryDelay(URL, null, resp, null, 1));
+        Assertions.assertEquals(2000, p.getRetryDelay(URL, null, resp, null, 2));
+        Assertions.assertEquals(4000, p.getRetryDelay(URL, null, resp, null, 3));
+        Assertions.assertEquals(5000, p.getRetryDelay(URL, null, resp, null, 4));
+
+        p.setJitter(0.5);
+        for (int i = 0; i < 20; i++) {
+            long delay = p.getRetryDelay(URL, null, resp, null, 2);
+            Assertions.assertTrue(delay >= 1000 && delay <= 2000,
+                    "Delay out of range: " + delay);
+        }
+    }
+
+    @Test
+    public void testRetryAfter() {
+        GenericHttpRetryPolicy p = new GenericHttpRetryPolicy();
+        p.setJitter(0);
+        HttpMetadata meta = new HttpMetadata(URL);
+        Assertions.assertEquals(7000, p.getRetryDelay(
+                URL, meta, retryAfter("7"), null, 1));
+
+        // too long: give up
+        Assertions.assertEquals(-1, p.getRetryDelay(
+                URL, meta, retryAfter("3600"), null, 1));
+
+        // stale value from an earlier attempt in metadata: ignored
+        meta.set("Retry-After", "3600");
+        Assertions.assertEquals(1000, p.getRetryDelay(URL, meta,
+                response(HttpCrawlState.BAD_STATUS, 429), null, 1));
+    }
+
+    @Test
+    public void testHostBudget() {
+        GenericHttpRetryPolicy p = new GenericHttpRetryPolicy();
+        p.setHostRetryBudget(2);
+        IHttpFetchResponse resp = response(HttpCrawlState.BAD_STATUS, 503);
+        Assertions.assertTrue(p.getRetryDelay(
+                "http://a.com/1", null, resp, null, 1) >= 0);
+        Assertions.assertTrue(p.getRetryDelay(
+                "http://a.com/2", null, resp, null, 1) >= 0);
+        Assertions.assertEquals(-1, p.getRetryDelay(
+                "http://a.com/3", null, resp, null, 1));
+        Assertions.assertTrue(p.getRetryDelay(
+                "http://b.com/1", null, resp, null, 1) >= 0);
+    }
+
+    private IHttpFetchResponse retryAfter(String value) {
+        return new HttpFetchResponseBuilder()
+                .setCrawlState(HttpCrawlState.BAD_STATUS)
+                .setStatusCode(429)
+                .setRetryAfter(value)
+                .build();
+    }
+    private IHttpFetchResponse response(HttpCrawlState state, int status) {
+        return new HttpFetchResponseBuilder()
+                .setCrawlState(state)
+                .setStatusCode(status)
+                .build();
+    }
+}
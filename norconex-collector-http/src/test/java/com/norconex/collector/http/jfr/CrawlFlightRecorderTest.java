@@ -0,0 +1,51 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.jfr;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.http.jfr.CrawlEvents.FetchSpan;
+import com.norconex.commons.lang.xml.XML;
+
+public class CrawlFlightRecorderTest {
+
+    @Test
+    public void testWriteRead() throws IOException {
+        CrawlFlightRecorder r = new CrawlFlightRecorder();
+        r.setEnabled(true);
+        r.setSettings("profile");
+        r.setMaxAge(2 * 60 * 60 * 1000L);
+        r.setMaxSize(500L * 1024 * 1024);
+        r.setDestination(Paths.get("/tmp/crawler.jfr"));
+        XML.assertWriteRead(r, "flightRecorder");
+    }
+
+    @Test
+    public void testEventsWithoutRecording() {
+        // must be safe to use whether JFR is supported or not
+        FetchSpan fetch = CrawlEvents.beginFetch("http://example.com", "GET");
+        Assertions.assertNotNull(fetch);
+        fetch.connected(0);
+        fetch.responseReceived(200);
+        fetch.end(123);
+        CrawlEvents.beginDelay("http://example.com", "site", 1000).end();
+        CrawlEvents.beginStage(CrawlEvents.PIPELINE_IMPORTER,
+                "TestStage", "http://example.com").end(true);
+    }
+}
@@ -0,0 +1,84 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.norconex.commons.lang.xml.XML;
+
+public class CrawlerMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testWriteRead() throws IOException {
+        CrawlerMetrics m = new CrawlerMetrics();
+        m.setEnabled(true);
+        m.setHost("0.0.0.0");
+        m.setPort(9999);
+        m.setPath("/prometheus");
+        m.setSnapshotFile(Paths.get("/tmp/metrics.prom"));
+        m.setSnapshotInterval(15000);
+        XML.assertWriteRead(m, "metrics");
+    }
+
+    @Test
+    public void testEndpointAndSnapshot() throws IOException {
+        MetricsRegistry r = new MetricsRegistry(
+                Collections.singletonMap("crawler", "test"));
+        r.functionCounter("test_exporter_total", "Test.", () -> 7);
+        PrometheusExporter.register(r);
+        Path file = tempDir.resolve("metrics.prom");
+        int port = PrometheusExporter.startEndpoint("127.0.0.1", 0, "/metrics");
+        PrometheusExporter.startSnapshots(file, 0);
+        try {
+            HttpURLConnection conn = (HttpURLConnection) new URL(
+                    "http://127.0.0.1:" + port + "/metrics").openConnection();
+            Assertions.assertEquals(200, conn.getResponseCode());
+            Assertions.assertTrue(conn.getContentType().startsWith(
+                    "text/plain; version=0.0.4"));
+            try (InputStream is = conn.getInputStream()) {
+                Assertions.assertTrue(IOUtils.toString(
+                        is, StandardCharsets.UTF_8).contains(
+                                "test_exporter_total{crawler=\"test\"} 7"));
+            }
+            HttpURLConnection notFound = (HttpURLConnection) new URL(
+                    "http://127.0.0.1:" + port + "/other").openConnection();
+            Assertions.assertEquals(404, notFound.getResponseCode());
+        } finally {
+            PrometheusExporter.stopEndpoint("127.0.0.1", port);
+            // writes a last snapshot
+            PrometheusExporter.stopSnapshots(file);
+            PrometheusExporter.unregister(r);
+        }
+        Assertions.assertTrue(new String(Files.readAllBytes(file),
+                StandardCharsets.UTF_8).contains(
+                        "test_exporter_total{crawler=\"test\"} 7"));
+    }
+}
@@ -0,0 +1,116 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.http.metrics.MetricsRegistry.Counter;
+import com.norconex.collector.http.metrics.MetricsRegistry.Summary;
+import com.norconex.collector.http.metrics.MetricsRegistry.Type;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testWritePrometheus() throws IOException {
+        MetricsRegistry r = new MetricsRegistry(
+                Collections.singletonMap("crawler", "c1"));
+        Counter events = r.counter("test_events_total", "Events.", "event");
+        events.inc("A");
+        events.inc("A");
+        events.add(5, "B \"quoted\"");
+        r.gauge("test_threads", "Threads.", () -> 3);
+        Map<String, Long> statuses = new TreeMap<>();
+        statuses.put("200", 10L);
+        statuses.put("404", 1L);
+        r.labeledFunction("test_fetches_total", "Fetches.",
+                Type.COUNTER, "status", () -> statuses);
+        Summary delays = r.summary("test_delay_seconds", "Delays.");
+        delays.recordNanos(TimeUnit.MILLISECONDS.toNanos(500));
+        delays.recordNanos(TimeUnit.MILLISECONDS.toNanos(1500));
+
+        StringWriter w = new StringWriter();
+        r.writePrometheus(w);
+        String out = w.toString();
+
+        Assertions.assertTrue(out.contains(
+                "# HELP test_events_total Events.\n"
+              + "# TYPE test_events_total counter\n"));
+        Assertions.assertTrue(out.contains(
+                "test_events_total{crawler=\"c1\",event=\"A\"} 2\n"));
+        Assertions.assertTrue(out.contains("test_events_total{crawler=\"c1\","
+                + "event=\"B \\\"quoted\\\"\"} 5\n"));
+        Assertions.assertTrue(out.contains("# TYPE test_threads gauge\n"
+                + "test_threads{crawler=\"c1\"} 3\n"));
+        Assertions.assertTrue(out.contains(
+                "test_fetches_total{crawler=\"c1\",status=\"404\"} 1\n"));
+        Assertions.assertTrue(
+                out.contains("# TYPE test_delay_seconds summary"));
+        Assertions.assertTrue(out.contains(
+                "test_delay_seconds_sum{crawler=\"c1\"} 2\n"));
+        Assertions.assertTrue(out.contains(
+                "test_delay_seconds_count{crawler=\"c1\"} 2\n"));
+        Assertions.assertTrue(out.contains(
+                "test_delay_seconds{crawler=\"c1\",quantile=\"0.99\"} 1.5\n"));
+    }
+
+    @Test
+    public void testMergeRegistries() throws IOException {
+        MetricsRegistry r1 = new MetricsRegistry(
+                Collections.singletonMap("crawler", "c1"));
+        MetricsRegistry r2 = new MetricsRegistry(
+                Collections.singletonMap("crawler", "c2"));
+        r1.functionCounter("test_total", "Test.", () -> 1);
+        r2.functionCounter("test_total", "Test.", () -> 2);
+
+        StringWriter w = new StringWriter();
+        MetricsRegistry.writePrometheus(w, Arrays.asList(r1, r2));
+        Assertions.assertEquals(
+                "# HELP test_total Test.\n"
+              + "# TYPE test_total counter\n"
+              + "test_total{crawler=\"c1\"} 1\n"
+              + "test_total{crawler=\"c2\"} 2\n", w.toString());
+    }
+
+    @Test
+    public void testInvalidRegistration() {
+        MetricsRegistry r = new MetricsRegistry();
+        r.gauge("test_gauge", "Test.", () -> 0);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> r.gauge("test_gauge", "Test.", () -> 0));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> r.counter("invalid-name", "Test."));
+        Counter c = r.counter("test_total", "Test.", "label");
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> c.inc("a", "b"));
+    }
+
+    @Test
+    public void testFormatValue() {
+        Assertions.assertEquals("42", MetricsRegistry.formatValue(42));
+        Assertions.assertEquals("0.25", MetricsRegistry.formatValue(0.25));
+        Assertions.assertEquals("NaN", MetricsRegistry.formatValue(Double.NaN));
+        Assertions.assertEquals("+Inf", MetricsRegistry.formatValue(
+                Double.POSITIVE_INFINITY));
+    }
+}
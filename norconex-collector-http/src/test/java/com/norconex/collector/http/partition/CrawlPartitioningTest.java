@@ -0,0 +1,128 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.partition;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.http.reference.HttpCrawlReference;
+import com.norconex.commons.lang.xml.XML;
+
+public class CrawlPartitioningTest {
+
+    @Test
+    public void testWriteRead() throws IOException {
+        FilePartitionTransport transport = new FilePartitionTransport();
+        transport.setDirectory(Paths.get("/tmp/partitions"));
+        transport.setPollInterval(5000);
+        transport.setBatchSize(200);
+        CrawlPartitioning p = new CrawlPartitioning();
+        p.setEnabled(true);
+        p.setNodeIndex(2);
+        p.setNodeCount(4);
+        p.setIdleCheckInterval(3000);
+        p.setTransport(transport);
+        XML.assertWriteRead(p, "partitioning");
+    }
+
+    @Test
+    public void testOwnerNode() {
+        CrawlPartitioning p = new CrawlPartitioning();
+        p.setEnabled(true);
+        p.setNodeCount(3);
+
+        int[] counts = new int[3];
+        for (int i = 0; i < 3000; i++) {
+            String root = "http://site" + i + ".example.com";
+            int owner = p.getOwnerNode(root);
+            Assertions.assertTrue(owner >= 0 && owner < 3);
+            // same owner regardless of node or case
+            p.setNodeIndex(1);
+            Assertions.assertEquals(owner,
+                    p.getOwnerNode(root.toUpperCase()));
+            p.setNodeIndex(0);
+            counts[owner]++;
+        }
+        for (int count : counts) {
+            Assertions.assertTrue(count > 800, "Uneven spread: " + count);
+        }
+    }
+
+    @Test
+    public void testInactive() {
+        CrawlPartitioning p = new CrawlPartitioning();
+        p.setNodeCount(3);
+        Assertions.assertFalse(p.isActive());
+        Assertions.assertTrue(p.isLocal("http://a.example.com"));
+        p.setEnabled(true);
+        p.setNodeCount(1);
+        Assertions.assertFalse(p.isActive());
+        Assertions.assertTrue(p.isLocal("http://a.example.com"));
+    }
+
+    @Test
+    public void testCrawlComplete() {
+        MockTransport transport = new MockTransport();
+        CrawlPartitioning p = new CrawlPartitioning();
+        p.setEnabled(true);
+        p.setNodeCount(2);
+        p.setTransport(transport);
+        // not exchanging references yet
+        Assertions.assertTrue(p.isCrawlComplete(false));
+
+        p.open("my crawler", r -> {});
+        try {
+            p.processingStarted("http://a.example.com/");
+            Assertions.assertFalse(p.isCrawlComplete(false));
+            p.processingEnded("http://a.example.com/");
+            Assertions.assertFalse(p.isCrawlComplete(true));
+            transport.receiver.accept(
+                    new HttpCrawlReference("http://a.example.com/b", 1));
+            Assertions.assertFalse(p.isCrawlComplete(false));
+
+            // barrier references are not counted
+            HttpCrawlReference barrier = p.createBarrierReference();
+            Assertions.assertTrue(CrawlPartitioning.isBarrierReference(
+                    barrier.getReference()));
+            Assertions.assertTrue(
+                    barrier.getNotBefore() > System.currentTimeMillis());
+            p.processingStarted(barrier.getReference());
+            Assertions.assertTrue(p.isCrawlComplete(false));
+        } finally {
+            p.close();
+        }
+    }
+
+    private static class MockTransport implements IPartitionTransport {
+        private Consumer<HttpCrawlReference> receiver;
+        @Override
+        public void open(String crawlerId, int nodeIndex, int nodeCount,
+                Consumer<HttpCrawlReference> receiver) {
+            this.receiver = receiver;
+        }
+        @Override
+        public void send(int nodeIndex, HttpCrawlReference reference) {
+            //NOOP
+        }
+        @Override
+        public void close() {
+            //NOOP
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.partition;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.norconex.collector.http.reference.HttpCrawlReference;
+import com.norconex.commons.lang.Sleeper;
+
+public class FilePartitionTransportTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testSendReceive() {
+        List<HttpCrawlReference> received0 = new CopyOnWriteArrayList<>();
+        List<HttpCrawlReference> received1 = new CopyOnWriteArrayList<>();
+        FilePartitionTransport node0 = newTransport();
+        FilePartitionTransport node1 = newTransport();
+        node0.open("my crawler", 0, 2, received0::add);
+        node1.open("my crawler", 1, 2, received1::add);
+        try {
+            for (int i = 0; i < 5; i++) {
+                node0.send(1, new HttpCrawlReference(
+                        "http://b.example.com/" + i, 1));
+            }
+            node1.send(0, new HttpCrawlReference("http://a.example.com/", 2));
+            for (int i = 0; i < 100 && (received0.size() < 1
+                    || received1.size() < 5); i++) {
+                Sleeper.sleepMillis(50);
+            }
+        } finally {
+            node0.close();
+            node1.close();
+        }
+        Assertions.assertEquals(5, received1.size());
+        Assertions.assertEquals(1, received0.size());
+        Assertions.assertEquals(
+                "http://a.example.com/", received0.get(0).getReference());
+        Assertions.assertEquals(2, received0.get(0).getDepth());
+    }
+
+    @Test
+    public void testCrawlComplete() {
+        List<HttpCrawlReference> received1 = new CopyOnWriteArrayList<>();
+        FilePartitionTransport node0 = newTransport();
+        FilePartitionTransport node1 = newTransport();
+        node0.open("my crawler", 0, 2, r -> {});
+        node1.open("my crawler", 1, 2, received1::add);
+        try {
+            node0.send(1, new HttpCrawlReference("http://b.example.com/", 1));
+            // node 1 has not reported yet
+            Assertions.assertFalse(node0.isCrawlComplete(true));
+            for (int i = 0; i < 100 && received1.isEmpty(); i++) {
+                Sleeper.sleepMillis(50);
+            }
+            Assertions.assertEquals(1, received1.size());
+
+            // node 1 still busy with what it received
+            for (int i = 0; i < 5; i++) {
+                node1.isCrawlComplete(false);
+                Assertions.assertFalse(node0.isCrawlComplete(true));
+                Sleeper.sleepMillis(50);
+            }
+
+            boolean complete0 = false;
+            boolean complete1 = false;
+            for (int i = 0; i < 100 && !(complete0 && complete1); i++) {
+                complete0 = complete0 || node0.isCrawlComplete(true);
+                complete1 = complete1 || node1.isCrawlComplete(true);
+                Sleeper.sleepMillis(50);
+            }
+            Assertions.assertTrue(complete0);
+            Assertions.assertTrue(complete1);
+        } finally {
+            node0.close();
+            node1.close();
+        }
+    }
+
+    @Test
+    public void testCodec() {
+        HttpCrawlReference ref =
+                new HttpCrawlReference("http://a.example.com/page", 3);
+        ref.setReferrerReference("http://a.example.com/");
+        ref.setReferrerLinkTag("a.href");
+        ref.setReferrerLinkText("Tab\there,\nnew line and \\ slash");
+        ref.addRedirectURL("http://a.example.com/old1");
+        ref.addRedirectURL("http://a.example.com/old2");
+        ref.setSitemapLastMod(123456789L);
+        ref.setSitemapChangeFreq("daily");
+        ref.setSitemapPriority(0.8f);
+
+        String line = PartitionReferenceCodec.encode(ref);
+        Assertions.assertFalse(line.contains("\n"));
+        HttpCrawlReference decoded = PartitionReferenceCodec.decode(line);
+        Assertions.assertEquals(ref.getReference(), decoded.getReference());
+        Assertions.assertEquals(3, decoded.getDepth());
+        Assertions.assertEquals(
+                ref.getReferrerReference(), decoded.getReferrerReference());
+        Assertions.assertEquals("a.href", decoded.getReferrerLinkTag());
+        Assertions.assertEquals(
+                ref.getReferrerLinkText(), decoded.getReferrerLinkText());
+        Assertions.assertNull(decoded.getReferrerLinkTitle());
+        Assertions.assertEquals(
+                ref.getRedirectTrail(), decoded.getRedirectTrail());
+        Assertions.assertEquals(
+                Long.valueOf(123456789L), decoded.getSitemapLastMod());
+        Assertions.assertEquals("daily", decoded.getSitemapChangeFreq());
+        Assertions.assertEquals(
+                Float.valueOf(0.8f), decoded.getSitemapPriority());
+    }
+
+    private FilePartitionTransport newTransport() {
+        FilePartitionTransport t = new FilePartitionTransport();
+        t.setDirectory(tempDir);
+        t.setPollInterval(50);
+        return t;
+    }
+}
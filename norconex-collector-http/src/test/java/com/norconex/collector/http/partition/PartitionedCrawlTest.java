@@ -0,0 +1,197 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.partition;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.norconex.collector.http.HttpCollector;
+import com.norconex.collector.http.HttpCollectorConfig;
+import com.norconex.collector.http.TestUtil;
+import com.norconex.collector.http.crawler.HttpCrawlerConfig;
+import com.norconex.collector.http.server.TestServer;
+import com.norconex.collector.http.server.TestServerBuilder;
+import com.norconex.committer.core.IAddOperation;
+import com.norconex.committer.core.IDeleteOperation;
+import com.norconex.committer.core.impl.MemoryCommitter;
+import com.norconex.commons.lang.Sleeper;
+
+/**
+ * Crawls with two nodes, following links going back and forth between
+ * sites owned by different nodes: a0 -&gt; b0 -&gt; b1 -&gt; a1.
+ */
+public class PartitionedCrawlTest {
+
+    private static final String CRAWLER_ID = "partitioned crawler";
+
+    // one URL root per node
+    private static final String[] ROOTS = new String[2];
+
+    private static final TestServer SERVER = new TestServerBuilder()
+            .addServlet(new HttpServlet() {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected void doGet(HttpServletRequest req,
+                HttpServletResponse resp) throws IOException {
+            String path = req.getPathInfo();
+            String link = null;
+            if ("/a0".equals(path)) {
+                link = ROOTS[1] + "/b0";
+            } else if ("/b0".equals(path)) {
+                // slower, so node of "a" pages runs out of work first
+                Sleeper.sleepMillis(500);
+                link = ROOTS[1] + "/b1";
+            } else if ("/b1".equals(path)) {
+                Sleeper.sleepMillis(500);
+                link = ROOTS[0] + "/a1";
+            } else if (!"/a1".equals(path)) {
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            resp.setContentType("text/html");
+            resp.getWriter().println("<html><body>Page " + path
+                    + (link == null ? "" : "<a href=\"" + link
+                    + "\">next</a>") + "</body></html>");
+        }
+    }, "/*").build();
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    public static void beforeClass() {
+        SERVER.start();
+        // pick host names owned by different nodes
+        List<String> roots = new ArrayList<>();
+        for (String host : new String[] { "localhost", "127.0.0.1" }) {
+            roots.add("http://" + host + ":" + SERVER.getPort());
+        }
+        for (String root : roots) {
+            ROOTS[CrawlPartitioning.getKeyRange(root, 2)] = root;
+        }
+    }
+    @AfterAll
+    public static void afterClass() {
+        SERVER.stop();
+    }
+
+    @Test
+    public void testCrossNodeLinks() throws Exception {
+        Assumptions.assumeTrue(ROOTS[0] != null && ROOTS[1] != null,
+                "Test host names are owned by the same node.");
+
+        HttpCollector node0 = newNode(0);
+        HttpCollector node1 = newNode(1);
+        crawlBothNodes(node0, node1);
+
+        // a1 is only reachable through node 1
+        Assertions.assertEquals(ROOTS[0] + "/a0," + ROOTS[0] + "/a1",
+                committed(node0));
+        Assertions.assertEquals(ROOTS[1] + "/b0," + ROOTS[1] + "/b1",
+                committed(node1));
+    }
+
+    @Test
+    public void testBarrierNotOrphan() throws Exception {
+        Assumptions.assumeTrue(ROOTS[0] != null && ROOTS[1] != null,
+                "Test host names are owned by the same node.");
+
+        crawlBothNodes(newNode(0), newNode(1));
+
+        // same crawl store, without partitioning and deleting orphans
+        HttpCollector rerun = newNode(0);
+        HttpCrawlerConfig crawlerConfig = (HttpCrawlerConfig)
+                rerun.getCollectorConfig().getCrawlerConfigs().get(0);
+        crawlerConfig.getPartitioning().setEnabled(false);
+        crawlerConfig.setOrphansStrategy(
+                HttpCrawlerConfig.OrphansStrategy.DELETE);
+        rerun.start();
+
+        // the barrier stored by the first run is neither committed
+        // nor deleted
+        Assertions.assertFalse(committed(rerun).contains(".invalid"),
+                committed(rerun));
+        MemoryCommitter committer =
+                (MemoryCommitter) crawlerConfig.getCommitter();
+        Assertions.assertEquals(0, committer.getDeleteOperations().size(),
+                committer.getDeleteOperations().stream()
+                        .map(IDeleteOperation::getReference)
+                        .collect(Collectors.joining(",")));
+    }
+
+    private void crawlBothNodes(HttpCollector node0, HttpCollector node1)
+            throws Exception {
+        List<Exception> errors = Collections.synchronizedList(
+                new ArrayList<>());
+        Thread thread = new Thread(() -> {
+            try {
+                node1.start();
+            } catch (Exception e) {
+                errors.add(e);
+            }
+        });
+        thread.start();
+        node0.start();
+        thread.join(60000);
+        Assertions.assertFalse(thread.isAlive(), "Node 1 still running.");
+        Assertions.assertTrue(errors.isEmpty(), errors.toString());
+    }
+
+    private HttpCollector newNode(int nodeIndex) throws IOException {
+        HttpCollectorConfig cfg = TestUtil.newMemoryCollectorConfig(
+                "node" + nodeIndex, tempDir.resolve("node" + nodeIndex),
+                ROOTS[0] + "/a0");
+        HttpCrawlerConfig crawlerConfig =
+                (HttpCrawlerConfig) cfg.getCrawlerConfigs().get(0);
+        crawlerConfig.setId(CRAWLER_ID);
+
+        FilePartitionTransport transport = new FilePartitionTransport();
+        transport.setDirectory(tempDir.resolve("partitions"));
+        transport.setPollInterval(50);
+        CrawlPartitioning partitioning = new CrawlPartitioning();
+        partitioning.setEnabled(true);
+        partitioning.setNodeIndex(nodeIndex);
+        partitioning.setNodeCount(2);
+        partitioning.setIdleCheckInterval(200);
+        partitioning.setTransport(transport);
+        crawlerConfig.setPartitioning(partitioning);
+        return new HttpCollector(cfg);
+    }
+
+    private static String committed(HttpCollector collector) {
+        MemoryCommitter committer = (MemoryCommitter) ((HttpCrawlerConfig)
+                collector.getCollectorConfig().getCrawlerConfigs().get(0))
+                        .getCommitter();
+        return committer.getAddOperations().stream()
+                .map(IAddOperation::getReference)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,71 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.pipeline;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.commons.lang.xml.XML;
+
+public class StageTimingsTest {
+
+    @Test
+    public void testWriteRead() throws IOException {
+        StageTimings t = new StageTimings();
+        t.setEnabled(true);
+        t.setPerHost(true);
+        t.setMaxHosts(25);
+        t.setLogInterval(30000);
+        XML.assertWriteRead(t, "stageTimings");
+    }
+
+    @Test
+    public void testRecord() {
+        StageTimings t = new StageTimings();
+        t.setEnabled(true);
+        t.setPerHost(true);
+        t.setMaxHosts(2);
+        for (int i = 1; i <= 100; i++) {
+            t.record("DocumentFetcherStage", "http://a.com/" + i,
+                    TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        t.record("DocumentFetcherStage", "http://b.com/", 1000);
+        t.record("DocumentFetcherStage", "http://c.com/", 1000);
+        t.record("LinkExtractorStage", "http://a.com/", 1000);
+
+        LatencyHistogram h = t.getHistogram("DocumentFetcherStage");
+        Assertions.assertEquals(102, h.getCount());
+        Assertions.assertEquals(100, h.getMaxMillis(), 0.001);
+        // buckets are accurate within about 6%
+        Assertions.assertEquals(50, h.getPercentileMillis(50), 3);
+        Assertions.assertEquals(99, h.getPercentileMillis(99), 6);
+
+        Assertions.assertEquals(2, t.getStageTimings().size());
+        Assertions.assertTrue(t.getHostStageTimings().containsKey(
+                "http://a.com LinkExtractorStage"));
+        Assertions.assertTrue(t.getHostStageTimings().containsKey(
+                "http://b.com DocumentFetcherStage"));
+        // over max hosts
+        Assertions.assertTrue(t.getHostStageTimings().containsKey(
+                "(other) DocumentFetcherStage"));
+
+        t.reset();
+        Assertions.assertTrue(t.getStageTimings().isEmpty());
+        Assertions.assertNull(t.getHistogram("DocumentFetcherStage"));
+    }
+}
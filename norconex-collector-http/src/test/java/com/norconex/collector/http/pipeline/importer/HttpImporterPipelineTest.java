@@ -25,6 +25,7 @@ import com.norconex.collector.http.crawler.HttpCrawler;
 import com.norconex.collector.http.crawler.HttpCrawlerConfig;
 import com.norconex.collector.http.doc.HttpDocument;
 import com.norconex.collector.http.reference.HttpCrawlReference;
+import com.norconex.collector.http.reference.HttpCrawlState;
 import com.norconex.commons.lang.io.CachedStreamFactory;
 
 /**
@@ -61,6 +62,50 @@ public class HttpImporterPipelineTest {
         Assertions.assertTrue(HttpImporterPipelineUtil.resolveCanonical(ctx, true));
     }
 
+    @Test
+    public void testNotBeforeStageDue() {
+        MockDeferringCrawler crawler = new MockDeferringCrawler(2);
+        HttpCrawlReference ref =
+                new HttpCrawlReference("http://www.example.com/due.html", 0);
+        ref.setNotBefore(System.currentTimeMillis() - 1000);
+        Assertions.assertTrue(new HttpImporterPipeline.NotBeforeStage()
+                .executeStage(crawler.newContext(ref)));
+        Assertions.assertEquals(0, ref.getNotBefore());
+        Assertions.assertTrue(crawler.getDeferred().isEmpty());
+    }
+
+    @Test
+    public void testNotBeforeStageRequeued() {
+        MockDeferringCrawler crawler = new MockDeferringCrawler(2);
+        long notBefore = System.currentTimeMillis() + 60000;
+        HttpCrawlReference ref =
+                new HttpCrawlReference("http://www.example.com/later.html", 0);
+        ref.setNotBefore(notBefore);
+        // first miss out of two threads: put back in queue right away
+        Assertions.assertFalse(new HttpImporterPipeline.NotBeforeStage()
+                .executeStage(crawler.newContext(ref)));
+        Assertions.assertEquals(HttpCrawlState.DEFERRED, ref.getState());
+        Assertions.assertEquals(1, crawler.getDeferred().size());
+        HttpCrawlReference requeued = crawler.getDeferred().get(0);
+        Assertions.assertNull(requeued.getState());
+        Assertions.assertEquals(notBefore, requeued.getNotBefore());
+        Assertions.assertEquals(notBefore,
+                crawler.getDeferredReferences().getEarliest());
+    }
+
+    @Test
+    public void testNotBeforeStageWaitsWhenNothingElseReady() {
+        MockDeferringCrawler crawler = new MockDeferringCrawler(1);
+        HttpCrawlReference ref =
+                new HttpCrawlReference("http://www.example.com/soon.html", 0);
+        ref.setNotBefore(System.currentTimeMillis() + 200);
+        // only reference waiting: processed once due, without requeuing
+        Assertions.assertTrue(new HttpImporterPipeline.NotBeforeStage()
+                .executeStage(crawler.newContext(ref)));
+        Assertions.assertTrue(crawler.getDeferred().isEmpty());
+        Assertions.assertEquals(0, ref.getNotBefore());
+    }
+
     @Test
     public void testCopyProperties() {
         String reference = "http://www.example.com/file.pdf";
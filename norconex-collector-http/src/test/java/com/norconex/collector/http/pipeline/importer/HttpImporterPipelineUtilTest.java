@@ -22,6 +22,10 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import com.norconex.collector.http.doc.HttpMetadata;
+import com.norconex.collector.http.fetch.HttpFetchClientResponse;
+import com.norconex.collector.http.fetch.HttpFetchResponseBuilder;
+import com.norconex.collector.http.reference.HttpCrawlReference;
+import com.norconex.collector.http.reference.HttpCrawlState;
 import com.norconex.commons.lang.map.Properties;
 
 public class HttpImporterPipelineUtilTest {
@@ -82,6 +86,55 @@ public class HttpImporterPipelineUtilTest {
 
     }
 
+    @Test
+    public void testDeferCrawlReference() {
+        MockDeferringCrawler crawler = new MockDeferringCrawler(2);
+        HttpCrawlReference ref =
+                new HttpCrawlReference("http://www.example.com/a.html", 1);
+        long notBefore = System.currentTimeMillis() + 5000;
+        HttpImporterPipelineUtil.deferCrawlReference(
+                crawler.newContext(ref), notBefore, "test");
+
+        Assertions.assertEquals(HttpCrawlState.DEFERRED, ref.getState());
+        Assertions.assertEquals(1, crawler.getDeferred().size());
+        HttpCrawlReference requeued = crawler.getDeferred().get(0);
+        Assertions.assertEquals(ref.getReference(), requeued.getReference());
+        Assertions.assertEquals(1, requeued.getDepth());
+        Assertions.assertNull(requeued.getState());
+        Assertions.assertEquals(notBefore, requeued.getNotBefore());
+        Assertions.assertEquals(notBefore,
+                crawler.getDeferredReferences().getEarliest());
+    }
+
+    @Test
+    public void testDeferRetry() {
+        MockDeferringCrawler crawler = new MockDeferringCrawler(2);
+        HttpCrawlReference ref =
+                new HttpCrawlReference("http://www.example.com/b.html", 0);
+
+        // not a deferred retry
+        Assertions.assertFalse(HttpImporterPipelineUtil.deferRetry(
+                crawler.newContext(ref),
+                new HttpFetchResponseBuilder().setStatusCode(503).build()));
+        HttpFetchClientResponse response = new HttpFetchClientResponse();
+        Assertions.assertFalse(HttpImporterPipelineUtil.deferRetry(
+                crawler.newContext(ref), response));
+        Assertions.assertTrue(crawler.getDeferred().isEmpty());
+        Assertions.assertEquals(0, ref.getRetryCount());
+
+        // deferred retry
+        long notBefore = System.currentTimeMillis() + 5000;
+        response.setRetryNotBefore(notBefore);
+        Assertions.assertTrue(HttpImporterPipelineUtil.deferRetry(
+                crawler.newContext(ref), response));
+        Assertions.assertEquals(1, ref.getRetryCount());
+        Assertions.assertEquals(HttpCrawlState.DEFERRED, ref.getState());
+        Assertions.assertEquals(1, crawler.getDeferred().size());
+        HttpCrawlReference requeued = crawler.getDeferred().get(0);
+        Assertions.assertEquals(1, requeued.getRetryCount());
+        Assertions.assertEquals(notBefore, requeued.getNotBefore());
+    }
+
     private void assertEnhancedHeaders(String httpContentType,
            String inputCollectorContentType, String inputCollectorEncoding,
            String expectedCollectorContentType,
@@ -0,0 +1,58 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.pipeline.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.norconex.collector.http.HttpCollector;
+import com.norconex.collector.http.crawler.HttpCrawler;
+import com.norconex.collector.http.crawler.HttpCrawlerConfig;
+import com.norconex.collector.http.doc.HttpDocument;
+import com.norconex.collector.http.reference.HttpCrawlReference;
+import com.norconex.commons.lang.io.CachedStreamFactory;
+
+/**
+ * Crawler keeping deferred references in memory instead of queuing them
+ * in a crawl store.
+ */
+class MockDeferringCrawler extends HttpCrawler {
+
+    private final List<HttpCrawlReference> deferred = new ArrayList<>();
+
+    MockDeferringCrawler(int numThreads) {
+        super(newConfig(numThreads), new HttpCollector());
+    }
+    private static HttpCrawlerConfig newConfig(int numThreads) {
+        HttpCrawlerConfig cfg = new HttpCrawlerConfig();
+        cfg.setNumThreads(numThreads);
+        return cfg;
+    }
+
+    @Override
+    public void queueDeferredReference(HttpCrawlReference crawlRef) {
+        deferred.add(crawlRef);
+        getDeferredReferences().queued(crawlRef.getNotBefore());
+    }
+    List<HttpCrawlReference> getDeferred() {
+        return deferred;
+    }
+
+    HttpImporterPipelineContext newContext(HttpCrawlReference crawlRef) {
+        HttpDocument doc = new HttpDocument(crawlRef.getReference(),
+                new CachedStreamFactory(1, 1).newInputStream());
+        return new HttpImporterPipelineContext(this, crawlRef, null, doc);
+    }
+}
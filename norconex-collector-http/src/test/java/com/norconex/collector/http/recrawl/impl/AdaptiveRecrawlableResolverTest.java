@@ -0,0 +1,89 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.recrawl.impl;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.norconex.collector.http.recrawl.PreviousCrawlData;
+import com.norconex.commons.lang.xml.XML;
+
+public class AdaptiveRecrawlableResolverTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long DAY = 24 * HOUR;
+
+    @Test
+    public void testWriteRead() throws IOException {
+        AdaptiveRecrawlableResolver r = new AdaptiveRecrawlableResolver();
+        r.setMinInterval(2 * HOUR);
+        r.setMaxInterval(10 * DAY);
+        r.setSmoothing(0.5f);
+        r.setChangeProbability(0.7f);
+        XML.assertWriteRead(r, "recrawlableResolver");
+    }
+
+    @Test
+    public void testAdaptiveInterval() {
+        AdaptiveRecrawlableResolver r = new AdaptiveRecrawlableResolver();
+        LocalDateTime now = LocalDateTime.now();
+
+        // never crawled
+        Assertions.assertTrue(r.isRecrawlable(new PreviousCrawlData()));
+
+        // changes about every 4 hours
+        PreviousCrawlData hot = new PreviousCrawlData();
+        hot.setReference("http://example.com/hot.html");
+        hot.setFirstCrawlDate(now.minusDays(2));
+        hot.setCrawlDate(now.minusHours(5));
+        hot.setLastChangeDate(now.minusHours(5));
+        hot.setCrawlCount(12);
+        hot.setChangeCount(10);
+        hot.setChangeIntervals(Arrays.asList(
+                4 * HOUR, 5 * HOUR, 3 * HOUR, 4 * HOUR));
+        Assertions.assertTrue(r.isRecrawlable(hot));
+
+        // crawled many times over 100 days, never changed
+        PreviousCrawlData cold = new PreviousCrawlData();
+        cold.setReference("http://example.com/cold.html");
+        cold.setFirstCrawlDate(now.minusDays(100));
+        cold.setLastChangeDate(now.minusDays(100));
+        cold.setCrawlDate(now.minusDays(1));
+        cold.setCrawlCount(100);
+        Assertions.assertFalse(r.isRecrawlable(cold));
+        Assertions.assertEquals(r.getMaxInterval(),
+                r.getRecrawlInterval(cold));
+
+        Assertions.assertTrue(
+                r.getRecrawlInterval(hot) < r.getRecrawlInterval(cold));
+
+        // used to change often, but not for a long time: back off
+        PreviousCrawlData cooling = new PreviousCrawlData();
+        cooling.setReference("http://example.com/cooling.html");
+        cooling.setFirstCrawlDate(now.minusDays(30));
+        cooling.setLastChangeDate(now.minusDays(10));
+        cooling.setCrawlDate(now.minusHours(1));
+        cooling.setCrawlCount(50);
+        cooling.setChangeCount(5);
+        cooling.setChangeIntervals(Arrays.asList(
+                4 * HOUR, 4 * HOUR, 4 * HOUR));
+        Assertions.assertTrue(
+                r.getRecrawlInterval(cooling) > r.getRecrawlInterval(hot));
+    }
+}
@@ -22,9 +22,15 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.norconex.collector.core.crawler.CrawlerEvent;
+import com.norconex.collector.http.HttpCollector;
+import com.norconex.collector.http.crawler.HttpCrawler;
+import com.norconex.collector.http.crawler.HttpCrawlerConfig;
 import com.norconex.collector.http.recrawl.PreviousCrawlData;
 import com.norconex.collector.http.recrawl.impl.GenericRecrawlableResolver.MinFrequency;
+import com.norconex.collector.http.recrawl.impl.GenericRecrawlableResolver.Scoring;
 import com.norconex.collector.http.recrawl.impl.GenericRecrawlableResolver.SitemapSupport;
+import com.norconex.commons.lang.event.EventManager;
 import com.norconex.commons.lang.file.ContentType;
 import com.norconex.commons.lang.xml.XML;
 public class GenericRecrawlableResolverTest {
@@ -43,6 +49,15 @@ public class GenericRecrawlableResolverTest {
 
         r.setMinFrequencies(f1, f2);
 
+        Scoring scoring = new Scoring();
+        scoring.setChangeWeight(0.5f);
+        scoring.setPriorityWeight(0.25f);
+        scoring.setDepthWeight(0.25f);
+        scoring.setMinScore(0.2f);
+        scoring.setPriorityWindow(60000);
+        scoring.setMaxRecrawls(100);
+        r.setScoring(scoring);
+
         LOG.debug("Writing/Reading this: {}", r);
         XML.assertWriteRead(r, "recrawlableResolver");
     }
@@ -92,4 +107,74 @@ public class GenericRecrawlableResolverTest {
 
         Assertions.assertFalse(r.isRecrawlable(prevCrawl));
     }
+
+    @Test
+    public void testScoring() {
+        GenericRecrawlableResolver r = new GenericRecrawlableResolver();
+        r.setSitemapSupport(SitemapSupport.NEVER);
+        Scoring scoring = new Scoring();
+        scoring.setPriorityWindow(60000);
+        scoring.setMaxRecrawls(2);
+        r.setScoring(scoring);
+
+        LocalDateTime now = LocalDateTime.now();
+
+        // changed at almost every crawl over the last 10 days
+        PreviousCrawlData volatileDoc = new PreviousCrawlData();
+        volatileDoc.setReference("http://example.com/news.html");
+        volatileDoc.setContentType(ContentType.HTML);
+        volatileDoc.setFirstCrawlDate(now.minusDays(11));
+        volatileDoc.setCrawlDate(now.minusDays(1));
+        volatileDoc.setCrawlCount(10);
+        volatileDoc.setChangeCount(9);
+
+        // never changed over the last year
+        PreviousCrawlData stableDoc = new PreviousCrawlData();
+        stableDoc.setReference("http://example.com/about.html");
+        stableDoc.setContentType(ContentType.HTML);
+        stableDoc.setFirstCrawlDate(now.minusYears(1));
+        stableDoc.setCrawlDate(now.minusDays(1));
+        stableDoc.setCrawlCount(50);
+        stableDoc.setDepth(3);
+
+        float volatileScore = r.getRecrawlScore(volatileDoc);
+        float stableScore = r.getRecrawlScore(stableDoc);
+        Assertions.assertTrue(volatileScore > stableScore,
+                volatileScore + " <= " + stableScore);
+
+        // budget not contended yet: recrawled right away
+        Assertions.assertTrue(r.isRecrawlable(volatileDoc));
+        Assertions.assertEquals(0, r.getRecrawlDelay(volatileDoc));
+
+        // last of the budget: lower scores postponed longer, giving
+        // back their recrawl
+        Assertions.assertTrue(r.isRecrawlable(stableDoc));
+        long stableDelay = r.getRecrawlDelay(stableDoc);
+        Assertions.assertTrue(r.isRecrawlable(volatileDoc));
+        long volatileDelay = r.getRecrawlDelay(volatileDoc);
+        Assertions.assertTrue(volatileDelay > 0 && volatileDelay < stableDelay,
+                volatileDelay + " vs " + stableDelay);
+
+        // budget
+        Assertions.assertTrue(r.isRecrawlable(volatileDoc));
+        Assertions.assertFalse(r.isRecrawlable(stableDoc));
+
+        // budget is reset when a crawler run begins
+        HttpCrawlerConfig crawlerConfig = new HttpCrawlerConfig();
+        crawlerConfig.setRecrawlableResolver(r);
+        EventManager em = new EventManager();
+        em.addListenersFromScan(crawlerConfig);
+        em.fire(CrawlerEvent.create(CrawlerEvent.CRAWLER_RUN_BEGIN,
+                new HttpCrawler(crawlerConfig, new HttpCollector())));
+        Assertions.assertTrue(r.isRecrawlable(stableDoc));
+
+        // minimum score
+        r = new GenericRecrawlableResolver();
+        r.setSitemapSupport(SitemapSupport.NEVER);
+        scoring = new Scoring();
+        scoring.setMinScore(volatileScore);
+        r.setScoring(scoring);
+        Assertions.assertTrue(r.isRecrawlable(volatileDoc));
+        Assertions.assertFalse(r.isRecrawlable(stableDoc));
+    }
 }
@@ -0,0 +1,167 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.reference.transfer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.norconex.collector.core.CollectorException;
+import com.norconex.collector.http.reference.HttpCrawlReference;
+import com.norconex.collector.http.reference.HttpCrawlState;
+
+public class CrawlReferenceTransferTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testNdjson() throws IOException {
+        testExportImport(CrawlReferenceFormat.NDJSON, true);
+    }
+    @Test
+    public void testBinary() throws IOException {
+        testExportImport(CrawlReferenceFormat.BINARY, false);
+    }
+
+    @Test
+    public void testResumeImport() throws IOException {
+        List<HttpCrawlReference> refs = createReferences(100);
+        CrawlReferenceExporter exporter = newExporter(
+                CrawlReferenceFormat.NDJSON, false);
+        exporter.setKeyRanges(1);
+        exporter.export(refs.iterator());
+
+        CrawlReferenceImporter importer = new CrawlReferenceImporter();
+        importer.setCheckpointDir(tempDir.resolve("checkpoints"));
+        importer.setCheckpointInterval(10);
+        List<HttpCrawlReference> imported =
+                Collections.synchronizedList(new ArrayList<>());
+        Assertions.assertThrows(CollectorException.class,
+                () -> importer.importFiles(listFiles(), ref -> {
+                    if (imported.size() == 35) {
+                        throw new CollectorException("Interrupted.");
+                    }
+                    imported.add(ref);
+                }));
+        // resumes after the last checkpoint (30)
+        long count = importer.importFiles(listFiles(), imported::add);
+        Assertions.assertEquals(70, count);
+        Assertions.assertEquals(
+                new HashSet<>(refs), new HashSet<>(imported));
+        // nothing left
+        Assertions.assertEquals(0,
+                importer.importFiles(listFiles(), imported::add));
+    }
+
+    @Test
+    public void testSameFileNames() throws IOException {
+        CrawlReferenceExporter exporter = newExporter(
+                CrawlReferenceFormat.NDJSON, false);
+        exporter.setKeyRanges(1);
+        exporter.export(createReferences(10).iterator());
+        exporter.setDirectory(tempDir.resolve("export2"));
+        exporter.export(createReferences(20).iterator());
+
+        // checkpoints of one file must not apply to the other
+        CrawlReferenceImporter importer = new CrawlReferenceImporter();
+        importer.setCheckpointDir(tempDir.resolve("checkpoints"));
+        List<Path> files = Arrays.asList(exporter.getFile(0),
+                tempDir.resolve("export").resolve(
+                        exporter.getFile(0).getFileName()));
+        Assertions.assertEquals(30, importer.importFiles(files, ref -> {}));
+        Assertions.assertEquals(0, importer.importFiles(files, ref -> {}));
+    }
+
+    @Test
+    public void testReshard() throws IOException {
+        List<HttpCrawlReference> refs = createReferences(100);
+        newExporter(CrawlReferenceFormat.BINARY, true).export(
+                refs.iterator());
+        Path out = tempDir.resolve("resharded");
+        long count = new CrawlReferenceTransfer().transfer(
+                "-in", tempDir.resolve("export").toString(),
+                "-out", out.toString(), "-ranges", "2", "-uncompressed");
+        Assertions.assertEquals(100, count);
+        try (Stream<Path> files = Files.list(out)) {
+            Assertions.assertEquals(Arrays.asList(
+                    "references-0-of-2.ndjson", "references-1-of-2.ndjson"),
+                    files.map(f -> f.getFileName().toString()).sorted()
+                            .collect(Collectors.toList()));
+        }
+        Assertions.assertEquals(100, new CrawlReferenceTransfer().transfer(
+                "-in", out.toString()));
+    }
+
+    private void testExportImport(CrawlReferenceFormat format,
+            boolean compress) throws IOException {
+        List<HttpCrawlReference> refs = createReferences(500);
+        CrawlReferenceExporter exporter = newExporter(format, compress);
+        Assertions.assertEquals(500, exporter.export(refs.iterator()));
+        Assertions.assertTrue(Files.exists(exporter.getFile(3)));
+
+        List<HttpCrawlReference> imported =
+                Collections.synchronizedList(new ArrayList<>());
+        Assertions.assertEquals(500, new CrawlReferenceImporter()
+                .importFiles(listFiles(), imported::add));
+        Assertions.assertEquals(
+                new HashSet<>(refs), new HashSet<>(imported));
+    }
+
+    private CrawlReferenceExporter newExporter(
+            CrawlReferenceFormat format, boolean compress) {
+        CrawlReferenceExporter exporter = new CrawlReferenceExporter();
+        exporter.setDirectory(tempDir.resolve("export"));
+        exporter.setFormat(format);
+        exporter.setCompress(compress);
+        exporter.setKeyRanges(4);
+        return exporter;
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir.resolve("export"))) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private List<HttpCrawlReference> createReferences(int count) {
+        List<HttpCrawlReference> refs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            HttpCrawlReference ref = new HttpCrawlReference(
+                    "http://site" + (i % 20) + ".example.com/page" + i, i % 4);
+            ref.setState(HttpCrawlState.MODIFIED);
+            ref.setReferrerReference("http://site0.example.com/");
+            ref.setReferrerLinkText("Link \"" + i + "\"\n\tand more");
+            ref.addRedirectURL("http://site0.example.com/old" + i);
+            ref.setFirstCrawlDate(LocalDateTime.of(2019, 5, 1, 12, 30));
+            ref.setChangeIntervals(Arrays.asList(1000L, 2000L));
+            ref.setSitemapPriority(0.7f);
+            refs.add(ref);
+        }
+        return refs;
+    }
+}
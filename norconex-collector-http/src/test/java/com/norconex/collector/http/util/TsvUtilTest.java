@@ -0,0 +1,42 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TsvUtilTest {
+
+    @Test
+    public void testJoinSplit() {
+        List<String> values = Arrays.asList(
+                "plain", "", "with\ttab", "back\\slash\\t", "line\r\nbreak");
+        String line = TsvUtil.join(values);
+        Assertions.assertEquals(-1, line.indexOf('\n'));
+        Assertions.assertEquals(-1, line.indexOf('\r'));
+        Assertions.assertEquals(values, TsvUtil.split(line));
+    }
+
+    @Test
+    public void testNullValues() {
+        Assertions.assertEquals("a\t\tb", TsvUtil.join("a", null, "b"));
+        Assertions.assertEquals(
+                Arrays.asList("a", "", "b"), TsvUtil.split("a\t\tb"));
+        Assertions.assertEquals(Arrays.asList(""), TsvUtil.split(""));
+    }
+}
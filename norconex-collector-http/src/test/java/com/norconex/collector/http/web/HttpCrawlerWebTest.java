@@ -44,6 +44,7 @@ import com.norconex.collector.http.server.TestServerBuilder;
 import com.norconex.collector.http.web.feature.CanonicalLink;
 import com.norconex.collector.http.web.feature.CanonicalRedirectLoop;
 import com.norconex.collector.http.web.feature.ContentTypeCharset;
+import com.norconex.collector.http.web.feature.DeferredMaxURLs;
 import com.norconex.collector.http.web.feature.FileNotFoundDeletion;
 import com.norconex.collector.http.web.feature.JavaScriptURL;
 import com.norconex.collector.http.web.feature.KeepDownloads;
@@ -89,6 +90,7 @@ public class HttpCrawlerWebTest {
         new KeepDownloads(),
         new FileNotFoundDeletion(),
         new MaxURLs(),
+        new DeferredMaxURLs(),
         new SpecialURLs(),
         new ScriptTags(),
         new ZeroLength(),
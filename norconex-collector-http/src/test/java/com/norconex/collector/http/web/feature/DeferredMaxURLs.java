@@ -0,0 +1,78 @@
+/* Copyright 2019 Norconex Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.norconex.collector.http.web.feature;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.norconex.collector.http.crawler.HttpCrawlerConfig;
+import com.norconex.collector.http.fetch.util.GenericHttpRetryPolicy;
+import com.norconex.collector.http.web.AbstractInfiniteDepthTestFeature;
+import com.norconex.committer.core.IAddOperation;
+import com.norconex.committer.core.impl.MemoryCommitter;
+
+/**
+ * Test that URLs deferred several times (here for retries) only count
+ * once towards MaxURLs.
+ * @author Pascal Essiembre
+ */
+public class DeferredMaxURLs extends AbstractInfiniteDepthTestFeature {
+
+    private static final int FAILURES_PER_URL = 2;
+
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+
+    @Override
+    protected void doConfigureCralwer(HttpCrawlerConfig crawlerConfig)
+            throws Exception {
+        crawlerConfig.setMaxDocuments(5);
+        GenericHttpRetryPolicy policy = new GenericHttpRetryPolicy();
+        policy.setMaxRetries(FAILURES_PER_URL);
+        policy.setBaseDelay(10);
+        policy.setJitter(0);
+        policy.setDeferred(true);
+        crawlerConfig.setHttpFetchersRetryPolicy(policy);
+    }
+
+    @Override
+    public void service(HttpServletRequest req, HttpServletResponse resp)
+            throws Exception {
+        String url = req.getRequestURL() + "?" + req.getQueryString();
+        int hit = hits.computeIfAbsent(
+                url, k -> new AtomicInteger()).incrementAndGet();
+        if (hit <= FAILURES_PER_URL) {
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        super.service(req, resp);
+    }
+
+    @Override
+    protected void doTestMemoryCommitter(MemoryCommitter committer)
+            throws Exception {
+        List<String> refs = committer.getAddOperations().stream()
+                .map(IAddOperation::getReference)
+                .collect(Collectors.toList());
+        assertListSize("URLs", refs, 5);
+        assertListSize("distinct URLs",
+                refs.stream().distinct().collect(Collectors.toList()), 5);
+    }
+}